@@ -10,6 +10,10 @@ import javax.json.JsonObject;
  * are a reusable convince for messages and services. This objects are immutable
  * and declared abstract as they should not be used directly.
  * 
+ * Subclasses that keep their data in typed fields override
+ * {@link #buildJsonObject()}; the JSON object and its String are then only
+ * built the first time they are needed, and cached afterwards.
+ * 
  * @author Russell Toris - russell.toris@gmail.com
  * @version April 1, 2014
  */
@@ -20,14 +24,18 @@ public abstract class JsonWrapper {
 	 */
 	public static final String EMPTY_JSON = "{}";
 
-	private final JsonObject jsonObject;
-	private final String jsonString;
+	// built lazily; racing threads build equal immutable values, like
+	// String.hashCode, so no synchronization is needed
+	private JsonObject jsonObject;
+	private String jsonString;
 
 	/**
-	 * Create a new, empty JSON object.
+	 * Create a new, empty JSON object. The JSON object is built by
+	 * {@link #buildJsonObject()} when it is first needed.
 	 */
 	public JsonWrapper() {
-		this(JsonWrapper.EMPTY_JSON);
+		this.jsonObject = null;
+		this.jsonString = null;
 	}
 
 	/**
@@ -50,8 +58,18 @@ public abstract class JsonWrapper {
 	 */
 	public JsonWrapper(JsonObject jsonObject) {
 		this.jsonObject = jsonObject;
-		// only need to do this once
-		this.jsonString = this.jsonObject.toString();
+		this.jsonString = null;
+	}
+
+	/**
+	 * Build the JSON object of this wrapper. Only called for wrappers that were
+	 * not created from JSON, and possibly more than once if threads race, so it
+	 * must not have side effects. The default is the empty JSON object.
+	 * 
+	 * @return The JSON object.
+	 */
+	protected JsonObject buildJsonObject() {
+		return Json.createObjectBuilder().build();
 	}
 
 	/**
@@ -60,7 +78,12 @@ public abstract class JsonWrapper {
 	 * @return The JSON object.
 	 */
 	public JsonObject toJsonObject() {
-		return this.jsonObject;
+		JsonObject json = this.jsonObject;
+		if (json == null) {
+			json = this.buildJsonObject();
+			this.jsonObject = json;
+		}
+		return json;
 	}
 
 	/**
@@ -70,7 +93,12 @@ public abstract class JsonWrapper {
 	 */
 	@Override
 	public String toString() {
-		return this.jsonString;
+		String json = this.jsonString;
+		if (json == null) {
+			json = this.toJsonObject().toString();
+			this.jsonString = json;
+		}
+		return json;
 	}
 
 	/**
@@ -86,7 +114,7 @@ public abstract class JsonWrapper {
 	 */
 	@Override
 	public int hashCode() {
-		return this.jsonString.hashCode();
+		return this.toString().hashCode();
 	}
 
 	/**
@@ -100,7 +128,7 @@ public abstract class JsonWrapper {
 	@Override
 	public boolean equals(Object o) {
 		return o == this
-				|| (o instanceof JsonWrapper && this.jsonString.equals(o
-						.toString()));
+				|| (o instanceof JsonWrapper && this.toString().equals(
+						o.toString()));
 	}
 }
@@ -14,6 +14,11 @@ public class ROSConstants {
 	 */
 	public static final String FIELD_ARGS = "args";
 
+	/**
+	 * The raw message bytes field for the rosbridge protocol.
+	 */
+	public static final String FIELD_BYTES = "bytes";
+
 	/**
 	 * The client field for the rosbridge protocol.
 	 */
@@ -39,6 +44,11 @@ public class ROSConstants {
 	 */
 	public static final String FIELD_END_TIME = "end";
 
+	/**
+	 * The fragment size field for the rosbridge protocol.
+	 */
+	public static final String FIELD_FRAGMENT_SIZE = "fragment_size";
+
 	/**
 	 * The ID field for the rosbridge protocol.
 	 */
@@ -64,6 +74,16 @@ public class ROSConstants {
 	 */
 	public static final String FIELD_OP = "op";
 
+	/**
+	 * The nanoseconds field for the rosbridge protocol.
+	 */
+	public static final String FIELD_NSECS = "nsecs";
+
+	/**
+	 * The fragment number field for the rosbridge protocol.
+	 */
+	public static final String FIELD_NUM = "num";
+
 	/**
 	 * The random field for the rosbridge protocol.
 	 */
@@ -74,6 +94,11 @@ public class ROSConstants {
 	 */
 	public static final String FIELD_RESULT = "result";
 
+	/**
+	 * The seconds field for the rosbridge protocol.
+	 */
+	public static final String FIELD_SECS = "secs";
+
 	/**
 	 * The service field for the rosbridge protocol.
 	 */
@@ -94,6 +119,11 @@ public class ROSConstants {
 	 */
 	public static final String FIELD_TOPIC = "topic";
 
+	/**
+	 * The fragment total field for the rosbridge protocol.
+	 */
+	public static final String FIELD_TOTAL = "total";
+
 	/**
 	 * The message/service type field for the rosbridge protocol.
 	 */
@@ -129,6 +159,11 @@ public class ROSConstants {
 	 */
 	public static final String OP_CODE_CALL_SERVICE = "call_service";
 
+	/**
+	 * The fragment op code for the rosbridge protocol.
+	 */
+	public static final String OP_CODE_FRAGMENT = "fragment";
+
 	/**
 	 * The png compression op code for the rosbridge protocol.
 	 */
@@ -176,6 +211,12 @@ public class ROSConstants {
 	 * @version April 1, 2014
 	 */
 	public enum CompressionType {
-		png, none
+		png, cbor, cbor_raw {
+			@Override
+			public String toString() {
+				return "cbor-raw";
+			}
+		},
+		none
 	}
 }
@@ -1,32 +1,81 @@
 package org.jrosbridge.springed;
 
-import java.awt.image.Raster;
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.UUID;
-import javax.imageio.ImageIO;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 import javax.json.Json;
+import javax.json.JsonException;
+import javax.json.JsonNumber;
 import javax.json.JsonObject;
+import javax.json.JsonObjectBuilder;
+import javax.json.JsonString;
+import javax.json.JsonValue;
+import javax.json.stream.JsonGenerator;
+import org.jrosbridge.springed.callback.AsyncCallServiceCallback;
 import org.jrosbridge.springed.callback.CallServiceCallback;
+import org.jrosbridge.springed.callback.RawTopicCallback;
 import org.jrosbridge.springed.callback.ServiceCallback;
 import org.jrosbridge.springed.callback.TopicCallback;
+import org.jrosbridge.springed.codec.ArrayFieldSchema;
+import org.jrosbridge.springed.codec.CborDecoder;
+import org.jrosbridge.springed.codec.FragmentAssembler;
+import org.jrosbridge.springed.codec.FrameBuffer;
+import org.jrosbridge.springed.codec.FrameBufferPool;
+import org.jrosbridge.springed.codec.FrameEncoder;
+import org.jrosbridge.springed.codec.FrameHeader;
+import org.jrosbridge.springed.codec.PngFrameDecoder;
+import org.jrosbridge.springed.codec.PrimitiveJsonArray;
+import org.jrosbridge.springed.codec.PublishFrameTemplate;
+import org.jrosbridge.springed.codec.StreamingJsonDecoder;
+import org.jrosbridge.springed.dispatch.CallbackDispatcher;
+import org.jrosbridge.springed.dispatch.CallbackMetrics;
+import org.jrosbridge.springed.dispatch.ConflatingTopicCallback;
+import org.jrosbridge.springed.dispatch.ParallelDispatcher;
+import org.jrosbridge.springed.dispatch.SameThreadDispatcher;
+import org.jrosbridge.springed.dispatch.StripedDispatcher;
+import org.jrosbridge.springed.dispatch.TopicRouter;
 import org.jrosbridge.springed.messages.Message;
+import org.jrosbridge.springed.messages.MessageArrayFields;
+import org.jrosbridge.springed.pending.PendingCallTable;
+import org.jrosbridge.springed.primitives.Time;
+import org.jrosbridge.springed.services.ServiceCallLimiter;
+import org.jrosbridge.springed.services.ServiceOverflowPolicy;
 import org.jrosbridge.springed.services.ServiceRequest;
 import org.jrosbridge.springed.services.ServiceResponse;
+import org.jrosbridge.springed.session.OutboundFrame;
+import org.jrosbridge.springed.session.OutboundQueue;
+import org.jrosbridge.springed.session.OverflowPolicy;
+import org.jrosbridge.springed.session.SessionRegistry;
+import org.jrosbridge.springed.session.SharedFrame;
+import org.jrosbridge.springed.subscription.AdvertisementManifest;
+import org.jrosbridge.springed.subscription.SubscriptionManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.lang.NonNull;
-import org.springframework.util.Base64Utils;
 import org.springframework.web.socket.BinaryMessage;
 import org.springframework.web.socket.CloseStatus;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
-import org.springframework.web.socket.handler.TextWebSocketHandler;
+import org.springframework.web.socket.handler.AbstractWebSocketHandler;
 
 /**
  * The Ros object is the main connection point to the rosbridge server. This object manages all
@@ -37,26 +86,116 @@ import org.springframework.web.socket.handler.TextWebSocketHandler;
  * @author Marting Mirchev - mirchevmartin2203@gmail.com
  * @version May 22, 2022
  */
-public abstract class Ros<Identifier> extends TextWebSocketHandler {
+public abstract class Ros<Identifier> extends AbstractWebSocketHandler {
 
   private final Logger logger = LoggerFactory.getLogger(Ros.class);
 
-  // keeps track of callback functions for a given topic
-  private final Map<String, List<TopicCallback>> topicCallbacks = new HashMap<>();
+  // keeps track of callback functions for a given robot and topic
+  private final TopicRouter<Identifier, TopicCallback> topicCallbacks = new TopicRouter<>();
 
-  // keeps track of callback functions for a given service request
-  private final Map<String, ServiceCallback> serviceCallbacks = new HashMap<>();
+  // keeps track of callback functions for a given robot and topic subscribed with cbor-raw
+  private final TopicRouter<Identifier, RawTopicCallback> rawTopicCallbacks =
+      new TopicRouter<>();
 
-  // keeps track of callback functions for a given advertised service
-  private final Map<String, CallServiceCallback> callServiceCallbacks = new HashMap<>();
+  // latency metrics of every registered topic callback
+  private final Map<Object, CallbackMetrics> callbackMetrics = new ConcurrentHashMap<>();
 
-  private final Map<Identifier, WebSocketSession> activeSessions = new HashMap<>();
-  private final Map<WebSocketSession, Identifier> activeSessionsInverse = new HashMap<>();
+  // how often each callback is registered, its metrics are kept until the last one is gone
+  private final Map<Object, Integer> callbackRegistrations = new ConcurrentHashMap<>();
+
+  // decides on which thread topic callbacks run
+  private volatile CallbackDispatcher callbackDispatcher = new SameThreadDispatcher();
+
+  // runs the callbacks of latest-value-only subscriptions
+  private volatile Executor conflatingExecutor;
+
+  // keeps track of the service calls that wait for a response
+  private final PendingCallTable pendingCalls;
+
+  // puts fragmented messages back together
+  private final FragmentAssembler fragmentAssembler;
+
+  // callbacks of services advertised on all robots, run on the thread that received the call
+  private final ConcurrentMap<String, CallServiceCallback> allRobotsCallServiceCallbacks =
+      new ConcurrentHashMap<>();
+
+  // how long service calls wait for a response by default
+  private volatile long serviceCallTimeoutNanos = TimeUnit.SECONDS.toNanos(60);
+
+  // runs the handlers of advertised services, by robot and service name
+  private final ConcurrentMap<Identifier, ConcurrentMap<String, ServiceCallLimiter>>
+      callServiceHandlers = new ConcurrentHashMap<>();
+
+  // runs the handlers of advertised services off the websocket threads
+  private volatile Executor serviceExecutor;
+
+  // keeps track of which session belongs to which robot, in both directions
+  private final SessionRegistry<Identifier> activeSessions = new SessionRegistry<>();
+
+  // every registered session writes through its own bounded queue
+  private final Map<WebSocketSession, OutboundQueue> outboundQueues = new ConcurrentHashMap<>();
+
+  // shares rosbridge subscriptions between local subscribers
+  private final SubscriptionManager<Identifier> subscriptionManager =
+      new SubscriptionManager<>(this);
+
+  // the advertisements of each robot, sent again when it reconnects
+  private final AdvertisementManifest<Identifier> advertisementManifest =
+      new AdvertisementManifest<>();
+
+  // reusable buffers that outbound frames are serialized into
+  private final FrameBufferPool framePool = new FrameBufferPool();
+
+  // settings used when creating the outbound queue of a new session
+  private volatile Executor writerExecutor;
+  private volatile int maxQueuedMessages = 1024;
+  private volatile long maxQueuedBytes = 16L * 1024 * 1024;
+  private volatile OverflowPolicy overflowPolicy = OverflowPolicy.CLOSE_SESSION;
+
+  // decodes PNG compressed frames off the websocket threads, one session at a time
+  private volatile StripedDispatcher imageDispatcher;
 
   // used throughout the library to create unique IDs for requests.
-  private long idCounter = 0;
+  private final AtomicLong idCounter = new AtomicLong();
 
   public Ros() {
+    this.writerExecutor = newDaemonPool("ros-writer-");
+    setImageExecutor(Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+        newDaemonThreadFactory("ros-png-")));
+    this.conflatingExecutor = newDaemonPool("ros-latest-");
+    this.serviceExecutor = Executors.newFixedThreadPool(
+        Runtime.getRuntime().availableProcessors(), newDaemonThreadFactory("ros-service-"));
+    ScheduledExecutorService timeouts =
+        Executors.newSingleThreadScheduledExecutor(newDaemonThreadFactory("ros-timeout-"));
+    this.pendingCalls = new PendingCallTable(timeouts, 100, TimeUnit.MILLISECONDS);
+    this.fragmentAssembler = new FragmentAssembler(framePool, timeouts,
+        FragmentAssembler.DEFAULT_MAX_BYTES, FragmentAssembler.DEFAULT_TIMEOUT_SECONDS,
+        TimeUnit.SECONDS);
+  }
+
+  /**
+   * Create a cached thread pool of daemon threads with the given name prefix.
+   *
+   * @param prefix The prefix of the thread names.
+   * @return The new thread pool.
+   */
+  private static Executor newDaemonPool(String prefix) {
+    return Executors.newCachedThreadPool(newDaemonThreadFactory(prefix));
+  }
+
+  /**
+   * Create a factory of daemon threads with the given name prefix.
+   *
+   * @param prefix The prefix of the thread names.
+   * @return The new thread factory.
+   */
+  private static ThreadFactory newDaemonThreadFactory(String prefix) {
+    AtomicInteger count = new AtomicInteger();
+    return r -> {
+      Thread t = new Thread(r, prefix + count.incrementAndGet());
+      t.setDaemon(true);
+      return t;
+    };
   }
 
   /**
@@ -65,7 +204,7 @@ public abstract class Ros<Identifier> extends TextWebSocketHandler {
    * @return The next unique ID number for this connection.
    */
   public long nextId() {
-    return this.idCounter++;
+    return this.idCounter.getAndIncrement();
   }
 
   @Override
@@ -89,57 +228,185 @@ public abstract class Ros<Identifier> extends TextWebSocketHandler {
   protected void handleTextMessage(@NonNull WebSocketSession session, TextMessage message)
       throws Exception {
     String payload = message.getPayload();
-    logger.info("Receiving payload {}", payload);
+    logger.debug("Receiving payload {}", payload);
+    handlePayload(session, payload);
+  }
+
+  /**
+   * Handle the JSON text of an incoming message, from a text frame or reassembled from fragments.
+   *
+   * @param session The session the message came from.
+   * @param payload The JSON text of the message.
+   */
+  private void handlePayload(WebSocketSession session, String payload) {
+    // drop publish frames nobody listens to before building their JSON tree
+    FrameHeader header = FrameHeader.scan(payload);
+    if (header.isPublish() && !hasTopicCallbacks(session, header.getTopic())) {
+      return;
+    }
 
-    JsonObject data = Json.createReader(new StringReader(payload)).readObject();
+    JsonObject data = header.isPublish() ? readPublish(session, header.getTopic(), payload)
+        : Json.createReader(new StringReader(payload)).readObject();
     // check for compression
     String op = data.getString(ROSConstants.FIELD_OP);
     if (op.equals(ROSConstants.OP_CODE_PNG)) {
-      handleImage(data);
+      handleImage(session, data);
     } else {
-      handleMessage(data);
+      handleMessage(session, data);
     }
   }
 
-  private void handleImage(JsonObject data) throws IOException {
-    String fieldData = data.getString(ROSConstants.FIELD_DATA);
-    // decompress the PNG data
-    byte[] bytes = Base64Utils.decode(fieldData.getBytes());
-    Raster imageData = ImageIO
-        .read(new ByteArrayInputStream(bytes)).getRaster();
+  /**
+   * Parse a publish frame. If the topic was subscribed with a type whose numeric array fields are
+   * known, these are read straight into primitive arrays instead of a tree of JsonNumbers. A frame
+   * that does not fit the schema, e.g. a number array holding other values, is read as a tree.
+   */
+  private JsonObject readPublish(WebSocketSession session, String topic, String payload) {
+    ArrayFieldSchema schema = MessageArrayFields.getPublishSchema(
+        subscriptionManager.getType(activeSessions.getIdentifier(session), topic));
+    if (schema != null) {
+      try {
+        return StreamingJsonDecoder.decode(payload, schema);
+      } catch (JsonException e) {
+        logger.debug("Publish frame of {} does not fit its schema: {}", topic, e.getMessage());
+      }
+    }
+    return Json.createReader(new StringReader(payload)).readObject();
+  }
+
+  /**
+   * Handle a binary frame. rosbridge sends these for topics subscribed with CBOR compression; a
+   * binary frame holding plain JSON text is handled like a text frame.
+   */
+  @Override
+  protected void handleBinaryMessage(@NonNull WebSocketSession session, BinaryMessage message)
+      throws Exception {
+    ByteBuffer payload = message.getPayload();
+    if (payload.hasRemaining() && payload.get(payload.position()) == '{') {
+      handleTextMessage(session,
+          new TextMessage(StandardCharsets.UTF_8.decode(payload.duplicate()).toString()));
+      return;
+    }
+
+    JsonValue data = CborDecoder.decode(payload);
+    if (data.getValueType() != JsonValue.ValueType.OBJECT) {
+      logger.warn("Ignoring CBOR frame that is not a map");
+      return;
+    }
+    JsonObject frame = data.asJsonObject();
+    if (ROSConstants.OP_CODE_PUBLISH.equals(frame.getString(ROSConstants.FIELD_OP, null))) {
+      String topic = frame.getString(ROSConstants.FIELD_TOPIC, null);
+      if (!hasTopicCallbacks(session, topic)) {
+        return;
+      }
+      JsonObject msg = frame.getJsonObject(ROSConstants.FIELD_MESSAGE);
+      if (isRawPublish(session, topic, msg)) {
+        handleRawPublish(session, topic, msg);
+        return;
+      }
+    }
+    handleMessage(session, frame);
+  }
 
-    // read the RGB data
-    int[] rawData = null;
-    rawData = imageData.getPixels(0, 0, imageData.getWidth(),
-        imageData.getHeight(), rawData);
-    StringBuilder buffer = new StringBuilder();
-    for (int rawDatum : rawData) {
-      buffer.append((char) rawDatum);
+  /**
+   * Check if a publish operation holds a raw message. That is the case if the topic was subscribed
+   * with cbor-raw compression, or raw callbacks are registered for it, and the message has exactly
+   * the fields rosbridge sends for cbor-raw. A message of another subscription of the topic that
+   * merely has a byte array field named bytes is not raw.
+   *
+   * @param session The session the message came from.
+   * @param topic   The topic the message was published on.
+   * @param msg     The message field of the publish operation.
+   * @return If the message is to be handed to the raw callbacks.
+   */
+  private boolean isRawPublish(WebSocketSession session, String topic, JsonObject msg) {
+    if (msg == null || msg.size() != 3
+        || !(msg.get(ROSConstants.FIELD_SECS) instanceof JsonNumber)
+        || !(msg.get(ROSConstants.FIELD_NSECS) instanceof JsonNumber)
+        || !(msg.get(ROSConstants.FIELD_BYTES) instanceof PrimitiveJsonArray)) {
+      return false;
     }
+    Identifier robotId = activeSessions.getIdentifier(session);
+    return rawTopicCallbacks.hasRoutes(robotId, topic)
+        || subscriptionManager.isSubscribed(robotId, topic, ROSConstants.CompressionType.cbor_raw);
+  }
 
-    // reparse the JSON
-    JsonObject newJsonObject = Json.createReader(
-        new StringReader(buffer.toString())).readObject();
-    handleMessage(newJsonObject);
+  /**
+   * Handle a publish operation of a topic subscribed with cbor-raw compression. The message holds
+   * the ROS binary serialization and the time rosbridge received it.
+   *
+   * @param session The session the message came from.
+   * @param topic   The topic the message was published on.
+   * @param msg     The message field of the publish operation.
+   */
+  private void handleRawPublish(WebSocketSession session, String topic, JsonObject msg) {
+    Identifier robotId = activeSessions.getIdentifier(session);
+    byte[] bytes = ((PrimitiveJsonArray) msg.get(ROSConstants.FIELD_BYTES)).toByteArray();
+    Time stamp = new Time(msg.getInt(ROSConstants.FIELD_SECS, 0),
+        msg.getInt(ROSConstants.FIELD_NSECS, 0));
+    long received = System.nanoTime();
+    dispatchRaw(robotId, topic, rawTopicCallbacks.getRobotCallbacks(robotId, topic), bytes,
+        stamp, received);
+    dispatchRaw(robotId, topic, rawTopicCallbacks.getAllRobotsCallbacks(topic), bytes, stamp,
+        received);
+  }
+
+  /**
+   * Hand a raw message to each of the given raw callbacks.
+   */
+  private void dispatchRaw(Identifier robotId, String topic, List<RawTopicCallback> callbacks,
+      byte[] bytes, Time stamp, long received) {
+    for (RawTopicCallback cb : callbacks) {
+      // every callback gets its own view, so positions do not interfere
+      ByteBuffer view = ByteBuffer.wrap(bytes).asReadOnlyBuffer().order(ByteOrder.LITTLE_ENDIAN);
+      dispatch(robotId, topic, cb, received, () -> cb.handleRawMessage(view, stamp));
+    }
+  }
+
+  /**
+   * Handle a png operation. The image is decoded on the image executor, so large PNG compressed
+   * topics do not hold up the other frames of the session. The png frames of a session are handled
+   * one after the other, in the order they arrived, but may be handled out of order with respect
+   * to the uncompressed frames of the session.
+   *
+   * @param session The session the frame came from.
+   * @param data    The JSON object of the png operation.
+   */
+  private void handleImage(WebSocketSession session, JsonObject data) {
+    String fieldData = data.getString(ROSConstants.FIELD_DATA);
+    imageDispatcher.dispatch(session.getId(), null, () -> {
+      FrameBuffer buffer = framePool.acquire();
+      try {
+        handleMessage(session, PngFrameDecoder.decode(fieldData, buffer));
+      } catch (IOException | RuntimeException e) {
+        logger.error("Could not decode PNG frame", e);
+      } finally {
+        framePool.release(buffer);
+      }
+    });
   }
 
   /**
    * Handle the incoming rosbridge message by calling the appropriate callbacks.
    *
+   * @param session    The session the message came from.
    * @param jsonObject The JSON object from the incoming rosbridge message.
    */
-  private void handleMessage(JsonObject jsonObject) {
+  private void handleMessage(WebSocketSession session, JsonObject jsonObject) {
     // check for the correct fields
     String op = jsonObject.getString(ROSConstants.FIELD_OP);
     switch (op) {
       case ROSConstants.OP_CODE_PUBLISH:
-        handlePublish(jsonObject);
+        handlePublish(session, jsonObject);
         break;
       case ROSConstants.OP_CODE_SERVICE_RESPONSE:
-        handleServiceResponse(jsonObject);
+        handleServiceResponse(session, jsonObject);
         break;
       case ROSConstants.OP_CODE_CALL_SERVICE:
-        handleCallService(jsonObject);
+        handleCallService(session, jsonObject);
+        break;
+      case ROSConstants.OP_CODE_FRAGMENT:
+        handleFragment(session, jsonObject);
         break;
       case ROSConstants.OP_CODE_ADVERTISE:
         handleAdvertise(jsonObject);
@@ -157,6 +424,22 @@ public abstract class Ros<Identifier> extends TextWebSocketHandler {
 
   }
 
+  /**
+   * Handle a fragment operation. Once all fragments of a message are in, its text is handled like
+   * that of a text frame. Messages whose fragments are incomplete are limited in size and time by the
+   * fragment assembler.
+   *
+   * @param session    The session the message came from.
+   * @param jsonObject The JSON object from the incoming rosbridge message.
+   */
+  private void handleFragment(WebSocketSession session, JsonObject jsonObject) {
+    String message = fragmentAssembler.add(session, jsonObject);
+    if (message != null) {
+      // rosbridge compresses before it fragments, so this may be a png operation
+      handlePayload(session, message);
+    }
+  }
+
   /**
    * Handle a service advertise operation.
    *
@@ -178,115 +461,442 @@ public abstract class Ros<Identifier> extends TextWebSocketHandler {
   }
 
   /**
-   * Handle a call service operation.
+   * Handle a call service operation. The call is handed to the limiter of the service, which runs
+   * the handler on the service executor.
    *
+   * @param session    The session the message came from.
    * @param jsonObject The JSON object from the incoming rosbridge message.
    */
-  private void handleCallService(JsonObject jsonObject) {
+  private void handleCallService(WebSocketSession session, JsonObject jsonObject) {
     // check for the request ID
-    String id = jsonObject.getString("id");
-    String service = jsonObject.getString("service");
-
-    // call the callback for the request
-    CallServiceCallback cb = callServiceCallbacks.get(service);
-    if (cb != null) {
-      // get the response
-      JsonObject args = jsonObject
-          .getJsonObject(ROSConstants.FIELD_ARGS);
-      ServiceRequest request = new ServiceRequest(args);
-      request.setId(id);
-      cb.handleServiceCall(request);
+    JsonValue idValue = jsonObject.get(ROSConstants.FIELD_ID);
+    String id = idValue instanceof JsonString ? ((JsonString) idValue).getString()
+        : idValue == null ? null : idValue.toString();
+    String service = jsonObject.getString(ROSConstants.FIELD_SERVICE);
+
+    Identifier robotId = activeSessions.getIdentifier(session);
+    ConcurrentMap<String, ServiceCallLimiter> handlers =
+        robotId == null ? null : callServiceHandlers.get(robotId);
+    ServiceCallLimiter limiter = handlers == null ? null : handlers.get(service);
+    CallServiceCallback allRobotsCallback =
+        limiter == null ? allRobotsCallServiceCallbacks.get(service) : null;
+    if (limiter == null && allRobotsCallback == null) {
+      logger.warn("No handler for call of service {} from robot {}", service, robotId);
+      return;
+    }
+
+    JsonValue args = jsonObject.get(ROSConstants.FIELD_ARGS);
+    ServiceRequest request = new ServiceRequest(
+        args instanceof JsonObject ? (JsonObject) args : JsonValue.EMPTY_JSON_OBJECT);
+    request.setId(id);
+    if (limiter != null) {
+      limiter.submit(request);
+    } else {
+      allRobotsCallback.handleServiceCall(request);
     }
   }
 
   /**
-   * Handle a response service operation.
+   * Handle a response service operation. Only a response on the session the call was sent on
+   * completes the call.
    *
+   * @param session    The session the message came from.
    * @param jsonObject The JSON object from the incoming rosbridge message.
    */
-  private void handleServiceResponse(JsonObject jsonObject) {
+  private void handleServiceResponse(WebSocketSession session, JsonObject jsonObject) {
     // check for the request ID
-    String id = jsonObject.getString(ROSConstants.FIELD_ID);
+    long id = parseCallId(jsonObject.get(ROSConstants.FIELD_ID));
+    if (id < 0) {
+      logger.warn("Ignoring service response with unknown id: {}", jsonObject);
+      return;
+    }
+
+    // check if a success code was given
+    JsonValue result = jsonObject.get(ROSConstants.FIELD_RESULT);
+    boolean success = result == null || result == JsonValue.TRUE
+        || (result instanceof JsonString && Boolean.parseBoolean(((JsonString) result).getString()));
+    // get the response, failed calls may carry an error message instead
+    JsonValue values = jsonObject.get(ROSConstants.FIELD_VALUES);
+    JsonObject valuesObject = values instanceof JsonObject ? (JsonObject) values
+        : JsonValue.EMPTY_JSON_OBJECT;
+    if (!pendingCalls.complete(id, session, new ServiceResponse(valuesObject, success))) {
+      logger.debug("Ignoring service response {} without a pending call on session {}", id,
+          session.getId());
+    }
+  }
 
-    // call the callback for the request
-    ServiceCallback cb = serviceCallbacks.get(id);
-    if (cb != null) {
-      // check if a success code was given
-      boolean success = !jsonObject
-          .containsKey(ROSConstants.FIELD_RESULT) || Boolean.parseBoolean(jsonObject
-          .getString(ROSConstants.FIELD_RESULT));
-      // get the response
-      JsonObject values = jsonObject
-          .getJsonObject(ROSConstants.FIELD_VALUES);
-      ServiceResponse response = new ServiceResponse(values, success);
-      cb.handleServiceResponse(response);
+  /**
+   * Parse the id of a service call. Calls are sent with a numeric id; ids in the older
+   * "call_service:name:number" form are still understood.
+   *
+   * @param id The id field of the frame.
+   * @return The call id, or -1 if it is missing or malformed.
+   */
+  private static long parseCallId(JsonValue id) {
+    if (id instanceof JsonNumber) {
+      return ((JsonNumber) id).longValue();
+    }
+    if (id instanceof JsonString) {
+      String s = ((JsonString) id).getString();
+      try {
+        return Long.parseLong(s.substring(s.lastIndexOf(':') + 1));
+      } catch (NumberFormatException e) {
+        return -1;
+      }
     }
+    return -1;
   }
 
   /**
    * Handle a publish operation.
    *
+   * @param session    The session the message came from.
    * @param jsonObject The JSON object from the incoming rosbridge message.
    */
-  private void handlePublish(JsonObject jsonObject) {
+  private void handlePublish(WebSocketSession session, JsonObject jsonObject) {
     // check for the topic name
     String topic = jsonObject.getString(ROSConstants.FIELD_TOPIC);
 
-    // call each callback with the message
-    List<TopicCallback> callbacks = topicCallbacks.get(topic);
-    if (callbacks != null) {
-      Message msg = new Message(jsonObject.getJsonObject(ROSConstants.FIELD_MESSAGE));
-      for (TopicCallback cb : callbacks) {
-        cb.handleMessage(msg);
+    // call each callback of this robot, and of all robots, with the message
+    Identifier robotId = activeSessions.getIdentifier(session);
+    List<TopicCallback> robotCallbacks = topicCallbacks.getRobotCallbacks(robotId, topic);
+    List<TopicCallback> allRobotsCallbacks = topicCallbacks.getAllRobotsCallbacks(topic);
+    if (robotCallbacks.isEmpty() && allRobotsCallbacks.isEmpty()) {
+      return;
+    }
+    Message msg = new Message(jsonObject.getJsonObject(ROSConstants.FIELD_MESSAGE));
+    long received = System.nanoTime();
+    dispatchAll(robotId, topic, robotCallbacks, msg, received);
+    dispatchAll(robotId, topic, allRobotsCallbacks, msg, received);
+  }
+
+  /**
+   * Hand a message to each of the given topic callbacks.
+   */
+  private void dispatchAll(Identifier robotId, String topic, List<TopicCallback> callbacks,
+      Message msg, long received) {
+    for (TopicCallback cb : callbacks) {
+      if (cb instanceof ConflatingTopicCallback) {
+        // these run on their own executor and keep their own metrics
+        ((ConflatingTopicCallback) cb).offer(robotId, msg, received);
+      } else {
+        dispatch(robotId, topic, cb, received, () -> cb.handleMessage(msg));
       }
     }
   }
 
   /**
-   * Register a callback for a given topic.
+   * Hand a callback to the callback dispatcher, recording its delay and latency in the metrics of
+   * the callback. Exceptions thrown by the callback are logged and counted.
+   *
+   * @param robotId  The identifier of the robot the message came from.
+   * @param topic    The topic the message was published on.
+   * @param callback The callback, used to find its metrics.
+   * @param received When the message was received, from {@link System#nanoTime()}.
+   * @param call     Calls the callback with the message.
+   */
+  private void dispatch(Identifier robotId, String topic, Object callback, long received,
+      Runnable call) {
+    // null if the callback was deregistered while the message was in flight
+    CallbackMetrics metrics = callbackMetrics.get(callback);
+    callbackDispatcher.dispatch(robotId, topic, () -> {
+      long start = System.nanoTime();
+      boolean failed = false;
+      try {
+        call.run();
+      } catch (RuntimeException e) {
+        failed = true;
+        logger.error("Callback for topic {} failed", topic, e);
+      } finally {
+        if (metrics != null) {
+          metrics.record(start - received, System.nanoTime() - start, failed);
+        }
+      }
+    });
+  }
+
+  /**
+   * Get the latency metrics of a topic callback.
+   *
+   * @param callback A registered {@link TopicCallback TopicCallback} or {@link RawTopicCallback
+   *                 RawTopicCallback}.
+   * @return The metrics of the callback, or null if it is not registered.
+   */
+  public CallbackMetrics getCallbackMetrics(Object callback) {
+    return callbackMetrics.get(callback);
+  }
+
+  /**
+   * Get the latency metrics of all registered topic callbacks. The slowest subscribers can be
+   * found by sorting them by their mean or maximum latency.
+   *
+   * @return A read-only view of the metrics, keyed by callback.
+   */
+  public Map<Object, CallbackMetrics> getCallbackMetrics() {
+    return Collections.unmodifiableMap(callbackMetrics);
+  }
+
+  /**
+   * Set how topic callbacks are run. By default, they run on the thread that received the message.
+   *
+   * @param callbackDispatcher The callback dispatcher.
+   * @see SameThreadDispatcher
+   * @see StripedDispatcher
+   * @see ParallelDispatcher
+   */
+  public void setCallbackDispatcher(CallbackDispatcher callbackDispatcher) {
+    this.callbackDispatcher = callbackDispatcher;
+  }
+
+  /**
+   * Get the executor that runs the callbacks of latest-value-only subscriptions.
+   *
+   * @return The executor for conflating callbacks.
+   * @see Topic#subscribeLatest(TopicCallback)
+   */
+  public Executor getConflatingExecutor() {
+    return conflatingExecutor;
+  }
+
+  /**
+   * Set the executor that runs the callbacks of latest-value-only subscriptions. Only subscriptions
+   * made afterwards use it. By default, a cached pool of daemon threads is used.
+   *
+   * @param conflatingExecutor The executor for conflating callbacks.
+   */
+  public void setConflatingExecutor(Executor conflatingExecutor) {
+    this.conflatingExecutor = conflatingExecutor;
+  }
+
+  /**
+   * Check if any callbacks are registered for a given topic of the robot of a session.
+   *
+   * @param session The session the message came from.
+   * @param topic   The topic to check.
+   * @return If any callbacks are registered for the topic.
+   */
+  private boolean hasTopicCallbacks(WebSocketSession session, String topic) {
+    Identifier robotId = activeSessions.getIdentifier(session);
+    return topicCallbacks.hasRoutes(robotId, topic)
+        || rawTopicCallbacks.hasRoutes(robotId, topic);
+  }
+
+  /**
+   * Register a callback for a given topic of a single robot. It is not called for the messages of
+   * other robots.
+   *
+   * @param robotId The identifier of the robot.
+   * @param topic   The topic to register this callback with.
+   * @param cb      The callback that will be called when messages come in for the associated
+   *                topic.
+   */
+  public void registerTopicCallback(Identifier robotId, String topic, TopicCallback cb) {
+    topicCallbacks.register(robotId, topic, cb);
+    addCallbackMetrics(topic, cb);
+  }
+
+  /**
+   * Register a callback for a given topic of all robots.
+   *
+   * @param topic The topic to register this callback with.
+   * @param cb    The callback that will be called when messages come in for the associated topic.
+   */
+  public void registerTopicCallbackForAllRobots(String topic, TopicCallback cb) {
+    topicCallbacks.registerAllRobots(topic, cb);
+    addCallbackMetrics(topic, cb);
+  }
+
+  /**
+   * Register a callback for a given topic of all robots.
    *
    * @param topic The topic to register this callback with.
    * @param cb    The callback that will be called when messages come in for the associated topic.
+   * @deprecated Use {@link #registerTopicCallbackForAllRobots(String, TopicCallback)}, or
+   *             {@link #registerTopicCallback(Object, String, TopicCallback)} for a single robot.
    */
+  @Deprecated
   public void registerTopicCallback(String topic, TopicCallback cb) {
-    // check if any callbacks exist yet
-    if (!topicCallbacks.containsKey(topic)) {
-      topicCallbacks.put(topic, new ArrayList<>());
+    registerTopicCallbackForAllRobots(topic, cb);
+  }
+
+  /**
+   * Deregister a callback for a given topic of a single robot.
+   *
+   * @param robotId The identifier of the robot.
+   * @param topic   The topic associated with the callback.
+   * @param cb      The callback to remove.
+   */
+  public void deregisterTopicCallback(Identifier robotId, String topic, TopicCallback cb) {
+    if (topicCallbacks.deregister(robotId, topic, cb)) {
+      removeCallbackMetrics(cb);
     }
+  }
 
-    // add the callback
-    topicCallbacks.get(topic).add(cb);
+  /**
+   * Deregister a callback for a given topic of all robots.
+   *
+   * @param topic The topic associated with the callback.
+   * @param cb    The callback to remove.
+   */
+  public void deregisterTopicCallbackForAllRobots(String topic, TopicCallback cb) {
+    if (topicCallbacks.deregisterAllRobots(topic, cb)) {
+      removeCallbackMetrics(cb);
+    }
   }
 
   /**
-   * Deregister a callback for a given topic.
+   * Deregister a callback for a given topic of all robots.
    *
    * @param topic The topic associated with the callback.
    * @param cb    The callback to remove.
+   * @deprecated Use {@link #deregisterTopicCallbackForAllRobots(String, TopicCallback)}.
    */
+  @Deprecated
   public void deregisterTopicCallback(String topic, TopicCallback cb) {
-    // check if any exist for this topic
-    if (topicCallbacks.containsKey(topic)) {
-      // remove the callback if it exists
-      List<TopicCallback> callbacks = topicCallbacks.get(topic);
-      callbacks.remove(cb);
-
-      // remove the list if it is empty
-      if (callbacks.size() == 0) {
-        topicCallbacks.remove(topic);
-      }
+    deregisterTopicCallbackForAllRobots(topic, cb);
+  }
+
+  /**
+   * Register a raw callback for a given topic of a single robot, subscribed with cbor-raw
+   * compression.
+   *
+   * @param robotId The identifier of the robot.
+   * @param topic   The topic to register this callback with.
+   * @param cb      The callback that will be called when messages come in for the associated
+   *                topic.
+   */
+  public void registerRawTopicCallback(Identifier robotId, String topic, RawTopicCallback cb) {
+    rawTopicCallbacks.register(robotId, topic, cb);
+    addCallbackMetrics(topic, cb);
+  }
+
+  /**
+   * Register a raw callback for a given topic of all robots, subscribed with cbor-raw
+   * compression.
+   *
+   * @param topic The topic to register this callback with.
+   * @param cb    The callback that will be called when messages come in for the associated topic.
+   */
+  public void registerRawTopicCallbackForAllRobots(String topic, RawTopicCallback cb) {
+    rawTopicCallbacks.registerAllRobots(topic, cb);
+    addCallbackMetrics(topic, cb);
+  }
+
+  /**
+   * Register a raw callback for a given topic of all robots, subscribed with cbor-raw
+   * compression.
+   *
+   * @param topic The topic to register this callback with.
+   * @param cb    The callback that will be called when messages come in for the associated topic.
+   * @deprecated Use {@link #registerRawTopicCallbackForAllRobots(String, RawTopicCallback)}, or
+   *             {@link #registerRawTopicCallback(Object, String, RawTopicCallback)} for a single
+   *             robot.
+   */
+  @Deprecated
+  public void registerRawTopicCallback(String topic, RawTopicCallback cb) {
+    registerRawTopicCallbackForAllRobots(topic, cb);
+  }
+
+  /**
+   * Deregister a raw callback for a given topic of a single robot.
+   *
+   * @param robotId The identifier of the robot.
+   * @param topic   The topic associated with the callback.
+   * @param cb      The callback to remove.
+   */
+  public void deregisterRawTopicCallback(Identifier robotId, String topic, RawTopicCallback cb) {
+    if (rawTopicCallbacks.deregister(robotId, topic, cb)) {
+      removeCallbackMetrics(cb);
     }
   }
 
   /**
-   * Add a session for a specific robot to keep track of.
+   * Deregister a raw callback for a given topic of all robots.
+   *
+   * @param topic The topic associated with the callback.
+   * @param cb    The callback to remove.
+   */
+  public void deregisterRawTopicCallbackForAllRobots(String topic, RawTopicCallback cb) {
+    if (rawTopicCallbacks.deregisterAllRobots(topic, cb)) {
+      removeCallbackMetrics(cb);
+    }
+  }
+
+  /**
+   * Deregister a raw callback for a given topic of all robots.
+   *
+   * @param topic The topic associated with the callback.
+   * @param cb    The callback to remove.
+   * @deprecated Use {@link #deregisterRawTopicCallbackForAllRobots(String, RawTopicCallback)}.
+   */
+  @Deprecated
+  public void deregisterRawTopicCallback(String topic, RawTopicCallback cb) {
+    deregisterRawTopicCallbackForAllRobots(topic, cb);
+  }
+
+  private void addCallbackMetrics(String topic, Object cb) {
+    callbackRegistrations.compute(cb, (c, count) -> {
+      callbackMetrics.computeIfAbsent(c, m -> m instanceof ConflatingTopicCallback
+          ? ((ConflatingTopicCallback) m).getMetrics() : new CallbackMetrics(topic));
+      return count == null ? 1 : count + 1;
+    });
+  }
+
+  /**
+   * Drop the metrics of a callback once its last registration is gone.
+   */
+  private void removeCallbackMetrics(Object cb) {
+    callbackRegistrations.computeIfPresent(cb, (c, count) -> {
+      if (count > 1) {
+        return count - 1;
+      }
+      callbackMetrics.remove(c);
+      return null;
+    });
+  }
+
+  /**
+   * Add a session for a specific robot to keep track of. The advertisements and subscriptions the
+   * robot had on an earlier session are sent again right away, so topics and services bound to
+   * the identifier keep working after a reconnect.
    *
    * @param session The web socket session used to communicate with the robot.
    * @param robotId The identifier of the robot. Currently, we use a MAC Address.
    */
   public void registerSession(WebSocketSession session, Identifier robotId) {
-    activeSessions.put(robotId, session);
-    activeSessionsInverse.put(session, robotId);
+    outboundQueues.computeIfAbsent(session, s -> new OutboundQueue(s, writerExecutor,
+        maxQueuedMessages, maxQueuedBytes, overflowPolicy));
+    WebSocketSession replaced = activeSessions.register(session, robotId);
+    if (replaced != null) {
+      closeSession(replaced, "session was replaced");
+    }
+    replayManifest(robotId);
+  }
+
+  /**
+   * Queue the advertise and subscribe operations of a robot on its new session, as one burst
+   * through its outbound queue.
+   *
+   * @param robotId The identifier of the robot.
+   */
+  private void replayManifest(Identifier robotId) {
+    int advertised = 0;
+    int subscribed = 0;
+    try {
+      for (JsonObject call : advertisementManifest.getAdvertisements(robotId)) {
+        send(call, robotId);
+        advertised++;
+      }
+      subscribed = subscriptionManager.resubscribe(robotId);
+    } catch (IOException | RuntimeException e) {
+      logger.warn("Could not restore the advertisements and subscriptions of robot {}", robotId,
+          e);
+      return;
+    }
+    if (advertised + subscribed > 0) {
+      logger.info("Restored {} advertisements and {} subscriptions of robot {}", advertised,
+          subscribed, robotId);
+    }
   }
 
   /**
@@ -295,8 +905,10 @@ public abstract class Ros<Identifier> extends TextWebSocketHandler {
    * @param robotId The identifier of the robot.
    */
   public void deregisterSession(Identifier robotId) {
-    activeSessionsInverse.remove(activeSessions.get(robotId));
-    activeSessions.remove(robotId);
+    WebSocketSession session = activeSessions.deregister(robotId);
+    if (session != null) {
+      closeSession(session, "session closed");
+    }
   }
 
   /**
@@ -305,56 +917,567 @@ public abstract class Ros<Identifier> extends TextWebSocketHandler {
    * @param session The websocket session of the robot.
    */
   public void deregisterSession(WebSocketSession session) {
-    activeSessions.remove(activeSessionsInverse.get(session));
-    activeSessionsInverse.remove(session);
+    activeSessions.deregister(session);
+    closeSession(session, "session closed");
+  }
+
+  /**
+   * Close the outbound queue of a session and fail the service calls that wait for a response on
+   * it.
+   */
+  private void closeSession(WebSocketSession session, String reason) {
+    OutboundQueue queue = outboundQueues.remove(session);
+    if (queue != null) {
+      queue.close();
+    }
+    pendingCalls.failSession(session, reason);
+    fragmentAssembler.drop(session);
+  }
+
+  /**
+   * Get the outbound queue of a robot, e.g. to inspect its depth.
+   *
+   * @param robotId The identifier of the robot.
+   * @return The outbound queue of the robot, or null if it is not connected.
+   */
+  public OutboundQueue getOutboundQueue(Identifier robotId) {
+    WebSocketSession session = activeSessions.getSession(robotId);
+    return session == null ? null : outboundQueues.get(session);
+  }
+
+  /**
+   * Set the executor that runs the writer tasks of the outbound queues. Only sessions registered
+   * afterwards use it.
+   *
+   * @param writerExecutor The executor for writer tasks.
+   */
+  public void setWriterExecutor(Executor writerExecutor) {
+    this.writerExecutor = writerExecutor;
+  }
+
+  /**
+   * Set the executor that decodes PNG compressed frames. By default, a fixed pool with one thread
+   * per processor is used. Callbacks of PNG compressed topics run on this executor. Sessions are
+   * spread over one stripe per processor, and the frames of a session never run in parallel.
+   *
+   * @param imageExecutor The executor for decoding PNG frames.
+   */
+  public void setImageExecutor(Executor imageExecutor) {
+    this.imageDispatcher =
+        new StripedDispatcher(imageExecutor, Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * Set the limits of the outbound queues. Only sessions registered afterwards use them.
+   *
+   * @param maxMessages The maximum number of queued messages per session.
+   * @param maxBytes    The maximum number of queued payload bytes per session.
+   */
+  public void setOutboundQueueLimits(int maxMessages, long maxBytes) {
+    if (maxMessages <= 0 || maxBytes <= 0) {
+      throw new IllegalArgumentException("Queue limits must be positive.");
+    }
+    this.maxQueuedMessages = maxMessages;
+    this.maxQueuedBytes = maxBytes;
+  }
+
+  /**
+   * Set what happens when a message is sent to a full outbound queue. Only sessions registered
+   * afterwards use it. The default is {@link OverflowPolicy#CLOSE_SESSION CLOSE_SESSION}: a robot
+   * that does not keep up is disconnected, and its subscriptions and advertisements are restored
+   * when it reconnects, so senders never stall on a congested link and no message is silently
+   * lost. {@link OverflowPolicy#BLOCK BLOCK} makes senders such as {@link Topic#publish} and
+   * {@link Service#callService} wait for room instead.
+   *
+   * @param overflowPolicy The overflow policy.
+   */
+  public void setOverflowPolicy(OverflowPolicy overflowPolicy) {
+    this.overflowPolicy = overflowPolicy;
+  }
+
+  /**
+   * Get the manager that shares rosbridge subscriptions between local subscribers.
+   *
+   * @return The subscription manager of this connection.
+   */
+  public SubscriptionManager<Identifier> getSubscriptionManager() {
+    return subscriptionManager;
+  }
+
+  /**
+   * Get the manifest of the topics and services advertised on each robot.
+   *
+   * @return The advertisement manifest of this connection.
+   */
+  public AdvertisementManifest<Identifier> getAdvertisementManifest() {
+    return advertisementManifest;
+  }
+
+  /**
+   * Get the session registry that maps robots to their websocket sessions.
+   *
+   * @return The session registry of this connection.
+   */
+  public SessionRegistry<Identifier> getSessions() {
+    return activeSessions;
+  }
+
+
+  /**
+   * Call a service of a robot with the default timeout. The callback is called with the response,
+   * or with an error if the call times out or the session of the robot closes first.
+   *
+   * @param robotId The identifier of the robot.
+   * @param service The name of the service.
+   * @param type    The service type.
+   * @param args    The arguments of the call.
+   * @param cb      The callback that will be called when the call completes.
+   * @return The id of the call, e.g. to cancel it in the {@link #getPendingCalls() pending calls}.
+   * @throws IOException if the call could not be sent. The callback is not called then.
+   */
+  public long callService(Identifier robotId, String service, String type, JsonObject args,
+      ServiceCallback cb) throws IOException {
+    return callService(robotId, service, type, args, cb, serviceCallTimeoutNanos, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Call a service of a robot. The callback is called with the response, or with an error if the
+   * call times out or the session of the robot closes first.
+   *
+   * @param robotId The identifier of the robot.
+   * @param service The name of the service.
+   * @param type    The service type.
+   * @param args    The arguments of the call.
+   * @param cb      The callback that will be called when the call completes.
+   * @param timeout The time to wait for the response, 0 or less to wait until the session closes.
+   * @param unit    The unit of the timeout.
+   * @return The id of the call, e.g. to cancel it in the {@link #getPendingCalls() pending calls}.
+   * @throws IOException if the call could not be sent. The callback is not called then.
+   */
+  public long callService(Identifier robotId, String service, String type, JsonObject args,
+      ServiceCallback cb, long timeout, TimeUnit unit) throws IOException {
+    WebSocketSession session = activeSessions.getSession(robotId);
+    if (session == null) {
+      throw new IllegalArgumentException("Robot " + robotId + " is not connected");
+    }
+    // rosbridge echoes the id back as is, so a number saves building a string per call
+    long id = nextId();
+    pendingCalls.add(id, session, service, cb, timeout, unit);
+
+    // build and send the rosbridge call
+    JsonObject call = Json.createObjectBuilder()
+        .add(ROSConstants.FIELD_OP, ROSConstants.OP_CODE_CALL_SERVICE)
+        .add(ROSConstants.FIELD_ID, id)
+        .add(ROSConstants.FIELD_TYPE, type)
+        .add(ROSConstants.FIELD_SERVICE, service)
+        .add(ROSConstants.FIELD_ARGS, args).build();
+    try {
+      send(call, robotId);
+    } catch (IOException | RuntimeException e) {
+      pendingCalls.cancel(id);
+      throw e;
+    }
+    return id;
+  }
+
+  /**
+   * Set how long service calls wait for a response by default.
+   *
+   * @param timeout The time to wait for the response, 0 or less to wait until the session closes.
+   * @param unit    The unit of the timeout.
+   */
+  public void setServiceCallTimeout(long timeout, TimeUnit unit) {
+    this.serviceCallTimeoutNanos = unit.toNanos(timeout);
+  }
+
+  /**
+   * Get how long service calls wait for a response by default.
+   *
+   * @param unit The unit to get the timeout in.
+   * @return The time to wait for the response, 0 or less to wait until the session closes.
+   */
+  public long getServiceCallTimeout(TimeUnit unit) {
+    return unit.convert(serviceCallTimeoutNanos, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Get the table of service calls that wait for a response.
+   *
+   * @return The pending call table of this connection.
+   */
+  public PendingCallTable getPendingCalls() {
+    return pendingCalls;
   }
 
+  /**
+   * Register a callback for a given incoming service request. The callback sends the response
+   * itself. It runs on the service executor, one call at a time and in the order the calls came
+   * in; calls that arrive meanwhile wait without limit, so none is ever rejected. Use
+   * {@link #registerCallServiceCallback(Object, String, AsyncCallServiceCallback, int, int,
+   * ServiceOverflowPolicy)} to bound them.
+   *
+   * @param robotId     The identifier of the robot the service is advertised on.
+   * @param serviceName The unique name of the service call.
+   * @param cb          The callback that will be called when a service request comes in for the
+   *                    associated request.
+   */
+  public void registerCallServiceCallback(Identifier robotId, String serviceName,
+      CallServiceCallback cb) {
+    registerCallServiceCallback(robotId, serviceName, request -> {
+      cb.handleServiceCall(request);
+      return null;
+    }, 1, Integer.MAX_VALUE, ServiceOverflowPolicy.REJECT_NEWEST);
+  }
 
   /**
-   * Register a callback for a given outgoing service call.
+   * Register an asynchronous handler for a given incoming service request. The response is sent
+   * when the future returned by the handler completes. The handler runs on the service executor;
+   * calls beyond the given limits are answered with a failed result.
    *
-   * @param serviceCallId The unique ID of the service call.
-   * @param cb            The callback that will be called when a service response comes back for
-   *                      the associated request.
+   * @param robotId       The identifier of the robot the service is advertised on.
+   * @param serviceName   The unique name of the service call.
+   * @param cb            The handler of the service calls.
+   * @param maxConcurrent The maximum number of calls in progress at once.
+   * @param maxQueued     The maximum number of calls waiting to run.
+   * @param policy        What to do with a call when the queue is full.
+   * @return The limiter that runs the calls, e.g. to inspect its metrics.
    */
-  public void registerServiceCallback(String serviceCallId, ServiceCallback cb) {
-    // add the callback
-    serviceCallbacks.put(serviceCallId, cb);
+  public ServiceCallLimiter registerCallServiceCallback(Identifier robotId, String serviceName,
+      AsyncCallServiceCallback cb, int maxConcurrent, int maxQueued,
+      ServiceOverflowPolicy policy) {
+    ServiceCallLimiter limiter = new ServiceCallLimiter(serviceName, cb, serviceExecutor,
+        maxConcurrent, maxQueued, policy,
+        (request, response) -> sendServiceResponse(robotId, serviceName, request.getId(),
+            response));
+    callServiceHandlers.computeIfAbsent(robotId, id -> new ConcurrentHashMap<>())
+        .put(serviceName, limiter);
+    return limiter;
   }
 
   /**
-   * Register a callback for a given incoming service request.
+   * Deregister a callback for a given incoming service request. Calls already in progress still
+   * get their response.
+   *
+   * @param robotId     The identifier of the robot the service is advertised on.
+   * @param serviceName The unique name of the service call.
+   */
+  public void deregisterCallServiceCallback(Identifier robotId, String serviceName) {
+    callServiceHandlers.computeIfPresent(robotId, (id, handlers) -> {
+      handlers.remove(serviceName);
+      return handlers.isEmpty() ? null : handlers;
+    });
+  }
+
+  /**
+   * Register a callback for a given incoming service request of all robots. The callback sends the
+   * response itself and runs on the thread that received the call. Callbacks registered for a
+   * single robot take precedence.
    *
    * @param serviceName The unique name of the service call.
    * @param cb          The callback that will be called when a service request comes in for the
    *                    associated request.
    */
+  public void registerCallServiceCallbackForAllRobots(String serviceName,
+      CallServiceCallback cb) {
+    allRobotsCallServiceCallbacks.put(serviceName, cb);
+  }
+
+  /**
+   * Deregister a callback for a given incoming service request of all robots.
+   *
+   * @param serviceName The unique name of the service call.
+   */
+  public void deregisterCallServiceCallbackForAllRobots(String serviceName) {
+    allRobotsCallServiceCallbacks.remove(serviceName);
+  }
+
+  /**
+   * Register a callback for a given incoming service request of all robots.
+   *
+   * @param serviceName The unique name of the service call.
+   * @param cb          The callback that will be called when a service request comes in for the
+   *                    associated request.
+   * @deprecated Use {@link #registerCallServiceCallbackForAllRobots(String, CallServiceCallback)},
+   *             or {@link #registerCallServiceCallback(Object, String, CallServiceCallback)} for a
+   *             single robot.
+   */
+  @Deprecated
   public void registerCallServiceCallback(String serviceName, CallServiceCallback cb) {
-    // add the callback
-    callServiceCallbacks.put(serviceName, cb);
+    registerCallServiceCallbackForAllRobots(serviceName, cb);
   }
 
   /**
-   * Deregister a callback for a given incoming service request.
+   * Deregister a callback for a given incoming service request of all robots.
    *
    * @param serviceName The unique name of the service call.
+   * @deprecated Use {@link #deregisterCallServiceCallbackForAllRobots(String)}.
    */
+  @Deprecated
   public void deregisterCallServiceCallback(String serviceName) {
-    // remove the callback
-    callServiceCallbacks.remove(serviceName);
+    deregisterCallServiceCallbackForAllRobots(serviceName);
+  }
+
+  /**
+   * Get the limiter that runs the calls of an advertised service.
+   *
+   * @param robotId     The identifier of the robot the service is advertised on.
+   * @param serviceName The unique name of the service call.
+   * @return The limiter, or null if no callback is registered for the service.
+   */
+  public ServiceCallLimiter getCallServiceLimiter(Identifier robotId, String serviceName) {
+    ConcurrentMap<String, ServiceCallLimiter> handlers = callServiceHandlers.get(robotId);
+    return handlers == null ? null : handlers.get(serviceName);
+  }
+
+  /**
+   * Set the executor that runs the handlers of advertised services. Only services registered
+   * afterwards use it.
+   *
+   * @param serviceExecutor The executor for service handlers.
+   */
+  public void setServiceExecutor(Executor serviceExecutor) {
+    this.serviceExecutor = serviceExecutor;
+  }
+
+  /**
+   * Send the response of an advertised service to the robot that called it.
+   *
+   * @param robotId  The identifier of the robot.
+   * @param service  The name of the service.
+   * @param id       The ID of the call, may be null.
+   * @param response The service response to send.
+   * @throws IOException if the session is closed or the thread was interrupted while blocked.
+   */
+  public void sendServiceResponse(Identifier robotId, String service, String id,
+      ServiceResponse response) throws IOException {
+    JsonObjectBuilder call = Json.createObjectBuilder()
+        .add(ROSConstants.FIELD_OP, ROSConstants.OP_CODE_SERVICE_RESPONSE);
+    if (id != null) {
+      call.add(ROSConstants.FIELD_ID, id);
+    }
+    call.add(ROSConstants.FIELD_SERVICE, service)
+        .add(ROSConstants.FIELD_VALUES, response.toJsonObject())
+        .add(ROSConstants.FIELD_RESULT, response.getResult());
+    send(call.build(), robotId);
   }
 
   /**
-   * Send data to a websocket representing a robot.
+   * Send data to a websocket representing a robot. The data is serialized straight into a pooled
+   * buffer and queued on the outbound queue of the robot's session, where its writer task sends it.
+   * This only blocks if the queue is full and uses the {@link OverflowPolicy#BLOCK BLOCK} policy.
    *
    * @param call Object that will be sent.
    * @param id   identifier representing the robot.
-   * @throws IOException if there is a websocket error.
+   * @throws IOException if the session is closed or the thread was interrupted while blocked.
    */
   public void send(JsonObject call, Identifier id) throws IOException {
-    if (!activeSessions.containsKey(id)) {
+    sendEncoded(id, buffer -> FrameEncoder.encode(call, buffer));
+  }
+
+  /**
+   * Send a frame that the given encoder writes straight into a pooled buffer, e.g. from a
+   * {@link PublishFrameTemplate PublishFrameTemplate}. The frame is queued like any other.
+   *
+   * @param id      identifier representing the robot.
+   * @param encoder Writes the UTF-8 JSON text of the frame into the buffer.
+   * @throws IOException if the session is closed or the thread was interrupted while blocked.
+   */
+  public void sendEncoded(Identifier id, Consumer<FrameBuffer> encoder) throws IOException {
+    OutboundQueue queue = getQueue(id);
+    queue.offer(encodeFrame(encoder));
+  }
+
+  /**
+   * Serialize a frame into a pooled buffer.
+   *
+   * @param encoder Writes the UTF-8 JSON text of the frame into the buffer.
+   * @return The frame, which releases the buffer once it was written or dropped.
+   */
+  private OutboundFrame encodeFrame(Consumer<FrameBuffer> encoder) {
+    FrameBuffer buffer = framePool.acquire();
+    try {
+      encoder.accept(buffer);
+    } catch (RuntimeException e) {
+      framePool.release(buffer);
+      throw e;
+    }
+    return new OutboundFrame(buffer, framePool);
+  }
+
+  /**
+   * Publish a message on a topic to a group of robots. The publish frame is serialized once into a
+   * shared buffer, and each robot's queue sends its own read-only view of it, so the cost of
+   * encoding does not grow with the size of the group. The topic is not advertised; advertise it on
+   * each robot first, e.g. with {@link Topic#advertise()}.
+   *
+   * @param robotIds The identifiers of the robots.
+   * @param topic    The name of the topic.
+   * @param message  The message to publish.
+   * @return The send completion of each robot, in the order of the given identifiers. A completion
+   *         fails if the robot is not connected, its queue dropped the frame or writing it failed.
+   */
+  public Map<Identifier, CompletableFuture<Void>> publish(Collection<? extends Identifier> robotIds,
+      String topic, Message message) {
+    JsonObject msg = message.toJsonObject();
+    FrameBuffer buffer = framePool.acquire();
+    try {
+      new PublishFrameTemplate(topic).encode(msg, buffer);
+    } catch (RuntimeException e) {
+      framePool.release(buffer);
+      throw e;
+    }
+
+    SharedFrame shared = new SharedFrame(buffer, framePool);
+    Map<Identifier, CompletableFuture<Void>> completions = new LinkedHashMap<>();
+    try {
+      for (Identifier robotId : robotIds) {
+        CompletableFuture<Void> completion = new CompletableFuture<>();
+        completions.put(robotId, completion);
+        WebSocketSession session = activeSessions.getSession(robotId);
+        OutboundQueue queue = session == null ? null : outboundQueues.get(session);
+        if (queue == null) {
+          completion.completeExceptionally(
+              new IllegalArgumentException("Robot " + robotId + " is not connected."));
+          continue;
+        }
+        try {
+          queue.offer(new OutboundFrame(shared, completion));
+        } catch (IOException e) {
+          // the queue released the frame, which already failed the completion
+          completion.completeExceptionally(e);
+        }
+      }
+    } finally {
+      shared.release();
+    }
+    return Collections.unmodifiableMap(completions);
+  }
+
+  /**
+   * Send data to a websocket representing a robot, split into rosbridge fragment operations of at
+   * most the given number of bytes of UTF-8, and thus characters, if it is larger. The data is
+   * serialized once into a pooled buffer, and the fragments are sliced from it. Each fragment is
+   * queued once the one before it was written, so other messages to the robot go out between the
+   * fragments of a large one, and the queue limits apply per fragment. The overflow policy drops
+   * either all or none of the fragments.
+   *
+   * @param call         Object that will be sent.
+   * @param id           identifier representing the robot.
+   * @param fragmentSize The maximum number of characters per fragment, or 0 to never fragment.
+   * @throws IOException if the session is closed or the thread was interrupted while blocked.
+   */
+  public void send(JsonObject call, Identifier id, int fragmentSize) throws IOException {
+    if (fragmentSize <= 0) {
+      send(call, id);
+      return;
+    }
+    OutboundQueue queue = getQueue(id);
+    FrameBuffer buffer = framePool.acquire();
+    try {
+      FrameEncoder.encode(call, buffer);
+    } catch (RuntimeException e) {
+      framePool.release(buffer);
+      throw e;
+    }
+    if (buffer.size() <= fragmentSize) {
+      queue.offer(new OutboundFrame(buffer, framePool));
+      return;
+    }
+
+    List<OutboundFrame> fragments;
+    try {
+      JsonValue callId = call.get(ROSConstants.FIELD_ID);
+      String fragmentId = callId instanceof JsonString ? ((JsonString) callId).getString()
+          : "fragment:" + nextId();
+      fragments = fragment(buffer, fragmentSize, fragmentId);
+    } finally {
+      framePool.release(buffer);
+    }
+    queue.offerAll(fragments);
+  }
+
+  /**
+   * Slice a serialized frame into fragment operations, each in a pooled buffer of its own.
+   *
+   * @param buffer       The serialized frame.
+   * @param fragmentSize The maximum number of bytes of the frame per fragment.
+   * @param fragmentId   The id of the fragments.
+   * @return The fragment frames, in order.
+   */
+  private List<OutboundFrame> fragment(FrameBuffer buffer, int fragmentSize, String fragmentId) {
+    byte[] bytes = buffer.array();
+    int size = buffer.size();
+    // never split the UTF-8 bytes of a character between two fragments
+    List<Integer> ends = new ArrayList<>();
+    for (int start = 0; start < size; ) {
+      int end = Math.min(start + fragmentSize, size);
+      while (end < size && end > start && (bytes[end] & 0xC0) == 0x80) {
+        end--;
+      }
+      if (end == start) {
+        // a fragment is smaller than a single character
+        end++;
+        while (end < size && (bytes[end] & 0xC0) == 0x80) {
+          end++;
+        }
+      }
+      ends.add(end);
+      start = end;
+    }
+
+    List<OutboundFrame> fragments = new ArrayList<>(ends.size());
+    try {
+      int start = 0;
+      for (int num = 0; num < ends.size(); num++) {
+        int end = ends.get(num);
+        String data = new String(bytes, start, end - start, StandardCharsets.UTF_8);
+        int total = ends.size();
+        int index = num;
+        fragments.add(encodeFrame(fragment -> {
+          JsonGenerator generator = FrameEncoder.createGenerator(fragment);
+          generator.writeStartObject()
+              .write(ROSConstants.FIELD_OP, ROSConstants.OP_CODE_FRAGMENT)
+              .write(ROSConstants.FIELD_ID, fragmentId)
+              .write(ROSConstants.FIELD_DATA, data)
+              .write(ROSConstants.FIELD_NUM, index)
+              .write(ROSConstants.FIELD_TOTAL, total)
+              .writeEnd();
+          generator.close();
+        }));
+        start = end;
+      }
+    } catch (RuntimeException e) {
+      for (OutboundFrame fragment : fragments) {
+        fragment.release();
+      }
+      throw e;
+    }
+    return fragments;
+  }
+
+  /**
+   * Get the assembler that puts inbound fragmented messages back together, e.g. to inspect how
+   * many bytes are in progress.
+   *
+   * @return The fragment assembler of this connection.
+   */
+  public FragmentAssembler getFragmentAssembler() {
+    return fragmentAssembler;
+  }
+
+  /**
+   * Get the outbound queue to send to a robot.
+   *
+   * @param id identifier representing the robot.
+   * @return The outbound queue of the robot's session.
+   * @throws IllegalArgumentException if the robot is not connected.
+   */
+  private OutboundQueue getQueue(Identifier id) {
+    WebSocketSession session = activeSessions.getSession(id);
+    OutboundQueue queue = session == null ? null : outboundQueues.get(session);
+    if (queue == null) {
       throw new IllegalArgumentException();
     }
-    activeSessions.get(id).sendMessage(new BinaryMessage(call.toString().getBytes()));
+    return queue;
   }
 }
@@ -1,13 +1,30 @@
 package org.jrosbridge.springed;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
 import javax.json.Json;
 import javax.json.JsonObject;
 
+import org.jrosbridge.springed.bulk.BulkRequest;
+import org.jrosbridge.springed.bulk.BulkServiceCall;
+import org.jrosbridge.springed.callback.AsyncCallServiceCallback;
+import org.jrosbridge.springed.callback.BulkResultCallback;
 import org.jrosbridge.springed.callback.ServiceCallback;
 import org.jrosbridge.springed.callback.CallServiceCallback;
+import org.jrosbridge.springed.pending.PendingCallTable;
+import org.jrosbridge.springed.services.ServiceCallLimiter;
+import org.jrosbridge.springed.services.ServiceException;
+import org.jrosbridge.springed.services.ServiceOverflowPolicy;
 import org.jrosbridge.springed.services.ServiceRequest;
 import org.jrosbridge.springed.services.ServiceResponse;
+import org.jrosbridge.springed.services.ServiceResponseCache;
+import org.jrosbridge.springed.services.ServiceTimeoutException;
 
 /**
  * The Service object is responsible for calling or advertising a service in ROS.
@@ -22,6 +39,7 @@ public class Service<Identifier> {
 	private final String type;
 	private final Identifier id;
 	private boolean isAdvertised;
+	private volatile ServiceResponseCache<Identifier> cache;
 
 	/**
 	 * Create a ROS service with the given information.
@@ -77,6 +95,30 @@ public class Service<Identifier> {
 		return this.isAdvertised;
 	}
 
+	/**
+	 * Get the cache the asynchronous and blocking calls of this service go
+	 * through.
+	 * 
+	 * @return The response cache, or null if calls are not cached.
+	 */
+	public ServiceResponseCache<Identifier> getResponseCache() {
+		return this.cache;
+	}
+
+	/**
+	 * Let the asynchronous and blocking calls of this service go through a
+	 * cache. Identical calls in flight at the same time are sent once, and
+	 * successful responses are reused until they expire. Only idempotent
+	 * services should be cached. A cache may be shared by several services.
+	 * Calls with a callback are never cached.
+	 * 
+	 * @param cache
+	 *            The response cache, or null to stop caching.
+	 */
+	public void setResponseCache(ServiceResponseCache<Identifier> cache) {
+		this.cache = cache;
+	}
+
 	/**
 	 * Call this service. The callback function will be called with the
 	 * associated service response.
@@ -87,21 +129,79 @@ public class Service<Identifier> {
 	 *            The callback used when the associated response comes back.
 	 */
 	public void callService(ServiceRequest request, ServiceCallback cb) throws IOException {
-		// construct the unique ID
-		String callServceId = "call_service:" + this.name + ":"
-				+ this.ros.nextId();
+		this.ros.callService(this.id, this.name, this.type,
+				request.toJsonObject(), cb);
+	}
 
-		// register the callback function
-		this.ros.registerServiceCallback(callServceId, cb);
+	/**
+	 * Call this service with a timeout. The callback function will be called
+	 * with the associated service response, or with a
+	 * {@link org.jrosbridge.springed.services.ServiceTimeoutException
+	 * ServiceTimeoutException} if none arrives in time.
+	 * 
+	 * @param request
+	 *            The service request to send.
+	 * @param cb
+	 *            The callback used when the associated response comes back.
+	 * @param timeout
+	 *            The time to wait for the response.
+	 * @param unit
+	 *            The unit of the timeout.
+	 */
+	public void callService(ServiceRequest request, ServiceCallback cb,
+			long timeout, TimeUnit unit) throws IOException {
+		this.ros.callService(this.id, this.name, this.type,
+				request.toJsonObject(), cb, timeout, unit);
+	}
 
-		// build and send the rosbridge call
-		JsonObject call = Json.createObjectBuilder()
-				.add(ROSConstants.FIELD_OP, ROSConstants.OP_CODE_CALL_SERVICE)
-				.add(ROSConstants.FIELD_ID, callServceId)
-				.add(ROSConstants.FIELD_TYPE, this.type)
-				.add(ROSConstants.FIELD_SERVICE, this.name)
-				.add(ROSConstants.FIELD_ARGS, request.toJsonObject()).build();
-		this.ros.send(call,id);
+	/**
+	 * Call this service many times, with the default timeout of the ROS
+	 * connection for each call. At most the given number of calls are in
+	 * flight per robot; the next call to a robot is sent as soon as one of its
+	 * calls completes. The identifier this service was created with is not
+	 * used, every request names its robot (see
+	 * {@link BulkRequest#forRobots(Collection, ServiceRequest) forRobots} and
+	 * {@link BulkRequest#forRobot(Object, Collection) forRobot}).
+	 * 
+	 * @param requests
+	 *            The calls to make.
+	 * @param window
+	 *            The maximum number of calls in flight per robot.
+	 * @param cb
+	 *            The callback that receives the results as they arrive.
+	 * @return The running invocation, which gives the progress, throughput and
+	 *         latency percentiles.
+	 */
+	public BulkServiceCall<Identifier> callServiceBulk(
+			Collection<? extends BulkRequest<Identifier>> requests, int window,
+			BulkResultCallback<Identifier> cb) {
+		return this.callServiceBulk(requests, window, -1, TimeUnit.NANOSECONDS,
+				cb);
+	}
+
+	/**
+	 * Call this service many times. At most the given number of calls are in
+	 * flight per robot; the next call to a robot is sent as soon as one of its
+	 * calls completes.
+	 * 
+	 * @param requests
+	 *            The calls to make.
+	 * @param window
+	 *            The maximum number of calls in flight per robot.
+	 * @param timeout
+	 *            The time to wait for each response.
+	 * @param unit
+	 *            The unit of the timeout.
+	 * @param cb
+	 *            The callback that receives the results as they arrive.
+	 * @return The running invocation, which gives the progress, throughput and
+	 *         latency percentiles.
+	 */
+	public BulkServiceCall<Identifier> callServiceBulk(
+			Collection<? extends BulkRequest<Identifier>> requests, int window,
+			long timeout, TimeUnit unit, BulkResultCallback<Identifier> cb) {
+		return new BulkServiceCall<Identifier>(this.ros, this.name, this.type,
+				requests, window, timeout, unit, cb).start();
 	}
 
 	/**
@@ -113,29 +213,72 @@ public class Service<Identifier> {
 	 *            The ID of the response (matching that of the service call).
 	 */
 	public void sendResponse(ServiceResponse response, String id) throws IOException {
-		// build and send the rosbridge call
-		JsonObject call = Json.createObjectBuilder()
-				.add(ROSConstants.FIELD_OP, ROSConstants.OP_CODE_SERVICE_RESPONSE)
-				.add(ROSConstants.FIELD_ID, id)
-				.add(ROSConstants.FIELD_SERVICE, this.name)
-				.add(ROSConstants.FIELD_VALUES, response.toJsonObject())
-				.add(ROSConstants.FIELD_RESULT, response.getResult()).build();
-		this.ros.send(call,this.id);
+		this.ros.sendServiceResponse(this.id, this.name, id, response);
 	}
 
 	/**
-	 * Registers as service advertiser.
+	 * Registers as service advertiser. The callback runs on the service
+	 * executor of the ROS connection, one call at a time, and has to send the
+	 * response itself with {@link #sendResponse(ServiceResponse, String)
+	 * sendResponse}.
 	 */
 	public void advertiseService(CallServiceCallback cb) throws IOException {
 		// register the callback
-		this.ros.registerCallServiceCallback(this.name, cb);
+		this.ros.registerCallServiceCallback(this.id, this.name, cb);
+		this.sendAdvertise();
+	}
 
+	/**
+	 * Registers as service advertiser with an asynchronous handler, using the
+	 * default limits of {@link ServiceCallLimiter ServiceCallLimiter}. The
+	 * response is sent when the future returned by the handler completes.
+	 * 
+	 * @param cb
+	 *            The handler of the service calls.
+	 * @return The limiter that runs the calls, e.g. to inspect its metrics.
+	 */
+	public ServiceCallLimiter advertiseServiceAsync(AsyncCallServiceCallback cb)
+			throws IOException {
+		return this.advertiseServiceAsync(cb,
+				ServiceCallLimiter.DEFAULT_MAX_CONCURRENT,
+				ServiceCallLimiter.DEFAULT_MAX_QUEUED,
+				ServiceOverflowPolicy.REJECT_NEWEST);
+	}
+
+	/**
+	 * Registers as service advertiser with an asynchronous handler. The
+	 * response is sent when the future returned by the handler completes. A
+	 * call counts as in progress until then; calls beyond the limits are
+	 * answered with a failed result.
+	 * 
+	 * @param cb
+	 *            The handler of the service calls.
+	 * @param maxConcurrent
+	 *            The maximum number of calls in progress at once.
+	 * @param maxQueued
+	 *            The maximum number of calls waiting to run.
+	 * @param policy
+	 *            What to do with a call when the queue is full.
+	 * @return The limiter that runs the calls, e.g. to inspect its metrics.
+	 */
+	public ServiceCallLimiter advertiseServiceAsync(
+			AsyncCallServiceCallback cb, int maxConcurrent, int maxQueued,
+			ServiceOverflowPolicy policy) throws IOException {
+		ServiceCallLimiter limiter = this.ros.registerCallServiceCallback(
+				this.id, this.name, cb, maxConcurrent, maxQueued, policy);
+		this.sendAdvertise();
+		return limiter;
+	}
+
+	private void sendAdvertise() throws IOException {
 		// build and send the rosbridge call
 		JsonObject call = Json.createObjectBuilder()
 				.add(ROSConstants.FIELD_OP, ROSConstants.OP_CODE_ADVERTISE_SERVICE)
 				.add(ROSConstants.FIELD_TYPE, this.type)
 				.add(ROSConstants.FIELD_SERVICE, this.name).build();
 		this.ros.send(call,id);
+		// advertise again if the robot reconnects
+		this.ros.getAdvertisementManifest().add(this.id, this.name, call);
 
 		// set the flag indicating we are registered
 		this.isAdvertised = true;
@@ -145,12 +288,14 @@ public class Service<Identifier> {
 	 * Unregisters as service advertiser.
 	 */
 	public void unadvertiseService() throws IOException {
-		this.ros.deregisterCallServiceCallback(this.name);
+		this.ros.deregisterCallServiceCallback(this.id, this.name);
 
 		// build and send the rosbridge call
 		JsonObject call = Json.createObjectBuilder()
 				.add(ROSConstants.FIELD_OP, ROSConstants.OP_CODE_UNADVERTISE_SERVICE)
 				.add(ROSConstants.FIELD_SERVICE, this.name).build();
+		this.ros.getAdvertisementManifest().remove(this.id,
+				ROSConstants.OP_CODE_ADVERTISE_SERVICE, this.name);
 		this.ros.send(call,id);
 
 		// set the flag indicating we are registered
@@ -158,86 +303,183 @@ public class Service<Identifier> {
 	}
 
 	/**
-	 * Call the service and wait for a response. This is a blocking call and
-	 * will only return once rosbridge returns the service response. For an
+	 * Call this service asynchronously with the default timeout of the ROS
+	 * connection. Any number of calls may be in flight at once. If a
+	 * {@link #setResponseCache(ServiceResponseCache) response cache} is set,
+	 * the call may be answered from it.
+	 * 
+	 * @param request
+	 *            The service request to send.
+	 * @return A future of the service response. It completes exceptionally
+	 *         with an IOException if the call could not be sent, or with a
+	 *         {@link ServiceException ServiceException} if it timed out or the
+	 *         session of the robot closed. Dependent stages that are not
+	 *         async run on the thread that received the response, so heavy
+	 *         work should use the async variants. Cancelling it stops waiting
+	 *         for the response.
+	 */
+	public CompletableFuture<ServiceResponse> callServiceAsync(
+			ServiceRequest request) {
+		return this.callCached(request,
+				this.ros.getServiceCallTimeout(TimeUnit.NANOSECONDS),
+				TimeUnit.NANOSECONDS, () -> this.callAsync(cb -> this.ros
+						.callService(this.id, this.name, this.type,
+								request.toJsonObject(), cb)));
+	}
+
+	/**
+	 * Call this service asynchronously. Any number of calls may be in flight
+	 * at once. If a response cache is set, the call may be answered from it.
+	 * 
+	 * @param request
+	 *            The service request to send.
+	 * @param timeout
+	 *            The time to wait for the response.
+	 * @param unit
+	 *            The unit of the timeout.
+	 * @return A future of the service response. It completes exceptionally
+	 *         with an IOException if the call could not be sent, or with a
+	 *         {@link ServiceException ServiceException} if it timed out or the
+	 *         session of the robot closed. Cancelling it stops waiting for the
+	 *         response.
+	 */
+	public CompletableFuture<ServiceResponse> callServiceAsync(
+			ServiceRequest request, long timeout, TimeUnit unit) {
+		return this.callCached(request, timeout, unit, () -> this
+				.callAsync(cb -> this.ros.callService(this.id, this.name,
+						this.type, request.toJsonObject(), cb, timeout, unit)));
+	}
+
+	private CompletableFuture<ServiceResponse> callCached(
+			ServiceRequest request, long timeout, TimeUnit unit,
+			Supplier<CompletableFuture<ServiceResponse>> call) {
+		ServiceResponseCache<Identifier> cache = this.cache;
+		if (cache == null) {
+			return call.get();
+		}
+		return cache.get(this.id, this.name, request.toJsonObject(), timeout,
+				unit, call);
+	}
+
+	private CompletableFuture<ServiceResponse> callAsync(CallSender sender) {
+		FutureCallback future = new FutureCallback();
+		try {
+			long id = sender.send(future);
+			PendingCallTable pendingCalls = this.ros.getPendingCalls();
+			future.onCancel = () -> pendingCalls.cancel(id);
+			if (future.isCancelled()) {
+				// cancelled before the call was sent
+				pendingCalls.cancel(id);
+			}
+		} catch (IOException | RuntimeException e) {
+			future.completeExceptionally(e);
+		}
+		return future;
+	}
+
+	/**
+	 * Call the service and wait for a response, at most for the default
+	 * timeout of the ROS connection. This is a blocking call. For an
 	 * asynchronous version of this call, see the
-	 * {@link #callService(ServiceRequest request, ServiceCallback cb)
-	 * callService} method.
+	 * {@link #callServiceAsync(ServiceRequest request) callServiceAsync}
+	 * method.
 	 * 
 	 * @param request
 	 *            The service request to send.
 	 * @return The corresponding service response from ROS.
+	 * @throws ServiceException
+	 *             If the call timed out or the session of the robot closed.
+	 * @throws java.io.InterruptedIOException
+	 *             If the thread was interrupted while waiting.
 	 */
-	public synchronized ServiceResponse callServiceAndWait(
-			ServiceRequest request) throws IOException {
+	public ServiceResponse callServiceAndWait(ServiceRequest request)
+			throws IOException {
+		return Service.await(this.callServiceAsync(request));
+	}
 
-		// private inner class to use as a callback
-		BlockingCallback<Identifier> cb = new BlockingCallback<Identifier>(this);
-		// use the asynchronous version and block on the result
-		this.callService(request, cb);
+	/**
+	 * Call the service and wait for a response. This is a blocking call.
+	 * 
+	 * @param request
+	 *            The service request to send.
+	 * @param timeout
+	 *            The time to wait for the response.
+	 * @param unit
+	 *            The unit of the timeout.
+	 * @return The corresponding service response from ROS.
+	 * @throws ServiceTimeoutException
+	 *             If no response arrived in time.
+	 * @throws ServiceException
+	 *             If the session of the robot closed.
+	 * @throws java.io.InterruptedIOException
+	 *             If the thread was interrupted while waiting.
+	 */
+	public ServiceResponse callServiceAndWait(ServiceRequest request,
+			long timeout, TimeUnit unit) throws IOException {
+		return Service.await(this.callServiceAsync(request, timeout, unit));
+	}
 
-		// wait for a response
-		while (cb.getResponse() == null) {
-			try {
-				this.wait();
-			} catch (InterruptedException e) {
-				// continue on
+	private static ServiceResponse await(
+			CompletableFuture<ServiceResponse> future) throws IOException {
+		try {
+			// the pending call table enforces the timeout
+			return future.get();
+		} catch (InterruptedException e) {
+			// nobody waits for the response anymore
+			future.cancel(false);
+			Thread.currentThread().interrupt();
+			InterruptedIOException interrupted = new InterruptedIOException(
+					"Interrupted while waiting for a service response.");
+			interrupted.initCause(e);
+			throw interrupted;
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
 			}
+			throw new ServiceException("Service call failed.", cause);
 		}
+	}
 
-		return cb.getResponse();
+	/**
+	 * Sends a call with the given callback and returns its id.
+	 */
+	@FunctionalInterface
+	private interface CallSender {
+		long send(ServiceCallback cb) throws IOException;
 	}
 
 	/**
-	 * A private {@link ServiceCallback
-	 * ServiceCallback} used to block and wait for a response from rosbridge.
-	 * 
-	 * @author Russell Toris - russell.toris@gmail.com
-	 * @version April 1, 2014
+	 * A {@link ServiceCallback ServiceCallback} that completes a future with
+	 * the response, or exceptionally with the error.
 	 */
-	private static class BlockingCallback<Identifier> implements ServiceCallback {
+	private static class FutureCallback extends
+			CompletableFuture<ServiceResponse> implements ServiceCallback {
 
-		private ServiceResponse response;
-		private final Service<Identifier> service;
+		// removes the call from the pending calls once it was sent
+		volatile Runnable onCancel;
 
-		/**
-		 * Create a new callback function which will notify the given
-		 * {@link Service Service} once a response
-		 * has been received.
-		 * 
-		 * @param service
-		 *            The {@link Service Service}
-		 *            to notify once a response has been received.
-		 */
-		public BlockingCallback(Service<Identifier> service) {
-			this.response = null;
-			this.service = service;
+		@Override
+		public boolean cancel(boolean mayInterruptIfRunning) {
+			boolean cancelled = super.cancel(mayInterruptIfRunning);
+			Runnable onCancel = this.onCancel;
+			if (cancelled && onCancel != null) {
+				onCancel.run();
+			}
+			return cancelled;
 		}
 
-		/**
-		 * Store the response internally and notify the corresponding
-		 * {@link Service Service}.
-		 * 
-		 * @param response
-		 *            The incoming service response from ROS.
-		 */
 		@Override
 		public void handleServiceResponse(ServiceResponse response) {
-			this.response = response;
-			synchronized (this.service) {
-				this.service.notifyAll();
-			}
+			this.complete(response);
 		}
 
-		/**
-		 * Get the response stored in this callback, if one exists. Otherwise,
-		 * null is returned.
-		 * 
-		 * @return The resulting service response from ROS, or null if one does
-		 *         not exist yet.
-		 */
-		public ServiceResponse getResponse() {
-			return this.response;
+		@Override
+		public void handleServiceError(ServiceException error) {
+			this.completeExceptionally(error);
 		}
 	}
 }
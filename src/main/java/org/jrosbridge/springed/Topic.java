@@ -5,9 +5,14 @@ import java.util.ArrayList;
 
 import javax.json.Json;
 import javax.json.JsonObject;
+import javax.json.JsonObjectBuilder;
 
+import org.jrosbridge.springed.callback.RawTopicCallback;
 import org.jrosbridge.springed.callback.TopicCallback;
+import org.jrosbridge.springed.codec.PublishFrameTemplate;
+import org.jrosbridge.springed.dispatch.ConflatingTopicCallback;
 import org.jrosbridge.springed.messages.Message;
+import org.jrosbridge.springed.subscription.SubscriptionKey;
 
 /**
  * The Topic object is responsible for publishing and/or subscribing to a topic
@@ -26,12 +31,16 @@ public class Topic<Identifier> {
 	private boolean isSubscribed;
 	private final ROSConstants.CompressionType compression;
 	private final int throttleRate;
+	private final int fragmentSize;
+	private final PublishFrameTemplate publishTemplate;
+	private boolean publishIds;
 
 	// used to keep track of this object's callbacks
 	private final ArrayList<TopicCallback> callbacks;
+	private final ArrayList<RawTopicCallback> rawCallbacks;
 
-	// used to keep track of the subscription IDs
-	private final ArrayList<String> ids;
+	// used to keep track of the shared subscriptions this object holds
+	private final ArrayList<SubscriptionKey<Identifier>> subscriptions;
 
 	/**
 	 * Create a ROS topic with the given information. No compression or
@@ -97,6 +106,31 @@ public class Topic<Identifier> {
 	 */
 	public Topic(Ros<Identifier> ros, Identifier id, String name, String type,
 			ROSConstants.CompressionType compression, int throttleRate) {
+		this(ros, id, name, type, compression, throttleRate, 0);
+	}
+
+	/**
+	 * Create a ROS topic with the given information. Messages larger than the
+	 * fragment size are split into rosbridge fragments, both by rosbridge for
+	 * subscriptions and by this object when publishing.
+	 * 
+	 * @param ros
+	 *            A handle to the ROS connection.
+	 * @param name
+	 *            The name of the topic (e.g., "/cmd_vel").
+	 * @param type
+	 *            The message type (e.g., "std_msgs/String").
+	 * @param compression
+	 *            The type of compression used for this topic.
+	 * @param throttleRate
+	 *            The throttle rate to use for this topic.
+	 * @param fragmentSize
+	 *            The fragment size to use for this topic, or 0 for no
+	 *            fragmentation.
+	 */
+	public Topic(Ros<Identifier> ros, Identifier id, String name, String type,
+			ROSConstants.CompressionType compression, int throttleRate,
+			int fragmentSize) {
 		this.ros = ros;
 		this.id = id;
 		this.name = name;
@@ -105,8 +139,12 @@ public class Topic<Identifier> {
 		this.isSubscribed = false;
 		this.compression = compression;
 		this.throttleRate = throttleRate;
+		this.fragmentSize = fragmentSize;
+		this.publishTemplate = new PublishFrameTemplate(name);
+		this.publishIds = true;
 		this.callbacks = new ArrayList<TopicCallback>();
-		this.ids = new ArrayList<String>();
+		this.rawCallbacks = new ArrayList<RawTopicCallback>();
+		this.subscriptions = new ArrayList<SubscriptionKey<Identifier>>();
 	}
 
 	/**
@@ -172,6 +210,35 @@ public class Topic<Identifier> {
 		return this.throttleRate;
 	}
 
+	/**
+	 * Get the fragment size for this topic.
+	 * 
+	 * @return The fragment size for this topic, or 0 for no fragmentation.
+	 */
+	public int getFragmentSize() {
+		return this.fragmentSize;
+	}
+
+	/**
+	 * Check if publish operations carry an id.
+	 * 
+	 * @return If publish operations carry an id.
+	 */
+	public boolean isPublishIds() {
+		return this.publishIds;
+	}
+
+	/**
+	 * Set if publish operations carry an id. rosbridge does not need one, and
+	 * leaving it out saves work on fast topics. Ids are sent by default.
+	 * 
+	 * @param publishIds
+	 *            If publish operations should carry an id.
+	 */
+	public void setPublishIds(boolean publishIds) {
+		this.publishIds = publishIds;
+	}
+
 	/**
 	 * Subscribe to this topic. A callback function is required and will be
 	 * called with any incoming message for this topic.
@@ -182,22 +249,62 @@ public class Topic<Identifier> {
 	 */
 	public void subscribe(TopicCallback cb) throws IOException {
 		// register the callback function
-		this.ros.registerTopicCallback(this.name, cb);
+		this.ros.registerTopicCallback(this.id, this.name, cb);
 		// internal reference used during unsubscribe
 		this.callbacks.add(cb);
 
-		String subscribeId = "subscribe:" + this.name + ":" + this.ros.nextId();
-		this.ids.add(subscribeId);
+		this.sendSubscribe(this.compression);
+	}
 
-		// build and send the rosbridge call
-		JsonObject call = Json.createObjectBuilder()
-				.add(ROSConstants.FIELD_OP, ROSConstants.OP_CODE_SUBSCRIBE)
-				.add(ROSConstants.FIELD_ID, subscribeId)
-				.add(ROSConstants.FIELD_TYPE, this.type)
-				.add(ROSConstants.FIELD_TOPIC, this.name)
-				.add(ROSConstants.FIELD_COMPRESSION, this.compression.toString())
-				.add(ROSConstants.FIELD_THROTTLE_RATE, this.throttleRate).build();
-		this.ros.send(call,id);
+	/**
+	 * Subscribe to this topic, delivering only the latest message. The
+	 * callback runs on the conflating executor of the ROS connection; while it
+	 * is busy, newer messages replace the pending one instead of queuing, so a
+	 * slow callback never falls behind a fast topic.
+	 * 
+	 * @param cb
+	 *            The callback that will be called with the latest message.
+	 * @return The conflating callback that was registered, which counts the
+	 *         delivered and conflated messages.
+	 */
+	public ConflatingTopicCallback subscribeLatest(TopicCallback cb)
+			throws IOException {
+		ConflatingTopicCallback latest = new ConflatingTopicCallback(this.name,
+				cb, this.ros.getConflatingExecutor());
+		this.subscribe(latest);
+		return latest;
+	}
+
+	/**
+	 * Subscribe to this topic with cbor-raw compression. rosbridge then sends
+	 * the ROS binary serialization of each message, which is handed to the
+	 * callback without being parsed. The message classes can read it with
+	 * their fromRosBinary method if needed. The compression of this topic is
+	 * ignored.
+	 * 
+	 * @param cb
+	 *            The callback that will be called when incoming messages are
+	 *            received.
+	 */
+	public void subscribeRaw(RawTopicCallback cb) throws IOException {
+		// register the callback function
+		this.ros.registerRawTopicCallback(this.id, this.name, cb);
+		// internal reference used during unsubscribe
+		this.rawCallbacks.add(cb);
+
+		this.sendSubscribe(ROSConstants.CompressionType.cbor_raw);
+	}
+
+	private void sendSubscribe(ROSConstants.CompressionType compression)
+			throws IOException {
+		SubscriptionKey<Identifier> key = new SubscriptionKey<Identifier>(
+				this.id, this.name, this.type, compression, this.throttleRate,
+				this.fragmentSize);
+		// this object counts as one subscriber, however many callbacks it has
+		if (!this.subscriptions.contains(key)) {
+			this.ros.getSubscriptionManager().subscribe(key);
+			this.subscriptions.add(key);
+		}
 
 		// set the flag indicating we have subscribed
 		this.isSubscribed = true;
@@ -205,26 +312,44 @@ public class Topic<Identifier> {
 
 	/**
 	 * Unregisters as a subscriber for the topic. Unsubscribing will remove all
-	 * the associated subscribe callbacks.
+	 * the associated subscribe callbacks. This topic leaves all its
+	 * subscriptions even if an unsubscribe operation could not be sent; the
+	 * first error is thrown afterwards.
 	 */
 	public void unsubscribe() throws IOException {
 		// remove this object's associated callbacks.
 		for (TopicCallback cb : this.callbacks) {
-			this.ros.deregisterTopicCallback(this.name, cb);
+			this.ros.deregisterTopicCallback(this.id, this.name, cb);
 		}
 		this.callbacks.clear();
+		for (RawTopicCallback cb : this.rawCallbacks) {
+			this.ros.deregisterRawTopicCallback(this.id, this.name, cb);
+		}
+		this.rawCallbacks.clear();
 
-		// build and send the rosbridge calls
-		for (String id : this.ids) {
-			JsonObject call = Json.createObjectBuilder()
-					.add(ROSConstants.FIELD_OP, ROSConstants.OP_CODE_UNSUBSCRIBE)
-					.add(ROSConstants.FIELD_ID, id)
-					.add(ROSConstants.FIELD_TOPIC, this.name).build();
-			this.ros.send(call,this.id);
+		// leave the shared subscriptions, the last subscriber unsubscribes
+		Exception error = null;
+		for (SubscriptionKey<Identifier> key : this.subscriptions) {
+			try {
+				this.ros.getSubscriptionManager().unsubscribe(key);
+			} catch (IOException | RuntimeException e) {
+				if (error == null) {
+					error = e;
+				} else {
+					error.addSuppressed(e);
+				}
+			}
 		}
+		this.subscriptions.clear();
 
 		// set the flag indicating we are not longer subscribed
 		this.isSubscribed = false;
+
+		if (error instanceof IOException) {
+			throw (IOException) error;
+		} else if (error != null) {
+			throw (RuntimeException) error;
+		}
 	}
 
 	/**
@@ -240,6 +365,8 @@ public class Topic<Identifier> {
 				.add(ROSConstants.FIELD_TYPE, this.type)
 				.add(ROSConstants.FIELD_TOPIC, this.name).build();
 		this.ros.send(call,id);
+		// advertise again if the robot reconnects
+		this.ros.getAdvertisementManifest().add(this.id, this.name, call);
 
 		// set the flag indicating we are registered
 		this.isAdvertised = true;
@@ -256,6 +383,8 @@ public class Topic<Identifier> {
 				.add(ROSConstants.FIELD_OP, ROSConstants.OP_CODE_UNADVERTISE)
 				.add(ROSConstants.FIELD_ID, unadvertiseId)
 				.add(ROSConstants.FIELD_TOPIC, this.name).build();
+		this.ros.getAdvertisementManifest().remove(this.id,
+				ROSConstants.OP_CODE_ADVERTISE, this.name);
 		this.ros.send(call,id);
 
 		// set the flag indicating we are no longer registered
@@ -264,7 +393,8 @@ public class Topic<Identifier> {
 
 	/**
 	 * Publish the given message to ROS on this topic. If the topic is not
-	 * advertised, it will be advertised first.
+	 * advertised, it will be advertised first. If the message is larger than
+	 * the fragment size, it is sent as rosbridge fragments.
 	 * 
 	 * @param message
 	 *            The message to publish.
@@ -275,13 +405,30 @@ public class Topic<Identifier> {
 			this.advertise();
 		}
 
-		// build and send the rosbridge call
-		String publishId = "publish:" + this.name + ":" + this.ros.nextId();
-		JsonObject call = Json.createObjectBuilder()
-				.add(ROSConstants.FIELD_OP, ROSConstants.OP_CODE_PUBLISH)
-				.add(ROSConstants.FIELD_ID, publishId)
-				.add(ROSConstants.FIELD_TOPIC, this.name)
-				.add(ROSConstants.FIELD_MESSAGE, message.toJsonObject()).build();
-		this.ros.send(call,id);
+		JsonObject msg = message.toJsonObject();
+		if (this.fragmentSize <= 0) {
+			// splice the message into the precompiled frame
+			if (this.publishIds) {
+				long publishId = this.ros.nextId();
+				this.ros.sendEncoded(this.id,
+						buffer -> this.publishTemplate.encode(msg, publishId,
+								buffer));
+			} else {
+				this.ros.sendEncoded(this.id,
+						buffer -> this.publishTemplate.encode(msg, buffer));
+			}
+			return;
+		}
+
+		// build and send the rosbridge call, it is split into fragments
+		JsonObjectBuilder call = Json.createObjectBuilder()
+				.add(ROSConstants.FIELD_OP, ROSConstants.OP_CODE_PUBLISH);
+		if (this.publishIds) {
+			call.add(ROSConstants.FIELD_ID, "publish:" + this.name + ":"
+					+ this.ros.nextId());
+		}
+		call.add(ROSConstants.FIELD_TOPIC, this.name)
+				.add(ROSConstants.FIELD_MESSAGE, msg);
+		this.ros.send(call.build(), this.id, this.fragmentSize);
 	}
 }
@@ -0,0 +1,96 @@
+package org.jrosbridge.springed.bulk;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.jrosbridge.springed.services.ServiceRequest;
+
+/**
+ * A BulkRequest is one call of a bulk service invocation: the request and the
+ * robot it is sent to.
+ *
+ * @param <Identifier>
+ *            The type used to identify a robot.
+ */
+public class BulkRequest<Identifier> {
+
+	private final Identifier robotId;
+	private final ServiceRequest request;
+
+	/**
+	 * Create a new bulk request.
+	 *
+	 * @param robotId
+	 *            The identifier of the robot to call the service on.
+	 * @param request
+	 *            The service request to send.
+	 */
+	public BulkRequest(Identifier robotId, ServiceRequest request) {
+		this.robotId = robotId;
+		this.request = request;
+	}
+
+	/**
+	 * Get the identifier of the robot the request is sent to.
+	 *
+	 * @return The identifier of the robot.
+	 */
+	public Identifier getRobotId() {
+		return this.robotId;
+	}
+
+	/**
+	 * Get the service request to send.
+	 *
+	 * @return The service request.
+	 */
+	public ServiceRequest getRequest() {
+		return this.request;
+	}
+
+	/**
+	 * Create bulk requests that send the same request to each of the given
+	 * robots.
+	 *
+	 * @param robotIds
+	 *            The identifiers of the robots.
+	 * @param request
+	 *            The service request to send.
+	 * @return The bulk requests, in the order of the robots.
+	 */
+	public static <Identifier> List<BulkRequest<Identifier>> forRobots(
+			Collection<? extends Identifier> robotIds, ServiceRequest request) {
+		List<BulkRequest<Identifier>> requests = new ArrayList<BulkRequest<Identifier>>(
+				robotIds.size());
+		for (Identifier robotId : robotIds) {
+			requests.add(new BulkRequest<Identifier>(robotId, request));
+		}
+		return requests;
+	}
+
+	/**
+	 * Create bulk requests that send each of the given requests to one robot.
+	 *
+	 * @param robotId
+	 *            The identifier of the robot.
+	 * @param requests
+	 *            The service requests to send.
+	 * @return The bulk requests, in the order of the service requests.
+	 */
+	public static <Identifier> List<BulkRequest<Identifier>> forRobot(
+			Identifier robotId, Collection<? extends ServiceRequest> requests) {
+		List<BulkRequest<Identifier>> bulk = new ArrayList<BulkRequest<Identifier>>(
+				requests.size());
+		for (ServiceRequest request : requests) {
+			bulk.add(new BulkRequest<Identifier>(robotId, request));
+		}
+		return bulk;
+	}
+
+	@Override
+	public String toString() {
+		return "BulkRequest[robot=" + this.robotId + ", request="
+				+ this.request + "]";
+	}
+}
@@ -0,0 +1,303 @@
+package org.jrosbridge.springed.bulk;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jrosbridge.springed.Ros;
+import org.jrosbridge.springed.callback.BulkResultCallback;
+import org.jrosbridge.springed.callback.ServiceCallback;
+import org.jrosbridge.springed.services.ServiceException;
+import org.jrosbridge.springed.services.ServiceResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A BulkServiceCall sends many calls of one service, to one or many robots,
+ * with flow control. Each robot has a window of calls that may be in flight
+ * at once; the next call to a robot is sent as soon as one of its calls
+ * completes, so a slow robot does not hold back the others and no robot is
+ * flooded with requests. Results are streamed to a
+ * {@link BulkResultCallback BulkResultCallback} as they arrive.
+ *
+ * @param <Identifier>
+ *            The type used to identify a robot.
+ */
+public class BulkServiceCall<Identifier> {
+
+	private final Logger logger = LoggerFactory.getLogger(BulkServiceCall.class);
+
+	private final Ros<Identifier> ros;
+	private final String service;
+	private final String type;
+	private final long timeoutNanos;
+	private final int window;
+	private final BulkResultCallback<Identifier> cb;
+	private final Map<Identifier, Lane> lanes;
+	private final int total;
+
+	// the latencies are written in completion order
+	private final long[] latencies;
+	private final AtomicInteger recorded;
+	private final AtomicInteger succeeded;
+	private final AtomicInteger failed;
+	private final AtomicInteger cancelled;
+	private final AtomicInteger remaining;
+	private final CompletableFuture<BulkStatistics> done;
+	private volatile boolean isCancelled;
+	private volatile long start;
+	private volatile long end;
+
+	/**
+	 * Create a new bulk invocation. Nothing is sent until {@link #start()} is
+	 * called.
+	 *
+	 * @param ros
+	 *            A handle to the ROS connection.
+	 * @param service
+	 *            The name of the service (e.g., "/add_two_ints").
+	 * @param type
+	 *            The service type (e.g., "rospy_tutorials/AddTwoInts").
+	 * @param requests
+	 *            The calls to make.
+	 * @param window
+	 *            The maximum number of calls in flight per robot.
+	 * @param timeout
+	 *            The time to wait for each response, or a negative value for
+	 *            the default timeout of the ROS connection.
+	 * @param unit
+	 *            The unit of the timeout.
+	 * @param cb
+	 *            The callback that receives the results.
+	 */
+	public BulkServiceCall(Ros<Identifier> ros, String service, String type,
+			Collection<? extends BulkRequest<Identifier>> requests, int window,
+			long timeout, TimeUnit unit, BulkResultCallback<Identifier> cb) {
+		if (window < 1) {
+			throw new IllegalArgumentException("Window must be at least 1.");
+		}
+		this.ros = ros;
+		this.service = service;
+		this.type = type;
+		this.timeoutNanos = timeout < 0 ? -1 : unit.toNanos(timeout);
+		this.window = window;
+		this.cb = cb;
+
+		this.lanes = new LinkedHashMap<Identifier, Lane>();
+		for (BulkRequest<Identifier> request : requests) {
+			this.lanes.computeIfAbsent(request.getRobotId(), id -> new Lane())
+					.queue.add(request);
+		}
+		this.total = requests.size();
+
+		this.latencies = new long[this.total];
+		this.recorded = new AtomicInteger();
+		this.succeeded = new AtomicInteger();
+		this.failed = new AtomicInteger();
+		this.cancelled = new AtomicInteger();
+		this.remaining = new AtomicInteger(this.total);
+		this.done = new CompletableFuture<BulkStatistics>();
+		this.isCancelled = false;
+	}
+
+	/**
+	 * Start sending the calls. Up to the window size of calls are sent to
+	 * each robot right away, the rest as earlier calls complete.
+	 *
+	 * @return This invocation.
+	 */
+	public synchronized BulkServiceCall<Identifier> start() {
+		if (this.start != 0) {
+			throw new IllegalStateException("Bulk call was already started.");
+		}
+		this.start = System.nanoTime();
+		if (this.total == 0) {
+			this.end = this.start;
+			this.done.complete(this.getStatistics());
+		}
+		for (Lane lane : this.lanes.values()) {
+			lane.pump();
+		}
+		return this;
+	}
+
+	/**
+	 * Stop sending calls. Calls that were not sent yet are dropped and
+	 * counted as cancelled; calls in flight still complete normally.
+	 */
+	public void cancel() {
+		this.isCancelled = true;
+		int dropped = 0;
+		for (Lane lane : this.lanes.values()) {
+			synchronized (lane) {
+				dropped += lane.queue.size();
+				lane.queue.clear();
+			}
+		}
+		this.cancelled.addAndGet(dropped);
+		this.finished(dropped);
+	}
+
+	/**
+	 * Get a future that completes with the final statistics once every call
+	 * got a response, failed or was cancelled.
+	 *
+	 * @return The future of the final statistics.
+	 */
+	public CompletableFuture<BulkStatistics> getCompletion() {
+		return this.done;
+	}
+
+	/**
+	 * Check if every call got a response, failed or was cancelled.
+	 *
+	 * @return If the invocation is done.
+	 */
+	public boolean isDone() {
+		return this.remaining.get() == 0;
+	}
+
+	/**
+	 * Get a snapshot of the progress of the invocation. It may be called at
+	 * any time, also while calls are in flight.
+	 *
+	 * @return The statistics so far.
+	 */
+	public BulkStatistics getStatistics() {
+		long end = this.isDone() ? this.end : System.nanoTime();
+		int count = Math.min(this.recorded.get(), this.total);
+		return new BulkStatistics(this.total, this.succeeded.get(),
+				this.failed.get(), this.cancelled.get(), this.start == 0 ? 0
+						: end - this.start, Arrays.copyOf(this.latencies, count));
+	}
+
+	private void send(Lane lane, BulkRequest<Identifier> request) {
+		Completion completion = new Completion(lane, request);
+		try {
+			if (this.timeoutNanos < 0) {
+				this.ros.callService(request.getRobotId(), this.service,
+						this.type, request.getRequest().toJsonObject(),
+						completion);
+			} else {
+				this.ros.callService(request.getRobotId(), this.service,
+						this.type, request.getRequest().toJsonObject(),
+						completion, this.timeoutNanos, TimeUnit.NANOSECONDS);
+			}
+		} catch (IOException | RuntimeException e) {
+			// the call was not registered, so no callback will come
+			completion.handleError(e);
+		}
+	}
+
+	private void finished(int count) {
+		if (count > 0 && this.remaining.addAndGet(-count) == 0) {
+			this.end = System.nanoTime();
+			this.done.complete(this.getStatistics());
+		}
+	}
+
+	/**
+	 * A lane holds the unsent calls of one robot and counts its calls in
+	 * flight.
+	 */
+	private class Lane {
+
+		final ArrayDeque<BulkRequest<Identifier>> queue = new ArrayDeque<BulkRequest<Identifier>>();
+		int inFlight;
+		boolean pumping;
+
+		/**
+		 * Send calls until the window is full. A call that fails right away
+		 * completes from within the loop; the flag keeps that from recursing.
+		 */
+		void pump() {
+			synchronized (this) {
+				if (this.pumping) {
+					return;
+				}
+				this.pumping = true;
+			}
+			while (true) {
+				BulkRequest<Identifier> next;
+				synchronized (this) {
+					if (BulkServiceCall.this.isCancelled
+							|| this.inFlight >= BulkServiceCall.this.window
+							|| this.queue.isEmpty()) {
+						this.pumping = false;
+						return;
+					}
+					next = this.queue.poll();
+					this.inFlight++;
+				}
+				BulkServiceCall.this.send(this, next);
+			}
+		}
+	}
+
+	/**
+	 * Receives the outcome of one call.
+	 */
+	private class Completion implements ServiceCallback {
+
+		final Lane lane;
+		final BulkRequest<Identifier> request;
+		final long sent;
+
+		Completion(Lane lane, BulkRequest<Identifier> request) {
+			this.lane = lane;
+			this.request = request;
+			this.sent = System.nanoTime();
+		}
+
+		@Override
+		public void handleServiceResponse(ServiceResponse response) {
+			this.record(response.getResult());
+			try {
+				BulkServiceCall.this.cb.handleResult(this.request, response);
+			} catch (RuntimeException e) {
+				BulkServiceCall.this.logger.error(
+						"Bulk result callback for service {} failed",
+						BulkServiceCall.this.service, e);
+			}
+			this.next();
+		}
+
+		@Override
+		public void handleServiceError(ServiceException error) {
+			this.handleError(error);
+		}
+
+		void handleError(Exception error) {
+			this.record(false);
+			try {
+				BulkServiceCall.this.cb.handleError(this.request, error);
+			} catch (RuntimeException e) {
+				BulkServiceCall.this.logger.error(
+						"Bulk result callback for service {} failed",
+						BulkServiceCall.this.service, e);
+			}
+			this.next();
+		}
+
+		private void record(boolean success) {
+			int slot = BulkServiceCall.this.recorded.getAndIncrement();
+			BulkServiceCall.this.latencies[slot] = System.nanoTime() - this.sent;
+			(success ? BulkServiceCall.this.succeeded
+					: BulkServiceCall.this.failed).incrementAndGet();
+		}
+
+		private void next() {
+			synchronized (this.lane) {
+				this.lane.inFlight--;
+			}
+			BulkServiceCall.this.finished(1);
+			this.lane.pump();
+		}
+	}
+}
@@ -0,0 +1,138 @@
+package org.jrosbridge.springed.bulk;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A BulkStatistics object is a snapshot of the progress of a bulk service
+ * invocation: how many calls are done, how fast they complete, and the
+ * distribution of their round trip latencies.
+ */
+public class BulkStatistics {
+
+	private final int total;
+	private final int succeeded;
+	private final int failed;
+	private final int cancelled;
+	private final long elapsedNanos;
+	private final long[] latencies;
+
+	BulkStatistics(int total, int succeeded, int failed, int cancelled,
+			long elapsedNanos, long[] latencies) {
+		this.total = total;
+		this.succeeded = succeeded;
+		this.failed = failed;
+		this.cancelled = cancelled;
+		this.elapsedNanos = elapsedNanos;
+		this.latencies = latencies;
+		Arrays.sort(this.latencies);
+	}
+
+	/**
+	 * Get the number of calls of the invocation.
+	 *
+	 * @return The number of calls.
+	 */
+	public int getTotal() {
+		return this.total;
+	}
+
+	/**
+	 * Get the number of calls that got a response with a successful result.
+	 *
+	 * @return The number of successful calls.
+	 */
+	public int getSucceeded() {
+		return this.succeeded;
+	}
+
+	/**
+	 * Get the number of calls that got a response with a failed result, or
+	 * no response at all.
+	 *
+	 * @return The number of failed calls.
+	 */
+	public int getFailed() {
+		return this.failed;
+	}
+
+	/**
+	 * Get the number of calls that were never sent because the invocation was
+	 * cancelled.
+	 *
+	 * @return The number of cancelled calls.
+	 */
+	public int getCancelled() {
+		return this.cancelled;
+	}
+
+	/**
+	 * Get the number of calls that are done, whether they succeeded, failed
+	 * or were cancelled.
+	 *
+	 * @return The number of finished calls.
+	 */
+	public int getFinished() {
+		return this.succeeded + this.failed + this.cancelled;
+	}
+
+	/**
+	 * Get the time from the start of the invocation until the last call
+	 * finished, or until now if calls are still outstanding.
+	 *
+	 * @param unit
+	 *            The unit of the result.
+	 * @return The elapsed time.
+	 */
+	public long getElapsed(TimeUnit unit) {
+		return unit.convert(this.elapsedNanos, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Get the number of calls that got a response or failed, per second of
+	 * elapsed time.
+	 *
+	 * @return The throughput in calls per second.
+	 */
+	public double getThroughput() {
+		if (this.elapsedNanos <= 0) {
+			return 0;
+		}
+		return (this.succeeded + this.failed) * 1e9 / this.elapsedNanos;
+	}
+
+	/**
+	 * Get a percentile of the round trip latency of the calls that got a
+	 * response or failed.
+	 *
+	 * @param percentile
+	 *            The percentile, between 0 and 100 (e.g., 99 for p99).
+	 * @param unit
+	 *            The unit of the result.
+	 * @return The latency below which the given percentage of calls
+	 *         completed, or 0 if no call has completed yet.
+	 */
+	public long getLatency(double percentile, TimeUnit unit) {
+		if (percentile < 0 || percentile > 100) {
+			throw new IllegalArgumentException("Percentile must be between 0 and 100.");
+		}
+		if (this.latencies.length == 0) {
+			return 0;
+		}
+		// nearest rank
+		int rank = (int) Math.ceil(percentile / 100 * this.latencies.length);
+		long nanos = this.latencies[Math.max(rank, 1) - 1];
+		return unit.convert(nanos, TimeUnit.NANOSECONDS);
+	}
+
+	@Override
+	public String toString() {
+		return "BulkStatistics[total=" + this.total + ", succeeded="
+				+ this.succeeded + ", failed=" + this.failed + ", cancelled="
+				+ this.cancelled + ", throughput="
+				+ String.format("%.1f/s", this.getThroughput()) + ", p50="
+				+ this.getLatency(50, TimeUnit.MICROSECONDS) + "us, p99="
+				+ this.getLatency(99, TimeUnit.MICROSECONDS) + "us, max="
+				+ this.getLatency(100, TimeUnit.MICROSECONDS) + "us]";
+	}
+}
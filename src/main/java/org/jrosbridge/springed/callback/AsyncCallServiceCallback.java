@@ -0,0 +1,30 @@
+package org.jrosbridge.springed.callback;
+
+import java.util.concurrent.CompletableFuture;
+
+import org.jrosbridge.springed.services.ServiceRequest;
+import org.jrosbridge.springed.services.ServiceResponse;
+
+/**
+ * The AsyncCallServiceCallback interface defines a single method which will be
+ * called when an incoming service request is received for an advertised
+ * service. Unlike a {@link CallServiceCallback CallServiceCallback}, it does
+ * not send the response itself: it returns a future of the response, and the
+ * response is sent when the future completes.
+ */
+@FunctionalInterface
+public interface AsyncCallServiceCallback {
+
+	/**
+	 * This function is called when an incoming service request is received.
+	 * It runs on the service executor of the ROS connection, never on the
+	 * thread that reads the websocket. No ROS type checking is done on the
+	 * internal data.
+	 *
+	 * @param request
+	 *            The service request that was received.
+	 * @return A future of the response to send. If it completes
+	 *         exceptionally, a failed result is sent instead.
+	 */
+	CompletableFuture<ServiceResponse> handleServiceCall(ServiceRequest request);
+}
@@ -0,0 +1,39 @@
+package org.jrosbridge.springed.callback;
+
+import org.jrosbridge.springed.bulk.BulkRequest;
+import org.jrosbridge.springed.services.ServiceResponse;
+
+/**
+ * The BulkResultCallback interface receives the results of a bulk service
+ * invocation as the individual calls complete. Calls to different robots
+ * complete in no particular order and may be handled concurrently.
+ *
+ * @param <Identifier>
+ *            The type used to identify a robot.
+ */
+@FunctionalInterface
+public interface BulkResultCallback<Identifier> {
+
+	/**
+	 * This function is called when the response of one call is received.
+	 *
+	 * @param request
+	 *            The request that was answered.
+	 * @param response
+	 *            The service response that was received.
+	 */
+	void handleResult(BulkRequest<Identifier> request, ServiceResponse response);
+
+	/**
+	 * This function is called when one call did not get a response, e.g.,
+	 * because it could not be sent, timed out or the session of the robot
+	 * closed. By default, the error is ignored.
+	 *
+	 * @param request
+	 *            The request that failed.
+	 * @param error
+	 *            The reason the call failed.
+	 */
+	default void handleError(BulkRequest<Identifier> request, Exception error) {
+	}
+}
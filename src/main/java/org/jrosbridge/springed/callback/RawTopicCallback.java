@@ -0,0 +1,27 @@
+package org.jrosbridge.springed.callback;
+
+import java.nio.ByteBuffer;
+
+import org.jrosbridge.springed.primitives.Time;
+
+/**
+ * The RawTopicCallback interface defines a single method which will be called
+ * when an incoming message is received for a topic subscribed with the
+ * cbor-raw compression. The message is not decoded; the message classes'
+ * <code>fromRosBinary</code> methods can be used to decode it when needed.
+ */
+@FunctionalInterface
+public interface RawTopicCallback {
+
+	/**
+	 * This function is called when an incoming message is received for a given
+	 * topic.
+	 * 
+	 * @param message
+	 *            A read-only, little endian view of the ROS binary
+	 *            serialization of the message.
+	 * @param stamp
+	 *            The time rosbridge received the message at.
+	 */
+	void handleRawMessage(ByteBuffer message, Time stamp);
+}
@@ -1,5 +1,8 @@
 package org.jrosbridge.springed.callback;
 
+import javax.json.Json;
+
+import org.jrosbridge.springed.services.ServiceException;
 import org.jrosbridge.springed.services.ServiceResponse;
 
 /**
@@ -22,4 +25,19 @@ public interface ServiceCallback {
 	 *            The service response that was received.
 	 */
 	void handleServiceResponse(ServiceResponse response);
+
+	/**
+	 * This function is called instead of
+	 * {@link #handleServiceResponse(ServiceResponse) handleServiceResponse}
+	 * when the call did not get a response, e.g., because it timed out or the
+	 * session of the robot closed. By default, an empty response with a
+	 * failed result is handled.
+	 * 
+	 * @param error
+	 *            The reason the call failed.
+	 */
+	default void handleServiceError(ServiceException error) {
+		this.handleServiceResponse(new ServiceResponse(Json
+				.createObjectBuilder().build(), false));
+	}
 }
@@ -0,0 +1,82 @@
+package org.jrosbridge.springed.codec;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.jrosbridge.springed.codec.PrimitiveJsonArray.Kind;
+
+/**
+ * An ArrayFieldSchema names the fields of a JSON object that hold numeric
+ * arrays, with their element types, so the {@link StreamingJsonDecoder
+ * StreamingJsonDecoder} can read them straight into primitive arrays. Fields
+ * of nested objects are given as dotted paths (e.g., "pose.covariance"). A
+ * schema is filled once and must not be changed after it is used.
+ */
+public final class ArrayFieldSchema {
+
+	// a Kind for an array field, or the schema of a nested object
+	private final Map<String, Object> fields;
+
+	/**
+	 * Create a new, empty schema.
+	 */
+	public ArrayFieldSchema() {
+		this.fields = new HashMap<String, Object>();
+	}
+
+	/**
+	 * Add a numeric array field.
+	 *
+	 * @param path
+	 *            The name of the field, dotted for fields of nested objects.
+	 * @param kind
+	 *            The element type of the array.
+	 * @return This schema.
+	 */
+	public ArrayFieldSchema add(String path, Kind kind) {
+		int dot = path.indexOf('.');
+		if (dot < 0) {
+			this.fields.put(path, kind);
+		} else {
+			this.nested(path.substring(0, dot)).add(path.substring(dot + 1),
+					kind);
+		}
+		return this;
+	}
+
+	/**
+	 * Add the array fields of a nested object.
+	 *
+	 * @param name
+	 *            The name of the field holding the nested object.
+	 * @param schema
+	 *            The schema of the nested object.
+	 * @return This schema.
+	 */
+	public ArrayFieldSchema add(String name, ArrayFieldSchema schema) {
+		this.fields.put(name, schema);
+		return this;
+	}
+
+	/**
+	 * Get what is known about a field.
+	 *
+	 * @param name
+	 *            The name of the field.
+	 * @return The Kind of an array field, the schema of a nested object, or
+	 *         null.
+	 */
+	Object get(String name) {
+		return this.fields.get(name);
+	}
+
+	private ArrayFieldSchema nested(String name) {
+		Object field = this.fields.get(name);
+		if (field instanceof ArrayFieldSchema) {
+			return (ArrayFieldSchema) field;
+		}
+		ArrayFieldSchema nested = new ArrayFieldSchema();
+		this.fields.put(name, nested);
+		return nested;
+	}
+}
@@ -0,0 +1,355 @@
+package org.jrosbridge.springed.codec;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+import javax.json.JsonArrayBuilder;
+import javax.json.JsonException;
+import javax.json.JsonObjectBuilder;
+import javax.json.JsonString;
+import javax.json.JsonValue;
+
+/**
+ * The CborDecoder turns a CBOR encoded rosbridge frame (RFC 7049) into the
+ * same JSON values a text frame would give, so binary frames can use the
+ * normal message dispatch. Byte strings and the typed arrays of RFC 8746, which
+ * rosbridge uses for numeric arrays, are decoded in bulk into a
+ * {@link PrimitiveJsonArray PrimitiveJsonArray} instead of one JsonNumber per
+ * element.
+ */
+public final class CborDecoder {
+
+	private static final int MAJOR_UNSIGNED = 0;
+	private static final int MAJOR_NEGATIVE = 1;
+	private static final int MAJOR_BYTES = 2;
+	private static final int MAJOR_TEXT = 3;
+	private static final int MAJOR_ARRAY = 4;
+	private static final int MAJOR_MAP = 5;
+	private static final int MAJOR_TAG = 6;
+	private static final int MAJOR_SIMPLE = 7;
+
+	private static final int INDEFINITE = 31;
+	private static final int BREAK = 0xFF;
+
+	private static final int TAG_POSITIVE_BIGNUM = 2;
+	private static final int TAG_NEGATIVE_BIGNUM = 3;
+	private static final int TAG_TYPED_ARRAY_FIRST = 64;
+	private static final int TAG_TYPED_ARRAY_LAST = 87;
+
+	private final ByteBuffer in;
+
+	private CborDecoder(ByteBuffer in) {
+		this.in = in;
+	}
+
+	/**
+	 * Decode the CBOR item in the remaining bytes of the given buffer. The
+	 * position of the buffer is not changed.
+	 *
+	 * @param buffer
+	 *            The CBOR encoded bytes.
+	 * @return The decoded value.
+	 * @throws JsonException
+	 *             If the bytes are not valid CBOR or use a feature that has no
+	 *             JSON equivalent.
+	 */
+	public static JsonValue decode(ByteBuffer buffer) {
+		CborDecoder decoder = new CborDecoder(buffer.slice().order(
+				ByteOrder.BIG_ENDIAN));
+		try {
+			JsonValue value = decoder.readItem();
+			if (value == null) {
+				throw new JsonException("Unexpected CBOR break.");
+			}
+			return value;
+		} catch (BufferUnderflowException e) {
+			throw new JsonException("Truncated CBOR data.", e);
+		}
+	}
+
+	/**
+	 * Decode the CBOR item in the given bytes.
+	 *
+	 * @param bytes
+	 *            The CBOR encoded bytes.
+	 * @return The decoded value.
+	 * @throws JsonException
+	 *             If the bytes are not valid CBOR or use a feature that has no
+	 *             JSON equivalent.
+	 */
+	public static JsonValue decode(byte[] bytes) {
+		return CborDecoder.decode(ByteBuffer.wrap(bytes));
+	}
+
+	/**
+	 * Read the next item, or return null on a break marker.
+	 */
+	private JsonValue readItem() {
+		int initial = this.in.get() & 0xFF;
+		if (initial == BREAK) {
+			return null;
+		}
+		int major = initial >>> 5;
+		int info = initial & 0x1F;
+
+		switch (major) {
+		case MAJOR_UNSIGNED:
+			long unsigned = this.readArgument(info);
+			return unsigned >= 0 ? JsonFactories.PROVIDER.createValue(unsigned)
+					: JsonFactories.PROVIDER.createValue(new BigInteger(Long
+							.toUnsignedString(unsigned)));
+		case MAJOR_NEGATIVE:
+			long negative = this.readArgument(info);
+			return negative >= 0 ? JsonFactories.PROVIDER
+					.createValue(-1 - negative) : JsonFactories.PROVIDER
+					.createValue(new BigInteger(Long.toUnsignedString(negative))
+							.not());
+		case MAJOR_BYTES:
+			return PrimitiveJsonArray.ofUInt8(this.readBytes(info));
+		case MAJOR_TEXT:
+			return JsonFactories.PROVIDER.createValue(new String(
+					this.readBytes(info), StandardCharsets.UTF_8));
+		case MAJOR_ARRAY:
+			return this.readArray(info);
+		case MAJOR_MAP:
+			return this.readMap(info);
+		case MAJOR_TAG:
+			return this.readTagged(this.readArgument(info));
+		case MAJOR_SIMPLE:
+		default:
+			return this.readSimple(info);
+		}
+	}
+
+	/**
+	 * Read the argument of an item. Values above Long.MAX_VALUE come back as
+	 * negative numbers with the same bits.
+	 */
+	private long readArgument(int info) {
+		if (info < 24) {
+			return info;
+		}
+		switch (info) {
+		case 24:
+			return this.in.get() & 0xFFL;
+		case 25:
+			return this.in.getShort() & 0xFFFFL;
+		case 26:
+			return this.in.getInt() & 0xFFFFFFFFL;
+		case 27:
+			return this.in.getLong();
+		default:
+			throw new JsonException("Invalid CBOR additional info " + info
+					+ ".");
+		}
+	}
+
+	private int readLength(int info) {
+		long length = this.readArgument(info);
+		if (length < 0 || length > this.in.remaining()) {
+			throw new JsonException("Invalid CBOR length " + length + ".");
+		}
+		return (int) length;
+	}
+
+	private byte[] readBytes(int info) {
+		if (info == INDEFINITE) {
+			// concatenate the definite length chunks up to the break
+			FrameBuffer chunks = new FrameBuffer(64);
+			int initial;
+			while ((initial = this.in.get() & 0xFF) != BREAK) {
+				byte[] chunk = this.readBytes(initial & 0x1F);
+				chunks.write(chunk, 0, chunk.length);
+			}
+			return chunks.toByteArray();
+		}
+		byte[] bytes = new byte[this.readLength(info)];
+		this.in.get(bytes);
+		return bytes;
+	}
+
+	private JsonValue readArray(int info) {
+		JsonArrayBuilder builder = JsonFactories.PROVIDER.createArrayBuilder();
+		if (info == INDEFINITE) {
+			JsonValue value;
+			while ((value = this.readItem()) != null) {
+				builder.add(value);
+			}
+		} else {
+			long size = this.readArgument(info);
+			for (long i = 0; i < size; i++) {
+				builder.add(this.readDefined());
+			}
+		}
+		return builder.build();
+	}
+
+	private JsonValue readMap(int info) {
+		JsonObjectBuilder builder = JsonFactories.PROVIDER
+				.createObjectBuilder();
+		long size = info == INDEFINITE ? Long.MAX_VALUE : this
+				.readArgument(info);
+		for (long i = 0; i < size; i++) {
+			JsonValue key = this.readItem();
+			if (key == null && info == INDEFINITE) {
+				break;
+			}
+			if (key == null || key.getValueType() != JsonValue.ValueType.STRING) {
+				throw new JsonException("CBOR map keys must be text strings.");
+			}
+			builder.add(((JsonString) key).getString(),
+					this.readDefined());
+		}
+		return builder.build();
+	}
+
+	private JsonValue readDefined() {
+		JsonValue value = this.readItem();
+		if (value == null) {
+			throw new JsonException("Unexpected CBOR break.");
+		}
+		return value;
+	}
+
+	private JsonValue readTagged(long tag) {
+		if (tag >= TAG_TYPED_ARRAY_FIRST && tag <= TAG_TYPED_ARRAY_LAST) {
+			int initial = this.in.get() & 0xFF;
+			if (initial >>> 5 != MAJOR_BYTES) {
+				throw new JsonException("CBOR typed array is not a byte string.");
+			}
+			return CborDecoder.readTypedArray((int) tag,
+					this.readBytes(initial & 0x1F));
+		}
+		JsonValue value = this.readDefined();
+		if ((tag == TAG_POSITIVE_BIGNUM || tag == TAG_NEGATIVE_BIGNUM)
+				&& value instanceof PrimitiveJsonArray) {
+			BigInteger big = new BigInteger(1,
+					((PrimitiveJsonArray) value).toByteArray());
+			return JsonFactories.PROVIDER
+					.createValue(tag == TAG_POSITIVE_BIGNUM ? big : big.not());
+		}
+		// other tags (e.g., date/time) carry no meaning for ROS messages
+		return value;
+	}
+
+	/**
+	 * Decode an RFC 8746 typed array. The tag encodes the element type in its
+	 * low bits: bit 4 float, bit 3 signed, bit 2 little endian, bits 0-1 the
+	 * element size.
+	 */
+	private static PrimitiveJsonArray readTypedArray(int tag, byte[] bytes) {
+		int flags = tag - TAG_TYPED_ARRAY_FIRST;
+		boolean isFloat = (flags & 0x10) != 0;
+		boolean signed = (flags & 0x08) != 0;
+		ByteOrder order = (flags & 0x04) != 0 ? ByteOrder.LITTLE_ENDIAN
+				: ByteOrder.BIG_ENDIAN;
+		int sizeBits = flags & 0x03;
+		ByteBuffer data = ByteBuffer.wrap(bytes).order(order);
+
+		if (isFloat) {
+			switch (sizeBits) {
+			case 0:
+				float[] halfs = new float[bytes.length / 2];
+				for (int i = 0; i < halfs.length; i++) {
+					halfs[i] = CborDecoder.halfToFloat(data.getShort());
+				}
+				return PrimitiveJsonArray.ofFloat32(halfs);
+			case 1:
+				float[] floats = new float[bytes.length / 4];
+				data.asFloatBuffer().get(floats);
+				return PrimitiveJsonArray.ofFloat32(floats);
+			case 2:
+				double[] doubles = new double[bytes.length / 8];
+				data.asDoubleBuffer().get(doubles);
+				return PrimitiveJsonArray.ofFloat64(doubles);
+			default:
+				throw new JsonException("CBOR float128 arrays are not supported.");
+			}
+		}
+
+		switch (sizeBits) {
+		case 0:
+			// the little endian bit marks the clamped uint8 array here
+			if (signed && order == ByteOrder.LITTLE_ENDIAN) {
+				throw new JsonException("Invalid CBOR typed array tag " + tag
+						+ ".");
+			}
+			return signed ? PrimitiveJsonArray.ofInt8(bytes)
+					: PrimitiveJsonArray.ofUInt8(bytes);
+		case 1:
+			short[] shorts = new short[bytes.length / 2];
+			data.asShortBuffer().get(shorts);
+			return signed ? PrimitiveJsonArray.ofInt16(shorts)
+					: PrimitiveJsonArray.ofUInt16(shorts);
+		case 2:
+			int[] ints = new int[bytes.length / 4];
+			data.asIntBuffer().get(ints);
+			return signed ? PrimitiveJsonArray.ofInt32(ints)
+					: PrimitiveJsonArray.ofUInt32(ints);
+		default:
+			long[] longs = new long[bytes.length / 8];
+			data.asLongBuffer().get(longs);
+			return signed ? PrimitiveJsonArray.ofInt64(longs)
+					: PrimitiveJsonArray.ofUInt64(longs);
+		}
+	}
+
+	private JsonValue readSimple(int info) {
+		switch (info) {
+		case 20:
+			return JsonValue.FALSE;
+		case 21:
+			return JsonValue.TRUE;
+		case 22:
+		case 23:
+			return JsonValue.NULL;
+		case 25:
+			return CborDecoder.number(CborDecoder.halfToFloat(this.in
+					.getShort()));
+		case 26:
+			return CborDecoder.number(this.in.getFloat());
+		case 27:
+			return CborDecoder.number(this.in.getDouble());
+		default:
+			throw new JsonException("Unsupported CBOR simple value " + info
+					+ ".");
+		}
+	}
+
+	private static JsonValue number(float value) {
+		// keep the float's own shortest representation
+		return Float.isFinite(value) ? JsonFactories.PROVIDER
+				.createValue(new BigDecimal(Float.toString(value)))
+				: JsonValue.NULL;
+	}
+
+	private static JsonValue number(double value) {
+		// JSON has no representation for NaN or the infinities
+		return Double.isFinite(value) ? JsonFactories.PROVIDER
+				.createValue(value) : JsonValue.NULL;
+	}
+
+	/**
+	 * Convert an IEEE 754 half precision value to a float.
+	 */
+	private static float halfToFloat(short half) {
+		int bits = half & 0xFFFF;
+		int sign = (bits & 0x8000) << 16;
+		int exponent = (bits >>> 10) & 0x1F;
+		int mantissa = bits & 0x3FF;
+		if (exponent == 0) {
+			// zero or subnormal
+			float value = mantissa * 0x1p-24f;
+			return sign == 0 ? value : -value;
+		}
+		if (exponent == 0x1F) {
+			return Float.intBitsToFloat(sign | 0x7F800000 | (mantissa << 13));
+		}
+		return Float.intBitsToFloat(sign | ((exponent + 112) << 23)
+				| (mantissa << 13));
+	}
+}
@@ -0,0 +1,358 @@
+package org.jrosbridge.springed.codec;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import javax.json.JsonException;
+import javax.json.JsonNumber;
+import javax.json.JsonObject;
+import javax.json.JsonString;
+import javax.json.JsonValue;
+
+import org.jrosbridge.springed.ROSConstants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The FragmentAssembler puts rosbridge fragment operations back together.
+ * rosbridge splits the JSON text of a large message into numbered fragments;
+ * the fragments of a message are written into a pooled
+ * {@link FrameBuffer FrameBuffer} as they arrive, and the text of the message
+ * is handed back once the last one is in. Fragments that arrive early are held
+ * until the gap before them is filled. The bytes of all incomplete messages
+ * are limited, and a message that is not complete in time is dropped, so a
+ * lost fragment cannot hold on to memory.
+ */
+public class FragmentAssembler {
+
+	/**
+	 * The bytes of incomplete messages held at most if no limit is given.
+	 */
+	public static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+
+	/**
+	 * The time in seconds a message may take to complete if no timeout is
+	 * given.
+	 */
+	public static final long DEFAULT_TIMEOUT_SECONDS = 30;
+
+	private final Logger logger = LoggerFactory.getLogger(FragmentAssembler.class);
+
+	private final FrameBufferPool pool;
+	private final long maxBytes;
+	private final long timeoutNanos;
+
+	// guarded by this
+	private final Map<Key, Partial> partials;
+	private long bytes;
+	private long dropped;
+
+	private final ScheduledFuture<?> sweeper;
+
+	/**
+	 * Create a new assembler.
+	 *
+	 * @param pool
+	 *            The pool the buffers of incomplete messages come from.
+	 * @param scheduler
+	 *            The scheduler timeouts are checked on once per second, or null
+	 *            to only check when {@link #sweep(long) sweep} is called.
+	 * @param maxBytes
+	 *            The maximum number of bytes held for incomplete messages.
+	 * @param timeout
+	 *            The time a message may take from its first fragment until it
+	 *            is complete.
+	 * @param unit
+	 *            The unit of the timeout.
+	 */
+	public FragmentAssembler(FrameBufferPool pool,
+			ScheduledExecutorService scheduler, long maxBytes, long timeout,
+			TimeUnit unit) {
+		this.pool = pool;
+		this.maxBytes = maxBytes;
+		this.timeoutNanos = unit.toNanos(timeout);
+		this.partials = new HashMap<Key, Partial>();
+		this.bytes = 0;
+		this.dropped = 0;
+		this.sweeper = scheduler == null ? null : scheduler.scheduleAtFixedRate(
+				() -> this.sweep(System.nanoTime()), 1, 1, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * Add a fragment operation.
+	 *
+	 * @param owner
+	 *            Where the fragment came from, e.g., its session. Fragments of
+	 *            different owners never mix.
+	 * @param fragment
+	 *            The fragment operation.
+	 * @return The JSON text of the whole message if this fragment completed
+	 *         it, or null. It is not parsed here, so a large message does not
+	 *         hold up the fragments of other owners.
+	 * @throws JsonException
+	 *             If the fragment is malformed.
+	 */
+	public String add(Object owner, JsonObject fragment) {
+		String id = FragmentAssembler.idOf(fragment.get(ROSConstants.FIELD_ID));
+		int num = fragment.getInt(ROSConstants.FIELD_NUM);
+		int total = fragment.getInt(ROSConstants.FIELD_TOTAL);
+		String data = fragment.getString(ROSConstants.FIELD_DATA);
+		if (total < 1 || num < 0 || num >= total) {
+			throw new JsonException("Invalid fragment " + num + " of " + total
+					+ ".");
+		}
+
+		FrameBuffer buffer = this.addData(new Key(owner, id), num, total, data);
+		if (buffer == null) {
+			return total == 1 ? data : null;
+		}
+		try {
+			return new String(buffer.array(), 0, buffer.size(),
+					StandardCharsets.UTF_8);
+		} finally {
+			this.pool.release(buffer);
+		}
+	}
+
+	/**
+	 * Buffer the data of a fragment.
+	 *
+	 * @return The buffer of the whole message if the fragment completed it,
+	 *         or null. A message of a single fragment is never buffered.
+	 */
+	private synchronized FrameBuffer addData(Key key, int num, int total,
+			String data) {
+		String id = key.id;
+		Partial partial = this.partials.get(key);
+		if (partial == null) {
+			if (total == 1) {
+				return null;
+			}
+			partial = new Partial(this.pool.acquire(), total, System.nanoTime());
+			this.partials.put(key, partial);
+		} else if (partial.total != total) {
+			this.drop(key, partial);
+			throw new JsonException("Fragment " + num + " of message " + id
+					+ " has a different total.");
+		}
+
+		long before = partial.bytes();
+		try {
+			partial.add(num, data);
+		} catch (IOException e) {
+			this.bytes += partial.bytes() - before;
+			this.drop(key, partial);
+			throw new JsonException("Could not buffer fragment.", e);
+		}
+		this.bytes += partial.bytes() - before;
+		if (this.bytes > this.maxBytes) {
+			this.drop(key, partial);
+			this.logger.warn(
+					"Dropped fragmented message {}, more than {} bytes of fragments in progress",
+					id, this.maxBytes);
+			return null;
+		}
+
+		if (!partial.isComplete()) {
+			return null;
+		}
+		this.remove(key, partial);
+		return partial.buffer;
+	}
+
+	/**
+	 * Drop the incomplete messages of an owner, e.g., when its session closed.
+	 *
+	 * @param owner
+	 *            The owner of the fragments.
+	 * @return The number of messages dropped.
+	 */
+	public synchronized int drop(Object owner) {
+		int count = 0;
+		Iterator<Map.Entry<Key, Partial>> it = this.partials.entrySet()
+				.iterator();
+		while (it.hasNext()) {
+			Map.Entry<Key, Partial> entry = it.next();
+			if (entry.getKey().owner.equals(owner)) {
+				it.remove();
+				this.release(entry.getValue());
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Drop the incomplete messages that took too long. This is called
+	 * periodically if the assembler was created with a scheduler.
+	 *
+	 * @param now
+	 *            The current time, from {@link System#nanoTime()}.
+	 * @return The number of messages dropped.
+	 */
+	public synchronized int sweep(long now) {
+		int count = 0;
+		Iterator<Map.Entry<Key, Partial>> it = this.partials.entrySet()
+				.iterator();
+		while (it.hasNext()) {
+			Map.Entry<Key, Partial> entry = it.next();
+			if (now - entry.getValue().started >= this.timeoutNanos) {
+				it.remove();
+				this.release(entry.getValue());
+				this.dropped++;
+				count++;
+				this.logger.warn("Dropped fragmented message {}, timed out",
+						entry.getKey().id);
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Get the number of incomplete messages.
+	 *
+	 * @return The number of incomplete messages.
+	 */
+	public synchronized int size() {
+		return this.partials.size();
+	}
+
+	/**
+	 * Get the number of bytes held for incomplete messages.
+	 *
+	 * @return The number of bytes in progress.
+	 */
+	public synchronized long getBytesInProgress() {
+		return this.bytes;
+	}
+
+	/**
+	 * Get the number of messages dropped because they timed out or exceeded
+	 * the byte limit.
+	 *
+	 * @return The number of dropped messages.
+	 */
+	public synchronized long getDroppedCount() {
+		return this.dropped;
+	}
+
+	/**
+	 * Stop checking for timeouts. Incomplete messages are left as they are.
+	 */
+	public void close() {
+		if (this.sweeper != null) {
+			this.sweeper.cancel(false);
+		}
+	}
+
+	private void drop(Key key, Partial partial) {
+		this.remove(key, partial);
+		this.pool.release(partial.buffer);
+		this.dropped++;
+	}
+
+	private void remove(Key key, Partial partial) {
+		this.partials.remove(key);
+		this.bytes -= partial.bytes();
+	}
+
+	private void release(Partial partial) {
+		this.bytes -= partial.bytes();
+		this.pool.release(partial.buffer);
+	}
+
+	private static String idOf(JsonValue id) {
+		if (id instanceof JsonString) {
+			return ((JsonString) id).getString();
+		}
+		if (id instanceof JsonNumber) {
+			return id.toString();
+		}
+		throw new JsonException("Fragment without an id.");
+	}
+
+	/**
+	 * Identifies one fragmented message of an owner.
+	 */
+	private static class Key {
+		final Object owner;
+		final String id;
+
+		Key(Object owner, String id) {
+			this.owner = owner;
+			this.id = id;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) o;
+			return this.owner.equals(other.owner) && this.id.equals(other.id);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(this.owner, this.id);
+		}
+	}
+
+	/**
+	 * An incomplete message. Fragments up to the first gap are written to the
+	 * buffer; later ones wait in a map until the gap is filled.
+	 */
+	private static class Partial {
+		final FrameBuffer buffer;
+		final int total;
+		final long started;
+		final Map<Integer, byte[]> early;
+		long earlyBytes;
+		int next;
+
+		Partial(FrameBuffer buffer, int total, long started) {
+			this.buffer = buffer;
+			this.total = total;
+			this.started = started;
+			this.early = new HashMap<Integer, byte[]>();
+			this.earlyBytes = 0;
+			this.next = 0;
+		}
+
+		void add(int num, String data) throws IOException {
+			if (num < this.next || this.early.containsKey(num)) {
+				// rosbridge never repeats a fragment, ignore duplicates
+				return;
+			}
+			if (num > this.next) {
+				byte[] bytes = data.getBytes(StandardCharsets.UTF_8);
+				this.early.put(num, bytes);
+				this.earlyBytes += bytes.length;
+				return;
+			}
+			this.buffer.getWriter().write(data);
+			this.next++;
+			byte[] bytes;
+			while ((bytes = this.early.remove(this.next)) != null) {
+				this.earlyBytes -= bytes.length;
+				this.buffer.write(bytes, 0, bytes.length);
+				this.next++;
+			}
+		}
+
+		boolean isComplete() {
+			return this.next == this.total;
+		}
+
+		long bytes() {
+			return this.buffer.size() + this.earlyBytes;
+		}
+	}
+}
@@ -0,0 +1,219 @@
+package org.jrosbridge.springed.codec;
+
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * The FrameBuffer is a growable byte buffer that an outbound frame is
+ * serialized into. Characters written through its {@link #getWriter() Writer}
+ * are UTF-8 encoded straight into the buffer, so no intermediate String or
+ * encoder buffer is needed. Buffers are meant to be reused through a
+ * {@link FrameBufferPool FrameBufferPool}.
+ */
+public class FrameBuffer extends OutputStream {
+
+	private byte[] buf;
+	private int count;
+	private final Utf8Writer writer;
+
+	/**
+	 * Create a new buffer with the given initial capacity.
+	 * 
+	 * @param capacity
+	 *            The initial capacity in bytes.
+	 */
+	public FrameBuffer(int capacity) {
+		this.buf = new byte[capacity];
+		this.count = 0;
+		this.writer = new Utf8Writer();
+	}
+
+	/**
+	 * Get a Writer that UTF-8 encodes into this buffer. The Writer is owned by
+	 * the buffer; closing it does nothing.
+	 * 
+	 * @return The UTF-8 Writer of this buffer.
+	 */
+	public Writer getWriter() {
+		return this.writer;
+	}
+
+	@Override
+	public void write(int b) {
+		this.ensureCapacity(1);
+		this.buf[this.count++] = (byte) b;
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) {
+		this.ensureCapacity(len);
+		System.arraycopy(b, off, this.buf, this.count, len);
+		this.count += len;
+	}
+
+	/**
+	 * Append the remaining bytes of the given buffer, without changing its
+	 * position.
+	 * 
+	 * @param b
+	 *            The bytes to append.
+	 */
+	public void write(ByteBuffer b) {
+		int len = b.remaining();
+		this.ensureCapacity(len);
+		b.duplicate().get(this.buf, this.count, len);
+		this.count += len;
+	}
+
+	/**
+	 * Discard the contents of this buffer, keeping its capacity.
+	 */
+	public void reset() {
+		this.count = 0;
+		this.writer.pendingHighSurrogate = 0;
+	}
+
+	/**
+	 * Get the number of bytes written into this buffer.
+	 * 
+	 * @return The number of bytes written into this buffer.
+	 */
+	public int size() {
+		return this.count;
+	}
+
+	/**
+	 * Get the current capacity of this buffer.
+	 * 
+	 * @return The current capacity of this buffer.
+	 */
+	public int capacity() {
+		return this.buf.length;
+	}
+
+	/**
+	 * Get the backing array. Only the first {@link #size() size()} bytes are
+	 * valid, and the array may change as the buffer grows.
+	 * 
+	 * @return The backing array.
+	 */
+	public byte[] array() {
+		return this.buf;
+	}
+
+	/**
+	 * Get a ByteBuffer view of the written bytes. The view shares the backing
+	 * array, so it is only valid until the buffer is reset or grows.
+	 * 
+	 * @return A ByteBuffer view of the written bytes.
+	 */
+	public ByteBuffer toByteBuffer() {
+		return ByteBuffer.wrap(this.buf, 0, this.count);
+	}
+
+	/**
+	 * Get a copy of the written bytes.
+	 * 
+	 * @return A copy of the written bytes.
+	 */
+	public byte[] toByteArray() {
+		return Arrays.copyOf(this.buf, this.count);
+	}
+
+	/**
+	 * Does nothing, the buffer stays usable.
+	 */
+	@Override
+	public void close() {
+	}
+
+	private void ensureCapacity(int extra) {
+		int needed = this.count + extra;
+		if (needed < 0) {
+			throw new OutOfMemoryError("Frame too large.");
+		}
+		if (needed > this.buf.length) {
+			int grown = Math.max(this.buf.length << 1, needed);
+			this.buf = Arrays.copyOf(this.buf, grown < 0 ? needed : grown);
+		}
+	}
+
+	/**
+	 * Encodes characters as UTF-8 directly into the enclosing buffer. A high
+	 * surrogate at the end of one write is kept until the next one.
+	 */
+	private class Utf8Writer extends Writer {
+
+		private char pendingHighSurrogate;
+
+		@Override
+		public void write(int c) {
+			this.encode((char) c);
+		}
+
+		@Override
+		public void write(char[] cbuf, int off, int len) {
+			for (int i = off; i < off + len; i++) {
+				this.encode(cbuf[i]);
+			}
+		}
+
+		@Override
+		public void write(String str, int off, int len) {
+			for (int i = off; i < off + len; i++) {
+				this.encode(str.charAt(i));
+			}
+		}
+
+		private void encode(char c) {
+			// worst case is 4 bytes, for a surrogate pair
+			FrameBuffer.this.ensureCapacity(4);
+			byte[] b = FrameBuffer.this.buf;
+			int n = FrameBuffer.this.count;
+			if (this.pendingHighSurrogate != 0) {
+				char high = this.pendingHighSurrogate;
+				this.pendingHighSurrogate = 0;
+				if (Character.isLowSurrogate(c)) {
+					int cp = Character.toCodePoint(high, c);
+					b[n++] = (byte) (0xF0 | (cp >> 18));
+					b[n++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+					b[n++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+					b[n++] = (byte) (0x80 | (cp & 0x3F));
+					FrameBuffer.this.count = n;
+					return;
+				}
+				// unpaired surrogate, same replacement as String.getBytes
+				b[n++] = '?';
+				FrameBuffer.this.count = n;
+				FrameBuffer.this.ensureCapacity(3);
+				b = FrameBuffer.this.buf;
+			}
+
+			if (c < 0x80) {
+				b[n++] = (byte) c;
+			} else if (c < 0x800) {
+				b[n++] = (byte) (0xC0 | (c >> 6));
+				b[n++] = (byte) (0x80 | (c & 0x3F));
+			} else if (Character.isHighSurrogate(c)) {
+				this.pendingHighSurrogate = c;
+			} else if (Character.isLowSurrogate(c)) {
+				b[n++] = '?';
+			} else {
+				b[n++] = (byte) (0xE0 | (c >> 12));
+				b[n++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+				b[n++] = (byte) (0x80 | (c & 0x3F));
+			}
+			FrameBuffer.this.count = n;
+		}
+
+		@Override
+		public void flush() {
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+}
@@ -0,0 +1,103 @@
+package org.jrosbridge.springed.codec;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The FrameBufferPool hands out reusable {@link FrameBuffer FrameBuffers}, so
+ * that serializing an outbound frame does not allocate a new array each time.
+ * The pool is bounded in the number of idle buffers it keeps, and buffers that
+ * grew beyond the retain limit (e.g., for a large map) are left to the garbage
+ * collector instead of pinning memory.
+ */
+public class FrameBufferPool {
+
+	/**
+	 * The default initial capacity of a new buffer.
+	 */
+	public static final int DEFAULT_BUFFER_SIZE = 1024;
+
+	/**
+	 * The default number of idle buffers kept.
+	 */
+	public static final int DEFAULT_MAX_IDLE = 256;
+
+	/**
+	 * The default largest capacity of a buffer that is kept for reuse.
+	 */
+	public static final int DEFAULT_MAX_RETAINED_CAPACITY = 1024 * 1024;
+
+	private final ConcurrentLinkedQueue<FrameBuffer> idle;
+	private final AtomicInteger idleCount;
+	private final int bufferSize;
+	private final int maxIdle;
+	private final int maxRetainedCapacity;
+
+	/**
+	 * Create a new pool with the default limits.
+	 */
+	public FrameBufferPool() {
+		this(FrameBufferPool.DEFAULT_BUFFER_SIZE,
+				FrameBufferPool.DEFAULT_MAX_IDLE,
+				FrameBufferPool.DEFAULT_MAX_RETAINED_CAPACITY);
+	}
+
+	/**
+	 * Create a new pool with the given limits.
+	 * 
+	 * @param bufferSize
+	 *            The initial capacity of a new buffer.
+	 * @param maxIdle
+	 *            The number of idle buffers kept.
+	 * @param maxRetainedCapacity
+	 *            The largest capacity of a buffer that is kept for reuse.
+	 */
+	public FrameBufferPool(int bufferSize, int maxIdle, int maxRetainedCapacity) {
+		this.idle = new ConcurrentLinkedQueue<FrameBuffer>();
+		this.idleCount = new AtomicInteger();
+		this.bufferSize = bufferSize;
+		this.maxIdle = maxIdle;
+		this.maxRetainedCapacity = maxRetainedCapacity;
+	}
+
+	/**
+	 * Get an empty buffer, reusing an idle one if possible.
+	 * 
+	 * @return An empty buffer.
+	 */
+	public FrameBuffer acquire() {
+		FrameBuffer buffer = this.idle.poll();
+		if (buffer == null) {
+			return new FrameBuffer(this.bufferSize);
+		}
+		this.idleCount.decrementAndGet();
+		return buffer;
+	}
+
+	/**
+	 * Give a buffer back to the pool. The buffer must not be used afterwards.
+	 * 
+	 * @param buffer
+	 *            The buffer to give back.
+	 */
+	public void release(FrameBuffer buffer) {
+		if (buffer.capacity() > this.maxRetainedCapacity) {
+			return;
+		}
+		if (this.idleCount.incrementAndGet() > this.maxIdle) {
+			this.idleCount.decrementAndGet();
+			return;
+		}
+		buffer.reset();
+		this.idle.offer(buffer);
+	}
+
+	/**
+	 * Get the number of idle buffers in the pool.
+	 * 
+	 * @return The number of idle buffers in the pool.
+	 */
+	public int getIdleCount() {
+		return this.idleCount.get();
+	}
+}
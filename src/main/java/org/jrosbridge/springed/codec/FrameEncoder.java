@@ -0,0 +1,105 @@
+package org.jrosbridge.springed.codec;
+
+import java.util.Map;
+
+import javax.json.JsonArray;
+import javax.json.JsonObject;
+import javax.json.JsonValue;
+import javax.json.stream.JsonGenerator;
+
+/**
+ * The FrameEncoder serializes JSON values straight into a
+ * {@link FrameBuffer FrameBuffer} as UTF-8, without building the String form
+ * of the value first. The elements of a {@link PrimitiveJsonArray
+ * PrimitiveJsonArray} are written from its backing array, so they are never
+ * boxed into JsonNumbers.
+ */
+public final class FrameEncoder {
+
+	private FrameEncoder() {
+	}
+
+	/**
+	 * Append the given value to the buffer.
+	 * 
+	 * @param value
+	 *            The value to serialize.
+	 * @param buffer
+	 *            The buffer to serialize into.
+	 */
+	public static void encode(JsonValue value, FrameBuffer buffer) {
+		JsonGenerator generator = FrameEncoder.createGenerator(buffer);
+		FrameEncoder.write(value, generator);
+		generator.close();
+	}
+
+	/**
+	 * Write the given value with the generator, in a context that expects a
+	 * value without a name (e.g., the top level or an array).
+	 * 
+	 * @param value
+	 *            The value to write.
+	 * @param generator
+	 *            The generator to write with.
+	 */
+	public static void write(JsonValue value, JsonGenerator generator) {
+		switch (value.getValueType()) {
+		case OBJECT:
+			generator.writeStartObject();
+			FrameEncoder.writeMembers((JsonObject) value, generator);
+			break;
+		case ARRAY:
+			generator.writeStartArray();
+			FrameEncoder.writeElements((JsonArray) value, generator);
+			break;
+		default:
+			generator.write(value);
+		}
+	}
+
+	private static void write(String name, JsonValue value,
+			JsonGenerator generator) {
+		switch (value.getValueType()) {
+		case OBJECT:
+			generator.writeStartObject(name);
+			FrameEncoder.writeMembers((JsonObject) value, generator);
+			break;
+		case ARRAY:
+			generator.writeStartArray(name);
+			FrameEncoder.writeElements((JsonArray) value, generator);
+			break;
+		default:
+			generator.write(name, value);
+		}
+	}
+
+	private static void writeMembers(JsonObject object, JsonGenerator generator) {
+		for (Map.Entry<String, JsonValue> member : object.entrySet()) {
+			FrameEncoder.write(member.getKey(), member.getValue(), generator);
+		}
+		generator.writeEnd();
+	}
+
+	private static void writeElements(JsonArray array, JsonGenerator generator) {
+		if (array instanceof PrimitiveJsonArray) {
+			((PrimitiveJsonArray) array).writeElements(generator);
+		} else {
+			for (JsonValue element : array) {
+				FrameEncoder.write(element, generator);
+			}
+		}
+		generator.writeEnd();
+	}
+
+	/**
+	 * Create a generator that writes into the given buffer. Closing the
+	 * generator flushes it but leaves the buffer usable.
+	 * 
+	 * @param buffer
+	 *            The buffer to write into.
+	 * @return A generator writing into the buffer.
+	 */
+	public static JsonGenerator createGenerator(FrameBuffer buffer) {
+		return JsonFactories.GENERATORS.createGenerator(buffer.getWriter());
+	}
+}
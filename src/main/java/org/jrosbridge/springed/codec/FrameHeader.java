@@ -0,0 +1,124 @@
+package org.jrosbridge.springed.codec;
+
+import java.io.StringReader;
+
+import javax.json.stream.JsonParser;
+import javax.json.stream.JsonParser.Event;
+import javax.json.stream.JsonParsingException;
+
+import org.jrosbridge.springed.ROSConstants;
+
+/**
+ * The FrameHeader holds the routing fields of an inbound rosbridge frame: the
+ * op code, the topic and the ID. It is read with a streaming pre-scan that
+ * skips over all other values without building them, and stops as soon as the
+ * frame can be routed. This lets frames nobody listens to be dropped without
+ * building their JSON tree.
+ */
+public final class FrameHeader {
+
+	private final String op;
+	private final String topic;
+	private final String id;
+
+	private FrameHeader(String op, String topic, String id) {
+		this.op = op;
+		this.topic = topic;
+		this.id = id;
+	}
+
+	/**
+	 * Get the op code of the frame.
+	 * 
+	 * @return The op code of the frame, or null if it has none.
+	 */
+	public String getOp() {
+		return this.op;
+	}
+
+	/**
+	 * Get the topic of the frame. For frames other than publish operations
+	 * the scan may stop before the topic is reached.
+	 * 
+	 * @return The topic of the frame, or null if it was not read.
+	 */
+	public String getTopic() {
+		return this.topic;
+	}
+
+	/**
+	 * Get the ID of the frame, if it came before the scan could stop.
+	 * 
+	 * @return The ID of the frame, or null if it was not read.
+	 */
+	public String getId() {
+		return this.id;
+	}
+
+	/**
+	 * Check if this is the header of a publish operation.
+	 * 
+	 * @return If this is the header of a publish operation.
+	 */
+	public boolean isPublish() {
+		return ROSConstants.OP_CODE_PUBLISH.equals(this.op);
+	}
+
+	/**
+	 * Scan the routing fields of the given frame. Once the op code is known
+	 * the scan stops, except for publish operations which also need their
+	 * topic.
+	 * 
+	 * @param payload
+	 *            The JSON text of the frame.
+	 * @return The header of the frame.
+	 * @throws JsonParsingException
+	 *             If the frame is not a JSON object.
+	 */
+	public static FrameHeader scan(String payload) {
+		String op = null, topic = null, id = null;
+		JsonParser parser = JsonFactories.PARSERS.createParser(new StringReader(
+				payload));
+		try {
+			if (parser.next() != Event.START_OBJECT) {
+				throw new JsonParsingException("Frame is not a JSON object.",
+						parser.getLocation());
+			}
+			while (parser.hasNext()) {
+				if (parser.next() != Event.KEY_NAME) {
+					break;
+				}
+				String key = parser.getString();
+				Event value = parser.next();
+				if (value == Event.VALUE_STRING) {
+					switch (key) {
+					case ROSConstants.FIELD_OP:
+						op = parser.getString();
+						break;
+					case ROSConstants.FIELD_TOPIC:
+						topic = parser.getString();
+						break;
+					case ROSConstants.FIELD_ID:
+						id = parser.getString();
+						break;
+					default:
+						break;
+					}
+				} else if (value == Event.START_OBJECT) {
+					parser.skipObject();
+				} else if (value == Event.START_ARRAY) {
+					parser.skipArray();
+				}
+
+				if (op != null
+						&& (topic != null || !ROSConstants.OP_CODE_PUBLISH
+								.equals(op))) {
+					break;
+				}
+			}
+		} finally {
+			parser.close();
+		}
+		return new FrameHeader(op, topic, id);
+	}
+}
@@ -0,0 +1,53 @@
+package org.jrosbridge.springed.codec;
+
+import java.util.Collections;
+
+import javax.json.JsonBuilderFactory;
+import javax.json.JsonReaderFactory;
+import javax.json.spi.JsonProvider;
+import javax.json.stream.JsonGeneratorFactory;
+import javax.json.stream.JsonParserFactory;
+
+/**
+ * The JsonFactories hold the JSON provider and the factories that the codecs
+ * share. Each static method of {@link javax.json.Json Json} looks the provider
+ * up through the service loader again, which costs more than the work it is
+ * asked to do for a single small frame. The codecs, which run for every frame,
+ * and {@link org.jrosbridge.springed.messages.Message Message} use these
+ * instances instead, so the lookup happens once per class loader.
+ * The factories are thread safe, and are created without configuration.
+ */
+public final class JsonFactories {
+
+	/**
+	 * The JSON provider, e.g. to create single JSON values.
+	 */
+	public static final JsonProvider PROVIDER = JsonProvider.provider();
+
+	/**
+	 * The factory for JSON object and array builders.
+	 */
+	public static final JsonBuilderFactory BUILDERS = JsonFactories.PROVIDER
+			.createBuilderFactory(Collections.<String, Object> emptyMap());
+
+	/**
+	 * The factory for JSON readers.
+	 */
+	public static final JsonReaderFactory READERS = JsonFactories.PROVIDER
+			.createReaderFactory(Collections.<String, Object> emptyMap());
+
+	/**
+	 * The factory for streaming JSON parsers.
+	 */
+	public static final JsonParserFactory PARSERS = JsonFactories.PROVIDER
+			.createParserFactory(Collections.<String, Object> emptyMap());
+
+	/**
+	 * The factory for streaming JSON generators.
+	 */
+	public static final JsonGeneratorFactory GENERATORS = JsonFactories.PROVIDER
+			.createGeneratorFactory(Collections.<String, Object> emptyMap());
+
+	private JsonFactories() {
+	}
+}
@@ -0,0 +1,139 @@
+package org.jrosbridge.springed.codec;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.PixelInterleavedSampleModel;
+import java.awt.image.Raster;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import javax.imageio.ImageIO;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+import javax.json.JsonObject;
+import javax.json.JsonReader;
+
+/**
+ * The PngFrameDecoder unpacks a frame sent with rosbridge's PNG compression.
+ * rosbridge stores the bytes of the JSON frame as the samples of an 8-bit
+ * image, padded at the end. The samples are copied straight into a
+ * {@link FrameBuffer FrameBuffer} and the JSON is parsed from there, without
+ * an intermediate String.
+ */
+public final class PngFrameDecoder {
+
+	private PngFrameDecoder() {
+	}
+
+	/**
+	 * Decode the data field of a png operation.
+	 *
+	 * @param data
+	 *            The Base64 encoded PNG image.
+	 * @param buffer
+	 *            The buffer to unpack the image into. It is reset first.
+	 * @return The JSON frame stored in the image.
+	 * @throws IOException
+	 *             If the data is not a readable image.
+	 * @throws javax.json.JsonException
+	 *             If the image does not hold a JSON object.
+	 */
+	public static JsonObject decode(String data, FrameBuffer buffer)
+			throws IOException {
+		byte[] png;
+		try {
+			png = Base64.getDecoder().decode(data);
+		} catch (IllegalArgumentException e) {
+			throw new IOException("Invalid Base64 in PNG frame.", e);
+		}
+
+		// keep the image stream in memory instead of the default file cache
+		BufferedImage image = ImageIO.read(new MemoryCacheImageInputStream(
+				new ByteArrayInputStream(png)));
+		if (image == null) {
+			throw new IOException("PNG frame does not hold a readable image.");
+		}
+
+		buffer.reset();
+		PngFrameDecoder.writeSamples(image.getRaster(), buffer);
+
+		// drop the padding rosbridge adds to fill the last row
+		int length = buffer.size();
+		byte[] bytes = buffer.array();
+		while (length > 0 && PngFrameDecoder.isPadding(bytes[length - 1])) {
+			length--;
+		}
+
+		try (JsonReader reader = JsonFactories.READERS.createReader(
+				new ByteArrayInputStream(bytes, 0, length),
+				StandardCharsets.UTF_8)) {
+			return reader.readObject();
+		}
+	}
+
+	/**
+	 * Write all samples of the raster, in pixel order, as bytes into the
+	 * buffer.
+	 *
+	 * @param raster
+	 *            The raster of the image.
+	 * @param buffer
+	 *            The buffer to write to.
+	 */
+	static void writeSamples(Raster raster, FrameBuffer buffer) {
+		int width = raster.getWidth();
+		int height = raster.getHeight();
+		int bands = raster.getNumBands();
+		int rowLength = width * bands;
+
+		byte[] packed = PngFrameDecoder.packedBytes(raster);
+		if (packed != null) {
+			// the samples are already stored in the order we need
+			buffer.write(packed, 0, rowLength * height);
+			return;
+		}
+
+		int[] row = new int[rowLength];
+		for (int y = 0; y < height; y++) {
+			raster.getPixels(raster.getMinX(), raster.getMinY() + y, width, 1,
+					row);
+			for (int sample : row) {
+				buffer.write(sample);
+			}
+		}
+	}
+
+	/**
+	 * Get the backing bytes of the raster if they hold exactly the samples in
+	 * pixel and band order, or null otherwise.
+	 */
+	private static byte[] packedBytes(Raster raster) {
+		if (raster.getDataBuffer().getDataType() != DataBuffer.TYPE_BYTE
+				|| raster.getDataBuffer().getNumBanks() != 1
+				|| !(raster.getSampleModel() instanceof PixelInterleavedSampleModel)
+				|| raster.getParent() != null) {
+			return null;
+		}
+		PixelInterleavedSampleModel model = (PixelInterleavedSampleModel) raster
+				.getSampleModel();
+		int bands = model.getNumBands();
+		if (model.getPixelStride() != bands
+				|| model.getScanlineStride() != raster.getWidth() * bands) {
+			return null;
+		}
+		int[] offsets = model.getBandOffsets();
+		for (int b = 0; b < bands; b++) {
+			if (offsets[b] != b) {
+				return null;
+			}
+		}
+		DataBufferByte data = (DataBufferByte) raster.getDataBuffer();
+		return data.getOffset() == 0 ? data.getData() : null;
+	}
+
+	private static boolean isPadding(byte b) {
+		return b == '\n' || b == ' ' || b == 0;
+	}
+}
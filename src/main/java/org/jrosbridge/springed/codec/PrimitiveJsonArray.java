@@ -0,0 +1,511 @@
+package org.jrosbridge.springed.codec;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+import javax.json.JsonArray;
+import javax.json.JsonNumber;
+import javax.json.JsonObject;
+import javax.json.JsonString;
+import javax.json.JsonValue;
+import javax.json.stream.JsonGenerator;
+
+/**
+ * A PrimitiveJsonArray is an immutable JSON array of numbers backed by a Java
+ * primitive array. Decoders fill it without creating a JsonNumber per element,
+ * and message types can take the backing array directly (see the
+ * <code>toXArray</code> methods). Elements are only boxed when they are
+ * accessed through the JsonArray interface. Unsigned ROS types are stored in
+ * the signed Java type of the same width, as the message classes do.
+ */
+public final class PrimitiveJsonArray extends AbstractList<JsonValue> implements
+		JsonArray, RandomAccess {
+
+	/**
+	 * The ROS element types a PrimitiveJsonArray can hold.
+	 */
+	public enum Kind {
+		INT8, UINT8, INT16, UINT16, INT32, UINT32, INT64, UINT64, FLOAT32, FLOAT64
+	}
+
+	private final Kind kind;
+	private final Object array;
+	private final int length;
+
+	private PrimitiveJsonArray(Kind kind, Object array, int length) {
+		this.kind = kind;
+		this.array = array;
+		this.length = length;
+	}
+
+	/**
+	 * Wrap the given array of int8 values. The array is not copied.
+	 *
+	 * @param values
+	 *            The values.
+	 * @return The JSON array.
+	 */
+	public static PrimitiveJsonArray ofInt8(byte[] values) {
+		return new PrimitiveJsonArray(Kind.INT8, values, values.length);
+	}
+
+	/**
+	 * Wrap the given array of uint8 values. The array is not copied.
+	 *
+	 * @param values
+	 *            The values.
+	 * @return The JSON array.
+	 */
+	public static PrimitiveJsonArray ofUInt8(byte[] values) {
+		return new PrimitiveJsonArray(Kind.UINT8, values, values.length);
+	}
+
+	/**
+	 * Wrap the given array of int16 values. The array is not copied.
+	 *
+	 * @param values
+	 *            The values.
+	 * @return The JSON array.
+	 */
+	public static PrimitiveJsonArray ofInt16(short[] values) {
+		return new PrimitiveJsonArray(Kind.INT16, values, values.length);
+	}
+
+	/**
+	 * Wrap the given array of uint16 values. The array is not copied.
+	 *
+	 * @param values
+	 *            The values.
+	 * @return The JSON array.
+	 */
+	public static PrimitiveJsonArray ofUInt16(short[] values) {
+		return new PrimitiveJsonArray(Kind.UINT16, values, values.length);
+	}
+
+	/**
+	 * Wrap the given array of int32 values. The array is not copied.
+	 *
+	 * @param values
+	 *            The values.
+	 * @return The JSON array.
+	 */
+	public static PrimitiveJsonArray ofInt32(int[] values) {
+		return new PrimitiveJsonArray(Kind.INT32, values, values.length);
+	}
+
+	/**
+	 * Wrap the given array of uint32 values. The array is not copied.
+	 *
+	 * @param values
+	 *            The values.
+	 * @return The JSON array.
+	 */
+	public static PrimitiveJsonArray ofUInt32(int[] values) {
+		return new PrimitiveJsonArray(Kind.UINT32, values, values.length);
+	}
+
+	/**
+	 * Wrap the given array of int64 values. The array is not copied.
+	 *
+	 * @param values
+	 *            The values.
+	 * @return The JSON array.
+	 */
+	public static PrimitiveJsonArray ofInt64(long[] values) {
+		return new PrimitiveJsonArray(Kind.INT64, values, values.length);
+	}
+
+	/**
+	 * Wrap the given array of uint64 values. The array is not copied.
+	 *
+	 * @param values
+	 *            The values.
+	 * @return The JSON array.
+	 */
+	public static PrimitiveJsonArray ofUInt64(long[] values) {
+		return new PrimitiveJsonArray(Kind.UINT64, values, values.length);
+	}
+
+	/**
+	 * Wrap the given array of float32 values. The array is not copied.
+	 *
+	 * @param values
+	 *            The values.
+	 * @return The JSON array.
+	 */
+	public static PrimitiveJsonArray ofFloat32(float[] values) {
+		return new PrimitiveJsonArray(Kind.FLOAT32, values, values.length);
+	}
+
+	/**
+	 * Wrap the given array of float64 values. The array is not copied.
+	 *
+	 * @param values
+	 *            The values.
+	 * @return The JSON array.
+	 */
+	public static PrimitiveJsonArray ofFloat64(double[] values) {
+		return new PrimitiveJsonArray(Kind.FLOAT64, values, values.length);
+	}
+
+	/**
+	 * Get the element type of this array.
+	 *
+	 * @return The element type of this array.
+	 */
+	public Kind getKind() {
+		return this.kind;
+	}
+
+	/**
+	 * Get the values as doubles. The backing array is returned if this is a
+	 * float64 array, so it must not be modified.
+	 *
+	 * @return The values as doubles.
+	 */
+	public double[] toDoubleArray() {
+		if (this.kind == Kind.FLOAT64) {
+			return (double[]) this.array;
+		}
+		double[] values = new double[this.length];
+		for (int i = 0; i < this.length; i++) {
+			values[i] = this.doubleAt(i);
+		}
+		return values;
+	}
+
+	/**
+	 * Get the values as floats. The backing array is returned if this is a
+	 * float32 array, so it must not be modified.
+	 *
+	 * @return The values as floats.
+	 */
+	public float[] toFloatArray() {
+		if (this.kind == Kind.FLOAT32) {
+			return (float[]) this.array;
+		}
+		float[] values = new float[this.length];
+		for (int i = 0; i < this.length; i++) {
+			values[i] = (float) this.doubleAt(i);
+		}
+		return values;
+	}
+
+	/**
+	 * Get the values as longs, keeping the bits of uint64 values. The backing
+	 * array is returned if this is a 64-bit integer array, so it must not be
+	 * modified.
+	 *
+	 * @return The values as longs.
+	 */
+	public long[] toLongArray() {
+		if (this.kind == Kind.INT64 || this.kind == Kind.UINT64) {
+			return (long[]) this.array;
+		}
+		long[] values = new long[this.length];
+		for (int i = 0; i < this.length; i++) {
+			values[i] = this.longAt(i);
+		}
+		return values;
+	}
+
+	/**
+	 * Get the values as ints, truncated to 32 bits. The backing array is
+	 * returned if this is a 32-bit integer array, so it must not be modified.
+	 *
+	 * @return The values as ints.
+	 */
+	public int[] toIntArray() {
+		if (this.kind == Kind.INT32 || this.kind == Kind.UINT32) {
+			return (int[]) this.array;
+		}
+		int[] values = new int[this.length];
+		for (int i = 0; i < this.length; i++) {
+			values[i] = (int) this.longAt(i);
+		}
+		return values;
+	}
+
+	/**
+	 * Get the values as shorts, truncated to 16 bits. The backing array is
+	 * returned if this is a 16-bit integer array, so it must not be modified.
+	 *
+	 * @return The values as shorts.
+	 */
+	public short[] toShortArray() {
+		if (this.kind == Kind.INT16 || this.kind == Kind.UINT16) {
+			return (short[]) this.array;
+		}
+		short[] values = new short[this.length];
+		for (int i = 0; i < this.length; i++) {
+			values[i] = (short) this.longAt(i);
+		}
+		return values;
+	}
+
+	/**
+	 * Get the values as bytes, truncated to 8 bits. The backing array is
+	 * returned if this is an 8-bit integer array, so it must not be modified.
+	 *
+	 * @return The values as bytes.
+	 */
+	public byte[] toByteArray() {
+		if (this.kind == Kind.INT8 || this.kind == Kind.UINT8) {
+			return (byte[]) this.array;
+		}
+		byte[] values = new byte[this.length];
+		for (int i = 0; i < this.length; i++) {
+			values[i] = (byte) this.longAt(i);
+		}
+		return values;
+	}
+
+	/**
+	 * Get the value at the given index as a double.
+	 *
+	 * @param index
+	 *            The index of the value.
+	 * @return The value as a double.
+	 */
+	public double doubleAt(int index) {
+		switch (this.kind) {
+		case FLOAT64:
+			return ((double[]) this.array)[index];
+		case FLOAT32:
+			return ((float[]) this.array)[index];
+		case UINT64:
+			long value = ((long[]) this.array)[index];
+			return value >= 0 ? value : new BigInteger(
+					Long.toUnsignedString(value)).doubleValue();
+		default:
+			return this.longAt(index);
+		}
+	}
+
+	/**
+	 * Get the value at the given index as a long. Floating point values are
+	 * truncated and uint64 values keep their bits.
+	 *
+	 * @param index
+	 *            The index of the value.
+	 * @return The value as a long.
+	 */
+	public long longAt(int index) {
+		switch (this.kind) {
+		case INT8:
+			return ((byte[]) this.array)[index];
+		case UINT8:
+			return ((byte[]) this.array)[index] & 0xFFL;
+		case INT16:
+			return ((short[]) this.array)[index];
+		case UINT16:
+			return ((short[]) this.array)[index] & 0xFFFFL;
+		case INT32:
+			return ((int[]) this.array)[index];
+		case UINT32:
+			return ((int[]) this.array)[index] & 0xFFFFFFFFL;
+		case INT64:
+		case UINT64:
+			return ((long[]) this.array)[index];
+		case FLOAT32:
+			return (long) ((float[]) this.array)[index];
+		case FLOAT64:
+		default:
+			return (long) ((double[]) this.array)[index];
+		}
+	}
+
+	private boolean isFloatingPoint() {
+		return this.kind == Kind.FLOAT32 || this.kind == Kind.FLOAT64;
+	}
+
+	@Override
+	public JsonValue get(int index) {
+		if (index < 0 || index >= this.length) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: "
+					+ this.length);
+		}
+		switch (this.kind) {
+		case FLOAT64:
+			double d = ((double[]) this.array)[index];
+			return Double.isFinite(d) ? JsonFactories.PROVIDER.createValue(d)
+					: JsonValue.NULL;
+		case FLOAT32:
+			float f = ((float[]) this.array)[index];
+			// keep the float's own shortest representation
+			return Float.isFinite(f) ? JsonFactories.PROVIDER
+					.createValue(new BigDecimal(Float.toString(f)))
+					: JsonValue.NULL;
+		case UINT64:
+			long value = ((long[]) this.array)[index];
+			return value >= 0 ? JsonFactories.PROVIDER.createValue(value)
+					: JsonFactories.PROVIDER.createValue(new BigInteger(Long
+							.toUnsignedString(value)));
+		default:
+			return JsonFactories.PROVIDER.createValue(this.longAt(index));
+		}
+	}
+
+	@Override
+	public int size() {
+		return this.length;
+	}
+
+	@Override
+	public JsonObject getJsonObject(int index) {
+		return (JsonObject) this.get(index);
+	}
+
+	@Override
+	public JsonArray getJsonArray(int index) {
+		return (JsonArray) this.get(index);
+	}
+
+	@Override
+	public JsonNumber getJsonNumber(int index) {
+		return (JsonNumber) this.get(index);
+	}
+
+	@Override
+	public JsonString getJsonString(int index) {
+		return (JsonString) this.get(index);
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public <T extends JsonValue> List<T> getValuesAs(Class<T> clazz) {
+		return (List<T>) this;
+	}
+
+	@Override
+	public String getString(int index) {
+		return this.getJsonString(index).getString();
+	}
+
+	@Override
+	public String getString(int index, String defaultValue) {
+		return defaultValue;
+	}
+
+	@Override
+	public int getInt(int index) {
+		return this.isFloatingPoint() ? (int) this.doubleAt(index)
+				: (int) this.longAt(index);
+	}
+
+	@Override
+	public int getInt(int index, int defaultValue) {
+		return index >= 0 && index < this.length ? this.getInt(index)
+				: defaultValue;
+	}
+
+	@Override
+	public boolean getBoolean(int index) {
+		throw new ClassCastException("Element " + index + " is a number.");
+	}
+
+	@Override
+	public boolean getBoolean(int index, boolean defaultValue) {
+		return defaultValue;
+	}
+
+	@Override
+	public boolean isNull(int index) {
+		return this.get(index) == JsonValue.NULL;
+	}
+
+	@Override
+	public ValueType getValueType() {
+		return ValueType.ARRAY;
+	}
+
+	/**
+	 * Append the JSON text of an element, formatted the same way as its
+	 * JsonNumber would be.
+	 */
+	private void appendElement(StringBuilder sb, int index) {
+		switch (this.kind) {
+		case FLOAT64:
+			double d = ((double[]) this.array)[index];
+			sb.append(Double.isFinite(d) ? BigDecimal.valueOf(d).toString()
+					: "null");
+			break;
+		case FLOAT32:
+			float f = ((float[]) this.array)[index];
+			sb.append(Float.isFinite(f) ? new BigDecimal(Float.toString(f))
+					.toString() : "null");
+			break;
+		case UINT64:
+			sb.append(Long.toUnsignedString(((long[]) this.array)[index]));
+			break;
+		default:
+			sb.append(this.longAt(index));
+			break;
+		}
+	}
+
+	/**
+	 * Write the elements with the given generator, which must be inside this
+	 * array. They are formatted the same way as their JsonNumbers would be,
+	 * without creating them.
+	 *
+	 * @param generator
+	 *            The generator to write with.
+	 */
+	public void writeElements(JsonGenerator generator) {
+		switch (this.kind) {
+		case FLOAT64:
+			double[] doubles = (double[]) this.array;
+			for (int i = 0; i < this.length; i++) {
+				if (Double.isFinite(doubles[i])) {
+					generator.write(BigDecimal.valueOf(doubles[i]));
+				} else {
+					generator.writeNull();
+				}
+			}
+			break;
+		case FLOAT32:
+			float[] floats = (float[]) this.array;
+			for (int i = 0; i < this.length; i++) {
+				if (Float.isFinite(floats[i])) {
+					generator.write(new BigDecimal(Float.toString(floats[i])));
+				} else {
+					generator.writeNull();
+				}
+			}
+			break;
+		case UINT64:
+			long[] longs = (long[]) this.array;
+			for (int i = 0; i < this.length; i++) {
+				if (longs[i] >= 0) {
+					generator.write(longs[i]);
+				} else {
+					generator.write(new BigInteger(Long
+							.toUnsignedString(longs[i])));
+				}
+			}
+			break;
+		default:
+			for (int i = 0; i < this.length; i++) {
+				generator.write(this.longAt(i));
+			}
+			break;
+		}
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder(this.length * 4 + 2);
+		sb.append('[');
+		for (int i = 0; i < this.length; i++) {
+			if (i > 0) {
+				sb.append(',');
+			}
+			this.appendElement(sb, i);
+		}
+		return sb.append(']').toString();
+	}
+}
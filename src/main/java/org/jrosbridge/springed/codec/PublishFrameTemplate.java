@@ -0,0 +1,125 @@
+package org.jrosbridge.springed.codec;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import javax.json.Json;
+import javax.json.JsonValue;
+
+import org.jrosbridge.springed.ROSConstants;
+
+/**
+ * The PublishFrameTemplate writes the publish operations of one topic. The
+ * parts of the frame that never change, the op code and the escaped topic
+ * name, are serialized once; each publish only serializes the message between
+ * them. No JSON tree is built around the message and no id string is
+ * created, so a publish allocates little beyond the message itself.
+ */
+public final class PublishFrameTemplate {
+
+	private final String topic;
+
+	// {"op":"publish","topic":"<topic>","msg":
+	private final byte[] prefix;
+
+	// ,"id":"publish:<topic>:
+	private final byte[] idPrefix;
+
+	private static final byte[] END = { '}' };
+	private static final byte[] ID_END = { '"', '}' };
+
+	/**
+	 * Create the template of a topic.
+	 *
+	 * @param topic
+	 *            The name of the topic (e.g., "/cmd_vel").
+	 */
+	public PublishFrameTemplate(String topic) {
+		this.topic = topic;
+
+		// let the generator do the escaping, then cut the object open
+		byte[] head = PublishFrameTemplate.encode(Json.createObjectBuilder()
+				.add(ROSConstants.FIELD_OP, ROSConstants.OP_CODE_PUBLISH)
+				.add(ROSConstants.FIELD_TOPIC, topic)
+				.add(ROSConstants.FIELD_MESSAGE, 0).build());
+		// drop the placeholder value and the closing brace
+		this.prefix = Arrays.copyOf(head, head.length - 2);
+
+		byte[] id = PublishFrameTemplate.encode(Json.createObjectBuilder()
+				.add(ROSConstants.FIELD_ID, "publish:" + topic + ":").build());
+		// drop the closing quote and brace, the opening brace becomes a comma
+		this.idPrefix = Arrays.copyOfRange(id, 0, id.length - 2);
+		this.idPrefix[0] = ',';
+	}
+
+	private static byte[] encode(JsonValue value) {
+		FrameBuffer buffer = new FrameBuffer(64);
+		FrameEncoder.encode(value, buffer);
+		return buffer.toByteArray();
+	}
+
+	/**
+	 * Get the name of the topic.
+	 *
+	 * @return The name of the topic.
+	 */
+	public String getTopic() {
+		return this.topic;
+	}
+
+	/**
+	 * Append a publish operation without an id to the buffer.
+	 *
+	 * @param message
+	 *            The message to publish.
+	 * @param buffer
+	 *            The buffer to serialize into.
+	 */
+	public void encode(JsonValue message, FrameBuffer buffer) {
+		buffer.write(this.prefix, 0, this.prefix.length);
+		FrameEncoder.encode(message, buffer);
+		buffer.write(END, 0, END.length);
+	}
+
+	/**
+	 * Append a publish operation to the buffer, with an id of the form
+	 * "publish:&lt;topic&gt;:&lt;number&gt;".
+	 *
+	 * @param message
+	 *            The message to publish.
+	 * @param id
+	 *            The number of the id.
+	 * @param buffer
+	 *            The buffer to serialize into.
+	 */
+	public void encode(JsonValue message, long id, FrameBuffer buffer) {
+		buffer.write(this.prefix, 0, this.prefix.length);
+		FrameEncoder.encode(message, buffer);
+		buffer.write(this.idPrefix, 0, this.idPrefix.length);
+		PublishFrameTemplate.writeDecimal(id, buffer);
+		buffer.write(ID_END, 0, ID_END.length);
+	}
+
+	/**
+	 * Write the decimal digits of a number without creating its String.
+	 */
+	static void writeDecimal(long value, FrameBuffer buffer) {
+		if (value < 0) {
+			if (value == Long.MIN_VALUE) {
+				byte[] min = Long.toString(value).getBytes(
+						StandardCharsets.US_ASCII);
+				buffer.write(min, 0, min.length);
+				return;
+			}
+			buffer.write('-');
+			value = -value;
+		}
+		long divisor = 1;
+		while (value / divisor >= 10) {
+			divisor *= 10;
+		}
+		for (; divisor > 0; divisor /= 10) {
+			buffer.write((int) ('0' + (value / divisor) % 10));
+		}
+	}
+}
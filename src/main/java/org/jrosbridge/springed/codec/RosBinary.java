@@ -0,0 +1,90 @@
+package org.jrosbridge.springed.codec;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.jrosbridge.springed.primitives.Time;
+
+/**
+ * The RosBinary class contains helpers for reading the ROS1 binary
+ * serialization of messages, as delivered by rosbridge's cbor-raw compression.
+ * All values are little endian; buffers passed here must be in little endian
+ * order, and each read moves their position past the value.
+ */
+public final class RosBinary {
+
+	private RosBinary() {
+	}
+
+	/**
+	 * Read the length prefix of a string or variable length array.
+	 * 
+	 * @param buffer
+	 *            The buffer to read from.
+	 * @param elementSize
+	 *            The minimum size in bytes of one element, used to reject
+	 *            lengths that cannot fit in the buffer.
+	 * @return The number of elements.
+	 * @throws BufferUnderflowException
+	 *             If the buffer cannot hold that many elements.
+	 */
+	public static int readLength(ByteBuffer buffer, int elementSize) {
+		long length = buffer.getInt() & 0xFFFFFFFFL;
+		if (length * Math.max(elementSize, 1) > buffer.remaining()) {
+			throw new BufferUnderflowException();
+		}
+		return (int) length;
+	}
+
+	/**
+	 * Read a string.
+	 * 
+	 * @param buffer
+	 *            The buffer to read from.
+	 * @return The string.
+	 */
+	public static String readString(ByteBuffer buffer) {
+		int length = RosBinary.readLength(buffer, 1);
+		String value;
+		if (buffer.hasArray()) {
+			value = new String(buffer.array(), buffer.arrayOffset()
+					+ buffer.position(), length, StandardCharsets.UTF_8);
+		} else {
+			byte[] bytes = new byte[length];
+			buffer.duplicate().get(bytes);
+			value = new String(bytes, StandardCharsets.UTF_8);
+		}
+		buffer.position(buffer.position() + length);
+		return value;
+	}
+
+	/**
+	 * Read a time.
+	 * 
+	 * @param buffer
+	 *            The buffer to read from.
+	 * @return The time.
+	 */
+	public static Time readTime(ByteBuffer buffer) {
+		int secs = buffer.getInt();
+		int nsecs = buffer.getInt();
+		return new Time(secs, nsecs);
+	}
+
+	/**
+	 * Read a fixed length array of float64 values.
+	 * 
+	 * @param buffer
+	 *            The buffer to read from.
+	 * @param count
+	 *            The number of values.
+	 * @return The values.
+	 */
+	public static double[] readFloat64Array(ByteBuffer buffer, int count) {
+		double[] values = new double[count];
+		buffer.asDoubleBuffer().get(values);
+		buffer.position(buffer.position() + count * 8);
+		return values;
+	}
+}
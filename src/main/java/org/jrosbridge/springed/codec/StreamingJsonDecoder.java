@@ -0,0 +1,178 @@
+package org.jrosbridge.springed.codec;
+
+import java.io.StringReader;
+import java.util.Arrays;
+
+import javax.json.JsonException;
+import javax.json.JsonObject;
+import javax.json.JsonObjectBuilder;
+import javax.json.JsonValue;
+import javax.json.stream.JsonParser;
+import javax.json.stream.JsonParser.Event;
+
+import org.jrosbridge.springed.codec.PrimitiveJsonArray.Kind;
+
+/**
+ * The StreamingJsonDecoder parses a JSON object from the events of a
+ * JsonParser. The numeric arrays named by an {@link ArrayFieldSchema
+ * ArrayFieldSchema} are read straight into a primitive array, which grows
+ * geometrically, and come back as a {@link PrimitiveJsonArray
+ * PrimitiveJsonArray}, so no JsonNumber is created per element. All other
+ * values are built as a JsonReader would build them.
+ */
+public final class StreamingJsonDecoder {
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	private StreamingJsonDecoder() {
+	}
+
+	/**
+	 * Decode a JSON object.
+	 *
+	 * @param json
+	 *            The JSON text.
+	 * @param schema
+	 *            The numeric array fields of the object.
+	 * @return The decoded object.
+	 * @throws JsonException
+	 *             If the text is not a JSON object, or a field of the schema
+	 *             holds an array with other values than numbers.
+	 */
+	public static JsonObject decode(String json, ArrayFieldSchema schema) {
+		try (JsonParser parser = JsonFactories.PARSERS
+				.createParser(new StringReader(json))) {
+			if (!parser.hasNext() || parser.next() != Event.START_OBJECT) {
+				throw new JsonException("Expected a JSON object.");
+			}
+			return StreamingJsonDecoder.readObject(parser, schema);
+		}
+	}
+
+	private static JsonObject readObject(JsonParser parser,
+			ArrayFieldSchema schema) {
+		JsonObjectBuilder builder = JsonFactories.BUILDERS
+				.createObjectBuilder();
+		while (parser.next() == Event.KEY_NAME) {
+			String name = parser.getString();
+			Object field = schema.get(name);
+			Event event = parser.next();
+			if (event == Event.START_OBJECT
+					&& field instanceof ArrayFieldSchema) {
+				builder.add(name, StreamingJsonDecoder.readObject(parser,
+						(ArrayFieldSchema) field));
+			} else if (event == Event.START_ARRAY && field instanceof Kind) {
+				builder.add(name, StreamingJsonDecoder.readArray(parser,
+						(Kind) field));
+			} else {
+				builder.add(name, StreamingJsonDecoder.readValue(parser, event));
+			}
+		}
+		return builder.build();
+	}
+
+	private static JsonValue readValue(JsonParser parser, Event event) {
+		switch (event) {
+		case START_OBJECT:
+			return parser.getObject();
+		case START_ARRAY:
+			return parser.getArray();
+		default:
+			return parser.getValue();
+		}
+	}
+
+	/**
+	 * Read the elements of an array, after its start, into a primitive array
+	 * of the given kind.
+	 */
+	static PrimitiveJsonArray readArray(JsonParser parser, Kind kind) {
+		if (kind == Kind.FLOAT64 || kind == Kind.FLOAT32) {
+			double[] values = new double[INITIAL_CAPACITY];
+			int size = 0;
+			Event event;
+			while ((event = parser.next()) != Event.END_ARRAY) {
+				if (size == values.length) {
+					values = Arrays.copyOf(values, size << 1);
+				}
+				values[size++] = StreamingJsonDecoder.readDouble(parser, event);
+			}
+			if (kind == Kind.FLOAT64) {
+				return PrimitiveJsonArray.ofFloat64(size == values.length ? values
+						: Arrays.copyOf(values, size));
+			}
+			float[] floats = new float[size];
+			for (int i = 0; i < size; i++) {
+				floats[i] = (float) values[i];
+			}
+			return PrimitiveJsonArray.ofFloat32(floats);
+		}
+
+		long[] values = new long[INITIAL_CAPACITY];
+		int size = 0;
+		Event event;
+		while ((event = parser.next()) != Event.END_ARRAY) {
+			if (event != Event.VALUE_NUMBER) {
+				throw new JsonException("Expected a number but found " + event
+						+ ".");
+			}
+			if (size == values.length) {
+				values = Arrays.copyOf(values, size << 1);
+			}
+			// uint64 values above Long.MAX_VALUE keep their bits
+			values[size++] = parser.getLong();
+		}
+		return StreamingJsonDecoder.narrow(kind, values, size);
+	}
+
+	private static double readDouble(JsonParser parser, Event event) {
+		switch (event) {
+		case VALUE_NUMBER:
+			return Double.parseDouble(parser.getString());
+		case VALUE_NULL:
+			// JSON has no NaN, encoders write null instead
+			return Double.NaN;
+		default:
+			throw new JsonException("Expected a number but found " + event
+					+ ".");
+		}
+	}
+
+	/**
+	 * Copy the read values into an exactly sized array of the given integer
+	 * kind.
+	 */
+	private static PrimitiveJsonArray narrow(Kind kind, long[] values, int size) {
+		switch (kind) {
+		case INT8:
+		case UINT8:
+			byte[] bytes = new byte[size];
+			for (int i = 0; i < size; i++) {
+				bytes[i] = (byte) values[i];
+			}
+			return kind == Kind.INT8 ? PrimitiveJsonArray.ofInt8(bytes)
+					: PrimitiveJsonArray.ofUInt8(bytes);
+		case INT16:
+		case UINT16:
+			short[] shorts = new short[size];
+			for (int i = 0; i < size; i++) {
+				shorts[i] = (short) values[i];
+			}
+			return kind == Kind.INT16 ? PrimitiveJsonArray.ofInt16(shorts)
+					: PrimitiveJsonArray.ofUInt16(shorts);
+		case INT32:
+		case UINT32:
+			int[] ints = new int[size];
+			for (int i = 0; i < size; i++) {
+				ints[i] = (int) values[i];
+			}
+			return kind == Kind.INT32 ? PrimitiveJsonArray.ofInt32(ints)
+					: PrimitiveJsonArray.ofUInt32(ints);
+		default:
+			long[] longs = size == values.length ? values : Arrays.copyOf(
+					values, size);
+			return kind == Kind.INT64 ? PrimitiveJsonArray.ofInt64(longs)
+					: PrimitiveJsonArray.ofUInt64(longs);
+		}
+	}
+}
@@ -0,0 +1,23 @@
+package org.jrosbridge.springed.dispatch;
+
+/**
+ * A CallbackDispatcher decides on which thread the callbacks of incoming
+ * messages run. Ros hands it one task per callback and message, tagged with
+ * the robot and topic the message came from.
+ */
+@FunctionalInterface
+public interface CallbackDispatcher {
+
+	/**
+	 * Run the given callback task.
+	 * 
+	 * @param robotId
+	 *            The identifier of the robot the message came from, or null if
+	 *            its session is no longer registered.
+	 * @param topic
+	 *            The topic the message was published on.
+	 * @param task
+	 *            The task that calls the callback. It does not throw.
+	 */
+	void dispatch(Object robotId, String topic, Runnable task);
+}
@@ -0,0 +1,147 @@
+package org.jrosbridge.springed.dispatch;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The CallbackMetrics record how long a single callback takes, so slow
+ * subscribers can be found. The delay is the time a message waited for the
+ * dispatcher before its callback started; the latency is the time the
+ * callback itself took. Recording is lock free and cheap enough for every
+ * message.
+ */
+public class CallbackMetrics {
+
+	private final String topic;
+	private final LongAdder invocations;
+	private final LongAdder failures;
+	private final LongAdder totalLatency;
+	private final LongAccumulator maxLatency;
+	private final LongAdder totalDelay;
+	private final LongAccumulator maxDelay;
+
+	/**
+	 * Create new, empty metrics.
+	 * 
+	 * @param topic
+	 *            The topic of the callback.
+	 */
+	public CallbackMetrics(String topic) {
+		this.topic = topic;
+		this.invocations = new LongAdder();
+		this.failures = new LongAdder();
+		this.totalLatency = new LongAdder();
+		this.maxLatency = new LongAccumulator(Math::max, 0);
+		this.totalDelay = new LongAdder();
+		this.maxDelay = new LongAccumulator(Math::max, 0);
+	}
+
+	/**
+	 * Record one invocation of the callback.
+	 * 
+	 * @param delayNanos
+	 *            The time in nanoseconds between receiving the message and
+	 *            starting the callback.
+	 * @param latencyNanos
+	 *            The time in nanoseconds the callback took.
+	 * @param failed
+	 *            If the callback threw an exception.
+	 */
+	public void record(long delayNanos, long latencyNanos, boolean failed) {
+		this.invocations.increment();
+		if (failed) {
+			this.failures.increment();
+		}
+		this.totalLatency.add(latencyNanos);
+		this.maxLatency.accumulate(latencyNanos);
+		this.totalDelay.add(delayNanos);
+		this.maxDelay.accumulate(delayNanos);
+	}
+
+	/**
+	 * Get the topic of the callback.
+	 * 
+	 * @return The topic of the callback.
+	 */
+	public String getTopic() {
+		return this.topic;
+	}
+
+	/**
+	 * Get the number of times the callback was called.
+	 * 
+	 * @return The number of invocations.
+	 */
+	public long getInvocations() {
+		return this.invocations.sum();
+	}
+
+	/**
+	 * Get the number of times the callback threw an exception.
+	 * 
+	 * @return The number of failed invocations.
+	 */
+	public long getFailures() {
+		return this.failures.sum();
+	}
+
+	/**
+	 * Get the mean time the callback took.
+	 * 
+	 * @return The mean latency in nanoseconds, or 0 if it was never called.
+	 */
+	public long getMeanLatencyNanos() {
+		long count = this.invocations.sum();
+		return count == 0 ? 0 : this.totalLatency.sum() / count;
+	}
+
+	/**
+	 * Get the longest time the callback took.
+	 * 
+	 * @return The maximum latency in nanoseconds.
+	 */
+	public long getMaxLatencyNanos() {
+		return this.maxLatency.get();
+	}
+
+	/**
+	 * Get the mean time messages waited before the callback started.
+	 * 
+	 * @return The mean delay in nanoseconds, or 0 if it was never called.
+	 */
+	public long getMeanDelayNanos() {
+		long count = this.invocations.sum();
+		return count == 0 ? 0 : this.totalDelay.sum() / count;
+	}
+
+	/**
+	 * Get the longest time a message waited before the callback started.
+	 * 
+	 * @return The maximum delay in nanoseconds.
+	 */
+	public long getMaxDelayNanos() {
+		return this.maxDelay.get();
+	}
+
+	/**
+	 * Reset all metrics to zero.
+	 */
+	public void reset() {
+		this.invocations.reset();
+		this.failures.reset();
+		this.totalLatency.reset();
+		this.maxLatency.reset();
+		this.totalDelay.reset();
+		this.maxDelay.reset();
+	}
+
+	@Override
+	public String toString() {
+		return "CallbackMetrics[topic=" + this.topic + ", invocations="
+				+ this.getInvocations() + ", failures=" + this.getFailures()
+				+ ", meanLatencyNanos=" + this.getMeanLatencyNanos()
+				+ ", maxLatencyNanos=" + this.getMaxLatencyNanos()
+				+ ", meanDelayNanos=" + this.getMeanDelayNanos()
+				+ ", maxDelayNanos=" + this.getMaxDelayNanos() + "]";
+	}
+}
@@ -0,0 +1,189 @@
+package org.jrosbridge.springed.dispatch;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.jrosbridge.springed.callback.TopicCallback;
+import org.jrosbridge.springed.messages.Message;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The ConflatingTopicCallback delivers only the latest message to a callback.
+ * Messages are handed to the callback on an executor; while the callback is
+ * busy, a newer message from the same robot replaces the pending one instead
+ * of queuing behind it. At most one message per robot is held, so memory stays
+ * bounded and the callback always sees the newest value, however fast the
+ * topic publishes. This suits consumers such as dashboards that only care
+ * about the current state.
+ */
+public class ConflatingTopicCallback implements TopicCallback {
+
+	private final Logger logger = LoggerFactory
+			.getLogger(ConflatingTopicCallback.class);
+
+	private final TopicCallback delegate;
+	private final Executor executor;
+	private final CallbackMetrics metrics;
+	private final ConcurrentMap<Object, Slot> slots;
+	private final LongAdder delivered;
+	private final LongAdder conflated;
+
+	/**
+	 * Create a new conflating callback.
+	 *
+	 * @param topic
+	 *            The topic the callback is registered for.
+	 * @param delegate
+	 *            The callback that receives the latest messages.
+	 * @param executor
+	 *            The executor the callback runs on.
+	 */
+	public ConflatingTopicCallback(String topic, TopicCallback delegate,
+			Executor executor) {
+		this.delegate = delegate;
+		this.executor = executor;
+		this.metrics = new CallbackMetrics(topic);
+		this.slots = new ConcurrentHashMap<Object, Slot>();
+		this.delivered = new LongAdder();
+		this.conflated = new LongAdder();
+	}
+
+	/**
+	 * Hand over a message that was not tagged with a robot. It is conflated
+	 * with other untagged messages.
+	 *
+	 * @param message
+	 *            The message that was received.
+	 */
+	@Override
+	public void handleMessage(Message message) {
+		this.offer(null, message, System.nanoTime());
+	}
+
+	/**
+	 * Hand over a message from the given robot. This never blocks.
+	 *
+	 * @param robotId
+	 *            The identifier of the robot the message came from.
+	 * @param message
+	 *            The message that was received.
+	 * @param received
+	 *            When the message was received, from {@link System#nanoTime()}
+	 *            .
+	 */
+	public void offer(Object robotId, Message message, long received) {
+		// a null identifier cannot be a map key
+		Object key = robotId == null ? Slot.class : robotId;
+		Slot slot = this.slots.computeIfAbsent(key, k -> new Slot());
+		Pending previous = slot.pending.getAndSet(new Pending(message,
+				received));
+		if (previous != null) {
+			this.conflated.increment();
+		}
+		slot.schedule();
+	}
+
+	/**
+	 * Get the callback that receives the latest messages.
+	 *
+	 * @return The wrapped callback.
+	 */
+	public TopicCallback getDelegate() {
+		return this.delegate;
+	}
+
+	/**
+	 * Get the latency metrics of the wrapped callback.
+	 *
+	 * @return The metrics of the wrapped callback.
+	 */
+	public CallbackMetrics getMetrics() {
+		return this.metrics;
+	}
+
+	/**
+	 * Get the number of messages handed to the wrapped callback.
+	 *
+	 * @return The number of delivered messages.
+	 */
+	public long getDeliveredCount() {
+		return this.delivered.sum();
+	}
+
+	/**
+	 * Get the number of messages that were replaced by a newer one before
+	 * they could be delivered.
+	 *
+	 * @return The number of conflated messages.
+	 */
+	public long getConflatedCount() {
+		return this.conflated.sum();
+	}
+
+	private static class Pending {
+		final Message message;
+		final long received;
+
+		Pending(Message message, long received) {
+			this.message = message;
+			this.received = received;
+		}
+	}
+
+	/**
+	 * A slot holds the pending message of one robot and makes sure only one
+	 * delivery task runs for it at a time.
+	 */
+	private class Slot implements Runnable {
+
+		final AtomicReference<Pending> pending = new AtomicReference<Pending>();
+		final AtomicBoolean running = new AtomicBoolean();
+
+		void schedule() {
+			if (this.pending.get() != null
+					&& this.running.compareAndSet(false, true)) {
+				try {
+					ConflatingTopicCallback.this.executor.execute(this);
+				} catch (RuntimeException e) {
+					this.running.set(false);
+					throw e;
+				}
+			}
+		}
+
+		@Override
+		public void run() {
+			try {
+				Pending next = this.pending.getAndSet(null);
+				if (next != null) {
+					ConflatingTopicCallback.this.deliver(next);
+				}
+			} finally {
+				this.running.set(false);
+				// pick up a message that arrived while we were delivering
+				this.schedule();
+			}
+		}
+	}
+
+	private void deliver(Pending pending) {
+		long start = System.nanoTime();
+		boolean failed = false;
+		try {
+			this.delegate.handleMessage(pending.message);
+		} catch (RuntimeException e) {
+			failed = true;
+			this.logger.error("Callback for topic {} failed",
+					this.metrics.getTopic(), e);
+		} finally {
+			this.delivered.increment();
+			this.metrics.record(start - pending.received, System.nanoTime()
+					- start, failed);
+		}
+	}
+}
@@ -0,0 +1,28 @@
+package org.jrosbridge.springed.dispatch;
+
+import java.util.concurrent.Executor;
+
+/**
+ * The ParallelDispatcher hands every callback to an executor. Callbacks of
+ * the same topic may run concurrently and out of order, so they must be
+ * thread safe.
+ */
+public class ParallelDispatcher implements CallbackDispatcher {
+
+	private final Executor executor;
+
+	/**
+	 * Create a new dispatcher.
+	 * 
+	 * @param executor
+	 *            The executor that runs the callbacks.
+	 */
+	public ParallelDispatcher(Executor executor) {
+		this.executor = executor;
+	}
+
+	@Override
+	public void dispatch(Object robotId, String topic, Runnable task) {
+		this.executor.execute(task);
+	}
+}
@@ -0,0 +1,15 @@
+package org.jrosbridge.springed.dispatch;
+
+/**
+ * The SameThreadDispatcher runs callbacks directly on the thread that received
+ * the message, usually the websocket thread of the session. Messages are
+ * delivered in order, but a slow callback holds up all incoming traffic of the
+ * robot. This is the default.
+ */
+public class SameThreadDispatcher implements CallbackDispatcher {
+
+	@Override
+	public void dispatch(Object robotId, String topic, Runnable task) {
+		task.run();
+	}
+}
@@ -0,0 +1,106 @@
+package org.jrosbridge.springed.dispatch;
+
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The StripedDispatcher runs callbacks on an executor while keeping the order
+ * of messages per robot and topic. Each (robot, topic) pair is mapped to one
+ * of a fixed number of stripes, and the tasks of a stripe run one after the
+ * other. Different stripes run in parallel, so a slow callback only holds up
+ * the topics that share its stripe.
+ */
+public class StripedDispatcher implements CallbackDispatcher {
+
+	private final Stripe[] stripes;
+
+	/**
+	 * Create a new dispatcher.
+	 * 
+	 * @param executor
+	 *            The executor that runs the stripes. It should have at least
+	 *            as many threads as there are stripes to make use of them.
+	 * @param stripes
+	 *            The number of stripes.
+	 */
+	public StripedDispatcher(Executor executor, int stripes) {
+		if (stripes <= 0) {
+			throw new IllegalArgumentException(
+					"The number of stripes must be positive.");
+		}
+		this.stripes = new Stripe[stripes];
+		for (int i = 0; i < stripes; i++) {
+			this.stripes[i] = new Stripe(executor);
+		}
+	}
+
+	/**
+	 * Get the number of stripes.
+	 * 
+	 * @return The number of stripes.
+	 */
+	public int getStripeCount() {
+		return this.stripes.length;
+	}
+
+	@Override
+	public void dispatch(Object robotId, String topic, Runnable task) {
+		int hash = 31 * Objects.hashCode(robotId) + Objects.hashCode(topic);
+		// spread the bits, the identifiers are often small sequential numbers
+		hash ^= hash >>> 16;
+		this.stripes[Math.floorMod(hash, this.stripes.length)].execute(task);
+	}
+
+	/**
+	 * A stripe queues its tasks and runs them one at a time on the executor.
+	 */
+	private static class Stripe implements Runnable {
+
+		// how many tasks a stripe runs before yielding its thread
+		private static final int RUN_BATCH = 64;
+
+		private final Executor executor;
+		private final Queue<Runnable> tasks;
+		private final AtomicBoolean scheduled;
+
+		Stripe(Executor executor) {
+			this.executor = executor;
+			this.tasks = new ConcurrentLinkedQueue<Runnable>();
+			this.scheduled = new AtomicBoolean();
+		}
+
+		void execute(Runnable task) {
+			this.tasks.add(task);
+			this.schedule();
+		}
+
+		private void schedule() {
+			if (!this.tasks.isEmpty() && this.scheduled.compareAndSet(false, true)) {
+				try {
+					this.executor.execute(this);
+				} catch (RuntimeException e) {
+					this.scheduled.set(false);
+					throw e;
+				}
+			}
+		}
+
+		@Override
+		public void run() {
+			try {
+				Runnable task;
+				for (int i = 0; i < RUN_BATCH
+						&& (task = this.tasks.poll()) != null; i++) {
+					task.run();
+				}
+			} finally {
+				this.scheduled.set(false);
+				// pick up tasks that were added while we were finishing
+				this.schedule();
+			}
+		}
+	}
+}
@@ -0,0 +1,176 @@
+package org.jrosbridge.springed.dispatch;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * The TopicRouter finds the callbacks of an incoming message by robot and
+ * topic. Callbacks are registered either for a single robot, so they never see
+ * the traffic of other robots, or explicitly for all robots. A lookup costs at
+ * most three hash lookups however many robots are connected, and never
+ * allocates. All operations are safe to call concurrently.
+ *
+ * @param <Identifier>
+ *            The type used to identify a robot.
+ * @param <Callback>
+ *            The type of the callbacks.
+ */
+public class TopicRouter<Identifier, Callback> {
+
+	private final ConcurrentMap<Identifier, ConcurrentMap<String, List<Callback>>> robotRoutes;
+	private final ConcurrentMap<String, List<Callback>> allRobotsRoutes;
+
+	/**
+	 * Create a new, empty router.
+	 */
+	public TopicRouter() {
+		this.robotRoutes = new ConcurrentHashMap<Identifier, ConcurrentMap<String, List<Callback>>>();
+		this.allRobotsRoutes = new ConcurrentHashMap<String, List<Callback>>();
+	}
+
+	/**
+	 * Register a callback for the messages of one robot on a topic.
+	 *
+	 * @param robotId
+	 *            The identifier of the robot.
+	 * @param topic
+	 *            The topic.
+	 * @param cb
+	 *            The callback.
+	 */
+	public void register(Identifier robotId, String topic, Callback cb) {
+		this.robotRoutes.compute(robotId, (id, routes) -> {
+			if (routes == null) {
+				routes = new ConcurrentHashMap<String, List<Callback>>();
+			}
+			TopicRouter.add(routes, topic, cb);
+			return routes;
+		});
+	}
+
+	/**
+	 * Register a callback for the messages of all robots on a topic.
+	 *
+	 * @param topic
+	 *            The topic.
+	 * @param cb
+	 *            The callback.
+	 */
+	public void registerAllRobots(String topic, Callback cb) {
+		TopicRouter.add(this.allRobotsRoutes, topic, cb);
+	}
+
+	/**
+	 * Remove a callback registered for one robot.
+	 *
+	 * @param robotId
+	 *            The identifier of the robot.
+	 * @param topic
+	 *            The topic.
+	 * @param cb
+	 *            The callback.
+	 * @return If the callback was registered.
+	 */
+	public boolean deregister(Identifier robotId, String topic, Callback cb) {
+		boolean[] removed = new boolean[1];
+		this.robotRoutes.computeIfPresent(robotId, (id, routes) -> {
+			removed[0] = TopicRouter.remove(routes, topic, cb);
+			return routes.isEmpty() ? null : routes;
+		});
+		return removed[0];
+	}
+
+	/**
+	 * Remove a callback registered for all robots.
+	 *
+	 * @param topic
+	 *            The topic.
+	 * @param cb
+	 *            The callback.
+	 * @return If the callback was registered.
+	 */
+	public boolean deregisterAllRobots(String topic, Callback cb) {
+		return TopicRouter.remove(this.allRobotsRoutes, topic, cb);
+	}
+
+	/**
+	 * Get the callbacks registered for one robot on a topic. Callbacks
+	 * registered for all robots are not included.
+	 *
+	 * @param robotId
+	 *            The identifier of the robot, may be null.
+	 * @param topic
+	 *            The topic.
+	 * @return The callbacks, possibly empty. The list must not be modified,
+	 *         iterating it sees a snapshot.
+	 */
+	public List<Callback> getRobotCallbacks(Identifier robotId, String topic) {
+		if (robotId == null || topic == null) {
+			return Collections.emptyList();
+		}
+		ConcurrentMap<String, List<Callback>> routes = this.robotRoutes
+				.get(robotId);
+		return routes == null ? Collections.<Callback> emptyList()
+				: TopicRouter.get(routes, topic);
+	}
+
+	/**
+	 * Get the callbacks registered for all robots on a topic.
+	 *
+	 * @param topic
+	 *            The topic.
+	 * @return The callbacks, possibly empty. The list must not be modified,
+	 *         iterating it sees a snapshot.
+	 */
+	public List<Callback> getAllRobotsCallbacks(String topic) {
+		return topic == null ? Collections.<Callback> emptyList()
+				: TopicRouter.get(this.allRobotsRoutes, topic);
+	}
+
+	/**
+	 * Check if a message of the given robot on the given topic has any
+	 * callbacks.
+	 *
+	 * @param robotId
+	 *            The identifier of the robot, may be null.
+	 * @param topic
+	 *            The topic.
+	 * @return If any callback is registered for the robot or for all robots.
+	 */
+	public boolean hasRoutes(Identifier robotId, String topic) {
+		return !this.getAllRobotsCallbacks(topic).isEmpty()
+				|| !this.getRobotCallbacks(robotId, topic).isEmpty();
+	}
+
+	private static <C> void add(ConcurrentMap<String, List<C>> routes,
+			String topic, C cb) {
+		// adding under the per-key lock keeps remove from dropping the list;
+		// dispatch iterates the lists while callbacks are registered
+		routes.compute(topic, (t, callbacks) -> {
+			if (callbacks == null) {
+				callbacks = new CopyOnWriteArrayList<C>();
+			}
+			callbacks.add(cb);
+			return callbacks;
+		});
+	}
+
+	private static <C> boolean remove(ConcurrentMap<String, List<C>> routes,
+			String topic, C cb) {
+		boolean[] removed = new boolean[1];
+		routes.computeIfPresent(topic, (t, callbacks) -> {
+			removed[0] = callbacks.remove(cb);
+			return callbacks.isEmpty() ? null : callbacks;
+		});
+		return removed[0];
+	}
+
+	private static <C> List<C> get(ConcurrentMap<String, List<C>> routes,
+			String topic) {
+		List<C> callbacks = routes.get(topic);
+		return callbacks == null ? Collections.<C> emptyList() : callbacks;
+	}
+}
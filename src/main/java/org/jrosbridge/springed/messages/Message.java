@@ -3,9 +3,12 @@ package org.jrosbridge.springed.messages;
 import java.io.StringReader;
 
 import javax.json.Json;
+import javax.json.JsonArray;
+import javax.json.JsonArrayBuilder;
 import javax.json.JsonObject;
 
 import org.jrosbridge.springed.JsonWrapper;
+import org.jrosbridge.springed.codec.JsonFactories;
 
 /**
  * Message objects are used for publishing and subscribing to and from topics.
@@ -26,9 +29,12 @@ public class Message extends JsonWrapper {
 
 	/**
 	 * Create a new, empty message. The type will be set to the empty string.
+	 * Typed messages use this constructor, set their type and build their JSON
+	 * object from their fields when it is first needed.
 	 */
 	public Message() {
-		this(Message.EMPTY_MESSAGE, "");
+		super();
+		this.messageType = "";
 	}
 
 	/**
@@ -103,6 +109,23 @@ public class Message extends JsonWrapper {
 		this.messageType = messageType;
 	}
 
+	/**
+	 * Create a JSON array of the JSON objects of the given messages. Each
+	 * message's cached JSON object is used as is, so no message is printed or
+	 * parsed again.
+	 * 
+	 * @param messages
+	 *            The messages.
+	 * @return The JSON array.
+	 */
+	protected static JsonArray toJsonArray(Message[] messages) {
+		JsonArrayBuilder builder = JsonFactories.BUILDERS.createArrayBuilder();
+		for (Message message : messages) {
+			builder.add(message.toJsonObject());
+		}
+		return builder.build();
+	}
+
 	/**
 	 * Create a clone of this Message.
 	 */
@@ -0,0 +1,115 @@
+package org.jrosbridge.springed.messages;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.jrosbridge.springed.ROSConstants;
+import org.jrosbridge.springed.codec.ArrayFieldSchema;
+import org.jrosbridge.springed.codec.PrimitiveJsonArray.Kind;
+import org.jrosbridge.springed.messages.geometry.PoseWithCovariance;
+import org.jrosbridge.springed.messages.geometry.PoseWithCovarianceStamped;
+import org.jrosbridge.springed.messages.geometry.TwistWithCovariance;
+import org.jrosbridge.springed.messages.geometry.TwistWithCovarianceStamped;
+import org.jrosbridge.springed.messages.std.Float32MultiArray;
+import org.jrosbridge.springed.messages.std.Float64MultiArray;
+import org.jrosbridge.springed.messages.std.Int16MultiArray;
+import org.jrosbridge.springed.messages.std.Int32MultiArray;
+import org.jrosbridge.springed.messages.std.Int64MultiArray;
+import org.jrosbridge.springed.messages.std.Int8MultiArray;
+import org.jrosbridge.springed.messages.std.UInt16MultiArray;
+import org.jrosbridge.springed.messages.std.UInt32MultiArray;
+import org.jrosbridge.springed.messages.std.UInt64MultiArray;
+
+/**
+ * MessageArrayFields knows the numeric array fields of message types, so
+ * incoming messages of these types can be decoded straight into primitive
+ * arrays. The array types of this library are registered up front; other
+ * types with large numeric arrays can be registered by the application.
+ */
+public final class MessageArrayFields {
+
+	private static final ConcurrentMap<String, ArrayFieldSchema> SCHEMAS = new ConcurrentHashMap<String, ArrayFieldSchema>();
+	// the schemas of publish frames carrying a message of each type
+	private static final ConcurrentMap<String, ArrayFieldSchema> PUBLISH_SCHEMAS = new ConcurrentHashMap<String, ArrayFieldSchema>();
+
+	static {
+		MessageArrayFields.register(Float32MultiArray.TYPE,
+				Float32MultiArray.FIELD_DATA, Kind.FLOAT32);
+		MessageArrayFields.register(Float64MultiArray.TYPE,
+				Float64MultiArray.FIELD_DATA, Kind.FLOAT64);
+		MessageArrayFields.register(Int8MultiArray.TYPE,
+				Int8MultiArray.FIELD_DATA, Kind.INT8);
+		MessageArrayFields.register(Int16MultiArray.TYPE,
+				Int16MultiArray.FIELD_DATA, Kind.INT16);
+		MessageArrayFields.register(UInt16MultiArray.TYPE,
+				UInt16MultiArray.FIELD_DATA, Kind.UINT16);
+		MessageArrayFields.register(Int32MultiArray.TYPE,
+				Int32MultiArray.FIELD_DATA, Kind.INT32);
+		MessageArrayFields.register(UInt32MultiArray.TYPE,
+				UInt32MultiArray.FIELD_DATA, Kind.UINT32);
+		MessageArrayFields.register(Int64MultiArray.TYPE,
+				Int64MultiArray.FIELD_DATA, Kind.INT64);
+		MessageArrayFields.register(UInt64MultiArray.TYPE,
+				UInt64MultiArray.FIELD_DATA, Kind.UINT64);
+		// the byte arrays are sent as Base64 strings, not as number arrays
+
+		MessageArrayFields.register(PoseWithCovariance.TYPE,
+				PoseWithCovariance.FIELD_COVARIANCE, Kind.FLOAT64);
+		MessageArrayFields.register(TwistWithCovariance.TYPE,
+				TwistWithCovariance.FIELD_COVARIANCE, Kind.FLOAT64);
+		MessageArrayFields.register(PoseWithCovarianceStamped.TYPE,
+				PoseWithCovarianceStamped.FIELD_POSE + "."
+						+ PoseWithCovariance.FIELD_COVARIANCE, Kind.FLOAT64);
+		MessageArrayFields.register(TwistWithCovarianceStamped.TYPE,
+				TwistWithCovarianceStamped.FIELD_TWIST + "."
+						+ TwistWithCovariance.FIELD_COVARIANCE, Kind.FLOAT64);
+	}
+
+	private MessageArrayFields() {
+	}
+
+	/**
+	 * Register the numeric array fields of a message type. A previous schema
+	 * of the type is replaced.
+	 *
+	 * @param type
+	 *            The message type (e.g., "sensor_msgs/LaserScan").
+	 * @param schema
+	 *            The numeric array fields of the type. It must not be changed
+	 *            afterwards.
+	 */
+	public static void register(String type, ArrayFieldSchema schema) {
+		SCHEMAS.put(type, schema);
+		PUBLISH_SCHEMAS.put(type, new ArrayFieldSchema().add(
+				ROSConstants.FIELD_MESSAGE, schema));
+	}
+
+	/**
+	 * Get the numeric array fields of a message type.
+	 *
+	 * @param type
+	 *            The message type, may be null.
+	 * @return The schema of the type, or null if none is registered.
+	 */
+	public static ArrayFieldSchema get(String type) {
+		return type == null ? null : SCHEMAS.get(type);
+	}
+
+	/**
+	 * Get the numeric array fields of a publish frame carrying a message of
+	 * the given type, i.e. those of the type below the message field.
+	 *
+	 * @param type
+	 *            The message type, may be null.
+	 * @return The schema of the publish frame, or null if none is registered
+	 *         for the type.
+	 */
+	public static ArrayFieldSchema getPublishSchema(String type) {
+		return type == null ? null : PUBLISH_SCHEMAS.get(type);
+	}
+
+	private static void register(String type, String path, Kind kind) {
+		MessageArrayFields.register(type, new ArrayFieldSchema().add(path,
+				kind));
+	}
+}
@@ -53,14 +53,21 @@ public class GoalID extends Message {
 	 *            The unique goal ID.
 	 */
 	public GoalID(Time stamp, String id) {
-		// build the JSON object
-		super(Json.createObjectBuilder()
-				.add(GoalID.FIELD_STAMP, stamp.toJsonObject())
-				.add(GoalID.FIELD_ID, id).build(), GoalID.TYPE);
+		this.setMessageType(GoalID.TYPE);
 		this.stamp = stamp;
 		this.id = id;
 	}
 
+	/**
+	 * Build the JSON object of this GoalID from its fields.
+	 */
+	@Override
+	protected JsonObject buildJsonObject() {
+		return Json.createObjectBuilder()
+				.add(GoalID.FIELD_STAMP, this.stamp.toJsonObject())
+				.add(GoalID.FIELD_ID, this.id).build();
+	}
+
 	/**
 	 * Get the stamp value of this GoalID.
 	 * 
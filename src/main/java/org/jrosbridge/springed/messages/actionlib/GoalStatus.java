@@ -119,16 +119,23 @@ public class GoalStatus extends Message {
 	 *            debugging.
 	 */
 	public GoalStatus(GoalID goalID, byte status, String text) {
-		// build the JSON object
-		super(Json.createObjectBuilder()
-				.add(GoalStatus.FIELD_GOAL_ID, goalID.toJsonObject())
-				.add(GoalStatus.FIELD_STATUS, Primitive.fromUInt8(status))
-				.add(GoalStatus.FIELD_TEXT, text).build(), GoalStatus.TYPE);
+		this.setMessageType(GoalStatus.TYPE);
 		this.goalID = goalID;
 		this.status = status;
 		this.text = text;
 	}
 
+	/**
+	 * Build the JSON object of this GoalStatus from its fields.
+	 */
+	@Override
+	protected JsonObject buildJsonObject() {
+		return Json.createObjectBuilder()
+				.add(GoalStatus.FIELD_GOAL_ID, this.goalID.toJsonObject())
+				.add(GoalStatus.FIELD_STATUS, Primitive.fromUInt8(this.status))
+				.add(GoalStatus.FIELD_TEXT, this.text).build();
+	}
+
 	/**
 	 * Get the goal ID value of this GoalStatus.
 	 * 
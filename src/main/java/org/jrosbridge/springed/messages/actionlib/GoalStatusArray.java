@@ -1,8 +1,5 @@
 package org.jrosbridge.springed.messages.actionlib;
 
-import java.io.StringReader;
-import java.util.Arrays;
-
 import javax.json.Json;
 import javax.json.JsonArray;
 import javax.json.JsonObject;
@@ -54,17 +51,7 @@ public class GoalStatusArray extends Message {
 	 *            The statuses of the status array.
 	 */
 	public GoalStatusArray(Header header, GoalStatus[] statusList) {
-		// build the JSON object
-		super(
-				Json.createObjectBuilder()
-						.add(GoalStatusArray.FIELD_HEADER,
-								header.toJsonObject())
-						.add(GoalStatusArray.FIELD_STATUS_LIST,
-								Json.createReader(
-										new StringReader(Arrays
-												.deepToString(statusList)))
-										.readArray()).build(),
-				GoalStatusArray.TYPE);
+		this.setMessageType(GoalStatusArray.TYPE);
 
 		this.header = header;
 		// copy the status array
@@ -72,6 +59,18 @@ public class GoalStatusArray extends Message {
 		System.arraycopy(statusList, 0, this.statusList, 0, statusList.length);
 	}
 
+	/**
+	 * Build the JSON object of this GoalStatusArray from its fields.
+	 */
+	@Override
+	protected JsonObject buildJsonObject() {
+		return Json.createObjectBuilder()
+				.add(GoalStatusArray.FIELD_HEADER,
+						this.header.toJsonObject())
+				.add(GoalStatusArray.FIELD_STATUS_LIST,
+						Message.toJsonArray(this.statusList)).build();
+	}
+
 	/**
 	 * Get the number of statuses in this status array.
 	 * 
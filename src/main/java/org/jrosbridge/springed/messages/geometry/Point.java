@@ -1,5 +1,7 @@
 package org.jrosbridge.springed.messages.geometry;
 
+import java.nio.ByteBuffer;
+
 import javax.json.Json;
 import javax.json.JsonObject;
 
@@ -54,15 +56,21 @@ public class Point extends Message {
 	 *            The z value of the point.
 	 */
 	public Point(double x, double y, double z) {
-		// build the JSON object
-		super(Json.createObjectBuilder().add(Point.FIELD_X, x)
-				.add(Point.FIELD_Y, y).add(Point.FIELD_Z, z).build(),
-				Point.TYPE);
+		this.setMessageType(Point.TYPE);
 		this.x = x;
 		this.y = y;
 		this.z = z;
 	}
 
+	/**
+	 * Build the JSON object of this Point from its fields.
+	 */
+	@Override
+	protected JsonObject buildJsonObject() {
+		return Json.createObjectBuilder().add(Point.FIELD_X, this.x)
+				.add(Point.FIELD_Y, this.y).add(Point.FIELD_Z, this.z).build();
+	}
+
 	/**
 	 * Get the x value of this point.
 	 * 
@@ -142,4 +150,20 @@ public class Point extends Message {
 				.getJsonNumber(Point.FIELD_Z).doubleValue() : 0.0;
 		return new Point(x, y, z);
 	}
+
+	/**
+	 * Create a new Point based on its ROS binary serialization, e.g. as
+	 * received by a RawTopicCallback. The buffer must be in little endian
+	 * order and its position is moved past the message.
+	 * 
+	 * @param buffer
+	 *            The buffer to read from.
+	 * @return A Point message based on the given buffer.
+	 */
+	public static Point fromRosBinary(ByteBuffer buffer) {
+		double x = buffer.getDouble();
+		double y = buffer.getDouble();
+		double z = buffer.getDouble();
+		return new Point(x, y, z);
+	}
 }
@@ -1,5 +1,7 @@
 package org.jrosbridge.springed.messages.geometry;
 
+import java.nio.ByteBuffer;
+
 import javax.json.Json;
 import javax.json.JsonObject;
 
@@ -60,15 +62,22 @@ public class Point32 extends Message {
 	 *            The z value of the point.
 	 */
 	public Point32(float x, float y, float z) {
-		// build the JSON object
-		super(Json.createObjectBuilder().add(Point32.FIELD_X, x)
-				.add(Point32.FIELD_Y, y).add(Point32.FIELD_Z, z).build(),
-				Point32.TYPE);
+		this.setMessageType(Point32.TYPE);
 		this.x = x;
 		this.y = y;
 		this.z = z;
 	}
 
+	/**
+	 * Build the JSON object of this Point32 from its fields.
+	 */
+	@Override
+	protected JsonObject buildJsonObject() {
+		return Json.createObjectBuilder().add(Point32.FIELD_X, this.x)
+				.add(Point32.FIELD_Y, this.y).add(Point32.FIELD_Z, this.z)
+				.build();
+	}
+
 	/**
 	 * Get the x value of this point.
 	 * 
@@ -148,4 +157,20 @@ public class Point32 extends Message {
 				.getJsonNumber(Point32.FIELD_Z).doubleValue() : 0.0f;
 		return new Point32(x, y, z);
 	}
+
+	/**
+	 * Create a new Point32 based on its ROS binary serialization, e.g. as
+	 * received by a RawTopicCallback. The buffer must be in little endian
+	 * order and its position is moved past the message.
+	 * 
+	 * @param buffer
+	 *            The buffer to read from.
+	 * @return A Point32 message based on the given buffer.
+	 */
+	public static Point32 fromRosBinary(ByteBuffer buffer) {
+		float x = buffer.getFloat();
+		float y = buffer.getFloat();
+		float z = buffer.getFloat();
+		return new Point32(x, y, z);
+	}
 }
@@ -1,5 +1,7 @@
 package org.jrosbridge.springed.messages.geometry;
 
+import java.nio.ByteBuffer;
+
 import javax.json.Json;
 import javax.json.JsonObject;
 
@@ -49,15 +51,22 @@ public class PointStamped extends Message {
 	 *            The point value of the point.
 	 */
 	public PointStamped(Header header, Point point) {
-		// build the JSON object
-		super(Json.createObjectBuilder()
-				.add(PointStamped.FIELD_HEADER, header.toJsonObject())
-				.add(PointStamped.FIELD_POINT, point.toJsonObject()).build(),
-				PointStamped.TYPE);
+		this.setMessageType(PointStamped.TYPE);
 		this.header = header;
 		this.point = point;
 	}
 
+	/**
+	 * Build the JSON object of this PointStamped from its fields.
+	 */
+	@Override
+	protected JsonObject buildJsonObject() {
+		return Json.createObjectBuilder()
+				.add(PointStamped.FIELD_HEADER, this.header.toJsonObject())
+				.add(PointStamped.FIELD_POINT, this.point.toJsonObject())
+				.build();
+	}
+
 	/**
 	 * Get the header value of this point.
 	 * 
@@ -129,4 +138,19 @@ public class PointStamped extends Message {
 						.getJsonObject(PointStamped.FIELD_POINT)) : new Point();
 		return new PointStamped(header, point);
 	}
+
+	/**
+	 * Create a new PointStamped based on its ROS binary serialization, e.g. as
+	 * received by a RawTopicCallback. The buffer must be in little endian
+	 * order and its position is moved past the message.
+	 * 
+	 * @param buffer
+	 *            The buffer to read from.
+	 * @return A PointStamped message based on the given buffer.
+	 */
+	public static PointStamped fromRosBinary(ByteBuffer buffer) {
+		Header header = Header.fromRosBinary(buffer);
+		Point point = Point.fromRosBinary(buffer);
+		return new PointStamped(header, point);
+	}
 }
@@ -1,12 +1,12 @@
 package org.jrosbridge.springed.messages.geometry;
 
-import java.io.StringReader;
-import java.util.Arrays;
+import java.nio.ByteBuffer;
 
 import javax.json.Json;
 import javax.json.JsonArray;
 import javax.json.JsonObject;
 
+import org.jrosbridge.springed.codec.RosBinary;
 import org.jrosbridge.springed.messages.Message;
 
 /**
@@ -45,19 +45,23 @@ public class Polygon extends Message {
 	 *            The points of the polygon.
 	 */
 	public Polygon(Point32[] points) {
-		// build the JSON object
-		super(Json
-				.createObjectBuilder()
-				.add(Polygon.FIELD_POINTS,
-						Json.createReader(
-								new StringReader(Arrays.deepToString(points)))
-								.readArray()).build(), Polygon.TYPE);
+		this.setMessageType(Polygon.TYPE);
 
 		// copy the points
 		this.points = new Point32[points.length];
 		System.arraycopy(points, 0, this.points, 0, points.length);
 	}
 
+	/**
+	 * Build the JSON object of this Polygon from its fields.
+	 */
+	@Override
+	protected JsonObject buildJsonObject() {
+		return Json.createObjectBuilder()
+				.add(Polygon.FIELD_POINTS,
+						Message.toJsonArray(this.points)).build();
+	}
+
 	/**
 	 * Get the number of points in this polygon.
 	 * 
@@ -144,4 +148,21 @@ public class Polygon extends Message {
 			return new Polygon();
 		}
 	}
+
+	/**
+	 * Create a new Polygon based on its ROS binary serialization, e.g. as
+	 * received by a RawTopicCallback. The buffer must be in little endian
+	 * order and its position is moved past the message.
+	 * 
+	 * @param buffer
+	 *            The buffer to read from.
+	 * @return A Polygon message based on the given buffer.
+	 */
+	public static Polygon fromRosBinary(ByteBuffer buffer) {
+		Point32[] points = new Point32[RosBinary.readLength(buffer, 12)];
+		for (int i = 0; i < points.length; i++) {
+			points[i] = Point32.fromRosBinary(buffer);
+		}
+		return new Polygon(points);
+	}
 }
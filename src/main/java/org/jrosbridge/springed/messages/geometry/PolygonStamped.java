@@ -1,5 +1,7 @@
 package org.jrosbridge.springed.messages.geometry;
 
+import java.nio.ByteBuffer;
+
 import javax.json.Json;
 import javax.json.JsonObject;
 
@@ -49,15 +51,22 @@ public class PolygonStamped extends Message {
 	 *            The polygon value of the polygon.
 	 */
 	public PolygonStamped(Header header, Polygon polygon) {
-		// build the JSON object
-		super(Json.createObjectBuilder()
-				.add(PolygonStamped.FIELD_HEADER, header.toJsonObject())
-				.add(PolygonStamped.FIELD_POLYGON, polygon.toJsonObject())
-				.build(), PolygonStamped.TYPE);
+		this.setMessageType(PolygonStamped.TYPE);
 		this.header = header;
 		this.polygon = polygon;
 	}
 
+	/**
+	 * Build the JSON object of this PolygonStamped from its fields.
+	 */
+	@Override
+	protected JsonObject buildJsonObject() {
+		return Json.createObjectBuilder()
+				.add(PolygonStamped.FIELD_HEADER, this.header.toJsonObject())
+				.add(PolygonStamped.FIELD_POLYGON, this.polygon.toJsonObject())
+				.build();
+	}
+
 	/**
 	 * Get the header value of this polygon.
 	 * 
@@ -130,4 +139,19 @@ public class PolygonStamped extends Message {
 				: new Polygon();
 		return new PolygonStamped(header, polygon);
 	}
+
+	/**
+	 * Create a new PolygonStamped based on its ROS binary serialization, e.g. as
+	 * received by a RawTopicCallback. The buffer must be in little endian
+	 * order and its position is moved past the message.
+	 * 
+	 * @param buffer
+	 *            The buffer to read from.
+	 * @return A PolygonStamped message based on the given buffer.
+	 */
+	public static PolygonStamped fromRosBinary(ByteBuffer buffer) {
+		Header header = Header.fromRosBinary(buffer);
+		Polygon polygon = Polygon.fromRosBinary(buffer);
+		return new PolygonStamped(header, polygon);
+	}
 }
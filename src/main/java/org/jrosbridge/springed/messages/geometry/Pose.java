@@ -1,5 +1,7 @@
 package org.jrosbridge.springed.messages.geometry;
 
+import java.nio.ByteBuffer;
+
 import javax.json.Json;
 import javax.json.JsonObject;
 
@@ -48,15 +50,22 @@ public class Pose extends Message {
 	 *            The orientation value of the pose.
 	 */
 	public Pose(Point position, Quaternion orientation) {
-		// build the JSON object
-		super(Json.createObjectBuilder()
-				.add(Pose.FIELD_POSITION, position.toJsonObject())
-				.add(Pose.FIELD_ORIENTATION, orientation.toJsonObject())
-				.build(), Pose.TYPE);
+		this.setMessageType(Pose.TYPE);
 		this.position = position;
 		this.orientation = orientation;
 	}
 
+	/**
+	 * Build the JSON object of this Pose from its fields.
+	 */
+	@Override
+	protected JsonObject buildJsonObject() {
+		return Json.createObjectBuilder()
+				.add(Pose.FIELD_POSITION, this.position.toJsonObject())
+				.add(Pose.FIELD_ORIENTATION, this.orientation.toJsonObject())
+				.build();
+	}
+
 	/**
 	 * Get the position value of this pose.
 	 * 
@@ -128,4 +137,19 @@ public class Pose extends Message {
 				: new Quaternion();
 		return new Pose(position, orientation);
 	}
+
+	/**
+	 * Create a new Pose based on its ROS binary serialization, e.g. as
+	 * received by a RawTopicCallback. The buffer must be in little endian
+	 * order and its position is moved past the message.
+	 * 
+	 * @param buffer
+	 *            The buffer to read from.
+	 * @return A Pose message based on the given buffer.
+	 */
+	public static Pose fromRosBinary(ByteBuffer buffer) {
+		Point position = Point.fromRosBinary(buffer);
+		Quaternion orientation = Quaternion.fromRosBinary(buffer);
+		return new Pose(position, orientation);
+	}
 }
@@ -1,5 +1,7 @@
 package org.jrosbridge.springed.messages.geometry;
 
+import java.nio.ByteBuffer;
+
 import javax.json.Json;
 import javax.json.JsonObject;
 
@@ -54,15 +56,22 @@ public class Pose2D extends Message {
 	 *            The theta value of the pose.
 	 */
 	public Pose2D(double x, double y, double theta) {
-		// build the JSON object
-		super(Json.createObjectBuilder().add(Pose2D.FIELD_X, x)
-				.add(Pose2D.FIELD_Y, y).add(Pose2D.FIELD_THETA, theta).build(),
-				Pose2D.TYPE);
+		this.setMessageType(Pose2D.TYPE);
 		this.x = x;
 		this.y = y;
 		this.theta = theta;
 	}
 
+	/**
+	 * Build the JSON object of this Pose2D from its fields.
+	 */
+	@Override
+	protected JsonObject buildJsonObject() {
+		return Json.createObjectBuilder().add(Pose2D.FIELD_X, this.x)
+				.add(Pose2D.FIELD_Y, this.y).add(Pose2D.FIELD_THETA, this.theta)
+				.build();
+	}
+
 	/**
 	 * Get the x value of this pose.
 	 * 
@@ -142,4 +151,20 @@ public class Pose2D extends Message {
 				.getJsonNumber(Pose2D.FIELD_THETA).doubleValue() : 0.0;
 		return new Pose2D(x, y, theta);
 	}
+
+	/**
+	 * Create a new Pose2D based on its ROS binary serialization, e.g. as
+	 * received by a RawTopicCallback. The buffer must be in little endian
+	 * order and its position is moved past the message.
+	 * 
+	 * @param buffer
+	 *            The buffer to read from.
+	 * @return A Pose2D message based on the given buffer.
+	 */
+	public static Pose2D fromRosBinary(ByteBuffer buffer) {
+		double x = buffer.getDouble();
+		double y = buffer.getDouble();
+		double theta = buffer.getDouble();
+		return new Pose2D(x, y, theta);
+	}
 }
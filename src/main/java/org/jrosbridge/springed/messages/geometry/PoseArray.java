@@ -1,12 +1,12 @@
 package org.jrosbridge.springed.messages.geometry;
 
-import java.io.StringReader;
-import java.util.Arrays;
+import java.nio.ByteBuffer;
 
 import javax.json.Json;
 import javax.json.JsonArray;
 import javax.json.JsonObject;
 
+import org.jrosbridge.springed.codec.RosBinary;
 import org.jrosbridge.springed.messages.Message;
 import org.jrosbridge.springed.messages.std.Header;
 
@@ -54,14 +54,7 @@ public class PoseArray extends Message {
 	 *            The poses of the pose array.
 	 */
 	public PoseArray(Header header, Pose[] poses) {
-		// build the JSON object
-		super(Json
-				.createObjectBuilder()
-				.add(PoseArray.FIELD_HEADER, header.toJsonObject())
-				.add(PoseArray.FIELD_POSES,
-						Json.createReader(
-								new StringReader(Arrays.deepToString(poses)))
-								.readArray()).build(), PoseArray.TYPE);
+		this.setMessageType(PoseArray.TYPE);
 
 		this.header = header;
 		// copy the poses
@@ -69,6 +62,17 @@ public class PoseArray extends Message {
 		System.arraycopy(poses, 0, this.poses, 0, poses.length);
 	}
 
+	/**
+	 * Build the JSON object of this PoseArray from its fields.
+	 */
+	@Override
+	protected JsonObject buildJsonObject() {
+		return Json.createObjectBuilder()
+				.add(PoseArray.FIELD_HEADER, this.header.toJsonObject())
+				.add(PoseArray.FIELD_POSES,
+						Message.toJsonArray(this.poses)).build();
+	}
+
 	/**
 	 * Get the number of poses in this pose array.
 	 * 
@@ -169,4 +173,22 @@ public class PoseArray extends Message {
 			return new PoseArray(header, new Pose[] {});
 		}
 	}
+
+	/**
+	 * Create a new PoseArray based on its ROS binary serialization, e.g. as
+	 * received by a RawTopicCallback. The buffer must be in little endian
+	 * order and its position is moved past the message.
+	 * 
+	 * @param buffer
+	 *            The buffer to read from.
+	 * @return A PoseArray message based on the given buffer.
+	 */
+	public static PoseArray fromRosBinary(ByteBuffer buffer) {
+		Header header = Header.fromRosBinary(buffer);
+		Pose[] poses = new Pose[RosBinary.readLength(buffer, 56)];
+		for (int i = 0; i < poses.length; i++) {
+			poses[i] = Pose.fromRosBinary(buffer);
+		}
+		return new PoseArray(header, poses);
+	}
 }
@@ -1,5 +1,7 @@
 package org.jrosbridge.springed.messages.geometry;
 
+import java.nio.ByteBuffer;
+
 import javax.json.Json;
 import javax.json.JsonObject;
 
@@ -49,15 +51,21 @@ public class PoseStamped extends Message {
 	 *            The pose value of the pose.
 	 */
 	public PoseStamped(Header header, Pose pose) {
-		// build the JSON object
-		super(Json.createObjectBuilder()
-				.add(PoseStamped.FIELD_HEADER, header.toJsonObject())
-				.add(PoseStamped.FIELD_POSE, pose.toJsonObject()).build(),
-				PoseStamped.TYPE);
+		this.setMessageType(PoseStamped.TYPE);
 		this.header = header;
 		this.pose = pose;
 	}
 
+	/**
+	 * Build the JSON object of this PoseStamped from its fields.
+	 */
+	@Override
+	protected JsonObject buildJsonObject() {
+		return Json.createObjectBuilder()
+				.add(PoseStamped.FIELD_HEADER, this.header.toJsonObject())
+				.add(PoseStamped.FIELD_POSE, this.pose.toJsonObject()).build();
+	}
+
 	/**
 	 * Get the header value of this pose.
 	 * 
@@ -129,4 +137,19 @@ public class PoseStamped extends Message {
 						.getJsonObject(PoseStamped.FIELD_POSE)) : new Pose();
 		return new PoseStamped(header, pose);
 	}
+
+	/**
+	 * Create a new PoseStamped based on its ROS binary serialization, e.g. as
+	 * received by a RawTopicCallback. The buffer must be in little endian
+	 * order and its position is moved past the message.
+	 * 
+	 * @param buffer
+	 *            The buffer to read from.
+	 * @return A PoseStamped message based on the given buffer.
+	 */
+	public static PoseStamped fromRosBinary(ByteBuffer buffer) {
+		Header header = Header.fromRosBinary(buffer);
+		Pose pose = Pose.fromRosBinary(buffer);
+		return new PoseStamped(header, pose);
+	}
 }
@@ -1,12 +1,13 @@
 package org.jrosbridge.springed.messages.geometry;
 
-import java.io.StringReader;
-import java.util.Arrays;
+import java.nio.ByteBuffer;
 
 import javax.json.Json;
 import javax.json.JsonArray;
 import javax.json.JsonObject;
 
+import org.jrosbridge.springed.codec.PrimitiveJsonArray;
+import org.jrosbridge.springed.codec.RosBinary;
 import org.jrosbridge.springed.messages.Message;
 
 /**
@@ -87,18 +88,7 @@ public class PoseWithCovariance extends Message {
 	 *            The covariance matrix as an array.
 	 */
 	public PoseWithCovariance(Pose pose, double[] covariance) {
-		// build the JSON object
-		super(
-				Json.createObjectBuilder()
-						.add(PoseWithCovariance.FIELD_POSE, pose.toJsonObject())
-						.add(PoseWithCovariance.FIELD_COVARIANCE,
-								Json.createReader(
-										new StringReader(
-												(covariance.length == PoseWithCovariance.COVARIANCE_SIZE) ? Arrays
-														.toString(covariance)
-														: Arrays.toString(new double[PoseWithCovariance.COVARIANCE_SIZE])))
-										.readArray()).build(),
-				PoseWithCovariance.TYPE);
+		this.setMessageType(PoseWithCovariance.TYPE);
 
 		this.pose = pose;
 		// create the arrays
@@ -118,6 +108,17 @@ public class PoseWithCovariance extends Message {
 		}
 	}
 
+	/**
+	 * Build the JSON object of this PoseWithCovariance from its fields.
+	 */
+	@Override
+	protected JsonObject buildJsonObject() {
+		return Json.createObjectBuilder()
+				.add(PoseWithCovariance.FIELD_POSE, this.pose.toJsonObject())
+				.add(PoseWithCovariance.FIELD_COVARIANCE,
+						PrimitiveJsonArray.ofFloat64(this.covariance)).build();
+	}
+
 	/**
 	 * Get the pose value of this pose.
 	 * 
@@ -199,7 +200,11 @@ public class PoseWithCovariance extends Message {
 		// check the array
 		JsonArray jsonArray = jsonObject
 				.getJsonArray(PoseWithCovariance.FIELD_COVARIANCE);
-		if (jsonArray != null) {
+		if (jsonArray instanceof PrimitiveJsonArray) {
+			// already decoded into a primitive array (e.g., from CBOR)
+			return new PoseWithCovariance(pose,
+					((PrimitiveJsonArray) jsonArray).toDoubleArray());
+		} else if (jsonArray != null) {
 			// convert each value
 			double[] poses = new double[jsonArray.size()];
 			for (int i = 0; i < poses.length; i++) {
@@ -211,4 +216,20 @@ public class PoseWithCovariance extends Message {
 					new double[PoseWithCovariance.COVARIANCE_SIZE]);
 		}
 	}
+
+	/**
+	 * Create a new PoseWithCovariance based on its ROS binary serialization, e.g. as
+	 * received by a RawTopicCallback. The buffer must be in little endian
+	 * order and its position is moved past the message.
+	 * 
+	 * @param buffer
+	 *            The buffer to read from.
+	 * @return A PoseWithCovariance message based on the given buffer.
+	 */
+	public static PoseWithCovariance fromRosBinary(ByteBuffer buffer) {
+		Pose pose = Pose.fromRosBinary(buffer);
+		double[] covariance = RosBinary.readFloat64Array(buffer,
+				PoseWithCovariance.COVARIANCE_SIZE);
+		return new PoseWithCovariance(pose, covariance);
+	}
 }
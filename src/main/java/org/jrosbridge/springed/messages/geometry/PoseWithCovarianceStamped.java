@@ -1,5 +1,7 @@
 package org.jrosbridge.springed.messages.geometry;
 
+import java.nio.ByteBuffer;
+
 import javax.json.Json;
 import javax.json.JsonObject;
 
@@ -49,17 +51,24 @@ public class PoseWithCovarianceStamped extends Message {
 	 *            The pose value of the pose.
 	 */
 	public PoseWithCovarianceStamped(Header header, PoseWithCovariance pose) {
-		// build the JSON object
-		super(Json
-				.createObjectBuilder()
-				.add(PoseWithCovarianceStamped.FIELD_HEADER,
-						header.toJsonObject())
-				.add(PoseWithCovarianceStamped.FIELD_POSE, pose.toJsonObject())
-				.build(), PoseWithCovarianceStamped.TYPE);
+		this.setMessageType(PoseWithCovarianceStamped.TYPE);
 		this.header = header;
 		this.pose = pose;
 	}
 
+	/**
+	 * Build the JSON object of this PoseWithCovarianceStamped from its fields.
+	 */
+	@Override
+	protected JsonObject buildJsonObject() {
+		return Json.createObjectBuilder()
+				.add(PoseWithCovarianceStamped.FIELD_HEADER,
+						this.header.toJsonObject())
+				.add(PoseWithCovarianceStamped.FIELD_POSE,
+						this.pose.toJsonObject())
+				.build();
+	}
+
 	/**
 	 * Get the header value of this pose.
 	 * 
@@ -136,4 +145,19 @@ public class PoseWithCovarianceStamped extends Message {
 				: new PoseWithCovariance();
 		return new PoseWithCovarianceStamped(header, pose);
 	}
+
+	/**
+	 * Create a new PoseWithCovarianceStamped based on its ROS binary serialization, e.g. as
+	 * received by a RawTopicCallback. The buffer must be in little endian
+	 * order and its position is moved past the message.
+	 * 
+	 * @param buffer
+	 *            The buffer to read from.
+	 * @return A PoseWithCovarianceStamped message based on the given buffer.
+	 */
+	public static PoseWithCovarianceStamped fromRosBinary(ByteBuffer buffer) {
+		Header header = Header.fromRosBinary(buffer);
+		PoseWithCovariance pose = PoseWithCovariance.fromRosBinary(buffer);
+		return new PoseWithCovarianceStamped(header, pose);
+	}
 }
@@ -1,5 +1,7 @@
 package org.jrosbridge.springed.messages.geometry;
 
+import java.nio.ByteBuffer;
+
 import javax.json.Json;
 import javax.json.JsonObject;
 
@@ -61,16 +63,23 @@ public class Quaternion extends Message {
 	 *            The w value of the quaternion.
 	 */
 	public Quaternion(double x, double y, double z, double w) {
-		// build the JSON object
-		super(Json.createObjectBuilder().add(Quaternion.FIELD_X, x)
-				.add(Quaternion.FIELD_Y, y).add(Quaternion.FIELD_Z, z)
-				.add(Quaternion.FIELD_W, w).build(), Quaternion.TYPE);
+		this.setMessageType(Quaternion.TYPE);
 		this.x = x;
 		this.y = y;
 		this.z = z;
 		this.w = w;
 	}
 
+	/**
+	 * Build the JSON object of this Quaternion from its fields.
+	 */
+	@Override
+	protected JsonObject buildJsonObject() {
+		return Json.createObjectBuilder().add(Quaternion.FIELD_X, this.x)
+				.add(Quaternion.FIELD_Y, this.y).add(Quaternion.FIELD_Z, this.z)
+				.add(Quaternion.FIELD_W, this.w).build();
+	}
+
 	/**
 	 * Get the x value of this quaternion.
 	 * 
@@ -161,4 +170,21 @@ public class Quaternion extends Message {
 				.getJsonNumber(Quaternion.FIELD_W).doubleValue() : 0.0;
 		return new Quaternion(x, y, z, w);
 	}
+
+	/**
+	 * Create a new Quaternion based on its ROS binary serialization, e.g. as
+	 * received by a RawTopicCallback. The buffer must be in little endian
+	 * order and its position is moved past the message.
+	 * 
+	 * @param buffer
+	 *            The buffer to read from.
+	 * @return A Quaternion message based on the given buffer.
+	 */
+	public static Quaternion fromRosBinary(ByteBuffer buffer) {
+		double x = buffer.getDouble();
+		double y = buffer.getDouble();
+		double z = buffer.getDouble();
+		double w = buffer.getDouble();
+		return new Quaternion(x, y, z, w);
+	}
 }
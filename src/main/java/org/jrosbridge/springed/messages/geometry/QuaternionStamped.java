@@ -1,5 +1,7 @@
 package org.jrosbridge.springed.messages.geometry;
 
+import java.nio.ByteBuffer;
+
 import javax.json.Json;
 import javax.json.JsonObject;
 
@@ -49,17 +51,22 @@ public class QuaternionStamped extends Message {
 	 *            The quaternion value of the quaternion.
 	 */
 	public QuaternionStamped(Header header, Quaternion quaternion) {
-		// build the JSON object
-		super(Json
-				.createObjectBuilder()
-				.add(QuaternionStamped.FIELD_HEADER, header.toJsonObject())
-				.add(QuaternionStamped.FIELD_QUATERNION,
-						quaternion.toJsonObject()).build(),
-				QuaternionStamped.TYPE);
+		this.setMessageType(QuaternionStamped.TYPE);
 		this.header = header;
 		this.quaternion = quaternion;
 	}
 
+	/**
+	 * Build the JSON object of this QuaternionStamped from its fields.
+	 */
+	@Override
+	protected JsonObject buildJsonObject() {
+		return Json.createObjectBuilder()
+				.add(QuaternionStamped.FIELD_HEADER, this.header.toJsonObject())
+				.add(QuaternionStamped.FIELD_QUATERNION,
+						this.quaternion.toJsonObject()).build();
+	}
+
 	/**
 	 * Get the header value of this quaternion.
 	 * 
@@ -133,4 +140,19 @@ public class QuaternionStamped extends Message {
 				: new Quaternion();
 		return new QuaternionStamped(header, quaternion);
 	}
+
+	/**
+	 * Create a new QuaternionStamped based on its ROS binary serialization, e.g. as
+	 * received by a RawTopicCallback. The buffer must be in little endian
+	 * order and its position is moved past the message.
+	 * 
+	 * @param buffer
+	 *            The buffer to read from.
+	 * @return A QuaternionStamped message based on the given buffer.
+	 */
+	public static QuaternionStamped fromRosBinary(ByteBuffer buffer) {
+		Header header = Header.fromRosBinary(buffer);
+		Quaternion quaternion = Quaternion.fromRosBinary(buffer);
+		return new QuaternionStamped(header, quaternion);
+	}
 }
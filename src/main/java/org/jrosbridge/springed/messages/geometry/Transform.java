@@ -1,5 +1,7 @@
 package org.jrosbridge.springed.messages.geometry;
 
+import java.nio.ByteBuffer;
+
 import javax.json.Json;
 import javax.json.JsonObject;
 
@@ -48,17 +50,23 @@ public class Transform extends Message {
 	 *            The rotation value of the transform.
 	 */
 	public Transform(Vector3 translation, Quaternion rotation) {
-		// build the JSON object
-		super(
-				Json.createObjectBuilder()
-						.add(Transform.FIELD_TRANSLATION,
-								translation.toJsonObject())
-						.add(Transform.FIELD_ROTATION, rotation.toJsonObject())
-						.build(), Transform.TYPE);
+		this.setMessageType(Transform.TYPE);
 		this.translation = translation;
 		this.rotation = rotation;
 	}
 
+	/**
+	 * Build the JSON object of this Transform from its fields.
+	 */
+	@Override
+	protected JsonObject buildJsonObject() {
+		return Json.createObjectBuilder()
+				.add(Transform.FIELD_TRANSLATION,
+						this.translation.toJsonObject())
+				.add(Transform.FIELD_ROTATION, this.rotation.toJsonObject())
+				.build();
+	}
+
 	/**
 	 * Get the translation value of this transform.
 	 * 
@@ -130,4 +138,19 @@ public class Transform extends Message {
 				: new Quaternion();
 		return new Transform(translation, rotation);
 	}
+
+	/**
+	 * Create a new Transform based on its ROS binary serialization, e.g. as
+	 * received by a RawTopicCallback. The buffer must be in little endian
+	 * order and its position is moved past the message.
+	 * 
+	 * @param buffer
+	 *            The buffer to read from.
+	 * @return A Transform message based on the given buffer.
+	 */
+	public static Transform fromRosBinary(ByteBuffer buffer) {
+		Vector3 translation = Vector3.fromRosBinary(buffer);
+		Quaternion rotation = Quaternion.fromRosBinary(buffer);
+		return new Transform(translation, rotation);
+	}
 }
@@ -1,8 +1,11 @@
 package org.jrosbridge.springed.messages.geometry;
 
+import java.nio.ByteBuffer;
+
 import javax.json.Json;
 import javax.json.JsonObject;
 
+import org.jrosbridge.springed.codec.RosBinary;
 import org.jrosbridge.springed.messages.Message;
 import org.jrosbridge.springed.messages.std.Header;
 
@@ -61,21 +64,26 @@ public class TransformStamped extends Message {
 	 */
 	public TransformStamped(Header header, String childFrameID,
 			Transform transform) {
-		// build the JSON object
-		super(
-				Json.createObjectBuilder()
-						.add(TransformStamped.FIELD_HEADER,
-								header.toJsonObject())
-						.add(TransformStamped.FIELD_CHILD_FRAME_ID,
-								childFrameID)
-						.add(TransformStamped.FIELD_TRANSFORM,
-								transform.toJsonObject()).build(),
-				TransformStamped.TYPE);
+		this.setMessageType(TransformStamped.TYPE);
 		this.header = header;
 		this.childFrameID = childFrameID;
 		this.transform = transform;
 	}
 
+	/**
+	 * Build the JSON object of this TransformStamped from its fields.
+	 */
+	@Override
+	protected JsonObject buildJsonObject() {
+		return Json.createObjectBuilder()
+				.add(TransformStamped.FIELD_HEADER,
+						this.header.toJsonObject())
+				.add(TransformStamped.FIELD_CHILD_FRAME_ID,
+						this.childFrameID)
+				.add(TransformStamped.FIELD_TRANSFORM,
+						this.transform.toJsonObject()).build();
+	}
+
 	/**
 	 * Get the header value of this transform.
 	 * 
@@ -162,4 +170,20 @@ public class TransformStamped extends Message {
 				: new Transform();
 		return new TransformStamped(header, childFrameID, transform);
 	}
+
+	/**
+	 * Create a new TransformStamped based on its ROS binary serialization, e.g. as
+	 * received by a RawTopicCallback. The buffer must be in little endian
+	 * order and its position is moved past the message.
+	 * 
+	 * @param buffer
+	 *            The buffer to read from.
+	 * @return A TransformStamped message based on the given buffer.
+	 */
+	public static TransformStamped fromRosBinary(ByteBuffer buffer) {
+		Header header = Header.fromRosBinary(buffer);
+		String childFrameID = RosBinary.readString(buffer);
+		Transform transform = Transform.fromRosBinary(buffer);
+		return new TransformStamped(header, childFrameID, transform);
+	}
 }
@@ -1,5 +1,7 @@
 package org.jrosbridge.springed.messages.geometry;
 
+import java.nio.ByteBuffer;
+
 import javax.json.Json;
 import javax.json.JsonObject;
 
@@ -48,15 +50,21 @@ public class Twist extends Message {
 	 *            The angular value of the twist.
 	 */
 	public Twist(Vector3 linear, Vector3 angular) {
-		// build the JSON object
-		super(Json.createObjectBuilder()
-				.add(Twist.FIELD_LINEAR, linear.toJsonObject())
-				.add(Twist.FIELD_ANGULAR, angular.toJsonObject()).build(),
-				Twist.TYPE);
+		this.setMessageType(Twist.TYPE);
 		this.linear = linear;
 		this.angular = angular;
 	}
 
+	/**
+	 * Build the JSON object of this Twist from its fields.
+	 */
+	@Override
+	protected JsonObject buildJsonObject() {
+		return Json.createObjectBuilder()
+				.add(Twist.FIELD_LINEAR, this.linear.toJsonObject())
+				.add(Twist.FIELD_ANGULAR, this.angular.toJsonObject()).build();
+	}
+
 	/**
 	 * Get the linear value of this twist.
 	 * 
@@ -127,4 +135,19 @@ public class Twist extends Message {
 				: new Vector3();
 		return new Twist(linear, angular);
 	}
+
+	/**
+	 * Create a new Twist based on its ROS binary serialization, e.g. as
+	 * received by a RawTopicCallback. The buffer must be in little endian
+	 * order and its position is moved past the message.
+	 * 
+	 * @param buffer
+	 *            The buffer to read from.
+	 * @return A Twist message based on the given buffer.
+	 */
+	public static Twist fromRosBinary(ByteBuffer buffer) {
+		Vector3 linear = Vector3.fromRosBinary(buffer);
+		Vector3 angular = Vector3.fromRosBinary(buffer);
+		return new Twist(linear, angular);
+	}
 }
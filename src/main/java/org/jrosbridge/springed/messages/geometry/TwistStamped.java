@@ -1,5 +1,7 @@
 package org.jrosbridge.springed.messages.geometry;
 
+import java.nio.ByteBuffer;
+
 import javax.json.Json;
 import javax.json.JsonObject;
 
@@ -49,15 +51,22 @@ public class TwistStamped extends Message {
 	 *            The twist value of the twist.
 	 */
 	public TwistStamped(Header header, Twist twist) {
-		// build the JSON object
-		super(Json.createObjectBuilder()
-				.add(TwistStamped.FIELD_HEADER, header.toJsonObject())
-				.add(TwistStamped.FIELD_TWIST, twist.toJsonObject()).build(),
-				TwistStamped.TYPE);
+		this.setMessageType(TwistStamped.TYPE);
 		this.header = header;
 		this.twist = twist;
 	}
 
+	/**
+	 * Build the JSON object of this TwistStamped from its fields.
+	 */
+	@Override
+	protected JsonObject buildJsonObject() {
+		return Json.createObjectBuilder()
+				.add(TwistStamped.FIELD_HEADER, this.header.toJsonObject())
+				.add(TwistStamped.FIELD_TWIST, this.twist.toJsonObject())
+				.build();
+	}
+
 	/**
 	 * Get the header value of this twist.
 	 * 
@@ -129,4 +138,19 @@ public class TwistStamped extends Message {
 						.getJsonObject(TwistStamped.FIELD_TWIST)) : new Twist();
 		return new TwistStamped(header, twist);
 	}
+
+	/**
+	 * Create a new TwistStamped based on its ROS binary serialization, e.g. as
+	 * received by a RawTopicCallback. The buffer must be in little endian
+	 * order and its position is moved past the message.
+	 * 
+	 * @param buffer
+	 *            The buffer to read from.
+	 * @return A TwistStamped message based on the given buffer.
+	 */
+	public static TwistStamped fromRosBinary(ByteBuffer buffer) {
+		Header header = Header.fromRosBinary(buffer);
+		Twist twist = Twist.fromRosBinary(buffer);
+		return new TwistStamped(header, twist);
+	}
 }
@@ -1,12 +1,13 @@
 package org.jrosbridge.springed.messages.geometry;
 
-import java.io.StringReader;
-import java.util.Arrays;
+import java.nio.ByteBuffer;
 
 import javax.json.Json;
 import javax.json.JsonArray;
 import javax.json.JsonObject;
 
+import org.jrosbridge.springed.codec.PrimitiveJsonArray;
+import org.jrosbridge.springed.codec.RosBinary;
 import org.jrosbridge.springed.messages.Message;
 
 /**
@@ -87,19 +88,7 @@ public class TwistWithCovariance extends Message {
 	 *            The covariance matrix as an array.
 	 */
 	public TwistWithCovariance(Twist twist, double[] covariance) {
-		// build the JSON object
-		super(
-				Json.createObjectBuilder()
-						.add(TwistWithCovariance.FIELD_TWIST,
-								twist.toJsonObject())
-						.add(TwistWithCovariance.FIELD_COVARIANCE,
-								Json.createReader(
-										new StringReader(
-												(covariance.length == TwistWithCovariance.COVARIANCE_SIZE) ? Arrays
-														.toString(covariance)
-														: Arrays.toString(new double[TwistWithCovariance.COVARIANCE_SIZE])))
-										.readArray()).build(),
-				TwistWithCovariance.TYPE);
+		this.setMessageType(TwistWithCovariance.TYPE);
 
 		this.twist = twist;
 		// create the arrays
@@ -119,6 +108,18 @@ public class TwistWithCovariance extends Message {
 		}
 	}
 
+	/**
+	 * Build the JSON object of this TwistWithCovariance from its fields.
+	 */
+	@Override
+	protected JsonObject buildJsonObject() {
+		return Json.createObjectBuilder()
+				.add(TwistWithCovariance.FIELD_TWIST,
+						this.twist.toJsonObject())
+				.add(TwistWithCovariance.FIELD_COVARIANCE,
+						PrimitiveJsonArray.ofFloat64(this.covariance)).build();
+	}
+
 	/**
 	 * Get the twist value of this twist.
 	 * 
@@ -200,7 +201,11 @@ public class TwistWithCovariance extends Message {
 		// check the array
 		JsonArray jsonArray = jsonObject
 				.getJsonArray(TwistWithCovariance.FIELD_COVARIANCE);
-		if (jsonArray != null) {
+		if (jsonArray instanceof PrimitiveJsonArray) {
+			// already decoded into a primitive array (e.g., from CBOR)
+			return new TwistWithCovariance(twist,
+					((PrimitiveJsonArray) jsonArray).toDoubleArray());
+		} else if (jsonArray != null) {
 			// convert each value
 			double[] twists = new double[jsonArray.size()];
 			for (int i = 0; i < twists.length; i++) {
@@ -212,4 +217,20 @@ public class TwistWithCovariance extends Message {
 					new double[TwistWithCovariance.COVARIANCE_SIZE]);
 		}
 	}
+
+	/**
+	 * Create a new TwistWithCovariance based on its ROS binary serialization, e.g. as
+	 * received by a RawTopicCallback. The buffer must be in little endian
+	 * order and its position is moved past the message.
+	 * 
+	 * @param buffer
+	 *            The buffer to read from.
+	 * @return A TwistWithCovariance message based on the given buffer.
+	 */
+	public static TwistWithCovariance fromRosBinary(ByteBuffer buffer) {
+		Twist twist = Twist.fromRosBinary(buffer);
+		double[] covariance = RosBinary.readFloat64Array(buffer,
+				TwistWithCovariance.COVARIANCE_SIZE);
+		return new TwistWithCovariance(twist, covariance);
+	}
 }
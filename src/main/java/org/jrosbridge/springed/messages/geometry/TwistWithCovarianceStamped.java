@@ -1,5 +1,7 @@
 package org.jrosbridge.springed.messages.geometry;
 
+import java.nio.ByteBuffer;
+
 import javax.json.Json;
 import javax.json.JsonObject;
 
@@ -49,18 +51,23 @@ public class TwistWithCovarianceStamped extends Message {
 	 *            The twist value of the twist.
 	 */
 	public TwistWithCovarianceStamped(Header header, TwistWithCovariance twist) {
-		// build the JSON object
-		super(Json
-				.createObjectBuilder()
-				.add(TwistWithCovarianceStamped.FIELD_HEADER,
-						header.toJsonObject())
-				.add(TwistWithCovarianceStamped.FIELD_TWIST,
-						twist.toJsonObject()).build(),
-				TwistWithCovarianceStamped.TYPE);
+		this.setMessageType(TwistWithCovarianceStamped.TYPE);
 		this.header = header;
 		this.twist = twist;
 	}
 
+	/**
+	 * Build the JSON object of this TwistWithCovarianceStamped from its fields.
+	 */
+	@Override
+	protected JsonObject buildJsonObject() {
+		return Json.createObjectBuilder()
+				.add(TwistWithCovarianceStamped.FIELD_HEADER,
+						this.header.toJsonObject())
+				.add(TwistWithCovarianceStamped.FIELD_TWIST,
+						this.twist.toJsonObject()).build();
+	}
+
 	/**
 	 * Get the header value of this twist.
 	 * 
@@ -138,4 +145,19 @@ public class TwistWithCovarianceStamped extends Message {
 				: new TwistWithCovariance();
 		return new TwistWithCovarianceStamped(header, twist);
 	}
+
+	/**
+	 * Create a new TwistWithCovarianceStamped based on its ROS binary serialization, e.g. as
+	 * received by a RawTopicCallback. The buffer must be in little endian
+	 * order and its position is moved past the message.
+	 * 
+	 * @param buffer
+	 *            The buffer to read from.
+	 * @return A TwistWithCovarianceStamped message based on the given buffer.
+	 */
+	public static TwistWithCovarianceStamped fromRosBinary(ByteBuffer buffer) {
+		Header header = Header.fromRosBinary(buffer);
+		TwistWithCovariance twist = TwistWithCovariance.fromRosBinary(buffer);
+		return new TwistWithCovarianceStamped(header, twist);
+	}
 }
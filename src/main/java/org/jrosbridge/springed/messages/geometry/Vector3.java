@@ -1,5 +1,7 @@
 package org.jrosbridge.springed.messages.geometry;
 
+import java.nio.ByteBuffer;
+
 import javax.json.Json;
 import javax.json.JsonObject;
 
@@ -53,15 +55,22 @@ public class Vector3 extends Message {
 	 *            The z value of the vector.
 	 */
 	public Vector3(double x, double y, double z) {
-		// build the JSON object
-		super(Json.createObjectBuilder().add(Vector3.FIELD_X, x)
-				.add(Vector3.FIELD_Y, y).add(Vector3.FIELD_Z, z).build(),
-				Vector3.TYPE);
+		this.setMessageType(Vector3.TYPE);
 		this.x = x;
 		this.y = y;
 		this.z = z;
 	}
 
+	/**
+	 * Build the JSON object of this Vector3 from its fields.
+	 */
+	@Override
+	protected JsonObject buildJsonObject() {
+		return Json.createObjectBuilder().add(Vector3.FIELD_X, this.x)
+				.add(Vector3.FIELD_Y, this.y).add(Vector3.FIELD_Z, this.z)
+				.build();
+	}
+
 	/**
 	 * Get the x value of this vector.
 	 * 
@@ -141,4 +150,20 @@ public class Vector3 extends Message {
 				.getJsonNumber(Vector3.FIELD_Z).doubleValue() : 0.0;
 		return new Vector3(x, y, z);
 	}
+
+	/**
+	 * Create a new Vector3 based on its ROS binary serialization, e.g. as
+	 * received by a RawTopicCallback. The buffer must be in little endian
+	 * order and its position is moved past the message.
+	 * 
+	 * @param buffer
+	 *            The buffer to read from.
+	 * @return A Vector3 message based on the given buffer.
+	 */
+	public static Vector3 fromRosBinary(ByteBuffer buffer) {
+		double x = buffer.getDouble();
+		double y = buffer.getDouble();
+		double z = buffer.getDouble();
+		return new Vector3(x, y, z);
+	}
 }
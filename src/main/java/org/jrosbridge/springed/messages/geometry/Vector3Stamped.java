@@ -1,5 +1,7 @@
 package org.jrosbridge.springed.messages.geometry;
 
+import java.nio.ByteBuffer;
+
 import javax.json.Json;
 import javax.json.JsonObject;
 
@@ -49,15 +51,22 @@ public class Vector3Stamped extends Message {
 	 *            The vector value of the vector.
 	 */
 	public Vector3Stamped(Header header, Vector3 vector) {
-		// build the JSON object
-		super(Json.createObjectBuilder()
-				.add(Vector3Stamped.FIELD_HEADER, header.toJsonObject())
-				.add(Vector3Stamped.FIELD_VECTOR, vector.toJsonObject())
-				.build(), Vector3Stamped.TYPE);
+		this.setMessageType(Vector3Stamped.TYPE);
 		this.header = header;
 		this.vector = vector;
 	}
 
+	/**
+	 * Build the JSON object of this Vector3Stamped from its fields.
+	 */
+	@Override
+	protected JsonObject buildJsonObject() {
+		return Json.createObjectBuilder()
+				.add(Vector3Stamped.FIELD_HEADER, this.header.toJsonObject())
+				.add(Vector3Stamped.FIELD_VECTOR, this.vector.toJsonObject())
+				.build();
+	}
+
 	/**
 	 * Get the header value of this vector.
 	 * 
@@ -130,4 +139,19 @@ public class Vector3Stamped extends Message {
 				: new Vector3();
 		return new Vector3Stamped(header, vector);
 	}
+
+	/**
+	 * Create a new Vector3Stamped based on its ROS binary serialization, e.g. as
+	 * received by a RawTopicCallback. The buffer must be in little endian
+	 * order and its position is moved past the message.
+	 * 
+	 * @param buffer
+	 *            The buffer to read from.
+	 * @return A Vector3Stamped message based on the given buffer.
+	 */
+	public static Vector3Stamped fromRosBinary(ByteBuffer buffer) {
+		Header header = Header.fromRosBinary(buffer);
+		Vector3 vector = Vector3.fromRosBinary(buffer);
+		return new Vector3Stamped(header, vector);
+	}
 }
@@ -1,5 +1,7 @@
 package org.jrosbridge.springed.messages.geometry;
 
+import java.nio.ByteBuffer;
+
 import javax.json.Json;
 import javax.json.JsonObject;
 
@@ -48,15 +50,21 @@ public class Wrench extends Message {
 	 *            The torque value of the wrench.
 	 */
 	public Wrench(Vector3 force, Vector3 torque) {
-		// build the JSON object
-		super(Json.createObjectBuilder()
-				.add(Wrench.FIELD_FORCE, force.toJsonObject())
-				.add(Wrench.FIELD_TORQUE, torque.toJsonObject()).build(),
-				Wrench.TYPE);
+		this.setMessageType(Wrench.TYPE);
 		this.force = force;
 		this.torque = torque;
 	}
 
+	/**
+	 * Build the JSON object of this Wrench from its fields.
+	 */
+	@Override
+	protected JsonObject buildJsonObject() {
+		return Json.createObjectBuilder()
+				.add(Wrench.FIELD_FORCE, this.force.toJsonObject())
+				.add(Wrench.FIELD_TORQUE, this.torque.toJsonObject()).build();
+	}
+
 	/**
 	 * Get the force value of this wrench.
 	 * 
@@ -127,4 +135,19 @@ public class Wrench extends Message {
 				: new Vector3();
 		return new Wrench(force, torque);
 	}
+
+	/**
+	 * Create a new Wrench based on its ROS binary serialization, e.g. as
+	 * received by a RawTopicCallback. The buffer must be in little endian
+	 * order and its position is moved past the message.
+	 * 
+	 * @param buffer
+	 *            The buffer to read from.
+	 * @return A Wrench message based on the given buffer.
+	 */
+	public static Wrench fromRosBinary(ByteBuffer buffer) {
+		Vector3 force = Vector3.fromRosBinary(buffer);
+		Vector3 torque = Vector3.fromRosBinary(buffer);
+		return new Wrench(force, torque);
+	}
 }
@@ -1,5 +1,7 @@
 package org.jrosbridge.springed.messages.geometry;
 
+import java.nio.ByteBuffer;
+
 import javax.json.Json;
 import javax.json.JsonObject;
 
@@ -49,16 +51,22 @@ public class WrenchStamped extends Message {
 	 *            The wrench value of the wrench.
 	 */
 	public WrenchStamped(Header header, Wrench wrench) {
-		// build the JSON object
-		super(
-				Json.createObjectBuilder()
-						.add(WrenchStamped.FIELD_HEADER, header.toJsonObject())
-						.add(WrenchStamped.FIELD_WRENCH, wrench.toJsonObject())
-						.build(), WrenchStamped.TYPE);
+		this.setMessageType(WrenchStamped.TYPE);
 		this.header = header;
 		this.wrench = wrench;
 	}
 
+	/**
+	 * Build the JSON object of this WrenchStamped from its fields.
+	 */
+	@Override
+	protected JsonObject buildJsonObject() {
+		return Json.createObjectBuilder()
+				.add(WrenchStamped.FIELD_HEADER, this.header.toJsonObject())
+				.add(WrenchStamped.FIELD_WRENCH, this.wrench.toJsonObject())
+				.build();
+	}
+
 	/**
 	 * Get the header value of this wrench.
 	 * 
@@ -131,4 +139,19 @@ public class WrenchStamped extends Message {
 				: new Wrench();
 		return new WrenchStamped(header, wrench);
 	}
+
+	/**
+	 * Create a new WrenchStamped based on its ROS binary serialization, e.g. as
+	 * received by a RawTopicCallback. The buffer must be in little endian
+	 * order and its position is moved past the message.
+	 * 
+	 * @param buffer
+	 *            The buffer to read from.
+	 * @return A WrenchStamped message based on the given buffer.
+	 */
+	public static WrenchStamped fromRosBinary(ByteBuffer buffer) {
+		Header header = Header.fromRosBinary(buffer);
+		Wrench wrench = Wrench.fromRosBinary(buffer);
+		return new WrenchStamped(header, wrench);
+	}
 }
@@ -0,0 +1,33 @@
+package org.jrosbridge.springed.messages.std;
+
+import java.util.Base64;
+
+import javax.json.JsonException;
+import javax.json.JsonString;
+
+/**
+ * Base64Data decodes the data of byte array messages, which rosbridge sends
+ * Base64 encoded instead of as an array of integers.
+ */
+final class Base64Data {
+
+	private Base64Data() {
+	}
+
+	/**
+	 * Decode the Base64 form of a byte array.
+	 * 
+	 * @param value
+	 *            The Base64 encoded bytes.
+	 * @return The decoded bytes.
+	 * @throws JsonException
+	 *             If the value is not valid Base64.
+	 */
+	static byte[] decode(JsonString value) {
+		try {
+			return Base64.getDecoder().decode(value.getString());
+		} catch (IllegalArgumentException e) {
+			throw new JsonException("Invalid Base64 in byte array.", e);
+		}
+	}
+}
@@ -39,12 +39,19 @@ public class Bool extends Message {
 	 *            The data value of the boolean.
 	 */
 	public Bool(boolean data) {
-		// build the JSON object
-		super(Json.createObjectBuilder().add(Bool.FIELD_DATA, data).build(),
-				Bool.TYPE);
+		this.setMessageType(Bool.TYPE);
 		this.data = data;
 	}
 
+	/**
+	 * Build the JSON object of this Bool from its fields.
+	 */
+	@Override
+	protected JsonObject buildJsonObject() {
+		return Json.createObjectBuilder().add(Bool.FIELD_DATA, this.data)
+				.build();
+	}
+
 	/**
 	 * Get the data value of this boolean.
 	 * 
@@ -39,12 +39,19 @@ public class Byte extends Message {
 	 *            The data value of the byte.
 	 */
 	public Byte(byte data) {
-		// build the JSON object
-		super(Json.createObjectBuilder().add(Byte.FIELD_DATA, data).build(),
-				Byte.TYPE);
+		this.setMessageType(Byte.TYPE);
 		this.data = data;
 	}
 
+	/**
+	 * Build the JSON object of this Byte from its fields.
+	 */
+	@Override
+	protected JsonObject buildJsonObject() {
+		return Json.createObjectBuilder().add(Byte.FIELD_DATA, this.data)
+				.build();
+	}
+
 	/**
 	 * Get the data value of this byte.
 	 * 
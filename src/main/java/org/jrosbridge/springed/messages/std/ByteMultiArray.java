@@ -1,12 +1,12 @@
 package org.jrosbridge.springed.messages.std;
 
-import java.io.StringReader;
-import java.util.Arrays;
-
 import javax.json.Json;
 import javax.json.JsonArray;
 import javax.json.JsonObject;
+import javax.json.JsonString;
+import javax.json.JsonValue;
 
+import org.jrosbridge.springed.codec.PrimitiveJsonArray;
 import org.jrosbridge.springed.messages.Message;
 
 /**
@@ -53,20 +53,25 @@ public class ByteMultiArray extends Message {
 	 *            The array of data.
 	 */
 	public ByteMultiArray(MultiArrayLayout layout, byte[] data) {
-		// build the JSON object
-		super(Json
-				.createObjectBuilder()
-				.add(ByteMultiArray.FIELD_LAYOUT, layout.toJsonObject())
-				.add(ByteMultiArray.FIELD_DATA,
-						Json.createReader(
-								new StringReader(Arrays.toString(data)))
-								.readArray()).build(), ByteMultiArray.TYPE);
+		this.setMessageType(ByteMultiArray.TYPE);
 		this.layout = layout;
 		// copy the array
 		this.data = new byte[data.length];
 		System.arraycopy(data, 0, this.data, 0, data.length);
 	}
 
+	/**
+	 * Build the JSON object of this ByteMultiArray from its fields. The data is
+	 * an array of integers, as rosbridge only Base64 encodes uint8[] data.
+	 */
+	@Override
+	protected JsonObject buildJsonObject() {
+		return Json.createObjectBuilder()
+				.add(ByteMultiArray.FIELD_LAYOUT, this.layout.toJsonObject())
+				.add(ByteMultiArray.FIELD_DATA,
+						PrimitiveJsonArray.ofInt8(this.data)).build();
+	}
+
 	/**
 	 * Get the layout value of this ByteMultiArray.
 	 * 
@@ -158,8 +163,16 @@ public class ByteMultiArray extends Message {
 
 		// check the array
 		byte[] data = new byte[] {};
-		JsonArray jsonData = jsonObject.getJsonArray(ByteMultiArray.FIELD_DATA);
-		if (jsonData != null) {
+		JsonValue value = jsonObject.get(ByteMultiArray.FIELD_DATA);
+		JsonArray jsonData = value instanceof JsonArray ? (JsonArray) value
+				: null;
+		if (value instanceof JsonString) {
+			// also accept the Base64 form, as sent for uint8[] data
+			data = Base64Data.decode((JsonString) value);
+		} else if (jsonData instanceof PrimitiveJsonArray) {
+			// already decoded into a primitive array (e.g., from CBOR)
+			data = ((PrimitiveJsonArray) jsonData).toByteArray();
+		} else if (jsonData != null) {
 			// convert each data
 			data = new byte[jsonData.size()];
 			for (int i = 0; i < data.length; i++) {
@@ -41,13 +41,19 @@ public class Char extends Message {
 	 *            The data value of the char.
 	 */
 	public Char(byte data) {
-		// build the JSON object
-		super(Json.createObjectBuilder()
-				.add(Char.FIELD_DATA, Primitive.fromUInt8(data)).build(),
-				Char.TYPE);
+		this.setMessageType(Char.TYPE);
 		this.data = data;
 	}
 
+	/**
+	 * Build the JSON object of this Char from its fields.
+	 */
+	@Override
+	protected JsonObject buildJsonObject() {
+		return Json.createObjectBuilder()
+				.add(Char.FIELD_DATA, Primitive.fromUInt8(this.data)).build();
+	}
+
 	/**
 	 * Get the data value of this char.
 	 * 
@@ -76,16 +76,23 @@ public class ColorRGBA extends Message {
 	 *            The a value of the color.
 	 */
 	public ColorRGBA(float r, float g, float b, float a) {
-		// build the JSON object
-		super(Json.createObjectBuilder().add(ColorRGBA.FIELD_R, r)
-				.add(ColorRGBA.FIELD_G, g).add(ColorRGBA.FIELD_B, b)
-				.add(ColorRGBA.FIELD_A, a).build(), ColorRGBA.TYPE);
+		this.setMessageType(ColorRGBA.TYPE);
 		this.r = r;
 		this.g = g;
 		this.b = b;
 		this.a = a;
 	}
 
+	/**
+	 * Build the JSON object of this ColorRGBA from its fields.
+	 */
+	@Override
+	protected JsonObject buildJsonObject() {
+		return Json.createObjectBuilder().add(ColorRGBA.FIELD_R, this.r)
+				.add(ColorRGBA.FIELD_G, this.g).add(ColorRGBA.FIELD_B, this.b)
+				.add(ColorRGBA.FIELD_A, this.a).build();
+	}
+
 	/**
 	 * Get the r value of this color.
 	 * 
@@ -39,13 +39,19 @@ public class Duration extends Message {
 	 *            The data value of this duration.
 	 */
 	public Duration(org.jrosbridge.springed.primitives.Duration data) {
-		// build the JSON object
-		super(Json.createObjectBuilder()
-				.add(Duration.FIELD_DATA, data.toJsonObject()).build(),
-				Duration.TYPE);
+		this.setMessageType(Duration.TYPE);
 		this.data = data;
 	}
 
+	/**
+	 * Build the JSON object of this Duration from its fields.
+	 */
+	@Override
+	protected JsonObject buildJsonObject() {
+		return Json.createObjectBuilder()
+				.add(Duration.FIELD_DATA, this.data.toJsonObject()).build();
+	}
+
 	/**
 	 * Get the data value of this Duration.
 	 * 
@@ -21,7 +21,7 @@ public class Empty extends Message {
 	 * Create a new Empty message.
 	 */
 	public Empty() {
-		super(Message.EMPTY_MESSAGE, Empty.TYPE);
+		this.setMessageType(Empty.TYPE);
 	}
 
 	/**
@@ -39,12 +39,19 @@ public class Float32 extends Message {
 	 *            The data value of the float.
 	 */
 	public Float32(float data) {
-		// build the JSON object
-		super(Json.createObjectBuilder().add(Float32.FIELD_DATA, data).build(),
-				Float32.TYPE);
+		this.setMessageType(Float32.TYPE);
 		this.data = data;
 	}
 
+	/**
+	 * Build the JSON object of this Float32 from its fields.
+	 */
+	@Override
+	protected JsonObject buildJsonObject() {
+		return Json.createObjectBuilder().add(Float32.FIELD_DATA, this.data)
+				.build();
+	}
+
 	/**
 	 * Get the data value of this float.
 	 * 
@@ -1,12 +1,10 @@
 package org.jrosbridge.springed.messages.std;
 
-import java.io.StringReader;
-import java.util.Arrays;
-
 import javax.json.Json;
 import javax.json.JsonArray;
 import javax.json.JsonObject;
 
+import org.jrosbridge.springed.codec.PrimitiveJsonArray;
 import org.jrosbridge.springed.messages.Message;
 
 /**
@@ -53,20 +51,24 @@ public class Float32MultiArray extends Message {
 	 *            The array of data.
 	 */
 	public Float32MultiArray(MultiArrayLayout layout, float[] data) {
-		// build the JSON object
-		super(Json
-				.createObjectBuilder()
-				.add(Float32MultiArray.FIELD_LAYOUT, layout.toJsonObject())
-				.add(Float32MultiArray.FIELD_DATA,
-						Json.createReader(
-								new StringReader(Arrays.toString(data)))
-								.readArray()).build(), Float32MultiArray.TYPE);
+		this.setMessageType(Float32MultiArray.TYPE);
 		this.layout = layout;
 		// copy the array
 		this.data = new float[data.length];
 		System.arraycopy(data, 0, this.data, 0, data.length);
 	}
 
+	/**
+	 * Build the JSON object of this Float32MultiArray from its fields.
+	 */
+	@Override
+	protected JsonObject buildJsonObject() {
+		return Json.createObjectBuilder()
+				.add(Float32MultiArray.FIELD_LAYOUT, this.layout.toJsonObject())
+				.add(Float32MultiArray.FIELD_DATA,
+						PrimitiveJsonArray.ofFloat32(this.data)).build();
+	}
+
 	/**
 	 * Get the layout value of this Float32MultiArray.
 	 * 
@@ -160,7 +162,10 @@ public class Float32MultiArray extends Message {
 		float[] data = new float[] {};
 		JsonArray jsonData = jsonObject
 				.getJsonArray(Float32MultiArray.FIELD_DATA);
-		if (jsonData != null) {
+		if (jsonData instanceof PrimitiveJsonArray) {
+			// already decoded into a primitive array (e.g., from CBOR)
+			data = ((PrimitiveJsonArray) jsonData).toFloatArray();
+		} else if (jsonData != null) {
 			// convert each data
 			data = new float[jsonData.size()];
 			for (int i = 0; i < data.length; i++) {
@@ -39,12 +39,19 @@ public class Float64 extends Message {
 	 *            The data value of the double.
 	 */
 	public Float64(double data) {
-		// build the JSON object
-		super(Json.createObjectBuilder().add(Float64.FIELD_DATA, data).build(),
-				Float64.TYPE);
+		this.setMessageType(Float64.TYPE);
 		this.data = data;
 	}
 
+	/**
+	 * Build the JSON object of this Float64 from its fields.
+	 */
+	@Override
+	protected JsonObject buildJsonObject() {
+		return Json.createObjectBuilder().add(Float64.FIELD_DATA, this.data)
+				.build();
+	}
+
 	/**
 	 * Get the data value of this double.
 	 * 
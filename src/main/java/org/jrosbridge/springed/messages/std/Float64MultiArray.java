@@ -1,12 +1,10 @@
 package org.jrosbridge.springed.messages.std;
 
-import java.io.StringReader;
-import java.util.Arrays;
-
 import javax.json.Json;
 import javax.json.JsonArray;
 import javax.json.JsonObject;
 
+import org.jrosbridge.springed.codec.PrimitiveJsonArray;
 import org.jrosbridge.springed.messages.Message;
 
 /**
@@ -53,20 +51,24 @@ public class Float64MultiArray extends Message {
 	 *            The array of data.
 	 */
 	public Float64MultiArray(MultiArrayLayout layout, double[] data) {
-		// build the JSON object
-		super(Json
-				.createObjectBuilder()
-				.add(Float64MultiArray.FIELD_LAYOUT, layout.toJsonObject())
-				.add(Float64MultiArray.FIELD_DATA,
-						Json.createReader(
-								new StringReader(Arrays.toString(data)))
-								.readArray()).build(), Float64MultiArray.TYPE);
+		this.setMessageType(Float64MultiArray.TYPE);
 		this.layout = layout;
 		// copy the array
 		this.data = new double[data.length];
 		System.arraycopy(data, 0, this.data, 0, data.length);
 	}
 
+	/**
+	 * Build the JSON object of this Float64MultiArray from its fields.
+	 */
+	@Override
+	protected JsonObject buildJsonObject() {
+		return Json.createObjectBuilder()
+				.add(Float64MultiArray.FIELD_LAYOUT, this.layout.toJsonObject())
+				.add(Float64MultiArray.FIELD_DATA,
+						PrimitiveJsonArray.ofFloat64(this.data)).build();
+	}
+
 	/**
 	 * Get the layout value of this Float64MultiArray.
 	 * 
@@ -160,7 +162,10 @@ public class Float64MultiArray extends Message {
 		double[] data = new double[] {};
 		JsonArray jsonData = jsonObject
 				.getJsonArray(Float64MultiArray.FIELD_DATA);
-		if (jsonData != null) {
+		if (jsonData instanceof PrimitiveJsonArray) {
+			// already decoded into a primitive array (e.g., from CBOR)
+			data = ((PrimitiveJsonArray) jsonData).toDoubleArray();
+		} else if (jsonData != null) {
 			// convert each data
 			data = new double[jsonData.size()];
 			for (int i = 0; i < data.length; i++) {
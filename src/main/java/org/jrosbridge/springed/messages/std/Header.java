@@ -1,8 +1,11 @@
 package org.jrosbridge.springed.messages.std;
 
+import java.nio.ByteBuffer;
+
 import javax.json.Json;
 import javax.json.JsonObject;
 
+import org.jrosbridge.springed.codec.RosBinary;
 import org.jrosbridge.springed.messages.Message;
 import org.jrosbridge.springed.primitives.Primitive;
 import org.jrosbridge.springed.primitives.Time;
@@ -60,16 +63,23 @@ public class Header extends Message {
 	 */
 	public Header(int seq, Time stamp,
 			java.lang.String frameID) {
-		// build the JSON object
-		super(Json.createObjectBuilder()
-				.add(Header.FIELD_SEQ, Primitive.fromUInt32(seq))
-				.add(Header.FIELD_STAMP, stamp.toJsonObject())
-				.add(Header.FIELD_FRAME_ID, frameID).build(), Header.TYPE);
+		this.setMessageType(Header.TYPE);
 		this.seq = seq;
 		this.stamp = stamp;
 		this.frameID = frameID;
 	}
 
+	/**
+	 * Build the JSON object of this Header from its fields.
+	 */
+	@Override
+	protected JsonObject buildJsonObject() {
+		return Json.createObjectBuilder()
+				.add(Header.FIELD_SEQ, Primitive.fromUInt32(this.seq))
+				.add(Header.FIELD_STAMP, this.stamp.toJsonObject())
+				.add(Header.FIELD_FRAME_ID, this.frameID).build();
+	}
+
 	/**
 	 * Get the sequence value of this header which should be treated as an
 	 * unsigned 32-bit integer.
@@ -157,4 +167,20 @@ public class Header extends Message {
 		int seq32 = Primitive.toUInt32(seq64);
 		return new Header(seq32, stamp, frameID);
 	}
+
+	/**
+	 * Create a new Header based on its ROS binary serialization, e.g. as
+	 * received by a RawTopicCallback. The buffer must be in little endian
+	 * order and its position is moved past the message.
+	 * 
+	 * @param buffer
+	 *            The buffer to read from.
+	 * @return A Header message based on the given buffer.
+	 */
+	public static Header fromRosBinary(ByteBuffer buffer) {
+		int seq = buffer.getInt();
+		Time stamp = RosBinary.readTime(buffer);
+		java.lang.String frameID = RosBinary.readString(buffer);
+		return new Header(seq, stamp, frameID);
+	}
 }
@@ -39,12 +39,19 @@ public class Int16 extends Message {
 	 *            The data value of the short.
 	 */
 	public Int16(short data) {
-		// build the JSON object
-		super(Json.createObjectBuilder().add(Int16.FIELD_DATA, data).build(),
-				Int16.TYPE);
+		this.setMessageType(Int16.TYPE);
 		this.data = data;
 	}
 
+	/**
+	 * Build the JSON object of this Int16 from its fields.
+	 */
+	@Override
+	protected JsonObject buildJsonObject() {
+		return Json.createObjectBuilder().add(Int16.FIELD_DATA, this.data)
+				.build();
+	}
+
 	/**
 	 * Get the data value of this short.
 	 * 
@@ -39,12 +39,19 @@ public class Int32 extends Message {
 	 *            The data value of the int.
 	 */
 	public Int32(int data) {
-		// build the JSON object
-		super(Json.createObjectBuilder().add(Int32.FIELD_DATA, data).build(),
-				Int32.TYPE);
+		this.setMessageType(Int32.TYPE);
 		this.data = data;
 	}
 
+	/**
+	 * Build the JSON object of this Int32 from its fields.
+	 */
+	@Override
+	protected JsonObject buildJsonObject() {
+		return Json.createObjectBuilder().add(Int32.FIELD_DATA, this.data)
+				.build();
+	}
+
 	/**
 	 * Get the data value of this int.
 	 * 
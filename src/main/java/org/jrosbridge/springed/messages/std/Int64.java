@@ -39,12 +39,19 @@ public class Int64 extends Message {
 	 *            The data value of the long.
 	 */
 	public Int64(long data) {
-		// build the JSON object
-		super(Json.createObjectBuilder().add(Int64.FIELD_DATA, data).build(),
-				Int64.TYPE);
+		this.setMessageType(Int64.TYPE);
 		this.data = data;
 	}
 
+	/**
+	 * Build the JSON object of this Int64 from its fields.
+	 */
+	@Override
+	protected JsonObject buildJsonObject() {
+		return Json.createObjectBuilder().add(Int64.FIELD_DATA, this.data)
+				.build();
+	}
+
 	/**
 	 * Get the data value of this long.
 	 * 
@@ -1,12 +1,10 @@
 package org.jrosbridge.springed.messages.std;
 
-import java.io.StringReader;
-import java.util.Arrays;
-
 import javax.json.Json;
 import javax.json.JsonArray;
 import javax.json.JsonObject;
 
+import org.jrosbridge.springed.codec.PrimitiveJsonArray;
 import org.jrosbridge.springed.messages.Message;
 
 /**
@@ -53,20 +51,24 @@ public class Int64MultiArray extends Message {
 	 *            The array of data.
 	 */
 	public Int64MultiArray(MultiArrayLayout layout, long[] data) {
-		// build the JSON object
-		super(Json
-				.createObjectBuilder()
-				.add(Int64MultiArray.FIELD_LAYOUT, layout.toJsonObject())
-				.add(Int64MultiArray.FIELD_DATA,
-						Json.createReader(
-								new StringReader(Arrays.toString(data)))
-								.readArray()).build(), Int64MultiArray.TYPE);
+		this.setMessageType(Int64MultiArray.TYPE);
 		this.layout = layout;
 		// copy the array
 		this.data = new long[data.length];
 		System.arraycopy(data, 0, this.data, 0, data.length);
 	}
 
+	/**
+	 * Build the JSON object of this Int64MultiArray from its fields.
+	 */
+	@Override
+	protected JsonObject buildJsonObject() {
+		return Json.createObjectBuilder()
+				.add(Int64MultiArray.FIELD_LAYOUT, this.layout.toJsonObject())
+				.add(Int64MultiArray.FIELD_DATA,
+						PrimitiveJsonArray.ofInt64(this.data)).build();
+	}
+
 	/**
 	 * Get the layout value of this Int64MultiArray.
 	 * 
@@ -160,7 +162,10 @@ public class Int64MultiArray extends Message {
 		long[] data = new long[] {};
 		JsonArray jsonData = jsonObject
 				.getJsonArray(Int64MultiArray.FIELD_DATA);
-		if (jsonData != null) {
+		if (jsonData instanceof PrimitiveJsonArray) {
+			// already decoded into a primitive array (e.g., from CBOR)
+			data = ((PrimitiveJsonArray) jsonData).toLongArray();
+		} else if (jsonData != null) {
 			// convert each data
 			data = new long[jsonData.size()];
 			for (int i = 0; i < data.length; i++) {
@@ -39,12 +39,19 @@ public class Int8 extends Message {
 	 *            The data value of the byte.
 	 */
 	public Int8(byte data) {
-		// build the JSON object
-		super(Json.createObjectBuilder().add(Int8.FIELD_DATA, data).build(),
-				Int8.TYPE);
+		this.setMessageType(Int8.TYPE);
 		this.data = data;
 	}
 
+	/**
+	 * Build the JSON object of this Int8 from its fields.
+	 */
+	@Override
+	protected JsonObject buildJsonObject() {
+		return Json.createObjectBuilder().add(Int8.FIELD_DATA, this.data)
+				.build();
+	}
+
 	/**
 	 * Get the data value of this byte.
 	 * 
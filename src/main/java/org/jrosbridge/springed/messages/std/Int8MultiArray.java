@@ -1,12 +1,10 @@
 package org.jrosbridge.springed.messages.std;
 
-import java.io.StringReader;
-import java.util.Arrays;
-
 import javax.json.Json;
 import javax.json.JsonArray;
 import javax.json.JsonObject;
 
+import org.jrosbridge.springed.codec.PrimitiveJsonArray;
 import org.jrosbridge.springed.messages.Message;
 
 /**
@@ -53,20 +51,24 @@ public class Int8MultiArray extends Message {
 	 *            The array of data.
 	 */
 	public Int8MultiArray(MultiArrayLayout layout, byte[] data) {
-		// build the JSON object
-		super(Json
-				.createObjectBuilder()
-				.add(Int8MultiArray.FIELD_LAYOUT, layout.toJsonObject())
-				.add(Int8MultiArray.FIELD_DATA,
-						Json.createReader(
-								new StringReader(Arrays.toString(data)))
-								.readArray()).build(), Int8MultiArray.TYPE);
+		this.setMessageType(Int8MultiArray.TYPE);
 		this.layout = layout;
 		// copy the array
 		this.data = new byte[data.length];
 		System.arraycopy(data, 0, this.data, 0, data.length);
 	}
 
+	/**
+	 * Build the JSON object of this Int8MultiArray from its fields.
+	 */
+	@Override
+	protected JsonObject buildJsonObject() {
+		return Json.createObjectBuilder()
+				.add(Int8MultiArray.FIELD_LAYOUT, this.layout.toJsonObject())
+				.add(Int8MultiArray.FIELD_DATA,
+						PrimitiveJsonArray.ofInt8(this.data)).build();
+	}
+
 	/**
 	 * Get the layout value of this Int8MultiArray.
 	 * 
@@ -159,7 +161,10 @@ public class Int8MultiArray extends Message {
 		// check the array
 		byte[] data = new byte[] {};
 		JsonArray jsonData = jsonObject.getJsonArray(Int8MultiArray.FIELD_DATA);
-		if (jsonData != null) {
+		if (jsonData instanceof PrimitiveJsonArray) {
+			// already decoded into a primitive array (e.g., from CBOR)
+			data = ((PrimitiveJsonArray) jsonData).toByteArray();
+		} else if (jsonData != null) {
 			// convert each data
 			data = new byte[jsonData.size()];
 			for (int i = 0; i < data.length; i++) {
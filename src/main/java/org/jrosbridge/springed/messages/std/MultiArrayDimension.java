@@ -57,20 +57,25 @@ public class MultiArrayDimension extends Message {
 	 *            integer.
 	 */
 	public MultiArrayDimension(java.lang.String label, int size, int stride) {
-		// build the JSON object
-		super(
-				Json.createObjectBuilder()
-						.add(MultiArrayDimension.FIELD_LABEL, label)
-						.add(MultiArrayDimension.FIELD_SIZE,
-								Primitive.fromUInt32(size))
-						.add(MultiArrayDimension.FIELD_STRIDE,
-								Primitive.fromUInt32(stride)).build(),
-				MultiArrayDimension.TYPE);
+		this.setMessageType(MultiArrayDimension.TYPE);
 		this.label = label;
 		this.size = size;
 		this.stride = stride;
 	}
 
+	/**
+	 * Build the JSON object of this MultiArrayDimension from its fields.
+	 */
+	@Override
+	protected JsonObject buildJsonObject() {
+		return Json.createObjectBuilder()
+				.add(MultiArrayDimension.FIELD_LABEL, this.label)
+				.add(MultiArrayDimension.FIELD_SIZE,
+						Primitive.fromUInt32(this.size))
+				.add(MultiArrayDimension.FIELD_STRIDE,
+						Primitive.fromUInt32(this.stride)).build();
+	}
+
 	/**
 	 * Get the label value of this message.
 	 * 
@@ -1,8 +1,5 @@
 package org.jrosbridge.springed.messages.std;
 
-import java.io.StringReader;
-import java.util.Arrays;
-
 import javax.json.Json;
 import javax.json.JsonArray;
 import javax.json.JsonObject;
@@ -85,16 +82,7 @@ public class MultiArrayLayout extends Message {
 	 *            The padding bytes at front of the data.
 	 */
 	public MultiArrayLayout(MultiArrayDimension[] dim, int dataOffset) {
-		// build the JSON object
-		super(Json
-				.createObjectBuilder()
-				.add(MultiArrayLayout.FIELD_DIM,
-						Json.createReader(
-								new StringReader(Arrays.deepToString(dim)))
-								.readArray())
-				.add(MultiArrayLayout.FIELD_DATA_OFFSET,
-						Primitive.fromUInt32(dataOffset)).build(),
-				MultiArrayLayout.TYPE);
+		this.setMessageType(MultiArrayLayout.TYPE);
 
 		// copy the array
 		this.dim = new MultiArrayDimension[dim.length];
@@ -102,6 +90,18 @@ public class MultiArrayLayout extends Message {
 		this.dataOffset = dataOffset;
 	}
 
+	/**
+	 * Build the JSON object of this MultiArrayLayout from its fields.
+	 */
+	@Override
+	protected JsonObject buildJsonObject() {
+		return Json.createObjectBuilder()
+				.add(MultiArrayLayout.FIELD_DIM,
+						Message.toJsonArray(this.dim))
+				.add(MultiArrayLayout.FIELD_DATA_OFFSET,
+						Primitive.fromUInt32(this.dataOffset)).build();
+	}
+
 	/**
 	 * Get the number of dimension properties in this array layout.
 	 * 
@@ -39,12 +39,19 @@ public class String extends Message {
 	 *            The data value of the String.
 	 */
 	public String(java.lang.String data) {
-		// build the JSON object
-		super(Json.createObjectBuilder().add(String.FIELD_DATA, data).build(),
-				String.TYPE);
+		this.setMessageType(String.TYPE);
 		this.data = data;
 	}
 
+	/**
+	 * Build the JSON object of this String from its fields.
+	 */
+	@Override
+	protected JsonObject buildJsonObject() {
+		return Json.createObjectBuilder().add(String.FIELD_DATA, this.data)
+				.build();
+	}
+
 	/**
 	 * Get the data value of this String.
 	 * 
@@ -39,12 +39,19 @@ public class Time extends Message {
 	 *            The data value of this time.
 	 */
 	public Time(org.jrosbridge.springed.primitives.Time data) {
-		// build the JSON object
-		super(Json.createObjectBuilder()
-				.add(Time.FIELD_DATA, data.toJsonObject()).build(), Time.TYPE);
+		this.setMessageType(Time.TYPE);
 		this.data = data;
 	}
 
+	/**
+	 * Build the JSON object of this Time from its fields.
+	 */
+	@Override
+	protected JsonObject buildJsonObject() {
+		return Json.createObjectBuilder()
+				.add(Time.FIELD_DATA, this.data.toJsonObject()).build();
+	}
+
 	/**
 	 * Get the data value of this Time.
 	 * 
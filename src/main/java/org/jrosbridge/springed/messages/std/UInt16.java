@@ -41,13 +41,20 @@ public class UInt16 extends Message {
 	 *            The data value of the short.
 	 */
 	public UInt16(short data) {
-		// build the JSON object
-		super(Json.createObjectBuilder()
-				.add(UInt16.FIELD_DATA, Primitive.fromUInt16(data)).build(),
-				UInt16.TYPE);
+		this.setMessageType(UInt16.TYPE);
 		this.data = data;
 	}
 
+	/**
+	 * Build the JSON object of this UInt16 from its fields.
+	 */
+	@Override
+	protected JsonObject buildJsonObject() {
+		return Json.createObjectBuilder()
+				.add(UInt16.FIELD_DATA, Primitive.fromUInt16(this.data))
+				.build();
+	}
+
 	/**
 	 * Get the data value of this short.
 	 * 
@@ -41,13 +41,20 @@ public class UInt32 extends Message {
 	 *            The data value of the int.
 	 */
 	public UInt32(int data) {
-		// build the JSON object
-		super(Json.createObjectBuilder()
-				.add(UInt32.FIELD_DATA, Primitive.fromUInt32(data)).build(),
-				UInt32.TYPE);
+		this.setMessageType(UInt32.TYPE);
 		this.data = data;
 	}
 
+	/**
+	 * Build the JSON object of this UInt32 from its fields.
+	 */
+	@Override
+	protected JsonObject buildJsonObject() {
+		return Json.createObjectBuilder()
+				.add(UInt32.FIELD_DATA, Primitive.fromUInt32(this.data))
+				.build();
+	}
+
 	/**
 	 * Get the data value of this int.
 	 * 
@@ -1,12 +1,10 @@
 package org.jrosbridge.springed.messages.std;
 
-import java.io.StringReader;
-import java.util.Arrays;
-
 import javax.json.Json;
 import javax.json.JsonArray;
 import javax.json.JsonObject;
 
+import org.jrosbridge.springed.codec.PrimitiveJsonArray;
 import org.jrosbridge.springed.messages.Message;
 import org.jrosbridge.springed.primitives.Primitive;
 
@@ -55,15 +53,7 @@ public class UInt32MultiArray extends Message {
 	 *            The array of data.
 	 */
 	public UInt32MultiArray(MultiArrayLayout layout, int[] data) {
-		// build the JSON object
-		super(Json
-				.createObjectBuilder()
-				.add(UInt32MultiArray.FIELD_LAYOUT, layout.toJsonObject())
-				.add(UInt32MultiArray.FIELD_DATA,
-						Json.createReader(
-								new StringReader(Arrays.toString(Primitive
-										.fromUInt32(data)))).readArray())
-				.build(), UInt32MultiArray.TYPE);
+		this.setMessageType(UInt32MultiArray.TYPE);
 
 		this.layout = layout;
 		// copy the array
@@ -71,6 +61,18 @@ public class UInt32MultiArray extends Message {
 		System.arraycopy(data, 0, this.data, 0, data.length);
 	}
 
+	/**
+	 * Build the JSON object of this UInt32MultiArray from its fields.
+	 */
+	@Override
+	protected JsonObject buildJsonObject() {
+		return Json.createObjectBuilder()
+				.add(UInt32MultiArray.FIELD_LAYOUT, this.layout.toJsonObject())
+				.add(UInt32MultiArray.FIELD_DATA,
+						PrimitiveJsonArray.ofUInt32(this.data))
+				.build();
+	}
+
 	/**
 	 * Get the layout value of this UInt32MultiArray.
 	 * 
@@ -164,7 +166,10 @@ public class UInt32MultiArray extends Message {
 		int[] data = new int[] {};
 		JsonArray jsonData = jsonObject
 				.getJsonArray(UInt32MultiArray.FIELD_DATA);
-		if (jsonData != null) {
+		if (jsonData instanceof PrimitiveJsonArray) {
+			// already decoded into a primitive array (e.g., from CBOR)
+			data = ((PrimitiveJsonArray) jsonData).toIntArray();
+		} else if (jsonData != null) {
 			// convert each data
 			data = new int[jsonData.size()];
 			for (int i = 0; i < data.length; i++) {
@@ -41,13 +41,20 @@ public class UInt64 extends Message {
 	 *            The data value of the long.
 	 */
 	public UInt64(long data) {
-		// build the JSON object
-		super(Json.createObjectBuilder()
-				.add(UInt64.FIELD_DATA, Primitive.fromUInt64(data)).build(),
-				UInt64.TYPE);
+		this.setMessageType(UInt64.TYPE);
 		this.data = data;
 	}
 
+	/**
+	 * Build the JSON object of this UInt64 from its fields.
+	 */
+	@Override
+	protected JsonObject buildJsonObject() {
+		return Json.createObjectBuilder()
+				.add(UInt64.FIELD_DATA, Primitive.fromUInt64(this.data))
+				.build();
+	}
+
 	/**
 	 * Get the data value of this long.
 	 * 
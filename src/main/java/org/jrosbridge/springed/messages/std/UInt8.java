@@ -41,13 +41,19 @@ public class UInt8 extends Message {
 	 *            The data value of the byte.
 	 */
 	public UInt8(byte data) {
-		// build the JSON object
-		super(Json.createObjectBuilder()
-				.add(UInt8.FIELD_DATA, Primitive.fromUInt8(data)).build(),
-				UInt8.TYPE);
+		this.setMessageType(UInt8.TYPE);
 		this.data = data;
 	}
 
+	/**
+	 * Build the JSON object of this UInt8 from its fields.
+	 */
+	@Override
+	protected JsonObject buildJsonObject() {
+		return Json.createObjectBuilder()
+				.add(UInt8.FIELD_DATA, Primitive.fromUInt8(this.data)).build();
+	}
+
 	/**
 	 * Get the data value of this byte.
 	 * 
@@ -1,12 +1,14 @@
 package org.jrosbridge.springed.messages.std;
 
-import java.io.StringReader;
-import java.util.Arrays;
+import java.util.Base64;
 
 import javax.json.Json;
 import javax.json.JsonArray;
 import javax.json.JsonObject;
+import javax.json.JsonString;
+import javax.json.JsonValue;
 
+import org.jrosbridge.springed.codec.PrimitiveJsonArray;
 import org.jrosbridge.springed.messages.Message;
 import org.jrosbridge.springed.primitives.Primitive;
 
@@ -55,15 +57,7 @@ public class UInt8MultiArray extends Message {
 	 *            The array of data.
 	 */
 	public UInt8MultiArray(MultiArrayLayout layout, byte[] data) {
-		// build the JSON object
-		super(Json
-				.createObjectBuilder()
-				.add(UInt8MultiArray.FIELD_LAYOUT, layout.toJsonObject())
-				.add(UInt8MultiArray.FIELD_DATA,
-						Json.createReader(
-								new StringReader(Arrays.toString(Primitive
-										.fromUInt8(data)))).readArray())
-				.build(), UInt8MultiArray.TYPE);
+		this.setMessageType(UInt8MultiArray.TYPE);
 
 		this.layout = layout;
 		// copy the array
@@ -71,6 +65,19 @@ public class UInt8MultiArray extends Message {
 		System.arraycopy(data, 0, this.data, 0, data.length);
 	}
 
+	/**
+	 * Build the JSON object of this UInt8MultiArray from its fields. The data is
+	 * Base64 encoded, as rosbridge does for byte arrays.
+	 */
+	@Override
+	protected JsonObject buildJsonObject() {
+		return Json.createObjectBuilder()
+				.add(UInt8MultiArray.FIELD_LAYOUT, this.layout.toJsonObject())
+				.add(UInt8MultiArray.FIELD_DATA,
+						Base64.getEncoder().encodeToString(this.data))
+				.build();
+	}
+
 	/**
 	 * Get the layout value of this UInt8MultiArray.
 	 * 
@@ -162,9 +169,16 @@ public class UInt8MultiArray extends Message {
 
 		// check the array
 		byte[] data = new byte[] {};
-		JsonArray jsonData = jsonObject
-				.getJsonArray(UInt8MultiArray.FIELD_DATA);
-		if (jsonData != null) {
+		JsonValue value = jsonObject.get(UInt8MultiArray.FIELD_DATA);
+		JsonArray jsonData = value instanceof JsonArray ? (JsonArray) value
+				: null;
+		if (value instanceof JsonString) {
+			// rosbridge sends byte arrays Base64 encoded
+			data = Base64Data.decode((JsonString) value);
+		} else if (jsonData instanceof PrimitiveJsonArray) {
+			// already decoded into a primitive array (e.g., from CBOR)
+			data = ((PrimitiveJsonArray) jsonData).toByteArray();
+		} else if (jsonData != null) {
 			// convert each data
 			data = new byte[jsonData.size()];
 			for (int i = 0; i < data.length; i++) {
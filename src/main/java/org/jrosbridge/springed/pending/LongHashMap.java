@@ -0,0 +1,220 @@
+package org.jrosbridge.springed.pending;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * A LongHashMap maps primitive long keys to values without boxing the keys or
+ * allocating an entry per mapping. It uses open addressing with linear
+ * probing, and removal shifts later entries back so no tombstones build up.
+ * It is not thread safe.
+ *
+ * @param <V>
+ *            The type of the values.
+ */
+public class LongHashMap<V> {
+
+	private static final int MIN_CAPACITY = 16;
+
+	private long[] keys;
+	private Object[] values;
+	private int size;
+	private int mask;
+
+	/**
+	 * Create a new, empty map.
+	 */
+	public LongHashMap() {
+		this(MIN_CAPACITY);
+	}
+
+	/**
+	 * Create a new, empty map that holds the given number of mappings without
+	 * growing.
+	 *
+	 * @param expectedSize
+	 *            The expected number of mappings.
+	 */
+	public LongHashMap(int expectedSize) {
+		int capacity = MIN_CAPACITY;
+		// stay at most half full
+		while (capacity < expectedSize * 2) {
+			capacity <<= 1;
+		}
+		this.allocate(capacity);
+	}
+
+	private void allocate(int capacity) {
+		this.keys = new long[capacity];
+		this.values = new Object[capacity];
+		this.mask = capacity - 1;
+	}
+
+	private int slot(long key) {
+		// ids are often sequential, so spread them over the table
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32)) & this.mask;
+	}
+
+	/**
+	 * Get the value of a key.
+	 *
+	 * @param key
+	 *            The key.
+	 * @return The value, or null if the key is not mapped.
+	 */
+	@SuppressWarnings("unchecked")
+	public V get(long key) {
+		for (int i = this.slot(key);; i = (i + 1) & this.mask) {
+			Object value = this.values[i];
+			if (value == null) {
+				return null;
+			}
+			if (this.keys[i] == key) {
+				return (V) value;
+			}
+		}
+	}
+
+	/**
+	 * Map a key to a value.
+	 *
+	 * @param key
+	 *            The key.
+	 * @param value
+	 *            The value, not null.
+	 * @return The previous value of the key, or null if it was not mapped.
+	 */
+	@SuppressWarnings("unchecked")
+	public V put(long key, V value) {
+		if (value == null) {
+			throw new NullPointerException("Values must not be null.");
+		}
+		int i = this.slot(key);
+		for (; this.values[i] != null; i = (i + 1) & this.mask) {
+			if (this.keys[i] == key) {
+				V previous = (V) this.values[i];
+				this.values[i] = value;
+				return previous;
+			}
+		}
+		this.keys[i] = key;
+		this.values[i] = value;
+		if (++this.size * 2 > this.values.length) {
+			this.resize(this.values.length << 1);
+		}
+		return null;
+	}
+
+	/**
+	 * Remove the mapping of a key.
+	 *
+	 * @param key
+	 *            The key.
+	 * @return The value of the key, or null if it was not mapped.
+	 */
+	@SuppressWarnings("unchecked")
+	public V remove(long key) {
+		for (int i = this.slot(key);; i = (i + 1) & this.mask) {
+			Object value = this.values[i];
+			if (value == null) {
+				return null;
+			}
+			if (this.keys[i] == key) {
+				this.deleteSlot(i);
+				this.size--;
+				return (V) value;
+			}
+		}
+	}
+
+	/**
+	 * Remove all mappings whose value matches the filter.
+	 *
+	 * @param filter
+	 *            Selects the values to remove.
+	 * @return The removed values.
+	 */
+	@SuppressWarnings("unchecked")
+	public List<V> removeIf(Predicate<? super V> filter) {
+		List<V> removed = new ArrayList<V>();
+		long[] removedKeys = new long[this.size];
+		for (int i = 0; i < this.values.length; i++) {
+			if (this.values[i] != null && filter.test((V) this.values[i])) {
+				removedKeys[removed.size()] = this.keys[i];
+				removed.add((V) this.values[i]);
+			}
+		}
+		// entries move while removing, so go by key
+		for (int i = 0; i < removed.size(); i++) {
+			this.remove(removedKeys[i]);
+		}
+		return removed;
+	}
+
+	/**
+	 * Get the number of mappings.
+	 *
+	 * @return The number of mappings.
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Check if the map has no mappings.
+	 *
+	 * @return If the map is empty.
+	 */
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	/**
+	 * Remove all mappings.
+	 */
+	public void clear() {
+		Arrays.fill(this.values, null);
+		this.size = 0;
+	}
+
+	/**
+	 * Empty the given slot and shift later entries of the same probe run back
+	 * into it, so lookups never stop early at a hole.
+	 */
+	private void deleteSlot(int hole) {
+		int i = hole;
+		while (true) {
+			i = (i + 1) & this.mask;
+			if (this.values[i] == null) {
+				break;
+			}
+			int home = this.slot(this.keys[i]);
+			// move the entry if its home is not between the hole and its slot
+			if (((i - home) & this.mask) >= ((i - hole) & this.mask)) {
+				this.keys[hole] = this.keys[i];
+				this.values[hole] = this.values[i];
+				hole = i;
+			}
+		}
+		this.values[hole] = null;
+	}
+
+	private void resize(int capacity) {
+		long[] oldKeys = this.keys;
+		Object[] oldValues = this.values;
+		this.allocate(capacity);
+		for (int i = 0; i < oldValues.length; i++) {
+			if (oldValues[i] != null) {
+				int j = this.slot(oldKeys[i]);
+				while (this.values[j] != null) {
+					j = (j + 1) & this.mask;
+				}
+				this.keys[j] = oldKeys[i];
+				this.values[j] = oldValues[i];
+			}
+		}
+	}
+}
@@ -0,0 +1,47 @@
+package org.jrosbridge.springed.pending;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.jrosbridge.springed.callback.ServiceCallback;
+import org.springframework.web.socket.WebSocketSession;
+
+/**
+ * A PendingCall is a service call that was sent and has not completed yet.
+ * It completes exactly once, whichever of response, timeout or session close
+ * comes first. Completing it lets go of its callback, so a call that waits in
+ * the timer wheel does not keep the callback and what it holds reachable.
+ */
+final class PendingCall {
+
+	// used by the timer wheel for calls without a deadline
+	static final long NO_DEADLINE = Long.MAX_VALUE;
+
+	final long id;
+	final WebSocketSession session;
+	final String service;
+	final long deadlineTick;
+	private final AtomicReference<ServiceCallback> callback;
+
+	PendingCall(long id, WebSocketSession session, String service,
+			ServiceCallback callback, long deadlineTick) {
+		this.id = id;
+		this.session = session;
+		this.service = service;
+		this.deadlineTick = deadlineTick;
+		this.callback = new AtomicReference<ServiceCallback>(callback);
+	}
+
+	/**
+	 * Claim the completion of this call.
+	 *
+	 * @return The callback the caller completes the call with, or null if it
+	 *         already completed.
+	 */
+	ServiceCallback finish() {
+		return this.callback.getAndSet(null);
+	}
+
+	boolean isDone() {
+		return this.callback.get() == null;
+	}
+}
@@ -0,0 +1,307 @@
+package org.jrosbridge.springed.pending;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.jrosbridge.springed.callback.ServiceCallback;
+import org.jrosbridge.springed.services.ServiceException;
+import org.jrosbridge.springed.services.ServiceResponse;
+import org.jrosbridge.springed.services.ServiceTimeoutException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.socket.WebSocketSession;
+
+/**
+ * The PendingCallTable keeps track of the service calls that wait for a
+ * response, keyed by their numeric call id. Every call completes exactly once:
+ * with its response, with a {@link ServiceTimeoutException
+ * ServiceTimeoutException} once its deadline passed, or with a
+ * {@link ServiceException ServiceException} when the session it was sent on
+ * closes. Completed calls are removed, so the table only ever holds the calls
+ * that are actually outstanding.
+ * <p>
+ * Calls are spread over segments with their own lock, so unrelated calls do
+ * not contend. Deadlines are kept in a hashed timer wheel that is swept once
+ * per tick; a call times out at most one tick after its deadline.
+ */
+public class PendingCallTable {
+
+	private static final int SEGMENTS = 16;
+	private static final int WHEEL_SIZE = 512;
+
+	private final Logger logger = LoggerFactory
+			.getLogger(PendingCallTable.class);
+
+	private final LongHashMap<PendingCall>[] segments;
+	private final long tickNanos;
+
+	// the timer wheel, guarded by its own monitor
+	private final List<PendingCall>[] wheel;
+	private long lastTick;
+
+	private final ScheduledFuture<?> sweeper;
+
+	/**
+	 * Create a new table that sweeps for timeouts on the given scheduler.
+	 *
+	 * @param scheduler
+	 *            The scheduler the sweeps run on, or null to only sweep when
+	 *            {@link #sweep(long) sweep} is called.
+	 * @param tick
+	 *            The time between sweeps.
+	 * @param unit
+	 *            The unit of the tick.
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public PendingCallTable(ScheduledExecutorService scheduler, long tick,
+			TimeUnit unit) {
+		this.tickNanos = unit.toNanos(tick);
+		if (this.tickNanos <= 0) {
+			throw new IllegalArgumentException("The tick must be positive.");
+		}
+		this.segments = new LongHashMap[SEGMENTS];
+		for (int i = 0; i < SEGMENTS; i++) {
+			this.segments[i] = new LongHashMap<PendingCall>();
+		}
+		this.wheel = new List[WHEEL_SIZE];
+		for (int i = 0; i < WHEEL_SIZE; i++) {
+			this.wheel[i] = new ArrayList<PendingCall>();
+		}
+		this.lastTick = Math.floorDiv(System.nanoTime(), this.tickNanos) - 1;
+		this.sweeper = scheduler == null ? null : scheduler.scheduleAtFixedRate(
+				() -> this.sweep(System.nanoTime()), tick, tick, unit);
+	}
+
+	private LongHashMap<PendingCall> segment(long id) {
+		return this.segments[(int) (id & (SEGMENTS - 1))];
+	}
+
+	/**
+	 * Add a call that was sent, or is about to be sent.
+	 *
+	 * @param id
+	 *            The call id.
+	 * @param session
+	 *            The session the call is sent on.
+	 * @param service
+	 *            The name of the service, used in error messages.
+	 * @param callback
+	 *            The callback that completes the call.
+	 * @param timeout
+	 *            The time to wait for the response, or 0 or less to wait
+	 *            until the session closes.
+	 * @param unit
+	 *            The unit of the timeout.
+	 * @throws IllegalStateException
+	 *             If a call with the same id is pending.
+	 */
+	public void add(long id, WebSocketSession session, String service,
+			ServiceCallback callback, long timeout, TimeUnit unit) {
+		long deadlineTick = PendingCall.NO_DEADLINE;
+		if (timeout > 0) {
+			deadlineTick = Math.floorDiv(
+					System.nanoTime() + unit.toNanos(timeout), this.tickNanos);
+		}
+		PendingCall call = new PendingCall(id, session, service, callback,
+				deadlineTick);
+
+		LongHashMap<PendingCall> segment = this.segment(id);
+		synchronized (segment) {
+			if (segment.get(id) != null) {
+				throw new IllegalStateException("Call " + id
+						+ " is already pending.");
+			}
+			segment.put(id, call);
+		}
+		if (deadlineTick != PendingCall.NO_DEADLINE) {
+			synchronized (this.wheel) {
+				long tick = Math.max(deadlineTick, this.lastTick + 1);
+				this.wheel[(int) (tick & (WHEEL_SIZE - 1))].add(call);
+			}
+		}
+	}
+
+	/**
+	 * Complete a call with its response. A response that arrives on another
+	 * session than the call was sent on is ignored, so one robot can never
+	 * complete the call of another, e.g., with a stale or made up id.
+	 *
+	 * @param id
+	 *            The call id.
+	 * @param session
+	 *            The session the response arrived on.
+	 * @param response
+	 *            The response.
+	 * @return If the call was pending on the session.
+	 */
+	public boolean complete(long id, WebSocketSession session,
+			ServiceResponse response) {
+		PendingCall call;
+		LongHashMap<PendingCall> segment = this.segment(id);
+		synchronized (segment) {
+			call = segment.get(id);
+			if (call == null || call.session != session) {
+				return false;
+			}
+			segment.remove(id);
+		}
+		ServiceCallback callback = call.finish();
+		if (callback == null) {
+			return false;
+		}
+		try {
+			callback.handleServiceResponse(response);
+		} catch (RuntimeException e) {
+			this.logger.error("Callback for service {} failed", call.service, e);
+		}
+		return true;
+	}
+
+	/**
+	 * Complete a call with an error.
+	 *
+	 * @param id
+	 *            The call id.
+	 * @param error
+	 *            The reason the call failed.
+	 * @return If the call was pending.
+	 */
+	public boolean fail(long id, ServiceException error) {
+		PendingCall call = this.remove(id);
+		ServiceCallback callback = call == null ? null : call.finish();
+		if (callback == null) {
+			return false;
+		}
+		this.notifyError(call, callback, error);
+		return true;
+	}
+
+	/**
+	 * Remove a call without completing its callback, e.g., because it could
+	 * not be sent.
+	 *
+	 * @param id
+	 *            The call id.
+	 * @return If the call was pending.
+	 */
+	public boolean cancel(long id) {
+		PendingCall call = this.remove(id);
+		return call != null && call.finish() != null;
+	}
+
+	/**
+	 * Fail every call that was sent on the given session, e.g., because it
+	 * closed.
+	 *
+	 * @param session
+	 *            The session.
+	 * @param reason
+	 *            The reason the calls failed.
+	 * @return The number of calls that failed.
+	 */
+	public int failSession(WebSocketSession session, String reason) {
+		List<PendingCall> failed = new ArrayList<PendingCall>();
+		for (LongHashMap<PendingCall> segment : this.segments) {
+			synchronized (segment) {
+				if (!segment.isEmpty()) {
+					failed.addAll(segment.removeIf(c -> c.session == session));
+				}
+			}
+		}
+		int count = 0;
+		for (PendingCall call : failed) {
+			ServiceCallback callback = call.finish();
+			if (callback != null) {
+				this.notifyError(call, callback, new ServiceException("Call of service "
+						+ call.service + " failed: " + reason));
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Time out all calls whose deadline passed. This is called on every tick
+	 * by the scheduler given to the constructor.
+	 *
+	 * @param now
+	 *            The current time, from {@link System#nanoTime()}.
+	 */
+	public void sweep(long now) {
+		List<PendingCall> expired = new ArrayList<PendingCall>();
+		synchronized (this.wheel) {
+			// only ticks that have fully passed are swept
+			long to = Math.floorDiv(now, this.tickNanos) - 1;
+			long from = Math.max(this.lastTick + 1, to - WHEEL_SIZE + 1);
+			for (long tick = from; tick <= to; tick++) {
+				List<PendingCall> bucket = this.wheel[(int) (tick & (WHEEL_SIZE - 1))];
+				int kept = 0;
+				for (int i = 0; i < bucket.size(); i++) {
+					PendingCall call = bucket.get(i);
+					if (call.isDone()) {
+						continue;
+					}
+					if (call.deadlineTick <= to) {
+						expired.add(call);
+					} else {
+						// due in a later round of the wheel
+						bucket.set(kept++, call);
+					}
+				}
+				bucket.subList(kept, bucket.size()).clear();
+			}
+			this.lastTick = Math.max(this.lastTick, to);
+		}
+		for (PendingCall call : expired) {
+			ServiceCallback callback = call.finish();
+			if (callback != null) {
+				this.remove(call.id);
+				this.notifyError(call, callback, new ServiceTimeoutException(
+						"Call of service " + call.service + " timed out."));
+			}
+		}
+	}
+
+	/**
+	 * Get the number of pending calls.
+	 *
+	 * @return The number of pending calls.
+	 */
+	public int size() {
+		int size = 0;
+		for (LongHashMap<PendingCall> segment : this.segments) {
+			synchronized (segment) {
+				size += segment.size();
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * Stop sweeping for timeouts. Pending calls are left as they are.
+	 */
+	public void close() {
+		if (this.sweeper != null) {
+			this.sweeper.cancel(false);
+		}
+	}
+
+	private PendingCall remove(long id) {
+		LongHashMap<PendingCall> segment = this.segment(id);
+		synchronized (segment) {
+			return segment.remove(id);
+		}
+	}
+
+	private void notifyError(PendingCall call, ServiceCallback callback,
+			ServiceException error) {
+		try {
+			callback.handleServiceError(error);
+		} catch (RuntimeException e) {
+			this.logger.error("Callback for service {} failed", call.service, e);
+		}
+	}
+}
@@ -27,6 +27,18 @@ public abstract class Primitive extends JsonWrapper {
 
 	private String primitiveType;
 
+	/**
+	 * Create a Primitive of the given type that builds its JSON object from its
+	 * fields when it is first needed.
+	 * 
+	 * @param primitiveType
+	 *            The type of the primitive (e.g., "time").
+	 */
+	protected Primitive(String primitiveType) {
+		super();
+		this.primitiveType = primitiveType;
+	}
+
 	/**
 	 * Create a Primitive based on the given String representation of a JSON
 	 * object.
@@ -1,6 +1,7 @@
 package org.jrosbridge.springed.primitives;
 
 import javax.json.Json;
+import javax.json.JsonObject;
 
 /**
  * The TimeBase class is an abstract implementation of common time/duration
@@ -106,13 +107,20 @@ public abstract class TimeBase<T extends Primitive> extends Primitive implements
 	 *            The type of TimeBase primitive.
 	 */
 	public TimeBase(int secs, int nsecs, String type) {
-		// build the JSON object
-		super(Json.createObjectBuilder().add(Duration.FIELD_SECS, secs)
-				.add(Duration.FIELD_NSECS, nsecs).build(), type);
+		super(type);
 		this.secs = secs;
 		this.nsecs = nsecs;
 	}
 
+	/**
+	 * Build the JSON object of this TimeBase from its fields.
+	 */
+	@Override
+	protected JsonObject buildJsonObject() {
+		return Json.createObjectBuilder().add(Duration.FIELD_SECS, this.secs)
+				.add(Duration.FIELD_NSECS, this.nsecs).build();
+	}
+
 	/**
 	 * Get the seconds value of this TimeBase.
 	 * 
@@ -0,0 +1,286 @@
+package org.jrosbridge.springed.services;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.json.Json;
+
+import org.jrosbridge.springed.callback.AsyncCallServiceCallback;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The ServiceCallLimiter runs the incoming calls of one advertised service on
+ * an executor. At most a given number of calls are running at once; a call
+ * counts as running until the future returned by its handler completes, so
+ * long running handlers are capped even when they hand their work on to other
+ * threads. Further calls wait in a bounded queue, and calls beyond that are
+ * rejected according to a {@link ServiceOverflowPolicy ServiceOverflowPolicy}.
+ */
+public class ServiceCallLimiter {
+
+	/**
+	 * The number of calls running at once if none is given.
+	 */
+	public static final int DEFAULT_MAX_CONCURRENT = 4;
+
+	/**
+	 * The number of calls waiting to run if none is given.
+	 */
+	public static final int DEFAULT_MAX_QUEUED = 64;
+
+	private final Logger logger = LoggerFactory.getLogger(ServiceCallLimiter.class);
+
+	private final String service;
+	private final AsyncCallServiceCallback handler;
+	private final Executor executor;
+	private final int maxConcurrent;
+	private final int maxQueued;
+	private final ServiceOverflowPolicy policy;
+	private final Responder responder;
+
+	// guarded by this
+	private final ArrayDeque<ServiceRequest> queue;
+	private int running;
+
+	private final LongAdder completed;
+	private final LongAdder failed;
+	private final LongAdder rejected;
+
+	/**
+	 * Create a new limiter.
+	 *
+	 * @param service
+	 *            The name of the advertised service.
+	 * @param handler
+	 *            The handler of the calls. If it returns null, it is expected to
+	 *            send the response itself.
+	 * @param executor
+	 *            The executor the handler runs on.
+	 * @param maxConcurrent
+	 *            The maximum number of calls running at once.
+	 * @param maxQueued
+	 *            The maximum number of calls waiting to run.
+	 * @param policy
+	 *            What to do with a call when the queue is full.
+	 * @param responder
+	 *            Sends the responses.
+	 */
+	public ServiceCallLimiter(String service, AsyncCallServiceCallback handler,
+			Executor executor, int maxConcurrent, int maxQueued,
+			ServiceOverflowPolicy policy, Responder responder) {
+		if (maxConcurrent < 1) {
+			throw new IllegalArgumentException("At least one call must be allowed to run.");
+		}
+		if (maxQueued < 0) {
+			throw new IllegalArgumentException("Queue size must not be negative.");
+		}
+		this.service = service;
+		this.handler = handler;
+		this.executor = executor;
+		this.maxConcurrent = maxConcurrent;
+		this.maxQueued = maxQueued;
+		this.policy = policy;
+		this.responder = responder;
+		this.queue = new ArrayDeque<ServiceRequest>();
+		this.running = 0;
+		this.completed = new LongAdder();
+		this.failed = new LongAdder();
+		this.rejected = new LongAdder();
+	}
+
+	/**
+	 * Hand over an incoming call. This never blocks and never runs the handler
+	 * on the calling thread.
+	 *
+	 * @param request
+	 *            The service request that was received, with its ID set.
+	 */
+	public void submit(ServiceRequest request) {
+		ServiceRequest start = null;
+		ServiceRequest reject = null;
+		synchronized (this) {
+			if (this.running < this.maxConcurrent) {
+				this.running++;
+				start = request;
+			} else if (this.queue.size() < this.maxQueued) {
+				this.queue.add(request);
+			} else if (this.policy == ServiceOverflowPolicy.REJECT_OLDEST
+					&& !this.queue.isEmpty()) {
+				reject = this.queue.poll();
+				this.queue.add(request);
+			} else {
+				reject = request;
+			}
+		}
+		if (reject != null) {
+			this.reject(reject);
+		}
+		if (start != null) {
+			this.launch(start);
+		}
+	}
+
+	private void launch(ServiceRequest request) {
+		try {
+			this.executor.execute(() -> this.run(request));
+		} catch (RejectedExecutionException e) {
+			this.reject(request);
+			this.release();
+		}
+	}
+
+	private void run(ServiceRequest request) {
+		CompletableFuture<ServiceResponse> future = null;
+		try {
+			future = this.handler.handleServiceCall(request);
+		} catch (RuntimeException e) {
+			future = new CompletableFuture<ServiceResponse>();
+			future.completeExceptionally(e);
+		} finally {
+			// also frees the slot if the handler threw an Error
+			if (future == null) {
+				this.release();
+			}
+		}
+		if (future == null) {
+			// the handler sends its own response
+			this.completed.increment();
+			return;
+		}
+		future.whenComplete((response, error) -> {
+			try {
+				if (error == null && response != null) {
+					this.completed.increment();
+					this.respond(request, response);
+				} else {
+					this.failed.increment();
+					this.logger.error("Handler of service {} failed",
+							this.service, error);
+					this.respond(request, ServiceCallLimiter.failure());
+				}
+			} finally {
+				this.release();
+			}
+		});
+	}
+
+	private void release() {
+		ServiceRequest next;
+		synchronized (this) {
+			next = this.queue.poll();
+			if (next == null) {
+				this.running--;
+			}
+		}
+		// the slot passes straight on to the next queued call
+		if (next != null) {
+			this.launch(next);
+		}
+	}
+
+	private void reject(ServiceRequest request) {
+		this.rejected.increment();
+		this.logger.warn("Rejected call of service {}, too many calls in progress",
+				this.service);
+		// sending may block on a full outbound queue, so not on the caller's
+		// thread, which is usually the one reading the websocket
+		try {
+			this.executor.execute(() -> this.respond(request,
+					ServiceCallLimiter.failure()));
+		} catch (RejectedExecutionException e) {
+			this.respond(request, ServiceCallLimiter.failure());
+		}
+	}
+
+	private void respond(ServiceRequest request, ServiceResponse response) {
+		try {
+			this.responder.respond(request, response);
+		} catch (IOException | RuntimeException e) {
+			this.logger.error("Could not send response of service {}",
+					this.service, e);
+		}
+	}
+
+	private static ServiceResponse failure() {
+		return new ServiceResponse(Json.createObjectBuilder().build(), false);
+	}
+
+	/**
+	 * Get the name of the advertised service.
+	 *
+	 * @return The name of the service.
+	 */
+	public String getService() {
+		return this.service;
+	}
+
+	/**
+	 * Get the number of calls running right now.
+	 *
+	 * @return The number of running calls.
+	 */
+	public synchronized int getRunning() {
+		return this.running;
+	}
+
+	/**
+	 * Get the number of calls waiting to run.
+	 *
+	 * @return The number of queued calls.
+	 */
+	public synchronized int getQueued() {
+		return this.queue.size();
+	}
+
+	/**
+	 * Get the number of calls whose handler completed normally.
+	 *
+	 * @return The number of completed calls.
+	 */
+	public long getCompletedCount() {
+		return this.completed.sum();
+	}
+
+	/**
+	 * Get the number of calls whose handler failed.
+	 *
+	 * @return The number of failed calls.
+	 */
+	public long getFailedCount() {
+		return this.failed.sum();
+	}
+
+	/**
+	 * Get the number of calls rejected because too many were in progress.
+	 *
+	 * @return The number of rejected calls.
+	 */
+	public long getRejectedCount() {
+		return this.rejected.sum();
+	}
+
+	/**
+	 * Sends the response of a call back to the caller.
+	 */
+	@FunctionalInterface
+	public interface Responder {
+
+		/**
+		 * Send a response.
+		 *
+		 * @param request
+		 *            The request that is answered.
+		 * @param response
+		 *            The response to send.
+		 * @throws IOException
+		 *             If the response could not be sent.
+		 */
+		void respond(ServiceRequest request, ServiceResponse response)
+				throws IOException;
+	}
+}
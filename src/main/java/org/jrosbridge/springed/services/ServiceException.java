@@ -0,0 +1,35 @@
+package org.jrosbridge.springed.services;
+
+import java.io.IOException;
+
+/**
+ * A ServiceException is given to a service callback when a service call
+ * cannot complete with a response, e.g., because the session of the robot
+ * closed while the call was outstanding.
+ */
+public class ServiceException extends IOException {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Create a new exception.
+	 *
+	 * @param message
+	 *            The reason the call failed.
+	 */
+	public ServiceException(String message) {
+		super(message);
+	}
+
+	/**
+	 * Create a new exception.
+	 *
+	 * @param message
+	 *            The reason the call failed.
+	 * @param cause
+	 *            The cause of the failure.
+	 */
+	public ServiceException(String message, Throwable cause) {
+		super(message, cause);
+	}
+}
@@ -0,0 +1,21 @@
+package org.jrosbridge.springed.services;
+
+/**
+ * The ServiceOverflowPolicy defines what a {@link ServiceCallLimiter
+ * ServiceCallLimiter} does with an incoming call when the advertised service
+ * already runs as many calls as it may and its queue is full. A rejected call
+ * is answered right away with a failed result, so the caller does not wait
+ * for a timeout.
+ */
+public enum ServiceOverflowPolicy {
+
+	/**
+	 * Reject the new call and keep the queued ones.
+	 */
+	REJECT_NEWEST,
+
+	/**
+	 * Reject the oldest queued call to make room for the new one.
+	 */
+	REJECT_OLDEST
+}
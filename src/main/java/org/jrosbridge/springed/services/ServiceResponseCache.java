@@ -0,0 +1,354 @@
+package org.jrosbridge.springed.services;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+import javax.json.JsonObject;
+
+/**
+ * The ServiceResponseCache avoids redundant round trips for idempotent
+ * services, such as listing topics or reading parameters. Identical calls
+ * (same robot, service and arguments) that are in flight at the same time are
+ * coalesced into a single rosbridge call, and successful responses are kept
+ * for a fixed time to live. The cache holds at most a given number of
+ * responses and evicts the least recently used one when it is full. Only
+ * services whose responses may be reused should go through a cache.
+ *
+ * @param <Identifier>
+ *            The type used to identify a robot.
+ */
+public class ServiceResponseCache<Identifier> {
+
+	private final long ttlNanos;
+	private final int maxEntries;
+	private final LongSupplier clock;
+
+	// guarded by itself; in access order for the LRU eviction
+	private final LinkedHashMap<Key<Identifier>, Entry> responses;
+	private final ConcurrentMap<Key<Identifier>, CompletableFuture<ServiceResponse>> inFlight;
+
+	private final LongAdder hits;
+	private final LongAdder misses;
+	private final LongAdder coalesced;
+	private final LongAdder evictions;
+
+	/**
+	 * Create a new, empty cache.
+	 *
+	 * @param ttl
+	 *            How long a response is reused.
+	 * @param unit
+	 *            The unit of the time to live.
+	 * @param maxEntries
+	 *            The maximum number of responses held.
+	 */
+	public ServiceResponseCache(long ttl, TimeUnit unit, int maxEntries) {
+		this(ttl, unit, maxEntries, System::nanoTime);
+	}
+
+	ServiceResponseCache(long ttl, TimeUnit unit, int maxEntries,
+			LongSupplier clock) {
+		if (maxEntries < 1) {
+			throw new IllegalArgumentException("Cache must hold at least one entry.");
+		}
+		this.ttlNanos = unit.toNanos(ttl);
+		this.maxEntries = maxEntries;
+		this.clock = clock;
+		this.responses = new LinkedHashMap<Key<Identifier>, Entry>(16, 0.75f,
+				true);
+		this.inFlight = new ConcurrentHashMap<Key<Identifier>, CompletableFuture<ServiceResponse>>();
+		this.hits = new LongAdder();
+		this.misses = new LongAdder();
+		this.coalesced = new LongAdder();
+		this.evictions = new LongAdder();
+	}
+
+	/**
+	 * Get the response of a call from the cache, join an identical call that
+	 * is in flight, or make the call.
+	 *
+	 * @param robotId
+	 *            The identifier of the robot.
+	 * @param service
+	 *            The name of the service.
+	 * @param args
+	 *            The arguments of the call.
+	 * @param call
+	 *            Makes the call on a miss.
+	 * @return A future of the response. Each caller gets its own future, so
+	 *         cancelling it does not affect the other callers.
+	 */
+	public CompletableFuture<ServiceResponse> get(Identifier robotId,
+			String service, JsonObject args,
+			Supplier<CompletableFuture<ServiceResponse>> call) {
+		return this.get(robotId, service, args, 0, TimeUnit.NANOSECONDS, call);
+	}
+
+	/**
+	 * Get the response of a call from the cache, join an identical call that
+	 * is in flight, or make the call. A caller that joins a call in flight
+	 * still waits at most for its own timeout, even if the call it joined
+	 * waits longer.
+	 *
+	 * @param robotId
+	 *            The identifier of the robot.
+	 * @param service
+	 *            The name of the service.
+	 * @param args
+	 *            The arguments of the call.
+	 * @param timeout
+	 *            The time to wait for the response, or 0 or less to wait as
+	 *            long as the call in flight.
+	 * @param unit
+	 *            The unit of the timeout.
+	 * @param call
+	 *            Makes the call on a miss. The call itself must time out
+	 *            after the given timeout.
+	 * @return A future of the response. Each caller gets its own future, so
+	 *         cancelling it does not affect the other callers. If it joined a
+	 *         call in flight, it completes exceptionally with a
+	 *         {@link ServiceTimeoutException ServiceTimeoutException} once the
+	 *         timeout passed.
+	 */
+	public CompletableFuture<ServiceResponse> get(Identifier robotId,
+			String service, JsonObject args, long timeout, TimeUnit unit,
+			Supplier<CompletableFuture<ServiceResponse>> call) {
+		Key<Identifier> key = new Key<Identifier>(robotId, service, args);
+		ServiceResponse cached = this.getCached(key);
+		if (cached != null) {
+			this.hits.increment();
+			return CompletableFuture.completedFuture(cached);
+		}
+
+		CompletableFuture<ServiceResponse> shared = new CompletableFuture<ServiceResponse>();
+		CompletableFuture<ServiceResponse> existing = this.inFlight
+				.putIfAbsent(key, shared);
+		if (existing != null) {
+			this.coalesced.increment();
+			CompletableFuture<ServiceResponse> joined = existing
+					.thenApply(response -> response);
+			if (timeout <= 0) {
+				return joined;
+			}
+			// the call in flight may have been made with a longer timeout
+			CompletableFuture<ServiceResponse> result = new CompletableFuture<ServiceResponse>();
+			joined.orTimeout(timeout, unit).whenComplete((response, error) -> {
+				if (error instanceof TimeoutException) {
+					result.completeExceptionally(new ServiceTimeoutException(
+							"Call of service " + service + " timed out."));
+				} else if (error != null) {
+					result.completeExceptionally(error);
+				} else {
+					result.complete(response);
+				}
+			});
+			return result;
+		}
+
+		this.misses.increment();
+		CompletableFuture<ServiceResponse> result;
+		try {
+			result = call.get();
+		} catch (RuntimeException e) {
+			result = new CompletableFuture<ServiceResponse>();
+			result.completeExceptionally(e);
+		}
+		result.whenComplete((response, error) -> {
+			if (error == null && response.getResult()) {
+				this.put(key, response);
+			}
+			// leave the in-flight map before waking the callers, so a caller
+			// that calls again sees the cached response
+			this.inFlight.remove(key, shared);
+			if (error == null) {
+				shared.complete(response);
+			} else {
+				shared.completeExceptionally(error);
+			}
+		});
+		return shared.thenApply(response -> response);
+	}
+
+	private ServiceResponse getCached(Key<Identifier> key) {
+		synchronized (this.responses) {
+			Entry entry = this.responses.get(key);
+			if (entry == null) {
+				return null;
+			}
+			if (this.clock.getAsLong() - entry.stored >= this.ttlNanos) {
+				this.responses.remove(key);
+				return null;
+			}
+			return entry.response;
+		}
+	}
+
+	private void put(Key<Identifier> key, ServiceResponse response) {
+		synchronized (this.responses) {
+			this.responses.put(key, new Entry(response, this.clock.getAsLong()));
+			if (this.responses.size() > this.maxEntries) {
+				Iterator<Key<Identifier>> eldest = this.responses.keySet()
+						.iterator();
+				eldest.next();
+				eldest.remove();
+				this.evictions.increment();
+			}
+		}
+	}
+
+	/**
+	 * Drop all cached responses of a robot, e.g., after changing its state.
+	 *
+	 * @param robotId
+	 *            The identifier of the robot.
+	 */
+	public void invalidate(Identifier robotId) {
+		synchronized (this.responses) {
+			this.responses.keySet().removeIf(
+					key -> Objects.equals(key.robotId, robotId));
+		}
+	}
+
+	/**
+	 * Drop the cached responses of a service on a robot.
+	 *
+	 * @param robotId
+	 *            The identifier of the robot.
+	 * @param service
+	 *            The name of the service.
+	 */
+	public void invalidate(Identifier robotId, String service) {
+		synchronized (this.responses) {
+			this.responses.keySet().removeIf(
+					key -> Objects.equals(key.robotId, robotId)
+							&& key.service.equals(service));
+		}
+	}
+
+	/**
+	 * Drop all cached responses. Calls in flight are not affected.
+	 */
+	public void invalidateAll() {
+		synchronized (this.responses) {
+			this.responses.clear();
+		}
+	}
+
+	/**
+	 * Get the number of cached responses, including expired ones that were
+	 * not looked up since they expired.
+	 *
+	 * @return The number of cached responses.
+	 */
+	public int size() {
+		synchronized (this.responses) {
+			return this.responses.size();
+		}
+	}
+
+	/**
+	 * Get the number of calls answered from the cache.
+	 *
+	 * @return The number of hits.
+	 */
+	public long getHitCount() {
+		return this.hits.sum();
+	}
+
+	/**
+	 * Get the number of calls that were sent to the robot.
+	 *
+	 * @return The number of misses.
+	 */
+	public long getMissCount() {
+		return this.misses.sum();
+	}
+
+	/**
+	 * Get the number of calls that joined an identical call in flight.
+	 *
+	 * @return The number of coalesced calls.
+	 */
+	public long getCoalescedCount() {
+		return this.coalesced.sum();
+	}
+
+	/**
+	 * Get the number of responses evicted because the cache was full.
+	 *
+	 * @return The number of evictions.
+	 */
+	public long getEvictionCount() {
+		return this.evictions.sum();
+	}
+
+	/**
+	 * Get the share of calls that did not need their own round trip, either
+	 * because they hit the cache or joined a call in flight.
+	 *
+	 * @return The hit rate between 0 and 1, or 0 if there were no calls.
+	 */
+	public double getHitRate() {
+		long saved = this.hits.sum() + this.coalesced.sum();
+		long total = saved + this.misses.sum();
+		return total == 0 ? 0 : (double) saved / total;
+	}
+
+	@Override
+	public String toString() {
+		return "ServiceResponseCache[size=" + this.size() + ", hits="
+				+ this.getHitCount() + ", misses=" + this.getMissCount()
+				+ ", coalesced=" + this.getCoalescedCount() + ", evictions="
+				+ this.getEvictionCount() + "]";
+	}
+
+	private static class Entry {
+		final ServiceResponse response;
+		final long stored;
+
+		Entry(ServiceResponse response, long stored) {
+			this.response = response;
+			this.stored = stored;
+		}
+	}
+
+	private static class Key<Identifier> {
+		final Identifier robotId;
+		final String service;
+		final JsonObject args;
+		final int hash;
+
+		Key(Identifier robotId, String service, JsonObject args) {
+			this.robotId = robotId;
+			this.service = service;
+			this.args = args;
+			this.hash = Objects.hash(robotId, service, args);
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof Key)) {
+				return false;
+			}
+			Key<?> other = (Key<?>) o;
+			return this.hash == other.hash
+					&& Objects.equals(this.robotId, other.robotId)
+					&& this.service.equals(other.service)
+					&& this.args.equals(other.args);
+		}
+
+		@Override
+		public int hashCode() {
+			return this.hash;
+		}
+	}
+}
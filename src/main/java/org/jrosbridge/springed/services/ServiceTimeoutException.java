@@ -0,0 +1,20 @@
+package org.jrosbridge.springed.services;
+
+/**
+ * A ServiceTimeoutException is given to a service callback when no response
+ * arrived before the deadline of the call.
+ */
+public class ServiceTimeoutException extends ServiceException {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Create a new exception.
+	 *
+	 * @param message
+	 *            A description of the call that timed out.
+	 */
+	public ServiceTimeoutException(String message) {
+		super(message);
+	}
+}
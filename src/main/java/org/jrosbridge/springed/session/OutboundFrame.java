@@ -0,0 +1,142 @@
+package org.jrosbridge.springed.session;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+
+import org.jrosbridge.springed.codec.FrameBuffer;
+import org.jrosbridge.springed.codec.FrameBufferPool;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.WebSocketMessage;
+
+/**
+ * An OutboundFrame is a websocket message waiting in an
+ * {@link OutboundQueue OutboundQueue}. If its payload is a view of a pooled
+ * {@link FrameBuffer FrameBuffer}, the buffer is released back to its pool
+ * once the queue has written or discarded the frame. A frame may carry a
+ * future that tells the sender whether it was written.
+ */
+public class OutboundFrame {
+
+	private final WebSocketMessage<?> message;
+	private final FrameBuffer buffer;
+	private final FrameBufferPool pool;
+	private final SharedFrame shared;
+	private final CompletableFuture<Void> completion;
+	private boolean released;
+
+	// where the frame sits in the message it belongs to, set by the queue:
+	// if it is the first frame, and the frame queued after it is written
+	boolean groupStart = true;
+	OutboundFrame next;
+
+	/**
+	 * Create a new frame for the given message.
+	 * 
+	 * @param message
+	 *            The message to send.
+	 */
+	public OutboundFrame(WebSocketMessage<?> message) {
+		this.message = message;
+		this.buffer = null;
+		this.pool = null;
+		this.shared = null;
+		this.completion = null;
+		this.released = false;
+	}
+
+	/**
+	 * Create a new binary frame over the contents of the given buffer.
+	 * 
+	 * @param buffer
+	 *            The buffer holding the serialized frame.
+	 * @param pool
+	 *            The pool the buffer is released to.
+	 */
+	public OutboundFrame(FrameBuffer buffer, FrameBufferPool pool) {
+		this.message = new BinaryMessage(buffer.toByteBuffer());
+		this.buffer = buffer;
+		this.pool = pool;
+		this.shared = null;
+		this.completion = null;
+		this.released = false;
+	}
+
+	/**
+	 * Create a new binary frame over a view of a shared frame. The frame holds
+	 * a reference to the shared frame until it is released.
+	 * 
+	 * @param shared
+	 *            The shared frame.
+	 * @param completion
+	 *            Completed when the frame was written, or exceptionally if it
+	 *            was dropped or could not be written. May be null.
+	 */
+	public OutboundFrame(SharedFrame shared, CompletableFuture<Void> completion) {
+		this.message = new BinaryMessage(shared.retain());
+		this.buffer = null;
+		this.pool = null;
+		this.shared = shared;
+		this.completion = completion;
+		this.released = false;
+	}
+
+	/**
+	 * Get the message to send.
+	 * 
+	 * @return The message to send.
+	 */
+	public WebSocketMessage<?> getMessage() {
+		return this.message;
+	}
+
+	/**
+	 * Get the size of the payload in bytes.
+	 * 
+	 * @return The size of the payload in bytes.
+	 */
+	public int getPayloadLength() {
+		return this.message.getPayloadLength();
+	}
+
+	/**
+	 * Report that the frame was written to the session.
+	 */
+	public void sent() {
+		if (this.completion != null) {
+			this.completion.complete(null);
+		}
+	}
+
+	/**
+	 * Report that writing the frame failed.
+	 * 
+	 * @param error
+	 *            The reason writing failed.
+	 */
+	public void failed(Throwable error) {
+		if (this.completion != null) {
+			this.completion.completeExceptionally(error);
+		}
+	}
+
+	/**
+	 * Give the buffer back to its pool, if there is one. Only the first call
+	 * has an effect. A frame released before it was written counts as
+	 * dropped.
+	 */
+	public void release() {
+		if (!this.released) {
+			this.released = true;
+			if (this.pool != null) {
+				this.pool.release(this.buffer);
+			}
+			if (this.shared != null) {
+				this.shared.release();
+			}
+			if (this.completion != null && !this.completion.isDone()) {
+				this.completion.completeExceptionally(new IOException(
+						"Frame was dropped before it was written."));
+			}
+		}
+	}
+}
@@ -0,0 +1,447 @@
+package org.jrosbridge.springed.session;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+/**
+ * The OutboundQueue buffers the messages sent to a single websocket session
+ * and writes them on a writer task, so that senders never block on the network
+ * and never write to the session concurrently. The queue is bounded both in
+ * number of messages and in bytes; what happens when it is full is decided by
+ * its {@link OverflowPolicy OverflowPolicy}. Queued
+ * {@link OutboundFrame OutboundFrames} are released once they have been
+ * written or discarded.
+ */
+public class OutboundQueue {
+
+	// how many messages a writer task sends before yielding its thread
+	private static final int WRITE_BATCH = 64;
+
+	private final Logger logger = LoggerFactory.getLogger(OutboundQueue.class);
+
+	private final WebSocketSession session;
+	private final Executor writer;
+	private final int maxMessages;
+	private final long maxBytes;
+	private final OverflowPolicy policy;
+
+	private final ReentrantLock lock;
+	private final Condition notFull;
+	private final ArrayDeque<OutboundFrame> messages;
+	private long bytes;
+	private boolean writing;
+	private boolean closed;
+
+	// metrics, dropped is written under the lock and sent by the single writer
+	private volatile int highWaterMark;
+	private volatile long sentCount;
+	private volatile long droppedCount;
+
+	/**
+	 * Create a new queue for the given session.
+	 * 
+	 * @param session
+	 *            The session the messages are written to.
+	 * @param writer
+	 *            The executor the writer task runs on.
+	 * @param maxMessages
+	 *            The maximum number of queued messages.
+	 * @param maxBytes
+	 *            The maximum number of queued payload bytes. A single message
+	 *            larger than this is still accepted into an empty queue.
+	 * @param policy
+	 *            What to do when the queue is full.
+	 */
+	public OutboundQueue(WebSocketSession session, Executor writer,
+			int maxMessages, long maxBytes, OverflowPolicy policy) {
+		if (maxMessages <= 0 || maxBytes <= 0) {
+			throw new IllegalArgumentException(
+					"Queue limits must be positive.");
+		}
+		this.session = session;
+		this.writer = writer;
+		this.maxMessages = maxMessages;
+		this.maxBytes = maxBytes;
+		this.policy = policy;
+		this.lock = new ReentrantLock();
+		this.notFull = this.lock.newCondition();
+		this.messages = new ArrayDeque<OutboundFrame>();
+		this.bytes = 0;
+		this.writing = false;
+		this.closed = false;
+	}
+
+	/**
+	 * Queue the given message for sending.
+	 * 
+	 * @param message
+	 *            The message to send.
+	 * @return If the message was queued. False if it was dropped because the
+	 *         queue was full.
+	 * @throws IOException
+	 *             If the queue has been closed, or the thread was interrupted
+	 *             while waiting for room.
+	 */
+	public boolean offer(WebSocketMessage<?> message) throws IOException {
+		return this.offer(new OutboundFrame(message));
+	}
+
+	/**
+	 * Queue the given frame for sending. The queue takes ownership of the
+	 * frame and releases it, even if it is dropped or an exception is thrown.
+	 * 
+	 * @param frame
+	 *            The frame to send.
+	 * @return If the message was queued. False if it was dropped because the
+	 *         queue was full.
+	 * @throws IOException
+	 *             If the queue has been closed, or the thread was interrupted
+	 *             while waiting for room.
+	 */
+	public boolean offer(OutboundFrame frame) throws IOException {
+		return this.offerAll(Collections.singletonList(frame));
+	}
+
+	/**
+	 * Queue the given frames for sending, one after the other, e.g. the
+	 * fragments of a large message. Only the first frame is queued right
+	 * away, and counts against the limits of the queue; each following frame
+	 * is queued once the one before it was written. Other messages can thus
+	 * go out between the frames, and the limits bound the frames that are
+	 * queued rather than the whole message. The frames are dropped together:
+	 * the overflow policy never drops some of them while others are sent. The
+	 * queue takes ownership of the frames and releases them, even if they are
+	 * dropped or an exception is thrown.
+	 * 
+	 * @param frames
+	 *            The frames to send.
+	 * @return If the frames were queued. False if they were dropped because
+	 *         the queue was full.
+	 * @throws IOException
+	 *             If the queue has been closed, the thread was interrupted
+	 *             while waiting for room, or the writer task could not be
+	 *             started.
+	 */
+	public boolean offerAll(List<OutboundFrame> frames) throws IOException {
+		int count = frames.size();
+		for (int i = 0; i < count; i++) {
+			OutboundFrame frame = frames.get(i);
+			frame.groupStart = i == 0;
+			frame.next = i + 1 < count ? frames.get(i + 1) : null;
+		}
+		OutboundFrame first = frames.get(0);
+		long size = first.getPayloadLength();
+		boolean startWriter;
+		boolean queued = false;
+		boolean overflowed = false;
+		this.lock.lock();
+		try {
+			while (!this.closed && this.isFull(size)) {
+				switch (this.policy) {
+				case BLOCK:
+					try {
+						this.notFull.await();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						throw new InterruptedIOException(
+								"Interrupted while waiting for the outbound queue.");
+					}
+					break;
+				case DROP_OLDEST:
+					if (this.dropOldest()) {
+						break;
+					}
+					// only messages being written are left
+					this.droppedCount += count;
+					return false;
+				case DROP_NEWEST:
+					this.droppedCount += count;
+					return false;
+				case CLOSE_SESSION:
+				default:
+					this.droppedCount += count;
+					// later senders fail fast instead of closing it again
+					this.discardAll();
+					overflowed = true;
+					return false;
+				}
+			}
+			if (this.closed) {
+				throw new IOException("The session " + this.session.getId()
+						+ " is closed.");
+			}
+
+			this.messages.add(first);
+			queued = true;
+			this.bytes += size;
+			if (this.messages.size() > this.highWaterMark) {
+				this.highWaterMark = this.messages.size();
+			}
+			startWriter = !this.writing;
+			this.writing = true;
+		} finally {
+			this.lock.unlock();
+			if (!queued) {
+				for (OutboundFrame frame : frames) {
+					frame.release();
+				}
+			}
+			if (overflowed) {
+				// closing writes to the network, so not under the lock
+				this.closeSession();
+			}
+		}
+
+		if (startWriter && !this.startWriter()) {
+			throw new IOException("The writer of session "
+					+ this.session.getId() + " was rejected.");
+		}
+		return true;
+	}
+
+	/**
+	 * Run the writer task on the executor. If the executor rejects it, e.g.
+	 * because it was shut down, nothing would ever leave the queue again, so
+	 * the queue is closed.
+	 * 
+	 * @return If the writer task was accepted.
+	 */
+	private boolean startWriter() {
+		try {
+			this.writer.execute(this::write);
+			return true;
+		} catch (RejectedExecutionException e) {
+			logger.warn("Writer of session {} was rejected, closing its queue",
+					this.session.getId(), e);
+			this.lock.lock();
+			try {
+				this.writing = false;
+				this.discardAll();
+			} finally {
+				this.lock.unlock();
+			}
+			return false;
+		}
+	}
+
+	/**
+	 * Drop the oldest message, with all its frames, whose first frame has not
+	 * been written yet. Must be called holding the lock.
+	 * 
+	 * @return If a message was dropped.
+	 */
+	private boolean dropOldest() {
+		Iterator<OutboundFrame> frames = this.messages.iterator();
+		while (frames.hasNext()) {
+			OutboundFrame frame = frames.next();
+			// the writer already sent the start of a message
+			if (frame.groupStart) {
+				frames.remove();
+				this.bytes -= frame.getPayloadLength();
+				this.discard(frame);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Release a queued frame and the frames of its message that are still to
+	 * be queued after it. Must be called holding the lock.
+	 */
+	private void discard(OutboundFrame frame) {
+		while (frame != null) {
+			OutboundFrame next = frame.next;
+			frame.next = null;
+			this.droppedCount++;
+			frame.release();
+			frame = next;
+		}
+	}
+
+	/**
+	 * Close the queue. Any queued messages are discarded and blocked senders
+	 * are woken up.
+	 */
+	public void close() {
+		this.lock.lock();
+		try {
+			this.discardAll();
+		} finally {
+			this.lock.unlock();
+		}
+	}
+
+	/**
+	 * Get the session this queue writes to.
+	 * 
+	 * @return The session this queue writes to.
+	 */
+	public WebSocketSession getSession() {
+		return this.session;
+	}
+
+	/**
+	 * Get the overflow policy of this queue.
+	 * 
+	 * @return The overflow policy of this queue.
+	 */
+	public OverflowPolicy getPolicy() {
+		return this.policy;
+	}
+
+	/**
+	 * Get the number of messages currently waiting to be written.
+	 * 
+	 * @return The number of messages currently waiting to be written.
+	 */
+	public int getDepth() {
+		this.lock.lock();
+		try {
+			return this.messages.size();
+		} finally {
+			this.lock.unlock();
+		}
+	}
+
+	/**
+	 * Get the number of payload bytes currently waiting to be written.
+	 * 
+	 * @return The number of payload bytes currently waiting to be written.
+	 */
+	public long getBytes() {
+		this.lock.lock();
+		try {
+			return this.bytes;
+		} finally {
+			this.lock.unlock();
+		}
+	}
+
+	/**
+	 * Get the largest depth this queue has reached.
+	 * 
+	 * @return The largest depth this queue has reached.
+	 */
+	public int getHighWaterMark() {
+		return this.highWaterMark;
+	}
+
+	/**
+	 * Get the number of messages written to the session.
+	 * 
+	 * @return The number of messages written to the session.
+	 */
+	public long getSentCount() {
+		return this.sentCount;
+	}
+
+	/**
+	 * Get the number of messages discarded because of overflow or closing.
+	 * 
+	 * @return The number of messages discarded.
+	 */
+	public long getDroppedCount() {
+		return this.droppedCount;
+	}
+
+	/**
+	 * Check if the queue has been closed.
+	 * 
+	 * @return If the queue has been closed.
+	 */
+	public boolean isClosed() {
+		this.lock.lock();
+		try {
+			return this.closed;
+		} finally {
+			this.lock.unlock();
+		}
+	}
+
+	private boolean isFull(long size) {
+		return !this.messages.isEmpty()
+				&& (this.messages.size() >= this.maxMessages
+						|| this.bytes + size > this.maxBytes);
+	}
+
+	/**
+	 * Close the queue, release the queued frames and wake up blocked senders.
+	 * Must be called holding the lock.
+	 */
+	private void discardAll() {
+		this.closed = true;
+		for (OutboundFrame frame : this.messages) {
+			this.discard(frame);
+		}
+		this.messages.clear();
+		this.bytes = 0;
+		this.notFull.signalAll();
+	}
+
+	private void closeSession() {
+		logger.warn("Outbound queue of session {} overflowed, closing it.",
+				this.session.getId());
+		try {
+			this.session.close(CloseStatus.SESSION_NOT_RELIABLE);
+		} catch (IOException e) {
+			logger.warn("Could not close session {}", this.session.getId(), e);
+		}
+	}
+
+	/**
+	 * The writer task. Only one runs at a time per queue; it yields its thread
+	 * after a batch so a busy robot cannot starve the others.
+	 */
+	private void write() {
+		for (int i = 0; i < WRITE_BATCH; i++) {
+			OutboundFrame frame;
+			this.lock.lock();
+			try {
+				frame = this.messages.poll();
+				if (frame == null) {
+					this.writing = false;
+					return;
+				}
+				this.bytes -= frame.getPayloadLength();
+				if (frame.next != null) {
+					// the rest of the message queues up behind other messages
+					this.messages.add(frame.next);
+					this.bytes += frame.next.getPayloadLength();
+					frame.next = null;
+				}
+				// a waiting sender may need more room than the frame freed
+				this.notFull.signalAll();
+			} finally {
+				this.lock.unlock();
+			}
+
+			try {
+				this.session.sendMessage(frame.getMessage());
+				this.sentCount++;
+				frame.sent();
+			} catch (IOException | RuntimeException e) {
+				logger.warn("Could not write to session {}",
+						this.session.getId(), e);
+				frame.failed(e);
+			} finally {
+				frame.release();
+			}
+		}
+		this.startWriter();
+	}
+}
@@ -0,0 +1,29 @@
+package org.jrosbridge.springed.session;
+
+/**
+ * The OverflowPolicy defines what an {@link OutboundQueue OutboundQueue} does
+ * when a message is sent while the queue is already at its limits.
+ */
+public enum OverflowPolicy {
+
+	/**
+	 * Block the sending thread until the writer has made room.
+	 */
+	BLOCK,
+
+	/**
+	 * Discard the oldest queued message to make room for the new one.
+	 */
+	DROP_OLDEST,
+
+	/**
+	 * Discard the new message and keep the queued ones.
+	 */
+	DROP_NEWEST,
+
+	/**
+	 * Discard the new message and close the session, as the robot is not
+	 * keeping up with the traffic.
+	 */
+	CLOSE_SESSION
+}
@@ -0,0 +1,152 @@
+package org.jrosbridge.springed.session;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.springframework.web.socket.WebSocketSession;
+
+/**
+ * The SessionRegistry keeps track of which websocket session belongs to which
+ * robot, in both directions. All operations are safe to call concurrently from
+ * the websocket container threads. Lookups never lock or allocate, and
+ * register/deregister only contend with operations on the same robot.
+ *
+ * @param <Identifier>
+ *            The type used to identify a robot.
+ */
+public class SessionRegistry<Identifier> {
+
+	private final ConcurrentMap<Identifier, WebSocketSession> sessions;
+	private final ConcurrentMap<WebSocketSession, Identifier> identifiers;
+
+	/**
+	 * Create a new, empty registry.
+	 */
+	public SessionRegistry() {
+		this.sessions = new ConcurrentHashMap<Identifier, WebSocketSession>();
+		this.identifiers = new ConcurrentHashMap<WebSocketSession, Identifier>();
+	}
+
+	/**
+	 * Register the given session for the given robot. If the robot already had
+	 * a session (e.g., it reconnected before the old connection was closed),
+	 * the old session is replaced and returned.
+	 *
+	 * @param session
+	 *            The web socket session used to communicate with the robot.
+	 * @param id
+	 *            The identifier of the robot.
+	 * @return The session that was replaced, or null if there was none.
+	 */
+	public WebSocketSession register(WebSocketSession session, Identifier id) {
+		// a session belongs to exactly one robot
+		Identifier previousId = this.identifiers.get(session);
+		if (previousId != null && !previousId.equals(id)) {
+			this.deregister(session);
+		}
+
+		// the per-key lock of the forward map makes both updates atomic for
+		// this robot
+		WebSocketSession[] replaced = new WebSocketSession[1];
+		this.sessions.compute(id, (key, old) -> {
+			if (old != null && old != session) {
+				this.identifiers.remove(old, key);
+				replaced[0] = old;
+			}
+			this.identifiers.put(session, key);
+			return session;
+		});
+		return replaced[0];
+	}
+
+	/**
+	 * Remove the session of the given robot.
+	 *
+	 * @param id
+	 *            The identifier of the robot.
+	 * @return The session that was removed, or null if there was none.
+	 */
+	public WebSocketSession deregister(Identifier id) {
+		WebSocketSession[] removed = new WebSocketSession[1];
+		this.sessions.computeIfPresent(id, (key, session) -> {
+			this.identifiers.remove(session, key);
+			removed[0] = session;
+			return null;
+		});
+		return removed[0];
+	}
+
+	/**
+	 * Remove the given session. If the robot has since been registered with a
+	 * newer session, that newer session is left untouched.
+	 *
+	 * @param session
+	 *            The websocket session of the robot.
+	 * @return The identifier of the robot the session belonged to, or null if
+	 *         the session was not registered.
+	 */
+	public Identifier deregister(WebSocketSession session) {
+		Identifier id = this.identifiers.get(session);
+		if (id == null) {
+			return null;
+		}
+		// only drop the forward mapping if it has not been replaced already
+		this.sessions.computeIfPresent(id,
+				(key, current) -> current == session ? null : current);
+		this.identifiers.remove(session, id);
+		return id;
+	}
+
+	/**
+	 * Get the session of the given robot.
+	 *
+	 * @param id
+	 *            The identifier of the robot.
+	 * @return The session of the robot, or null if it is not connected.
+	 */
+	public WebSocketSession getSession(Identifier id) {
+		return this.sessions.get(id);
+	}
+
+	/**
+	 * Get the robot that the given session belongs to.
+	 *
+	 * @param session
+	 *            The websocket session.
+	 * @return The identifier of the robot, or null if the session is not
+	 *         registered.
+	 */
+	public Identifier getIdentifier(WebSocketSession session) {
+		return this.identifiers.get(session);
+	}
+
+	/**
+	 * Check if the given robot has a registered session.
+	 *
+	 * @param id
+	 *            The identifier of the robot.
+	 * @return If the robot has a registered session.
+	 */
+	public boolean contains(Identifier id) {
+		return this.sessions.containsKey(id);
+	}
+
+	/**
+	 * Get a live view of the identifiers of all registered robots.
+	 *
+	 * @return The identifiers of all registered robots.
+	 */
+	public Set<Identifier> getIdentifiers() {
+		return this.sessions.keySet();
+	}
+
+	/**
+	 * Get the number of registered robots.
+	 *
+	 * @return The number of registered robots.
+	 */
+	public int size() {
+		return this.sessions.size();
+	}
+}
@@ -0,0 +1,69 @@
+package org.jrosbridge.springed.session;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jrosbridge.springed.codec.FrameBuffer;
+import org.jrosbridge.springed.codec.FrameBufferPool;
+
+/**
+ * A SharedFrame is a serialized frame that is sent to many sessions. Each
+ * session's {@link OutboundFrame OutboundFrame} gets its own read-only view of
+ * the same bytes, and the buffer goes back to its pool once the last view is
+ * released. The frame must not be changed after it is shared.
+ */
+public class SharedFrame {
+
+	private final FrameBuffer buffer;
+	private final FrameBufferPool pool;
+	private final ByteBuffer bytes;
+	private final AtomicInteger references;
+
+	/**
+	 * Share the contents of a buffer. The creator holds the first reference
+	 * and has to {@link #release() release} it when it is done handing out
+	 * views.
+	 *
+	 * @param buffer
+	 *            The buffer holding the serialized frame.
+	 * @param pool
+	 *            The pool the buffer is released to.
+	 */
+	public SharedFrame(FrameBuffer buffer, FrameBufferPool pool) {
+		this.buffer = buffer;
+		this.pool = pool;
+		this.bytes = buffer.toByteBuffer().asReadOnlyBuffer();
+		this.references = new AtomicInteger(1);
+	}
+
+	/**
+	 * Get a new view of the bytes and take a reference for it.
+	 *
+	 * @return A read-only view of the frame, with its own position.
+	 */
+	ByteBuffer retain() {
+		if (this.references.getAndIncrement() <= 0) {
+			throw new IllegalStateException("Shared frame was already released.");
+		}
+		return this.bytes.duplicate();
+	}
+
+	/**
+	 * Give up a reference. The buffer goes back to its pool when the last one
+	 * is given up.
+	 */
+	public void release() {
+		if (this.references.decrementAndGet() == 0) {
+			this.pool.release(this.buffer);
+		}
+	}
+
+	/**
+	 * Get the size of the frame in bytes.
+	 *
+	 * @return The size of the frame.
+	 */
+	public int size() {
+		return this.bytes.remaining();
+	}
+}
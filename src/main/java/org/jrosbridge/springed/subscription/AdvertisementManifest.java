@@ -0,0 +1,107 @@
+package org.jrosbridge.springed.subscription;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.json.JsonObject;
+
+import org.jrosbridge.springed.ROSConstants;
+
+/**
+ * The AdvertisementManifest remembers which topics and services are
+ * advertised on each robot, together with the operation that advertised them.
+ * rosbridge forgets a client's advertisements when its connection drops, so
+ * the operations are sent again when the robot reconnects.
+ *
+ * @param <Identifier>
+ *            The type used to identify a robot.
+ */
+public class AdvertisementManifest<Identifier> {
+
+	// each robot's map is guarded by itself and keeps the advertise order
+	private final ConcurrentMap<Identifier, Map<String, JsonObject>> advertisements;
+
+	/**
+	 * Create a new, empty manifest.
+	 */
+	public AdvertisementManifest() {
+		this.advertisements = new ConcurrentHashMap<Identifier, Map<String, JsonObject>>();
+	}
+
+	/**
+	 * Remember an advertisement. An earlier advertisement of the same topic or
+	 * service is replaced.
+	 *
+	 * @param robotId
+	 *            The identifier of the robot.
+	 * @param name
+	 *            The name of the topic or service.
+	 * @param call
+	 *            The advertise operation that was sent.
+	 */
+	public void add(Identifier robotId, String name, JsonObject call) {
+		this.advertisements.compute(robotId, (id, calls) -> {
+			if (calls == null) {
+				calls = new LinkedHashMap<String, JsonObject>();
+			}
+			synchronized (calls) {
+				calls.put(AdvertisementManifest.key(call, name), call);
+			}
+			return calls;
+		});
+	}
+
+	/**
+	 * Forget an advertisement.
+	 *
+	 * @param robotId
+	 *            The identifier of the robot.
+	 * @param op
+	 *            The op code the topic or service was advertised with.
+	 * @param name
+	 *            The name of the topic or service.
+	 */
+	public void remove(Identifier robotId, String op, String name) {
+		this.advertisements.computeIfPresent(robotId, (id, calls) -> {
+			synchronized (calls) {
+				calls.remove(op + " " + name);
+				return calls.isEmpty() ? null : calls;
+			}
+		});
+	}
+
+	/**
+	 * Get the advertise operations of a robot, in the order they were first
+	 * sent.
+	 *
+	 * @param robotId
+	 *            The identifier of the robot.
+	 * @return The advertise operations, possibly empty.
+	 */
+	public List<JsonObject> getAdvertisements(Identifier robotId) {
+		Map<String, JsonObject> calls = this.advertisements.get(robotId);
+		if (calls == null) {
+			return new ArrayList<JsonObject>();
+		}
+		synchronized (calls) {
+			return new ArrayList<JsonObject>(calls.values());
+		}
+	}
+
+	/**
+	 * Get the number of robots with advertisements.
+	 *
+	 * @return The number of robots.
+	 */
+	public int size() {
+		return this.advertisements.size();
+	}
+
+	private static String key(JsonObject call, String name) {
+		return call.getString(ROSConstants.FIELD_OP) + " " + name;
+	}
+}
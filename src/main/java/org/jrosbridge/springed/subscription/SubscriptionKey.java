@@ -0,0 +1,155 @@
+package org.jrosbridge.springed.subscription;
+
+import java.util.Objects;
+
+import org.jrosbridge.springed.ROSConstants;
+
+/**
+ * A SubscriptionKey identifies one rosbridge subscription of a robot. Local
+ * subscribers with equal keys receive exactly the same data, so they share a
+ * single subscription on the link.
+ *
+ * @param <Identifier>
+ *            The type used to identify a robot.
+ */
+public final class SubscriptionKey<Identifier> {
+
+	private final Identifier robotId;
+	private final String topic;
+	private final String type;
+	private final ROSConstants.CompressionType compression;
+	private final int throttleRate;
+	private final int fragmentSize;
+
+	/**
+	 * Create a new key.
+	 *
+	 * @param robotId
+	 *            The identifier of the robot.
+	 * @param topic
+	 *            The name of the topic.
+	 * @param type
+	 *            The message type of the topic.
+	 * @param compression
+	 *            The compression rosbridge uses for the topic.
+	 * @param throttleRate
+	 *            The throttle rate of the topic.
+	 */
+	public SubscriptionKey(Identifier robotId, String topic, String type,
+			ROSConstants.CompressionType compression, int throttleRate) {
+		this(robotId, topic, type, compression, throttleRate, 0);
+	}
+
+	/**
+	 * Create a new key.
+	 *
+	 * @param robotId
+	 *            The identifier of the robot.
+	 * @param topic
+	 *            The name of the topic.
+	 * @param type
+	 *            The message type of the topic.
+	 * @param compression
+	 *            The compression rosbridge uses for the topic.
+	 * @param throttleRate
+	 *            The throttle rate of the topic.
+	 * @param fragmentSize
+	 *            The size rosbridge fragments larger messages into, or 0 for
+	 *            no fragmentation.
+	 */
+	public SubscriptionKey(Identifier robotId, String topic, String type,
+			ROSConstants.CompressionType compression, int throttleRate,
+			int fragmentSize) {
+		this.robotId = robotId;
+		this.topic = topic;
+		this.type = type;
+		this.compression = compression;
+		this.throttleRate = throttleRate;
+		this.fragmentSize = fragmentSize;
+	}
+
+	/**
+	 * Get the identifier of the robot.
+	 *
+	 * @return The identifier of the robot.
+	 */
+	public Identifier getRobotId() {
+		return this.robotId;
+	}
+
+	/**
+	 * Get the name of the topic.
+	 *
+	 * @return The name of the topic.
+	 */
+	public String getTopic() {
+		return this.topic;
+	}
+
+	/**
+	 * Get the message type of the topic.
+	 *
+	 * @return The message type of the topic.
+	 */
+	public String getType() {
+		return this.type;
+	}
+
+	/**
+	 * Get the compression rosbridge uses for the topic.
+	 *
+	 * @return The compression type.
+	 */
+	public ROSConstants.CompressionType getCompression() {
+		return this.compression;
+	}
+
+	/**
+	 * Get the throttle rate of the topic.
+	 *
+	 * @return The throttle rate.
+	 */
+	public int getThrottleRate() {
+		return this.throttleRate;
+	}
+
+	/**
+	 * Get the size rosbridge fragments larger messages into.
+	 *
+	 * @return The fragment size, or 0 for no fragmentation.
+	 */
+	public int getFragmentSize() {
+		return this.fragmentSize;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		}
+		if (!(o instanceof SubscriptionKey)) {
+			return false;
+		}
+		SubscriptionKey<?> other = (SubscriptionKey<?>) o;
+		return this.throttleRate == other.throttleRate
+				&& this.fragmentSize == other.fragmentSize
+				&& this.compression == other.compression
+				&& Objects.equals(this.robotId, other.robotId)
+				&& Objects.equals(this.topic, other.topic)
+				&& Objects.equals(this.type, other.type);
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(this.robotId, this.topic, this.type,
+				this.compression, this.throttleRate, this.fragmentSize);
+	}
+
+	@Override
+	public String toString() {
+		return "SubscriptionKey[robotId=" + this.robotId + ", topic="
+				+ this.topic + ", type=" + this.type + ", compression="
+				+ this.compression + ", throttleRate=" + this.throttleRate
+				+ ", fragmentSize=" + this.fragmentSize + "]";
+	}
+}
@@ -0,0 +1,308 @@
+package org.jrosbridge.springed.subscription;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.json.Json;
+import javax.json.JsonObject;
+import javax.json.JsonObjectBuilder;
+
+import org.jrosbridge.springed.ROSConstants;
+import org.jrosbridge.springed.Ros;
+
+/**
+ * The SubscriptionManager shares rosbridge subscriptions between local
+ * subscribers. Subscribers are counted per {@link SubscriptionKey
+ * SubscriptionKey}: the first one sends the subscribe operation, and the
+ * unsubscribe operation is only sent when the last one leaves. However many
+ * consumers there are in the process, each robot sends every topic only once.
+ *
+ * @param <Identifier>
+ *            The type used to identify a robot.
+ */
+public class SubscriptionManager<Identifier> {
+
+	private final Ros<Identifier> ros;
+	private final ConcurrentMap<SubscriptionKey<Identifier>, Subscription> subscriptions;
+	// the keys of the subscriptions above, by robot, so the subscriptions of
+	// one robot are found without looking at those of all others
+	private final ConcurrentMap<Identifier, Set<SubscriptionKey<Identifier>>> keys;
+	// the message type of each subscribed topic, by robot, to pick the schema
+	// its frames are decoded with; a topic subscribed with several types has
+	// no entry, as decoding it with the schema of another type could change
+	// the numbers delivered
+	private final ConcurrentMap<Identifier, ConcurrentMap<String, String>> types;
+
+	/**
+	 * Create a new manager that sends its operations through the given ROS
+	 * connection.
+	 *
+	 * @param ros
+	 *            The ROS connection.
+	 */
+	public SubscriptionManager(Ros<Identifier> ros) {
+		this.ros = ros;
+		this.subscriptions = new ConcurrentHashMap<SubscriptionKey<Identifier>, Subscription>();
+		this.keys = new ConcurrentHashMap<Identifier, Set<SubscriptionKey<Identifier>>>();
+		this.types = new ConcurrentHashMap<Identifier, ConcurrentMap<String, String>>();
+	}
+
+	/**
+	 * Add a local subscriber for the given key, subscribing on the robot if it
+	 * is the first one.
+	 *
+	 * @param key
+	 *            The subscription to join.
+	 * @throws IOException
+	 *             If the subscribe operation could not be sent. The subscriber
+	 *             is not counted then.
+	 */
+	public void subscribe(SubscriptionKey<Identifier> key) throws IOException {
+		while (true) {
+			Subscription subscription = this.subscriptions.computeIfAbsent(
+					key, k -> new Subscription());
+			synchronized (subscription) {
+				if (subscription.removed) {
+					// the last subscriber just left, start over
+					continue;
+				}
+				if (subscription.count == 0) {
+					subscription.id = "subscribe:" + key.getTopic() + ":"
+							+ this.ros.nextId();
+					try {
+						this.ros.send(SubscriptionManager.subscribeCall(key,
+								subscription.id), key.getRobotId());
+					} catch (IOException | RuntimeException e) {
+						subscription.removed = true;
+						this.subscriptions.remove(key, subscription);
+						this.updateType(key);
+						throw e;
+					}
+					this.updateType(key);
+				}
+				subscription.count++;
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Remove a local subscriber for the given key, unsubscribing on the robot
+	 * if it was the last one. While the robot is not connected, nothing is
+	 * sent: rosbridge forgot the subscription with the connection, and it is
+	 * not sent again when the robot reconnects.
+	 *
+	 * @param key
+	 *            The subscription to leave.
+	 * @throws IOException
+	 *             If the unsubscribe operation could not be sent.
+	 */
+	public void unsubscribe(SubscriptionKey<Identifier> key) throws IOException {
+		Subscription subscription = this.subscriptions.get(key);
+		if (subscription == null) {
+			return;
+		}
+		synchronized (subscription) {
+			if (subscription.removed || --subscription.count > 0) {
+				return;
+			}
+			subscription.removed = true;
+			this.subscriptions.remove(key, subscription);
+			this.updateType(key);
+			if (!this.ros.getSessions().contains(key.getRobotId())) {
+				return;
+			}
+			// rosbridge removes subscribers by id, so a new subscribe for the
+			// same key can safely overtake this
+			JsonObject call = Json.createObjectBuilder()
+					.add(ROSConstants.FIELD_OP, ROSConstants.OP_CODE_UNSUBSCRIBE)
+					.add(ROSConstants.FIELD_ID, subscription.id)
+					.add(ROSConstants.FIELD_TOPIC, key.getTopic()).build();
+			this.ros.send(call, key.getRobotId());
+		}
+	}
+
+	/**
+	 * Send the subscribe operations of all subscriptions on a robot again,
+	 * e.g., after it reconnected. rosbridge forgets a client's subscriptions
+	 * when its connection drops, while the local subscribers stay. The
+	 * subscriptions keep their ids.
+	 *
+	 * @param robotId
+	 *            The identifier of the robot.
+	 * @return The number of subscriptions sent.
+	 * @throws IOException
+	 *             If a subscribe operation could not be sent. Later ones are
+	 *             not sent then.
+	 */
+	public int resubscribe(Identifier robotId) throws IOException {
+		int count = 0;
+		for (SubscriptionKey<Identifier> key : this.getSubscriptions(robotId)) {
+			Subscription subscription = this.subscriptions.get(key);
+			if (subscription == null) {
+				continue;
+			}
+			synchronized (subscription) {
+				// skip subscriptions that are still being set up or just left
+				if (subscription.removed || subscription.count == 0) {
+					continue;
+				}
+				this.ros.send(SubscriptionManager.subscribeCall(key,
+						subscription.id), robotId);
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Get the number of local subscribers of the given key.
+	 *
+	 * @param key
+	 *            The subscription.
+	 * @return The number of local subscribers.
+	 */
+	public int getSubscriberCount(SubscriptionKey<Identifier> key) {
+		Subscription subscription = this.subscriptions.get(key);
+		if (subscription == null) {
+			return 0;
+		}
+		synchronized (subscription) {
+			return subscription.removed ? 0 : subscription.count;
+		}
+	}
+
+	/**
+	 * Get the subscriptions that are active on the given robot.
+	 *
+	 * @param robotId
+	 *            The identifier of the robot.
+	 * @return The keys of the active subscriptions.
+	 */
+	public List<SubscriptionKey<Identifier>> getSubscriptions(
+			Identifier robotId) {
+		Set<SubscriptionKey<Identifier>> robotKeys = this.keys.get(robotId);
+		return robotKeys == null ? new ArrayList<SubscriptionKey<Identifier>>()
+				: new ArrayList<SubscriptionKey<Identifier>>(robotKeys);
+	}
+
+	/**
+	 * Check if a topic of a robot is subscribed with the given compression.
+	 *
+	 * @param robotId
+	 *            The identifier of the robot.
+	 * @param topic
+	 *            The topic.
+	 * @param compression
+	 *            The compression rosbridge uses for the topic.
+	 * @return If any subscription of the topic uses the compression.
+	 */
+	public boolean isSubscribed(Identifier robotId, String topic,
+			ROSConstants.CompressionType compression) {
+		Set<SubscriptionKey<Identifier>> robotKeys = robotId == null ? null
+				: this.keys.get(robotId);
+		if (robotKeys == null) {
+			return false;
+		}
+		for (SubscriptionKey<Identifier> key : robotKeys) {
+			if (key.getCompression() == compression
+					&& key.getTopic().equals(topic)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Get the message type a topic of a robot is subscribed with.
+	 *
+	 * @param robotId
+	 *            The identifier of the robot.
+	 * @param topic
+	 *            The topic.
+	 * @return The message type, or null if the topic is not subscribed.
+	 */
+	public String getType(Identifier robotId, String topic) {
+		ConcurrentMap<String, String> topics = robotId == null ? null
+				: this.types.get(robotId);
+		return topics == null || topic == null ? null : topics.get(topic);
+	}
+
+	/**
+	 * Get the number of subscriptions on all robots.
+	 *
+	 * @return The number of subscriptions.
+	 */
+	public int size() {
+		return this.subscriptions.size();
+	}
+
+	/**
+	 * Record if the given key is subscribed in the keys of its robot, and the
+	 * message type of its topic again, from all its subscriptions on the
+	 * robot. Updates of a robot are serialized, so the last one always sees
+	 * every subscription added before it.
+	 */
+	private void updateType(SubscriptionKey<Identifier> key) {
+		this.types.compute(key.getRobotId(), (id, topics) -> {
+			Set<SubscriptionKey<Identifier>> robotKeys = this.keys
+					.computeIfAbsent(id, k -> ConcurrentHashMap.newKeySet());
+			if (this.subscriptions.containsKey(key)) {
+				robotKeys.add(key);
+			} else {
+				robotKeys.remove(key);
+			}
+			if (robotKeys.isEmpty()) {
+				this.keys.remove(id);
+			}
+
+			String type = null;
+			boolean conflict = false;
+			for (SubscriptionKey<Identifier> other : robotKeys) {
+				// another subscription of the topic, e.g. with other options
+				if (other.getTopic().equals(key.getTopic())) {
+					conflict |= type != null
+							&& !type.equals(other.getType());
+					type = other.getType();
+				}
+			}
+			if (topics == null) {
+				topics = new ConcurrentHashMap<String, String>();
+			}
+			if (type == null || conflict) {
+				topics.remove(key.getTopic());
+			} else {
+				topics.put(key.getTopic(), type);
+			}
+			return topics.isEmpty() ? null : topics;
+		});
+	}
+
+	private static JsonObject subscribeCall(SubscriptionKey<?> key, String id) {
+		JsonObjectBuilder call = Json.createObjectBuilder()
+				.add(ROSConstants.FIELD_OP, ROSConstants.OP_CODE_SUBSCRIBE)
+				.add(ROSConstants.FIELD_ID, id)
+				.add(ROSConstants.FIELD_TYPE, key.getType())
+				.add(ROSConstants.FIELD_TOPIC, key.getTopic())
+				.add(ROSConstants.FIELD_COMPRESSION,
+						key.getCompression().toString())
+				.add(ROSConstants.FIELD_THROTTLE_RATE, key.getThrottleRate());
+		if (key.getFragmentSize() > 0) {
+			call.add(ROSConstants.FIELD_FRAGMENT_SIZE, key.getFragmentSize());
+		}
+		return call.build();
+	}
+
+	/**
+	 * The state of one shared subscription, guarded by its own monitor.
+	 */
+	private static class Subscription {
+		int count;
+		String id;
+		boolean removed;
+	}
+}
@@ -0,0 +1,78 @@
+package org.jrosbridge.springed;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.jrosbridge.springed.callback.TopicCallback;
+import org.jrosbridge.springed.dispatch.CallbackMetrics;
+import org.jrosbridge.springed.dispatch.ConflatingTopicCallback;
+import org.jrosbridge.springed.session.DummySession;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+public class TestCallbackMetricsRegistry {
+
+	private static final String PUBLISH = "{\"op\":\"publish\",\"topic\":\"/odom\",\"msg\":{}}";
+
+	private Ros<String> ros;
+	private DummySession session;
+
+	@Before
+	public void setUp() {
+		ros = new Ros<String>() {
+			@Override
+			protected void bootstrapConnection(WebSocketSession session) {
+			}
+		};
+		ros.setWriterExecutor(Runnable::run);
+		session = new DummySession("s1");
+		ros.registerSession(session, "r1");
+	}
+
+	@Test
+	public void testKeptUntilLastRegistration() {
+		TopicCallback cb = message -> {
+		};
+		ros.registerTopicCallback("r1", "/odom", cb);
+		ros.registerTopicCallback("r2", "/odom", cb);
+		CallbackMetrics metrics = ros.getCallbackMetrics(cb);
+		assertNotNull(metrics);
+
+		ros.deregisterTopicCallback("r2", "/odom", cb);
+		assertSame(metrics, ros.getCallbackMetrics(cb));
+		// not registered there, so nothing changes
+		ros.deregisterTopicCallback("r3", "/odom", cb);
+		assertSame(metrics, ros.getCallbackMetrics(cb));
+		ros.deregisterTopicCallback("r1", "/odom", cb);
+		assertNull(ros.getCallbackMetrics(cb));
+	}
+
+	@Test
+	public void testDeregisteredWhileInFlight() throws Exception {
+		List<Runnable> pending = new CopyOnWriteArrayList<Runnable>();
+		ros.setCallbackDispatcher((robotId, topic, task) -> pending.add(task));
+		TopicCallback cb = message -> {
+		};
+		ros.registerTopicCallback("r1", "/odom", cb);
+		ros.handleTextMessage(session, new TextMessage(PUBLISH));
+		ros.deregisterTopicCallback("r1", "/odom", cb);
+
+		assertEquals(1, pending.size());
+		pending.get(0).run();
+		assertNull(ros.getCallbackMetrics(cb));
+		assertTrue(ros.getCallbackMetrics().isEmpty());
+	}
+
+	@Test
+	public void testConflatingKeepsOwnMetrics() {
+		ConflatingTopicCallback latest = new ConflatingTopicCallback("/odom",
+				message -> {
+				}, Runnable::run);
+		ros.registerTopicCallback("r1", "/odom", latest);
+		assertSame(latest.getMetrics(), ros.getCallbackMetrics(latest));
+	}
+}
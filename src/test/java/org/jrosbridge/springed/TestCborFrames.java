@@ -0,0 +1,100 @@
+package org.jrosbridge.springed;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.json.JsonObject;
+
+import org.jrosbridge.springed.codec.PrimitiveJsonArray;
+import org.jrosbridge.springed.messages.Message;
+import org.jrosbridge.springed.primitives.Time;
+import org.jrosbridge.springed.session.DummySession;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+public class TestCborFrames {
+
+	private Ros<String> ros;
+	private DummySession session;
+
+	@Before
+	public void setUp() {
+		ros = new Ros<String>() {
+			@Override
+			protected void bootstrapConnection(WebSocketSession session) {
+			}
+		};
+		ros.setWriterExecutor(Runnable::run);
+		session = new DummySession("s1");
+		ros.registerSession(session, "r1");
+	}
+
+	/**
+	 * Encode a publish frame whose message has the fields rosbridge sends for
+	 * cbor-raw: {"op": "publish", "topic": topic, "msg": {"secs": 1, "nsecs":
+	 * 2, "bytes": h'0102'}}.
+	 */
+	private static BinaryMessage rawShapedPublish(String topic) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		out.write(0xA3);
+		text(out, ROSConstants.FIELD_OP);
+		text(out, ROSConstants.OP_CODE_PUBLISH);
+		text(out, ROSConstants.FIELD_TOPIC);
+		text(out, topic);
+		text(out, ROSConstants.FIELD_MESSAGE);
+		out.write(0xA3);
+		text(out, ROSConstants.FIELD_SECS);
+		out.write(0x01);
+		text(out, ROSConstants.FIELD_NSECS);
+		out.write(0x02);
+		text(out, ROSConstants.FIELD_BYTES);
+		out.write(0x42);
+		out.write(0x01);
+		out.write(0x02);
+		return new BinaryMessage(ByteBuffer.wrap(out.toByteArray()));
+	}
+
+	private static void text(ByteArrayOutputStream out, String s) {
+		byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+		out.write(0x60 + bytes.length);
+		out.write(bytes, 0, bytes.length);
+	}
+
+	@Test
+	public void testRawPublish() throws Exception {
+		List<byte[]> received = new CopyOnWriteArrayList<byte[]>();
+		List<Time> stamps = new CopyOnWriteArrayList<Time>();
+		new Topic<String>(ros, "r1", "/scan", "sensor_msgs/LaserScan")
+				.subscribeRaw((message, stamp) -> {
+					byte[] bytes = new byte[message.remaining()];
+					message.get(bytes);
+					received.add(bytes);
+					stamps.add(stamp);
+				});
+		ros.handleBinaryMessage(session, rawShapedPublish("/scan"));
+		assertEquals(1, received.size());
+		assertArrayEquals(new byte[] { 1, 2 }, received.get(0));
+		assertEquals(1, stamps.get(0).getSecs());
+		assertEquals(2, stamps.get(0).getNsecs());
+	}
+
+	@Test
+	public void testCborPublishWithBytesField() throws Exception {
+		List<Message> received = new CopyOnWriteArrayList<Message>();
+		new Topic<String>(ros, "r1", "/blob", "my_msgs/Blob",
+				ROSConstants.CompressionType.cbor).subscribe(received::add);
+		// a message of the same shape is not raw on a plain cbor subscription
+		ros.handleBinaryMessage(session, rawShapedPublish("/blob"));
+		assertEquals(1, received.size());
+		JsonObject msg = received.get(0).toJsonObject();
+		assertEquals(1, msg.getInt(ROSConstants.FIELD_SECS));
+		assertTrue(msg.get(ROSConstants.FIELD_BYTES) instanceof PrimitiveJsonArray);
+	}
+}
@@ -0,0 +1,263 @@
+package org.jrosbridge.springed;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.json.Json;
+import javax.json.JsonObject;
+
+import org.jrosbridge.springed.codec.PrimitiveJsonArray;
+import org.jrosbridge.springed.messages.Message;
+import org.jrosbridge.springed.messages.std.Float64MultiArray;
+import org.jrosbridge.springed.session.DummySession;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+public class TestFragmentation {
+
+	private Ros<String> ros;
+	private RecordingSession session;
+
+	@Before
+	public void setUp() {
+		ros = new Ros<String>() {
+			@Override
+			protected void bootstrapConnection(WebSocketSession session) {
+			}
+		};
+		ros.setWriterExecutor(Runnable::run);
+		session = new RecordingSession("s1");
+		ros.registerSession(session, "r1");
+	}
+
+	@Test
+	public void testSubscribeFragmentSize() throws IOException {
+		Topic<String> topic = new Topic<String>(ros, "r1", "/map",
+				"nav_msgs/OccupancyGrid", ROSConstants.CompressionType.none,
+				0, 1000);
+		topic.subscribe(message -> {
+		});
+		assertEquals(1000, session.frames.get(0).getInt(
+				ROSConstants.FIELD_FRAGMENT_SIZE));
+
+		new Topic<String>(ros, "r1", "/odom", "nav_msgs/Odometry")
+				.subscribe(message -> {
+				});
+		assertFalse(session.frames.get(1).containsKey(
+				ROSConstants.FIELD_FRAGMENT_SIZE));
+	}
+
+	@Test
+	public void testPublishRoundTrip() throws Exception {
+		StringBuilder data = new StringBuilder();
+		for (int i = 0; i < 500; i++) {
+			data.append("cell ").append(i).append(" 😀 ");
+		}
+		Topic<String> topic = new Topic<String>(ros, "r1", "/map",
+				"std_msgs/String", ROSConstants.CompressionType.none, 0, 256);
+		topic.publish(new Message(Json.createObjectBuilder()
+				.add("data", data.toString()).build()));
+
+		// advertise, then the fragments of the publish
+		assertEquals(ROSConstants.OP_CODE_ADVERTISE, session.frames.get(0)
+				.getString(ROSConstants.FIELD_OP));
+		List<JsonObject> fragments = session.frames.subList(1,
+				session.frames.size());
+		assertTrue(fragments.size() > 1);
+		for (JsonObject fragment : fragments) {
+			assertEquals(ROSConstants.OP_CODE_FRAGMENT,
+					fragment.getString(ROSConstants.FIELD_OP));
+			assertTrue(fragment.getString(ROSConstants.FIELD_DATA).length() <= 256);
+			assertEquals(fragments.size(),
+					fragment.getInt(ROSConstants.FIELD_TOTAL));
+		}
+
+		// feed them back in reverse order as if rosbridge sent them
+		List<Message> received = new CopyOnWriteArrayList<Message>();
+		ros.registerTopicCallback("r1", "/map", received::add);
+		for (int i = fragments.size() - 1; i >= 0; i--) {
+			ros.handleTextMessage(session, new TextMessage(fragments.get(i)
+					.toString()));
+		}
+		assertEquals(1, received.size());
+		assertEquals(data.toString(), received.get(0).toJsonObject()
+				.getString("data"));
+		assertEquals(0, ros.getFragmentAssembler().size());
+	}
+
+	@Test
+	public void testLargePublishBesideOtherTraffic() throws Exception {
+		List<Runnable> writes = new ArrayList<Runnable>();
+		ros.setWriterExecutor(writes::add);
+		ros.setOutboundQueueLimits(10, 1000);
+		RecordingSession busy = new RecordingSession("s2");
+		ros.registerSession(busy, "r2");
+		StringBuilder data = new StringBuilder();
+		for (int i = 0; i < 1000; i++) {
+			data.append("cell ").append(i).append(' ');
+		}
+		Topic<String> map = new Topic<String>(ros, "r2", "/map",
+				"std_msgs/String", ROSConstants.CompressionType.none, 0, 256);
+		Topic<String> chatter = new Topic<String>(ros, "r2", "/chatter",
+				"std_msgs/String");
+
+		// the advertisement is still queued, and the map is larger than the
+		// queue
+		map.publish(new Message(Json.createObjectBuilder()
+				.add("data", data.toString()).build()));
+		chatter.publish(new Message("{\"data\":\"hello\"}"));
+		while (!writes.isEmpty()) {
+			writes.remove(0).run();
+		}
+		assertTrue(busy.isOpen());
+
+		// the chatter publish went out between the fragments of the map
+		List<String> ops = new ArrayList<String>();
+		for (JsonObject frame : busy.frames) {
+			ops.add(frame.getString(ROSConstants.FIELD_OP));
+		}
+		int chatterPublish = ops.indexOf(ROSConstants.OP_CODE_PUBLISH);
+		assertTrue(chatterPublish > ops.indexOf(ROSConstants.OP_CODE_FRAGMENT));
+		assertTrue(chatterPublish < ops.lastIndexOf(ROSConstants.OP_CODE_FRAGMENT));
+
+		List<Message> received = new CopyOnWriteArrayList<Message>();
+		ros.registerTopicCallback("r2", "/map", received::add);
+		for (JsonObject frame : busy.frames) {
+			if (ROSConstants.OP_CODE_FRAGMENT.equals(frame
+					.getString(ROSConstants.FIELD_OP))) {
+				ros.handleTextMessage(busy, new TextMessage(frame.toString()));
+			}
+		}
+		assertEquals(1, received.size());
+		assertEquals(data.toString(), received.get(0).toJsonObject()
+				.getString("data"));
+	}
+
+	@Test
+	public void testTypedPublishDecodesArrays() throws Exception {
+		List<Message> received = new CopyOnWriteArrayList<Message>();
+		new Topic<String>(ros, "r1", "/data", Float64MultiArray.TYPE)
+				.subscribe(received::add);
+		ros.handleTextMessage(session, new TextMessage(
+				"{\"op\":\"publish\",\"topic\":\"/data\","
+						+ "\"msg\":{\"layout\":{},\"data\":[1.5,2]}}"));
+		assertEquals(1, received.size());
+		JsonObject msg = received.get(0).toJsonObject();
+		assertTrue(msg.get(Float64MultiArray.FIELD_DATA) instanceof PrimitiveJsonArray);
+		assertArrayEquals(new double[] { 1.5, 2 }, Float64MultiArray
+				.fromMessage(received.get(0)).getData(), 0);
+	}
+
+	@Test
+	public void testFragmentedTypedPublishDecodesArrays() throws Exception {
+		List<Message> received = new CopyOnWriteArrayList<Message>();
+		new Topic<String>(ros, "r1", "/data", Float64MultiArray.TYPE)
+				.subscribe(received::add);
+		String publish = "{\"op\":\"publish\",\"topic\":\"/data\","
+				+ "\"msg\":{\"layout\":{},\"data\":[1.5,2]}}";
+		int half = publish.length() / 2;
+		String[] parts = { publish.substring(0, half),
+				publish.substring(half) };
+		for (int i = 0; i < parts.length; i++) {
+			ros.handleTextMessage(session, new TextMessage(Json
+					.createObjectBuilder()
+					.add(ROSConstants.FIELD_OP, ROSConstants.OP_CODE_FRAGMENT)
+					.add(ROSConstants.FIELD_ID, "publish:/data:1")
+					.add(ROSConstants.FIELD_DATA, parts[i])
+					.add(ROSConstants.FIELD_NUM, i)
+					.add(ROSConstants.FIELD_TOTAL, parts.length).build()
+					.toString()));
+		}
+		assertEquals(1, received.size());
+		// the reassembled text went through the schema decoder
+		assertTrue(received.get(0).toJsonObject()
+				.get(Float64MultiArray.FIELD_DATA) instanceof PrimitiveJsonArray);
+	}
+
+	@Test
+	public void testPublishNotFittingSchemaIsStillDelivered() throws Exception {
+		List<Message> received = new CopyOnWriteArrayList<Message>();
+		new Topic<String>(ros, "r1", "/data", Float64MultiArray.TYPE)
+				.subscribe(received::add);
+		ros.handleTextMessage(session, new TextMessage(
+				"{\"op\":\"publish\",\"topic\":\"/data\","
+						+ "\"msg\":{\"data\":[\"a\",true]}}"));
+		assertEquals(1, received.size());
+		assertEquals("[\"a\",true]", received.get(0).toJsonObject()
+				.get(Float64MultiArray.FIELD_DATA).toString());
+	}
+
+	@Test
+	public void testSmallPublishIsNotFragmented() throws IOException {
+		Topic<String> topic = new Topic<String>(ros, "r1", "/chatter",
+				"std_msgs/String", ROSConstants.CompressionType.none, 0, 256);
+		topic.publish(new Message("{\"data\":\"hi\"}"));
+		assertEquals(ROSConstants.OP_CODE_PUBLISH, session.frames.get(1)
+				.getString(ROSConstants.FIELD_OP));
+	}
+
+	@Test
+	public void testPublishIds() throws IOException {
+		Topic<String> topic = new Topic<String>(ros, "r1", "/cmd_vel",
+				"geometry_msgs/Twist");
+		topic.publish(new Message("{\"linear\":{\"x\":1}}"));
+		JsonObject publish = session.frames.get(1);
+		assertTrue(publish.getString(ROSConstants.FIELD_ID).startsWith(
+				"publish:/cmd_vel:"));
+		assertEquals(1, publish.getJsonObject(ROSConstants.FIELD_MESSAGE)
+				.getJsonObject("linear").getInt("x"));
+
+		topic.setPublishIds(false);
+		topic.publish(new Message("{\"linear\":{\"x\":2}}"));
+		publish = session.frames.get(2);
+		assertFalse(publish.containsKey(ROSConstants.FIELD_ID));
+		assertEquals("/cmd_vel", publish.getString(ROSConstants.FIELD_TOPIC));
+	}
+
+	@Test
+	public void testSessionClosedDropsFragments() throws Exception {
+		JsonObject fragment = Json.createObjectBuilder()
+				.add(ROSConstants.FIELD_OP, ROSConstants.OP_CODE_FRAGMENT)
+				.add(ROSConstants.FIELD_ID, "publish:/map:1")
+				.add(ROSConstants.FIELD_DATA, "{\"op\":")
+				.add(ROSConstants.FIELD_NUM, 0)
+				.add(ROSConstants.FIELD_TOTAL, 2).build();
+		ros.handleTextMessage(session, new TextMessage(fragment.toString()));
+		assertEquals(1, ros.getFragmentAssembler().size());
+		ros.deregisterSession("r1");
+		assertEquals(0, ros.getFragmentAssembler().size());
+	}
+
+	/**
+	 * Parses frames when they are sent, their pooled buffers are reused
+	 * afterwards.
+	 */
+	private static class RecordingSession extends DummySession {
+
+		final List<JsonObject> frames = new CopyOnWriteArrayList<JsonObject>();
+
+		RecordingSession(String id) {
+			super(id);
+		}
+
+		@Override
+		public void sendMessage(WebSocketMessage<?> message) throws IOException {
+			super.sendMessage(message);
+			ByteBuffer payload = ((ByteBuffer) message.getPayload())
+					.duplicate();
+			this.frames.add(Json.createReader(
+					new StringReader(StandardCharsets.UTF_8.decode(payload)
+							.toString())).readObject());
+		}
+	}
+}
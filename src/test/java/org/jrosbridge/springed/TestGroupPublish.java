@@ -0,0 +1,107 @@
+package org.jrosbridge.springed;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.json.Json;
+import javax.json.JsonObject;
+
+import org.jrosbridge.springed.messages.Message;
+import org.jrosbridge.springed.session.DummySession;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+public class TestGroupPublish {
+
+	private Ros<String> ros;
+	private RecordingSession s1;
+	private RecordingSession s2;
+
+	@Before
+	public void setUp() {
+		ros = new Ros<String>() {
+			@Override
+			protected void bootstrapConnection(WebSocketSession session) {
+			}
+		};
+		ros.setWriterExecutor(Runnable::run);
+		s1 = new RecordingSession("s1");
+		s2 = new RecordingSession("s2");
+		ros.registerSession(s1, "r1");
+		ros.registerSession(s2, "r2");
+	}
+
+	@Test
+	public void testPublishToGroup() {
+		Map<String, CompletableFuture<Void>> completions = ros.publish(
+				Arrays.asList("r1", "r2"), "/cmd_vel",
+				new Message("{\"linear\":{\"x\":1}}"));
+		assertEquals(Arrays.asList("r1", "r2"),
+				Arrays.asList(completions.keySet().toArray()));
+		for (CompletableFuture<Void> completion : completions.values()) {
+			assertTrue(completion.isDone());
+			assertFalse(completion.isCompletedExceptionally());
+		}
+
+		for (RecordingSession session : Arrays.asList(s1, s2)) {
+			assertEquals(1, session.frames.size());
+			JsonObject publish = session.frames.get(0);
+			assertEquals(ROSConstants.OP_CODE_PUBLISH,
+					publish.getString(ROSConstants.FIELD_OP));
+			assertEquals("/cmd_vel", publish.getString(ROSConstants.FIELD_TOPIC));
+			assertEquals(1, publish.getJsonObject(ROSConstants.FIELD_MESSAGE)
+					.getJsonObject("linear").getInt("x"));
+		}
+	}
+
+	@Test
+	public void testRobotNotConnected() {
+		Map<String, CompletableFuture<Void>> completions = ros.publish(
+				Arrays.asList("r1", "r3"), "/chatter",
+				new Message("{\"data\":\"hi\"}"));
+		assertFalse(completions.get("r1").isCompletedExceptionally());
+		assertTrue(completions.get("r3").isCompletedExceptionally());
+		assertEquals(1, s1.frames.size());
+		assertEquals(0, s2.frames.size());
+	}
+
+	@Test
+	public void testEmptyGroup() {
+		assertTrue(ros.publish(Arrays.<String> asList(), "/chatter",
+				new Message("{}")).isEmpty());
+	}
+
+	/**
+	 * Parses frames when they are sent, their pooled buffers are reused
+	 * afterwards.
+	 */
+	private static class RecordingSession extends DummySession {
+
+		final List<JsonObject> frames = new CopyOnWriteArrayList<JsonObject>();
+
+		RecordingSession(String id) {
+			super(id);
+		}
+
+		@Override
+		public void sendMessage(WebSocketMessage<?> message) throws IOException {
+			super.sendMessage(message);
+			ByteBuffer payload = ((ByteBuffer) message.getPayload())
+					.duplicate();
+			this.frames.add(Json.createReader(
+					new StringReader(StandardCharsets.UTF_8.decode(payload)
+							.toString())).readObject());
+		}
+	}
+}
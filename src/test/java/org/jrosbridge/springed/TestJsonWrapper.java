@@ -67,11 +67,40 @@ public class TestJsonWrapper {
 		assertTrue(m2.equals(m2));
 	}
 
+	@Test
+	public void testLazyBuild() {
+		CountingJsonWrapper lazy = new CountingJsonWrapper();
+		assertEquals(0, lazy.builds);
+		JsonObject json = lazy.toJsonObject();
+		assertEquals(1, json.getInt("test"));
+		assertSame(json, lazy.toJsonObject());
+		assertSame(lazy.toString(), lazy.toString());
+		assertEquals("{\"test\":1}", lazy.toString());
+		assertEquals(1, lazy.builds);
+		assertTrue(lazy.equals(new DummyJsonWrapper("{\"test\":1}")));
+	}
+
 	@Test
 	public void testEqualsWrongObject() {
 		assertFalse(empty.equals(new String(JsonWrapper.EMPTY_JSON)));
 	}
 
+	private class CountingJsonWrapper extends JsonWrapper {
+
+		private int builds;
+
+		@Override
+		protected JsonObject buildJsonObject() {
+			this.builds++;
+			return Json.createObjectBuilder().add("test", 1).build();
+		}
+
+		@Override
+		public JsonWrapper clone() {
+			return null;
+		}
+	}
+
 	private class DummyJsonWrapper extends JsonWrapper {
 		public DummyJsonWrapper() {
 			super();
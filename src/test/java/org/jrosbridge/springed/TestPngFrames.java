@@ -0,0 +1,77 @@
+package org.jrosbridge.springed;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import javax.json.Json;
+
+import org.jrosbridge.springed.codec.TestPngFrameDecoder;
+import org.jrosbridge.springed.session.DummySession;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+public class TestPngFrames {
+
+	private Ros<String> ros;
+	private DummySession session;
+	private ExecutorService images;
+
+	@Before
+	public void setUp() {
+		ros = new Ros<String>() {
+			@Override
+			protected void bootstrapConnection(WebSocketSession session) {
+			}
+		};
+		ros.setWriterExecutor(Runnable::run);
+		images = Executors.newFixedThreadPool(4);
+		ros.setImageExecutor(images);
+		session = new DummySession("s1");
+		ros.registerSession(session, "r1");
+	}
+
+	@After
+	public void tearDown() {
+		images.shutdownNow();
+	}
+
+	@Test
+	public void testFramesOfSessionStayInOrder() throws Exception {
+		List<Integer> received = new CopyOnWriteArrayList<Integer>();
+		ros.registerTopicCallback("r1", "/map", message -> received
+				.add(message.toJsonObject().getInt("seq")));
+
+		int count = 50;
+		for (int i = 0; i < count; i++) {
+			String frame = Json.createObjectBuilder()
+					.add(ROSConstants.FIELD_OP, ROSConstants.OP_CODE_PUBLISH)
+					.add(ROSConstants.FIELD_TOPIC, "/map")
+					.add(ROSConstants.FIELD_MESSAGE,
+							Json.createObjectBuilder().add("seq", i)).build()
+					.toString();
+			ros.handleTextMessage(session, new TextMessage(Json
+					.createObjectBuilder()
+					.add(ROSConstants.FIELD_OP, ROSConstants.OP_CODE_PNG)
+					.add(ROSConstants.FIELD_DATA,
+							TestPngFrameDecoder.encode(frame)).build()
+					.toString()));
+		}
+
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+		while (received.size() < count && System.nanoTime() < deadline) {
+			Thread.sleep(10);
+		}
+		assertEquals(count, received.size());
+		for (int i = 0; i < count; i++) {
+			assertEquals(i, received.get(i).intValue());
+		}
+	}
+}
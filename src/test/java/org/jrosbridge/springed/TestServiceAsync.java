@@ -0,0 +1,338 @@
+package org.jrosbridge.springed;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import javax.json.Json;
+import javax.json.JsonObject;
+
+import org.jrosbridge.springed.services.ServiceCallLimiter;
+import org.jrosbridge.springed.services.ServiceException;
+import org.jrosbridge.springed.services.ServiceRequest;
+import org.jrosbridge.springed.services.ServiceResponse;
+import org.jrosbridge.springed.services.ServiceResponseCache;
+import org.jrosbridge.springed.services.ServiceTimeoutException;
+import org.jrosbridge.springed.session.DummySession;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+public class TestServiceAsync {
+
+	private Ros<String> ros;
+	private RecordingSession session;
+	private Service<String> service;
+
+	@Before
+	public void setUp() {
+		ros = new Ros<String>() {
+			@Override
+			protected void bootstrapConnection(WebSocketSession session) {
+			}
+		};
+		ros.setWriterExecutor(Runnable::run);
+		session = new RecordingSession("s1");
+		ros.registerSession(session, "r1");
+		service = new Service<String>(ros, "r1", "/add_two_ints",
+				"rospy_tutorials/AddTwoInts");
+	}
+
+	private void respond(JsonObject call, int sum) throws Exception {
+		JsonObject response = Json.createObjectBuilder()
+				.add(ROSConstants.FIELD_OP,
+						ROSConstants.OP_CODE_SERVICE_RESPONSE)
+				.add(ROSConstants.FIELD_ID, call.get(ROSConstants.FIELD_ID))
+				.add(ROSConstants.FIELD_SERVICE, "/add_two_ints")
+				.add(ROSConstants.FIELD_VALUES,
+						Json.createObjectBuilder().add("sum", sum))
+				.add(ROSConstants.FIELD_RESULT, true).build();
+		ros.handleTextMessage(session, new TextMessage(response.toString()));
+	}
+
+	@Test
+	public void testManyCallsInFlight() throws Exception {
+		List<CompletableFuture<ServiceResponse>> futures = new CopyOnWriteArrayList<CompletableFuture<ServiceResponse>>();
+		for (int i = 0; i < 1000; i++) {
+			futures.add(service.callServiceAsync(new ServiceRequest(
+					"{\"a\":" + i + ",\"b\":1}")));
+		}
+		assertEquals(1000, session.calls.size());
+		assertEquals(1000, ros.getPendingCalls().size());
+
+		// answer in reverse order
+		for (int i = 999; i >= 0; i--) {
+			JsonObject call = session.calls.get(i);
+			assertEquals(ROSConstants.OP_CODE_CALL_SERVICE,
+					call.getString(ROSConstants.FIELD_OP));
+			respond(call, call.getJsonObject(ROSConstants.FIELD_ARGS).getInt(
+					"a") + 1);
+		}
+		for (int i = 0; i < 1000; i++) {
+			ServiceResponse response = futures.get(i).get(1, TimeUnit.SECONDS);
+			assertTrue(response.getResult());
+			assertEquals(i + 1, response.toJsonObject().getInt("sum"));
+		}
+		assertEquals(0, ros.getPendingCalls().size());
+	}
+
+	@Test
+	public void testResponseOnOtherSession() throws Exception {
+		DummySession other = new DummySession("s2");
+		ros.registerSession(other, "r2");
+		CompletableFuture<ServiceResponse> future = service
+				.callServiceAsync(new ServiceRequest("{\"a\":1,\"b\":2}"));
+		JsonObject call = session.calls.get(0);
+
+		// another robot answers with the id of the call
+		JsonObject response = Json.createObjectBuilder()
+				.add(ROSConstants.FIELD_OP,
+						ROSConstants.OP_CODE_SERVICE_RESPONSE)
+				.add(ROSConstants.FIELD_ID, call.get(ROSConstants.FIELD_ID))
+				.add(ROSConstants.FIELD_VALUES,
+						Json.createObjectBuilder().add("sum", 42))
+				.add(ROSConstants.FIELD_RESULT, true).build();
+		ros.handleTextMessage(other, new TextMessage(response.toString()));
+		assertFalse(future.isDone());
+		assertEquals(1, ros.getPendingCalls().size());
+
+		respond(call, 3);
+		assertEquals(3, future.get(1, TimeUnit.SECONDS).toJsonObject()
+				.getInt("sum"));
+	}
+
+	@Test
+	public void testCallServiceAndWait() throws Exception {
+		Thread responder = new Thread(() -> {
+			try {
+				while (session.calls.isEmpty()) {
+					Thread.sleep(1);
+				}
+				respond(session.calls.get(0), 3);
+			} catch (Exception e) {
+				throw new IllegalStateException(e);
+			}
+		});
+		responder.start();
+		ServiceResponse response = service.callServiceAndWait(
+				new ServiceRequest("{\"a\":1,\"b\":2}"), 5, TimeUnit.SECONDS);
+		responder.join();
+		assertEquals(3, response.toJsonObject().getInt("sum"));
+	}
+
+	@Test
+	public void testTimeout() throws Exception {
+		try {
+			service.callServiceAndWait(new ServiceRequest(), 50,
+					TimeUnit.MILLISECONDS);
+			fail();
+		} catch (ServiceTimeoutException e) {
+			// expected
+		}
+		assertEquals(0, ros.getPendingCalls().size());
+	}
+
+	@Test
+	public void testSessionClosed() throws Exception {
+		CompletableFuture<ServiceResponse> future = service
+				.callServiceAsync(new ServiceRequest());
+		ros.deregisterSession("r1");
+		try {
+			future.get(1, TimeUnit.SECONDS);
+			fail();
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof ServiceException);
+		}
+	}
+
+	@Test
+	public void testResponseCache() throws Exception {
+		service.setResponseCache(new ServiceResponseCache<String>(1,
+				TimeUnit.MINUTES, 16));
+		CompletableFuture<ServiceResponse> f1 = service
+				.callServiceAsync(new ServiceRequest("{\"a\":1,\"b\":2}"));
+		CompletableFuture<ServiceResponse> f2 = service
+				.callServiceAsync(new ServiceRequest("{\"a\":1,\"b\":2}"));
+		assertEquals(1, session.calls.size());
+		respond(session.calls.get(0), 3);
+		assertEquals(3, f1.get().toJsonObject().getInt("sum"));
+		assertEquals(3, f2.get().toJsonObject().getInt("sum"));
+		assertEquals(3, service.callServiceAndWait(
+				new ServiceRequest("{\"a\":1,\"b\":2}")).toJsonObject()
+				.getInt("sum"));
+		assertEquals(1, session.calls.size());
+		assertEquals(1, service.getResponseCache().getHitCount());
+	}
+
+	@Test
+	public void testJoinedCallKeepsItsTimeout() throws Exception {
+		service.setResponseCache(new ServiceResponseCache<String>(1,
+				TimeUnit.MINUTES, 16));
+		CompletableFuture<ServiceResponse> f1 = service
+				.callServiceAsync(new ServiceRequest("{\"a\":1,\"b\":2}"));
+		try {
+			// joins the call above, which waits for the default 60 seconds
+			service.callServiceAndWait(new ServiceRequest(
+					"{\"a\":1,\"b\":2}"), 50, TimeUnit.MILLISECONDS);
+			fail();
+		} catch (ServiceTimeoutException e) {
+			// expected
+		}
+		assertEquals(1, session.calls.size());
+		assertFalse(f1.isDone());
+		respond(session.calls.get(0), 3);
+		assertEquals(3, f1.get().toJsonObject().getInt("sum"));
+	}
+
+	@Test
+	public void testAdvertiseServiceAsync() throws Exception {
+		ros.setServiceExecutor(Runnable::run);
+		service.advertiseServiceAsync(request -> CompletableFuture
+				.completedFuture(new ServiceResponse(Json.createObjectBuilder()
+						.add("sum", request.toJsonObject().getInt("a") + 1)
+						.build(), true)));
+		assertEquals(ROSConstants.OP_CODE_ADVERTISE_SERVICE, session.calls
+				.get(0).getString(ROSConstants.FIELD_OP));
+
+		JsonObject call = Json.createObjectBuilder()
+				.add(ROSConstants.FIELD_OP, ROSConstants.OP_CODE_CALL_SERVICE)
+				.add(ROSConstants.FIELD_ID, "call_service:/add_two_ints:7")
+				.add(ROSConstants.FIELD_SERVICE, "/add_two_ints")
+				.add(ROSConstants.FIELD_ARGS,
+						Json.createObjectBuilder().add("a", 41)).build();
+		ros.handleTextMessage(session, new TextMessage(call.toString()));
+
+		JsonObject response = session.calls.get(1);
+		assertEquals(ROSConstants.OP_CODE_SERVICE_RESPONSE,
+				response.getString(ROSConstants.FIELD_OP));
+		assertEquals("call_service:/add_two_ints:7",
+				response.getString(ROSConstants.FIELD_ID));
+		assertEquals(42, response.getJsonObject(ROSConstants.FIELD_VALUES)
+				.getInt("sum"));
+		assertTrue(response.getBoolean(ROSConstants.FIELD_RESULT));
+
+		// calls of other robots do not reach the handler
+		RecordingSession other = new RecordingSession("s2");
+		ros.registerSession(other, "r2");
+		ros.handleTextMessage(other, new TextMessage(call.toString()));
+		assertTrue(other.calls.isEmpty());
+		assertEquals(1, ros.getCallServiceLimiter("r1", "/add_two_ints")
+				.getCompletedCount());
+
+		service.unadvertiseService();
+		assertNull(ros.getCallServiceLimiter("r1", "/add_two_ints"));
+	}
+
+	@Test
+	public void testSynchronousCallbackIsNotRejected() throws Exception {
+		List<String> handled = new CopyOnWriteArrayList<String>();
+		List<Runnable> tasks = new CopyOnWriteArrayList<Runnable>();
+		ros.setServiceExecutor(tasks::add);
+		service.advertiseService(request -> handled.add(request.getId()));
+		int calls = ServiceCallLimiter.DEFAULT_MAX_QUEUED * 2;
+		for (int i = 0; i < calls; i++) {
+			ros.handleTextMessage(session, new TextMessage(call("c" + i)));
+		}
+		// only the advertisement was sent, no failed responses
+		assertEquals(1, session.calls.size());
+		while (!tasks.isEmpty()) {
+			tasks.remove(0).run();
+		}
+		assertEquals(calls, handled.size());
+		assertEquals("c0", handled.get(0));
+		assertEquals(0, ros.getCallServiceLimiter("r1", "/add_two_ints")
+				.getRejectedCount());
+	}
+
+	@Test
+	@SuppressWarnings("deprecation")
+	public void testAllRobotsCallback() throws Exception {
+		List<String> handled = new CopyOnWriteArrayList<String>();
+		ros.registerCallServiceCallback("/add_two_ints",
+				request -> handled.add(request.getId()));
+		RecordingSession other = new RecordingSession("s2");
+		ros.registerSession(other, "r2");
+		ros.handleTextMessage(session, new TextMessage(call("a")));
+		ros.handleTextMessage(other, new TextMessage(call("b")));
+		assertEquals(Arrays.asList("a", "b"), handled);
+
+		ros.deregisterCallServiceCallback("/add_two_ints");
+		ros.handleTextMessage(session, new TextMessage(call("c")));
+		assertEquals(2, handled.size());
+	}
+
+	private static String call(String id) {
+		return Json.createObjectBuilder()
+				.add(ROSConstants.FIELD_OP, ROSConstants.OP_CODE_CALL_SERVICE)
+				.add(ROSConstants.FIELD_ID, id)
+				.add(ROSConstants.FIELD_SERVICE, "/add_two_ints")
+				.add(ROSConstants.FIELD_ARGS, Json.createObjectBuilder())
+				.build().toString();
+	}
+
+	@Test
+	public void testNotConnected() throws Exception {
+		Service<String> other = new Service<String>(ros, "r2", "/srv", "t");
+		assertTrue(other.callServiceAsync(new ServiceRequest())
+				.isCompletedExceptionally());
+		assertEquals(0, ros.getPendingCalls().size());
+	}
+
+	@Test
+	public void testInterrupted() throws IOException {
+		Thread.currentThread().interrupt();
+		try {
+			service.callServiceAndWait(new ServiceRequest());
+			fail();
+		} catch (InterruptedIOException e) {
+			assertTrue(Thread.interrupted());
+		}
+		// the call was sent, but nobody waits for it anymore
+		assertEquals(1, session.calls.size());
+		assertEquals(0, ros.getPendingCalls().size());
+	}
+
+	@Test
+	public void testCancel() {
+		CompletableFuture<ServiceResponse> future = service
+				.callServiceAsync(new ServiceRequest());
+		assertEquals(1, ros.getPendingCalls().size());
+		assertTrue(future.cancel(false));
+		assertEquals(0, ros.getPendingCalls().size());
+	}
+
+	/**
+	 * Parses frames when they are sent, their pooled buffers are reused
+	 * afterwards.
+	 */
+	private static class RecordingSession extends DummySession {
+
+		final List<JsonObject> calls = new CopyOnWriteArrayList<JsonObject>();
+
+		RecordingSession(String id) {
+			super(id);
+		}
+
+		@Override
+		public void sendMessage(WebSocketMessage<?> message) throws IOException {
+			super.sendMessage(message);
+			ByteBuffer payload = ((ByteBuffer) message.getPayload())
+					.duplicate();
+			this.calls.add(Json.createReader(
+					new StringReader(StandardCharsets.UTF_8.decode(payload)
+							.toString())).readObject());
+		}
+	}
+}
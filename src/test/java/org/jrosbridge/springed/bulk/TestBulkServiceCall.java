@@ -0,0 +1,212 @@
+package org.jrosbridge.springed.bulk;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import javax.json.Json;
+import javax.json.JsonObject;
+
+import org.jrosbridge.springed.ROSConstants;
+import org.jrosbridge.springed.Ros;
+import org.jrosbridge.springed.Service;
+import org.jrosbridge.springed.callback.BulkResultCallback;
+import org.jrosbridge.springed.services.ServiceRequest;
+import org.jrosbridge.springed.services.ServiceResponse;
+import org.jrosbridge.springed.session.DummySession;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+public class TestBulkServiceCall {
+
+	private Ros<String> ros;
+	private RecordingSession s1, s2;
+	private Service<String> service;
+	private List<String> results;
+	private List<Exception> errors;
+	private BulkResultCallback<String> cb;
+
+	@Before
+	public void setUp() {
+		ros = new Ros<String>() {
+			@Override
+			protected void bootstrapConnection(WebSocketSession session) {
+			}
+		};
+		ros.setWriterExecutor(Runnable::run);
+		s1 = new RecordingSession("s1");
+		s2 = new RecordingSession("s2");
+		ros.registerSession(s1, "r1");
+		ros.registerSession(s2, "r2");
+		service = new Service<String>(ros, "r1", "/set_param",
+				"std_srvs/SetParam");
+		results = new CopyOnWriteArrayList<String>();
+		errors = new CopyOnWriteArrayList<Exception>();
+		cb = new BulkResultCallback<String>() {
+			@Override
+			public void handleResult(BulkRequest<String> request,
+					ServiceResponse response) {
+				results.add(request.getRobotId() + ":"
+						+ request.getRequest().toJsonObject().getInt("n"));
+			}
+
+			@Override
+			public void handleError(BulkRequest<String> request,
+					Exception error) {
+				errors.add(error);
+			}
+		};
+	}
+
+	private static List<ServiceRequest> requests(int count) {
+		List<ServiceRequest> requests = new ArrayList<ServiceRequest>();
+		for (int i = 0; i < count; i++) {
+			requests.add(new ServiceRequest("{\"n\":" + i + "}"));
+		}
+		return requests;
+	}
+
+	private void respond(RecordingSession session, boolean result) {
+		JsonObject call = session.calls.remove(0);
+		assertTrue(ros.getPendingCalls().complete(
+				call.getJsonNumber(ROSConstants.FIELD_ID).longValue(), session,
+				new ServiceResponse(Json.createObjectBuilder().build(), result)));
+	}
+
+	@Test
+	public void testWindowPerRobot() {
+		List<BulkRequest<String>> bulk = new ArrayList<BulkRequest<String>>();
+		bulk.addAll(BulkRequest.forRobot("r1", requests(10)));
+		bulk.addAll(BulkRequest.forRobot("r2", requests(3)));
+		BulkServiceCall<String> call = service.callServiceBulk(bulk, 2, cb);
+
+		assertEquals(2, s1.calls.size());
+		assertEquals(2, s2.calls.size());
+		assertEquals(4, ros.getPendingCalls().size());
+
+		// each response lets exactly one more call out
+		respond(s1, true);
+		assertEquals(2, s1.calls.size());
+		assertEquals(Arrays.asList("r1:0"), results);
+		assertEquals(2, s1.calls.get(1).getJsonObject(ROSConstants.FIELD_ARGS)
+				.getInt("n"));
+
+		while (!s2.calls.isEmpty()) {
+			respond(s2, true);
+		}
+		assertFalse(call.isDone());
+		while (!s1.calls.isEmpty()) {
+			respond(s1, false);
+		}
+		assertTrue(call.isDone());
+		assertEquals(13, results.size());
+		assertTrue(errors.isEmpty());
+
+		BulkStatistics stats = call.getCompletion().getNow(null);
+		assertNotNull(stats);
+		assertEquals(13, stats.getTotal());
+		assertEquals(4, stats.getSucceeded());
+		assertEquals(9, stats.getFailed());
+		assertEquals(13, stats.getFinished());
+		assertTrue(stats.getThroughput() > 0);
+		assertTrue(stats.getLatency(50, TimeUnit.NANOSECONDS) <= stats
+				.getLatency(99, TimeUnit.NANOSECONDS));
+		assertEquals(0, ros.getPendingCalls().size());
+	}
+
+	@Test
+	public void testNotConnected() {
+		BulkServiceCall<String> call = service.callServiceBulk(
+				BulkRequest.forRobots(Arrays.asList("r1", "r3"),
+						new ServiceRequest("{\"n\":7}")), 1, cb);
+		// the call to the unknown robot fails right away
+		assertEquals(1, errors.size());
+		assertTrue(errors.get(0) instanceof IllegalArgumentException);
+		assertFalse(call.isDone());
+		respond(s1, true);
+		assertTrue(call.isDone());
+		assertEquals(Arrays.asList("r1:7"), results);
+	}
+
+	@Test
+	public void testFailuresDoNotRecurse() {
+		// every call fails synchronously, which must not nest calls
+		BulkServiceCall<String> call = service.callServiceBulk(
+				BulkRequest.forRobot("r3", requests(10000)), 4, cb);
+		assertTrue(call.isDone());
+		assertEquals(10000, errors.size());
+		assertEquals(10000, call.getStatistics().getFailed());
+	}
+
+	@Test
+	public void testCancel() {
+		BulkServiceCall<String> call = service.callServiceBulk(
+				BulkRequest.forRobot("r1", requests(10)), 3, cb);
+		call.cancel();
+		assertFalse(call.isDone());
+		assertEquals(7, call.getStatistics().getCancelled());
+		while (!s1.calls.isEmpty()) {
+			respond(s1, true);
+		}
+		assertTrue(call.isDone());
+		assertEquals(3, results.size());
+		assertEquals(3, call.getStatistics().getSucceeded());
+	}
+
+	@Test
+	public void testTimeout() throws Exception {
+		BulkServiceCall<String> call = service.callServiceBulk(
+				BulkRequest.forRobot("r1", requests(2)), 2, 50,
+				TimeUnit.MILLISECONDS, cb);
+		BulkStatistics stats = call.getCompletion().get(5, TimeUnit.SECONDS);
+		assertEquals(2, stats.getFailed());
+		assertEquals(2, errors.size());
+	}
+
+	@Test
+	public void testEmpty() {
+		BulkServiceCall<String> call = service.callServiceBulk(
+				new ArrayList<BulkRequest<String>>(), 1, cb);
+		assertTrue(call.isDone());
+		assertEquals(0, call.getCompletion().getNow(null).getLatency(99,
+				TimeUnit.MILLISECONDS));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidWindow() {
+		service.callServiceBulk(BulkRequest.forRobot("r1", requests(1)), 0, cb);
+	}
+
+	/**
+	 * Parses frames when they are sent, their pooled buffers are reused
+	 * afterwards.
+	 */
+	private static class RecordingSession extends DummySession {
+
+		final List<JsonObject> calls = new CopyOnWriteArrayList<JsonObject>();
+
+		RecordingSession(String id) {
+			super(id);
+		}
+
+		@Override
+		public void sendMessage(WebSocketMessage<?> message) throws IOException {
+			super.sendMessage(message);
+			ByteBuffer payload = ((ByteBuffer) message.getPayload())
+					.duplicate();
+			this.calls.add(Json.createReader(
+					new StringReader(StandardCharsets.UTF_8.decode(payload)
+							.toString())).readObject());
+		}
+	}
+}
@@ -0,0 +1,133 @@
+package org.jrosbridge.springed.codec;
+
+import static org.junit.Assert.*;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import javax.json.JsonArray;
+import javax.json.JsonException;
+import javax.json.JsonObject;
+import javax.json.JsonValue;
+
+import org.junit.Test;
+
+public class TestCborDecoder {
+
+	private static byte[] bytes(int... values) {
+		byte[] b = new byte[values.length];
+		for (int i = 0; i < values.length; i++) {
+			b[i] = (byte) values[i];
+		}
+		return b;
+	}
+
+	@Test
+	public void testIntegers() {
+		assertEquals("0", CborDecoder.decode(bytes(0x00)).toString());
+		assertEquals("23", CborDecoder.decode(bytes(0x17)).toString());
+		assertEquals("500", CborDecoder.decode(bytes(0x19, 0x01, 0xF4))
+				.toString());
+		assertEquals("-1", CborDecoder.decode(bytes(0x20)).toString());
+		assertEquals("-500", CborDecoder.decode(bytes(0x39, 0x01, 0xF3))
+				.toString());
+		assertEquals("18446744073709551615",
+				CborDecoder.decode(bytes(0x1B, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF,
+						0xFF, 0xFF, 0xFF)).toString());
+	}
+
+	@Test
+	public void testSimpleValues() {
+		assertEquals(JsonValue.FALSE, CborDecoder.decode(bytes(0xF4)));
+		assertEquals(JsonValue.TRUE, CborDecoder.decode(bytes(0xF5)));
+		assertEquals(JsonValue.NULL, CborDecoder.decode(bytes(0xF6)));
+		assertEquals("1.5", CborDecoder.decode(bytes(0xF9, 0x3E, 0x00))
+				.toString());
+		assertEquals("0.1", CborDecoder.decode(bytes(0xFA, 0x3D, 0xCC, 0xCC,
+				0xCD)).toString());
+		assertEquals("1.1", CborDecoder.decode(bytes(0xFB, 0x3F, 0xF1, 0x99,
+				0x99, 0x99, 0x99, 0x99, 0x9A)).toString());
+		assertEquals(JsonValue.NULL, CborDecoder.decode(bytes(0xF9, 0x7E, 0x00)));
+	}
+
+	@Test
+	public void testMapAndArray() {
+		// {"op": "publish", "msg": {"data": [1, -2]}}
+		JsonValue v = CborDecoder.decode(bytes(0xA2, 0x62, 'o', 'p', 0x67, 'p',
+				'u', 'b', 'l', 'i', 's', 'h', 0x63, 'm', 's', 'g', 0xA1, 0x64,
+				'd', 'a', 't', 'a', 0x82, 0x01, 0x21));
+		JsonObject o = v.asJsonObject();
+		assertEquals("publish", o.getString("op"));
+		JsonArray data = o.getJsonObject("msg").getJsonArray("data");
+		assertEquals(2, data.size());
+		assertEquals(1, data.getInt(0));
+		assertEquals(-2, data.getInt(1));
+	}
+
+	@Test
+	public void testIndefinite() {
+		// {_ "a": [_ 1, 2]}
+		JsonValue v = CborDecoder.decode(bytes(0xBF, 0x61, 'a', 0x9F, 0x01,
+				0x02, 0xFF, 0xFF));
+		assertEquals("{\"a\":[1,2]}", v.toString());
+		// (_ "ab", "c")
+		assertEquals("\"abc\"", CborDecoder.decode(
+				bytes(0x7F, 0x62, 'a', 'b', 0x61, 'c', 0xFF)).toString());
+	}
+
+	@Test
+	public void testByteString() {
+		JsonValue v = CborDecoder.decode(bytes(0x43, 0x01, 0xFF, 0x7F));
+		assertTrue(v instanceof PrimitiveJsonArray);
+		PrimitiveJsonArray a = (PrimitiveJsonArray) v;
+		assertEquals(PrimitiveJsonArray.Kind.UINT8, a.getKind());
+		assertEquals("[1,255,127]", a.toString());
+	}
+
+	@Test
+	public void testFloat64TypedArray() {
+		ByteBuffer b = ByteBuffer.allocate(3 + 16)
+				.order(ByteOrder.LITTLE_ENDIAN);
+		// tag 86, byte string of 16 bytes
+		b.put((byte) 0xD8).put((byte) 86).put((byte) 0x50);
+		b.putDouble(5.5).putDouble(-10.25);
+		JsonValue v = CborDecoder.decode(b.array());
+		PrimitiveJsonArray a = (PrimitiveJsonArray) v;
+		assertEquals(PrimitiveJsonArray.Kind.FLOAT64, a.getKind());
+		assertArrayEquals(new double[] { 5.5, -10.25 }, a.toDoubleArray(), 0);
+	}
+
+	@Test
+	public void testSignedBigEndianTypedArray() {
+		// tag 74 (sint32 big endian), 8 bytes
+		JsonValue v = CborDecoder.decode(bytes(0xD8, 74, 0x48, 0x00, 0x00,
+				0x00, 0x07, 0xFF, 0xFF, 0xFF, 0xFE));
+		PrimitiveJsonArray a = (PrimitiveJsonArray) v;
+		assertEquals(PrimitiveJsonArray.Kind.INT32, a.getKind());
+		assertArrayEquals(new int[] { 7, -2 }, a.toIntArray());
+	}
+
+	@Test
+	public void testUnsignedLittleEndianTypedArray() {
+		// tag 69 (uint16 little endian), 4 bytes
+		JsonValue v = CborDecoder.decode(bytes(0xD8, 69, 0x44, 0x01, 0x00,
+				0xFF, 0xFF));
+		assertEquals("[1,65535]", v.toString());
+	}
+
+	@Test
+	public void testOtherTagIgnored() {
+		// tag 1 (epoch time) around 10
+		assertEquals("10", CborDecoder.decode(bytes(0xC1, 0x0A)).toString());
+	}
+
+	@Test(expected = JsonException.class)
+	public void testTruncated() {
+		CborDecoder.decode(bytes(0x82, 0x01));
+	}
+
+	@Test(expected = JsonException.class)
+	public void testNonStringKey() {
+		CborDecoder.decode(bytes(0xA1, 0x01, 0x02));
+	}
+}
@@ -0,0 +1,122 @@
+package org.jrosbridge.springed.codec;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.json.Json;
+import javax.json.JsonException;
+import javax.json.JsonObject;
+
+import org.jrosbridge.springed.ROSConstants;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestFragmentAssembler {
+
+	private static final String MESSAGE = "{\"op\":\"publish\",\"topic\":\"/map\",\"msg\":{\"data\":\"é✓😀 occupancy\"}}";
+
+	private FrameBufferPool pool;
+	private FragmentAssembler assembler;
+
+	@Before
+	public void setUp() {
+		pool = new FrameBufferPool();
+		assembler = new FragmentAssembler(pool, null, 1024, 1,
+				TimeUnit.SECONDS);
+	}
+
+	private static JsonObject fragment(String id, String data, int num,
+			int total) {
+		return Json.createObjectBuilder()
+				.add(ROSConstants.FIELD_OP, ROSConstants.OP_CODE_FRAGMENT)
+				.add(ROSConstants.FIELD_ID, id)
+				.add(ROSConstants.FIELD_DATA, data)
+				.add(ROSConstants.FIELD_NUM, num)
+				.add(ROSConstants.FIELD_TOTAL, total).build();
+	}
+
+	private static String part(int num) {
+		int size = (MESSAGE.length() + 2) / 3;
+		return MESSAGE.substring(Math.min(num * size, MESSAGE.length()),
+				Math.min((num + 1) * size, MESSAGE.length()));
+	}
+
+	@Test
+	public void testInOrder() {
+		assertNull(assembler.add("s1", fragment("m", part(0), 0, 3)));
+		assertNull(assembler.add("s1", fragment("m", part(1), 1, 3)));
+		assertEquals(1, assembler.size());
+		assertTrue(assembler.getBytesInProgress() > 0);
+		assertEquals(MESSAGE, assembler.add("s1", fragment("m", part(2), 2, 3)));
+		assertEquals(0, assembler.size());
+		assertEquals(0, assembler.getBytesInProgress());
+		assertEquals(1, pool.getIdleCount());
+	}
+
+	@Test
+	public void testOutOfOrder() {
+		assertNull(assembler.add("s1", fragment("m", part(2), 2, 3)));
+		assertNull(assembler.add("s1", fragment("m", part(1), 1, 3)));
+		// a repeated fragment is ignored
+		assertNull(assembler.add("s1", fragment("m", part(1), 1, 3)));
+		assertEquals(MESSAGE, assembler.add("s1", fragment("m", part(0), 0, 3)));
+		assertEquals(0, assembler.getBytesInProgress());
+	}
+
+	@Test
+	public void testOwnersAndIdsDoNotMix() {
+		assertNull(assembler.add("s1", fragment("m", part(0), 0, 2)));
+		assertNull(assembler.add("s2", fragment("m", part(0), 0, 2)));
+		assertNull(assembler.add("s1", fragment("n", part(0), 0, 2)));
+		assertEquals(3, assembler.size());
+		assertEquals(2, assembler.drop("s1"));
+		assertEquals(1, assembler.size());
+	}
+
+	@Test
+	public void testSingleFragment() {
+		assertEquals(MESSAGE, assembler.add("s1", fragment("m", MESSAGE, 0, 1)));
+		assertEquals(0, assembler.size());
+	}
+
+	@Test
+	public void testByteLimit() {
+		StringBuilder big = new StringBuilder();
+		for (int i = 0; i < 600; i++) {
+			big.append('x');
+		}
+		assertNull(assembler.add("s1", fragment("m", big.toString(), 0, 3)));
+		assertNull(assembler.add("s1", fragment("m", big.toString(), 1, 3)));
+		assertEquals(0, assembler.size());
+		assertEquals(0, assembler.getBytesInProgress());
+		assertEquals(1, assembler.getDroppedCount());
+	}
+
+	@Test
+	public void testTimeout() {
+		assertNull(assembler.add("s1", fragment("m", part(0), 0, 3)));
+		assertEquals(0, assembler.sweep(System.nanoTime()));
+		assertEquals(1, assembler.sweep(System.nanoTime()
+				+ TimeUnit.SECONDS.toNanos(2)));
+		assertEquals(0, assembler.size());
+		assertEquals(1, assembler.getDroppedCount());
+		assertEquals(1, pool.getIdleCount());
+	}
+
+	@Test(expected = JsonException.class)
+	public void testInvalidNumber() {
+		assembler.add("s1", fragment("m", part(0), 3, 3));
+	}
+
+	@Test
+	public void testTotalMismatch() {
+		assembler.add("s1", fragment("m", part(0), 0, 3));
+		try {
+			assembler.add("s1", fragment("m", part(1), 1, 4));
+			fail();
+		} catch (JsonException e) {
+			assertEquals(0, assembler.size());
+		}
+	}
+}
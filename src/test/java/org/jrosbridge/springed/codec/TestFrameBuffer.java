@@ -0,0 +1,58 @@
+package org.jrosbridge.springed.codec;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+public class TestFrameBuffer {
+
+	@Test
+	public void testWriteBytes() {
+		FrameBuffer b = new FrameBuffer(2);
+		b.write('a');
+		b.write(new byte[] { 'b', 'c', 'd' }, 0, 3);
+		b.write(ByteBuffer.wrap(new byte[] { 'e', 'f' }));
+		assertEquals(6, b.size());
+		assertTrue(b.capacity() >= 6);
+		assertArrayEquals("abcdef".getBytes(), b.toByteArray());
+		assertEquals(6, b.toByteBuffer().remaining());
+	}
+
+	@Test
+	public void testReset() {
+		FrameBuffer b = new FrameBuffer(16);
+		b.write('a');
+		b.reset();
+		assertEquals(0, b.size());
+		assertEquals(16, b.capacity());
+	}
+
+	@Test
+	public void testWriterUtf8() throws IOException {
+		String s = "ascii éß €中 😀 end";
+		FrameBuffer b = new FrameBuffer(1);
+		b.getWriter().write(s);
+		assertArrayEquals(s.getBytes(StandardCharsets.UTF_8), b.toByteArray());
+	}
+
+	@Test
+	public void testWriterSplitSurrogatePair() throws IOException {
+		FrameBuffer b = new FrameBuffer(1);
+		b.getWriter().write("a\ud83d");
+		b.getWriter().write("\ude00b");
+		assertArrayEquals("a😀b".getBytes(StandardCharsets.UTF_8),
+				b.toByteArray());
+	}
+
+	@Test
+	public void testWriterUnpairedSurrogate() throws IOException {
+		FrameBuffer b = new FrameBuffer(1);
+		b.getWriter().write("a\ud83db\ude00c");
+		assertArrayEquals("a?b?c".getBytes(StandardCharsets.UTF_8),
+				b.toByteArray());
+	}
+}
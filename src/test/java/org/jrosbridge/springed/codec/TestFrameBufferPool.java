@@ -0,0 +1,37 @@
+package org.jrosbridge.springed.codec;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class TestFrameBufferPool {
+
+	@Test
+	public void testReuse() {
+		FrameBufferPool pool = new FrameBufferPool(8, 2, 64);
+		FrameBuffer b = pool.acquire();
+		b.write('a');
+		pool.release(b);
+		assertEquals(1, pool.getIdleCount());
+		FrameBuffer again = pool.acquire();
+		assertSame(b, again);
+		assertEquals(0, again.size());
+		assertEquals(0, pool.getIdleCount());
+	}
+
+	@Test
+	public void testMaxIdle() {
+		FrameBufferPool pool = new FrameBufferPool(8, 2, 64);
+		pool.release(new FrameBuffer(8));
+		pool.release(new FrameBuffer(8));
+		pool.release(new FrameBuffer(8));
+		assertEquals(2, pool.getIdleCount());
+	}
+
+	@Test
+	public void testOversizedNotRetained() {
+		FrameBufferPool pool = new FrameBufferPool(8, 2, 64);
+		pool.release(new FrameBuffer(128));
+		assertEquals(0, pool.getIdleCount());
+	}
+}
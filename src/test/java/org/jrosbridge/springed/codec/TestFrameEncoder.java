@@ -0,0 +1,59 @@
+package org.jrosbridge.springed.codec;
+
+import static org.junit.Assert.*;
+
+import java.nio.charset.StandardCharsets;
+
+import javax.json.Json;
+import javax.json.JsonObject;
+
+import org.junit.Test;
+
+public class TestFrameEncoder {
+
+	@Test
+	public void testEncode() {
+		JsonObject call = Json.createObjectBuilder().add("op", "publish")
+				.add("topic", "/chatter")
+				.add("msg", Json.createObjectBuilder().add("data", "héllo"))
+				.add("n", 1.5).build();
+		FrameBuffer b = new FrameBuffer(4);
+		FrameEncoder.encode(call, b);
+		assertEquals(call.toString(),
+				new String(b.toByteArray(), StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void testEncodePrimitiveArrays() {
+		JsonObject msg = Json
+				.createObjectBuilder()
+				.add("f64", PrimitiveJsonArray.ofFloat64(new double[] { 1.0,
+						-0.5, 1e-7, 3e20, Double.NaN }))
+				.add("f32", PrimitiveJsonArray.ofFloat32(new float[] { 0.1f,
+						Float.POSITIVE_INFINITY }))
+				.add("u8", PrimitiveJsonArray.ofUInt8(new byte[] { 1, -1 }))
+				.add("i16", PrimitiveJsonArray.ofInt16(new short[] { -3 }))
+				.add("u32", PrimitiveJsonArray.ofUInt32(new int[] { -1 }))
+				.add("u64", PrimitiveJsonArray.ofUInt64(new long[] { 7, -1 }))
+				.add("nested",
+						Json.createArrayBuilder().add(
+								PrimitiveJsonArray.ofInt32(new int[] {}))).build();
+		FrameBuffer b = new FrameBuffer(4);
+		FrameEncoder.encode(msg, b);
+		// the same text as boxing every element
+		assertEquals(msg.toString(),
+				new String(b.toByteArray(), StandardCharsets.UTF_8));
+		assertTrue(msg.toString().contains(
+				"\"u64\":[7,18446744073709551615]"));
+	}
+
+	@Test
+	public void testEncodeAppends() {
+		FrameBuffer b = new FrameBuffer(4);
+		b.write('[');
+		FrameEncoder.encode(Json.createObjectBuilder().build(), b);
+		b.write(']');
+		assertEquals("[{}]",
+				new String(b.toByteArray(), StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,51 @@
+package org.jrosbridge.springed.codec;
+
+import static org.junit.Assert.*;
+
+import javax.json.stream.JsonParsingException;
+
+import org.junit.Test;
+
+public class TestFrameHeader {
+
+	@Test
+	public void testPublish() {
+		FrameHeader h = FrameHeader
+				.scan("{\"op\":\"publish\",\"topic\":\"/odom\",\"msg\":{\"a\":[1,2]}}");
+		assertEquals("publish", h.getOp());
+		assertEquals("/odom", h.getTopic());
+		assertTrue(h.isPublish());
+	}
+
+	@Test
+	public void testPublishMessageFirst() {
+		FrameHeader h = FrameHeader
+				.scan("{\"msg\":{\"a\":[1,{\"b\":[]}],\"op\":\"x\"},\"list\":[[1],{}],"
+						+ "\"n\":1,\"op\":\"publish\",\"topic\":\"/odom\"}");
+		assertEquals("publish", h.getOp());
+		assertEquals("/odom", h.getTopic());
+	}
+
+	@Test
+	public void testOtherOpStopsEarly() {
+		FrameHeader h = FrameHeader
+				.scan("{\"id\":\"call:1\",\"op\":\"service_response\",\"topic\":\"t\"}");
+		assertEquals("service_response", h.getOp());
+		assertEquals("call:1", h.getId());
+		assertNull(h.getTopic());
+		assertFalse(h.isPublish());
+	}
+
+	@Test
+	public void testNoOp() {
+		FrameHeader h = FrameHeader.scan("{\"a\":1}");
+		assertNull(h.getOp());
+		assertNull(h.getTopic());
+		assertNull(h.getId());
+	}
+
+	@Test(expected = JsonParsingException.class)
+	public void testNotAnObject() {
+		FrameHeader.scan("[1,2]");
+	}
+}
@@ -0,0 +1,97 @@
+package org.jrosbridge.springed.codec;
+
+import static org.junit.Assert.*;
+
+import java.awt.Point;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+
+import javax.imageio.ImageIO;
+import javax.json.JsonObject;
+
+import org.junit.Test;
+
+public class TestPngFrameDecoder {
+
+	/**
+	 * Pack the frame into a square RGB image, padded with newlines, like
+	 * rosbridge does.
+	 */
+	public static String encode(String frame) throws IOException {
+		byte[] bytes = frame.getBytes(StandardCharsets.UTF_8);
+		int pixels = (bytes.length + 2) / 3;
+		int side = (int) Math.ceil(Math.sqrt(pixels));
+		byte[] padded = Arrays.copyOf(bytes, side * side * 3);
+		Arrays.fill(padded, bytes.length, padded.length, (byte) '\n');
+
+		WritableRaster raster = Raster.createInterleavedRaster(
+				DataBuffer.TYPE_BYTE, side, side, 3, new Point());
+		raster.setDataElements(0, 0, side, side, padded);
+		BufferedImage image = new BufferedImage(side, side,
+				BufferedImage.TYPE_3BYTE_BGR);
+		image.getRaster().setRect(raster);
+
+		ByteArrayOutputStream png = new ByteArrayOutputStream();
+		ImageIO.write(image, "png", png);
+		return Base64.getEncoder().encodeToString(png.toByteArray());
+	}
+
+	@Test
+	public void testDecode() throws IOException {
+		String frame = "{\"op\":\"publish\",\"topic\":\"/map\",\"msg\":{\"data\":\"é\"}}";
+		FrameBuffer buffer = new FrameBuffer(1);
+		JsonObject decoded = PngFrameDecoder.decode(encode(frame), buffer);
+		assertEquals("publish", decoded.getString("op"));
+		assertEquals("/map", decoded.getString("topic"));
+		assertEquals("é", decoded.getJsonObject("msg").getString("data"));
+	}
+
+	@Test
+	public void testDecodeResetsBuffer() throws IOException {
+		FrameBuffer buffer = new FrameBuffer(16);
+		buffer.write('x');
+		JsonObject decoded = PngFrameDecoder.decode(encode("{\"op\":\"a\"}"),
+				buffer);
+		assertEquals("a", decoded.getString("op"));
+	}
+
+	@Test(expected = IOException.class)
+	public void testDecodeNotAnImage() throws IOException {
+		PngFrameDecoder.decode(
+				Base64.getEncoder().encodeToString(new byte[] { 1, 2, 3 }),
+				new FrameBuffer(1));
+	}
+
+	@Test(expected = IOException.class)
+	public void testDecodeInvalidBase64() throws IOException {
+		PngFrameDecoder.decode("*not base64*", new FrameBuffer(1));
+	}
+
+	@Test
+	public void testWriteSamplesPacked() {
+		WritableRaster raster = Raster.createInterleavedRaster(
+				DataBuffer.TYPE_BYTE, 2, 1, 3, new Point());
+		raster.setDataElements(0, 0, 2, 1, "abcdef".getBytes());
+		FrameBuffer buffer = new FrameBuffer(1);
+		PngFrameDecoder.writeSamples(raster, buffer);
+		assertArrayEquals("abcdef".getBytes(), buffer.toByteArray());
+	}
+
+	@Test
+	public void testWriteSamplesOtherLayout() {
+		BufferedImage image = new BufferedImage(2, 1,
+				BufferedImage.TYPE_3BYTE_BGR);
+		image.getRaster().setPixels(0, 0, 2, 1,
+				new int[] { 'a', 'b', 'c', 'd', 'e', 'f' });
+		FrameBuffer buffer = new FrameBuffer(1);
+		PngFrameDecoder.writeSamples(image.getRaster(), buffer);
+		assertArrayEquals("abcdef".getBytes(), buffer.toByteArray());
+	}
+}
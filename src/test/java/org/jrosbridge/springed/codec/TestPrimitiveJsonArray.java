@@ -0,0 +1,78 @@
+package org.jrosbridge.springed.codec;
+
+import static org.junit.Assert.*;
+
+import java.io.StringReader;
+
+import javax.json.Json;
+import javax.json.JsonArray;
+
+import org.junit.Test;
+
+public class TestPrimitiveJsonArray {
+
+	@Test
+	public void testFloat64() {
+		double[] values = new double[] { 5.5, 10.5, 1e10 };
+		PrimitiveJsonArray a = PrimitiveJsonArray.ofFloat64(values);
+		assertSame(values, a.toDoubleArray());
+		assertEquals(3, a.size());
+		assertEquals(5.5, a.getJsonNumber(0).doubleValue(), 0);
+		assertEquals(Json.createArrayBuilder().add(5.5).add(10.5).add(1e10)
+				.build().toString(), a.toString());
+	}
+
+	@Test
+	public void testFloat32() {
+		PrimitiveJsonArray a = PrimitiveJsonArray.ofFloat32(new float[] {
+				0.1f, 2.5f });
+		assertEquals("[0.1,2.5]", a.toString());
+		assertEquals(0.1f, a.toFloatArray()[0], 0);
+	}
+
+	@Test
+	public void testUnsigned() {
+		assertEquals("[255,0]", PrimitiveJsonArray.ofUInt8(
+				new byte[] { -1, 0 }).toString());
+		assertEquals("[-1,0]", PrimitiveJsonArray.ofInt8(new byte[] { -1, 0 })
+				.toString());
+		assertEquals("[65535]", PrimitiveJsonArray.ofUInt16(
+				new short[] { -1 }).toString());
+		assertEquals("[4294967295]", PrimitiveJsonArray.ofUInt32(
+				new int[] { -1 }).toString());
+		assertEquals("[18446744073709551615]", PrimitiveJsonArray.ofUInt64(
+				new long[] { -1 }).toString());
+		assertEquals(255, PrimitiveJsonArray.ofUInt8(new byte[] { -1 })
+				.getInt(0));
+	}
+
+	@Test
+	public void testConversions() {
+		PrimitiveJsonArray a = PrimitiveJsonArray.ofInt32(new int[] { 1, -2 });
+		assertArrayEquals(new long[] { 1, -2 }, a.toLongArray());
+		assertArrayEquals(new double[] { 1, -2 }, a.toDoubleArray(), 0);
+		assertArrayEquals(new byte[] { 1, -2 }, a.toByteArray());
+	}
+
+	@Test
+	public void testEqualsParsedArray() {
+		PrimitiveJsonArray a = PrimitiveJsonArray.ofInt64(new long[] { 1, 2, 3 });
+		JsonArray parsed = Json.createReader(new StringReader("[1,2,3]"))
+				.readArray();
+		assertEquals(parsed, a);
+		assertEquals(a, parsed);
+	}
+
+	@Test
+	public void testInObject() {
+		String s = Json.createObjectBuilder()
+				.add("data", PrimitiveJsonArray.ofInt16(new short[] { 4, 5 }))
+				.build().toString();
+		assertEquals("{\"data\":[4,5]}", s);
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testOutOfBounds() {
+		PrimitiveJsonArray.ofInt8(new byte[] { 1 }).get(1);
+	}
+}
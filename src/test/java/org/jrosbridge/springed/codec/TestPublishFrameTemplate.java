@@ -0,0 +1,87 @@
+package org.jrosbridge.springed.codec;
+
+import static org.junit.Assert.*;
+
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+
+import javax.json.Json;
+import javax.json.JsonObject;
+
+import org.jrosbridge.springed.ROSConstants;
+import org.junit.Test;
+
+public class TestPublishFrameTemplate {
+
+	private static final JsonObject TWIST = Json.createObjectBuilder()
+			.add("linear", Json.createObjectBuilder().add("x", 0.5)
+					.add("y", 0).add("z", 0))
+			.add("angular", Json.createObjectBuilder().add("x", 0)
+					.add("y", 0).add("z", -1.25)).build();
+
+	private static JsonObject parse(FrameBuffer buffer) {
+		return Json.createReader(
+				new StringReader(new String(buffer.array(), 0, buffer.size(),
+						StandardCharsets.UTF_8))).readObject();
+	}
+
+	@Test
+	public void testWithoutId() {
+		PublishFrameTemplate template = new PublishFrameTemplate("/cmd_vel");
+		FrameBuffer buffer = new FrameBuffer(16);
+		template.encode(TWIST, buffer);
+		JsonObject frame = parse(buffer);
+		assertEquals(ROSConstants.OP_CODE_PUBLISH,
+				frame.getString(ROSConstants.FIELD_OP));
+		assertEquals("/cmd_vel", frame.getString(ROSConstants.FIELD_TOPIC));
+		assertEquals(TWIST, frame.getJsonObject(ROSConstants.FIELD_MESSAGE));
+		assertFalse(frame.containsKey(ROSConstants.FIELD_ID));
+		assertEquals(3, frame.size());
+	}
+
+	@Test
+	public void testWithId() {
+		PublishFrameTemplate template = new PublishFrameTemplate("/cmd_vel");
+		FrameBuffer buffer = new FrameBuffer(16);
+		template.encode(TWIST, 42, buffer);
+		JsonObject frame = parse(buffer);
+		assertEquals("publish:/cmd_vel:42",
+				frame.getString(ROSConstants.FIELD_ID));
+		assertEquals(TWIST, frame.getJsonObject(ROSConstants.FIELD_MESSAGE));
+	}
+
+	@Test
+	public void testEscapedTopic() {
+		String topic = "/odd \"topic\"\\é";
+		PublishFrameTemplate template = new PublishFrameTemplate(topic);
+		FrameBuffer buffer = new FrameBuffer(16);
+		template.encode(TWIST, 7, buffer);
+		JsonObject frame = parse(buffer);
+		assertEquals(topic, frame.getString(ROSConstants.FIELD_TOPIC));
+		assertEquals("publish:" + topic + ":7",
+				frame.getString(ROSConstants.FIELD_ID));
+	}
+
+	@Test
+	public void testAppends() {
+		PublishFrameTemplate template = new PublishFrameTemplate("/a");
+		FrameBuffer buffer = new FrameBuffer(16);
+		buffer.write('[');
+		template.encode(Json.createObjectBuilder().build(), buffer);
+		buffer.write(']');
+		assertEquals("[{\"op\":\"publish\",\"topic\":\"/a\",\"msg\":{}}]",
+				new String(buffer.toByteArray(), StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void testWriteDecimal() {
+		long[] values = { 0, 1, 9, 10, 99, 100, 12345, -7, Long.MAX_VALUE,
+				Long.MIN_VALUE };
+		for (long value : values) {
+			FrameBuffer buffer = new FrameBuffer(1);
+			PublishFrameTemplate.writeDecimal(value, buffer);
+			assertEquals(Long.toString(value), new String(
+					buffer.toByteArray(), StandardCharsets.US_ASCII));
+		}
+	}
+}
@@ -0,0 +1,61 @@
+package org.jrosbridge.springed.codec;
+
+import static org.junit.Assert.*;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+import org.jrosbridge.springed.primitives.Time;
+import org.junit.Test;
+
+public class TestRosBinary {
+
+	private static ByteBuffer allocate(int size) {
+		return ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	@Test
+	public void testReadString() {
+		byte[] utf8 = "frame é".getBytes(StandardCharsets.UTF_8);
+		ByteBuffer b = allocate(4 + utf8.length + 1);
+		b.putInt(utf8.length).put(utf8).put((byte) 7).flip();
+		assertEquals("frame é", RosBinary.readString(b));
+		assertEquals(7, b.get());
+	}
+
+	@Test
+	public void testReadStringReadOnly() {
+		ByteBuffer b = allocate(6);
+		b.putInt(2).put((byte) 'a').put((byte) 'b').flip();
+		ByteBuffer ro = b.asReadOnlyBuffer().order(ByteOrder.LITTLE_ENDIAN);
+		assertEquals("ab", RosBinary.readString(ro));
+		assertFalse(ro.hasRemaining());
+	}
+
+	@Test(expected = BufferUnderflowException.class)
+	public void testReadLengthTooLarge() {
+		ByteBuffer b = allocate(8);
+		b.putInt(2).putInt(0).flip();
+		RosBinary.readLength(b, 8);
+	}
+
+	@Test
+	public void testReadTime() {
+		ByteBuffer b = allocate(8);
+		b.putInt(10).putInt(20).flip();
+		Time t = RosBinary.readTime(b);
+		assertEquals(10, t.getSecs());
+		assertEquals(20, t.getNsecs());
+	}
+
+	@Test
+	public void testReadFloat64Array() {
+		ByteBuffer b = allocate(24);
+		b.putDouble(1.5).putDouble(-2.5).putDouble(3.0).flip();
+		assertArrayEquals(new double[] { 1.5, -2.5 },
+				RosBinary.readFloat64Array(b, 2), 0);
+		assertEquals(3.0, b.getDouble(), 0);
+	}
+}
@@ -0,0 +1,112 @@
+package org.jrosbridge.springed.codec;
+
+import static org.junit.Assert.*;
+
+import java.io.StringReader;
+
+import javax.json.Json;
+import javax.json.JsonException;
+import javax.json.JsonObject;
+
+import org.jrosbridge.springed.codec.PrimitiveJsonArray.Kind;
+import org.junit.Test;
+
+public class TestStreamingJsonDecoder {
+
+	@Test
+	public void testDecodeFloat64() {
+		JsonObject o = StreamingJsonDecoder.decode(
+				"{\"data\":[1.5,-2,1e10,null],\"n\":3}",
+				new ArrayFieldSchema().add("data", Kind.FLOAT64));
+		assertTrue(o.get("data") instanceof PrimitiveJsonArray);
+		double[] data = ((PrimitiveJsonArray) o.get("data")).toDoubleArray();
+		assertEquals(4, data.length);
+		assertEquals(1.5, data[0], 0);
+		assertEquals(-2, data[1], 0);
+		assertEquals(1e10, data[2], 0);
+		assertTrue(Double.isNaN(data[3]));
+		assertEquals(3, o.getInt("n"));
+	}
+
+	@Test
+	public void testDecodeGrows() {
+		StringBuilder json = new StringBuilder("{\"data\":[");
+		for (int i = 0; i < 1000; i++) {
+			json.append(i == 0 ? "" : ",").append(i);
+		}
+		json.append("]}");
+		int[] data = ((PrimitiveJsonArray) StreamingJsonDecoder.decode(
+				json.toString(),
+				new ArrayFieldSchema().add("data", Kind.INT32)).get("data"))
+				.toIntArray();
+		assertEquals(1000, data.length);
+		for (int i = 0; i < data.length; i++) {
+			assertEquals(i, data[i]);
+		}
+	}
+
+	@Test
+	public void testDecodeIntegerKinds() {
+		ArrayFieldSchema schema = new ArrayFieldSchema()
+				.add("u8", Kind.UINT8).add("i16", Kind.INT16)
+				.add("u32", Kind.UINT32).add("u64", Kind.UINT64)
+				.add("f32", Kind.FLOAT32);
+		JsonObject o = StreamingJsonDecoder.decode("{\"u8\":[255,0],"
+				+ "\"i16\":[-5],\"u32\":[4294967295],"
+				+ "\"u64\":[18446744073709551615],\"f32\":[0.1],"
+				+ "\"empty\":[]}", schema);
+		assertEquals("[255,0]", o.get("u8").toString());
+		assertArrayEquals(new short[] { -5 },
+				((PrimitiveJsonArray) o.get("i16")).toShortArray());
+		assertEquals("[4294967295]", o.get("u32").toString());
+		assertArrayEquals(new long[] { -1 },
+				((PrimitiveJsonArray) o.get("u64")).toLongArray());
+		assertEquals(0.1f, ((PrimitiveJsonArray) o.get("f32"))
+				.toFloatArray()[0], 0);
+		assertEquals(0, o.getJsonArray("empty").size());
+	}
+
+	@Test
+	public void testDecodeNestedPath() {
+		String json = "{\"header\":{\"seq\":1},\"pose\":{\"pose\":{\"x\":1},"
+				+ "\"covariance\":[1,2]},\"list\":[{\"a\":[1]}]}";
+		JsonObject o = StreamingJsonDecoder.decode(json,
+				new ArrayFieldSchema().add("pose.covariance", Kind.FLOAT64));
+		JsonObject pose = o.getJsonObject("pose");
+		assertTrue(pose.get("covariance") instanceof PrimitiveJsonArray);
+		assertArrayEquals(new double[] { 1, 2 },
+				((PrimitiveJsonArray) pose.get("covariance")).toDoubleArray(),
+				0);
+		// everything else is decoded as a JsonReader would
+		JsonObject expected = Json.createReader(new StringReader(json))
+				.readObject();
+		assertEquals(expected.get("header"), o.get("header"));
+		assertEquals(expected.get("list"), o.get("list"));
+		assertEquals(expected.getJsonObject("pose").get("pose"),
+				pose.get("pose"));
+	}
+
+	@Test
+	public void testDecodeOtherValueAtField() {
+		JsonObject o = StreamingJsonDecoder.decode("{\"data\":\"BQo=\"}",
+				new ArrayFieldSchema().add("data", Kind.FLOAT64));
+		assertEquals("BQo=", o.getString("data"));
+	}
+
+	@Test(expected = JsonException.class)
+	public void testDecodeNotANumber() {
+		StreamingJsonDecoder.decode("{\"data\":[1,\"a\"]}",
+				new ArrayFieldSchema().add("data", Kind.FLOAT64));
+	}
+
+	@Test(expected = JsonException.class)
+	public void testDecodeNullInteger() {
+		StreamingJsonDecoder.decode("{\"data\":[1,null]}",
+				new ArrayFieldSchema().add("data", Kind.INT64));
+	}
+
+	@Test(expected = JsonException.class)
+	public void testDecodeNotAnObject() {
+		StreamingJsonDecoder.decode("[1]", new ArrayFieldSchema());
+	}
+}
@@ -0,0 +1,44 @@
+package org.jrosbridge.springed.dispatch;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class TestCallbackMetrics {
+
+	@Test
+	public void testEmpty() {
+		CallbackMetrics m = new CallbackMetrics("/odom");
+		assertEquals("/odom", m.getTopic());
+		assertEquals(0, m.getInvocations());
+		assertEquals(0, m.getFailures());
+		assertEquals(0, m.getMeanLatencyNanos());
+		assertEquals(0, m.getMaxLatencyNanos());
+		assertEquals(0, m.getMeanDelayNanos());
+		assertEquals(0, m.getMaxDelayNanos());
+	}
+
+	@Test
+	public void testRecord() {
+		CallbackMetrics m = new CallbackMetrics("/odom");
+		m.record(10, 100, false);
+		m.record(30, 300, true);
+		assertEquals(2, m.getInvocations());
+		assertEquals(1, m.getFailures());
+		assertEquals(200, m.getMeanLatencyNanos());
+		assertEquals(300, m.getMaxLatencyNanos());
+		assertEquals(20, m.getMeanDelayNanos());
+		assertEquals(30, m.getMaxDelayNanos());
+	}
+
+	@Test
+	public void testReset() {
+		CallbackMetrics m = new CallbackMetrics("/odom");
+		m.record(10, 100, true);
+		m.reset();
+		assertEquals(0, m.getInvocations());
+		assertEquals(0, m.getFailures());
+		assertEquals(0, m.getMaxLatencyNanos());
+		assertEquals(0, m.getMaxDelayNanos());
+	}
+}
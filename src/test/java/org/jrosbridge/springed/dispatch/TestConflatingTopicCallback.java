@@ -0,0 +1,125 @@
+package org.jrosbridge.springed.dispatch;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import org.jrosbridge.springed.messages.Message;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestConflatingTopicCallback {
+
+	private ManualExecutor executor;
+	private List<String> received;
+	private ConflatingTopicCallback cb;
+
+	@Before
+	public void setUp() {
+		executor = new ManualExecutor();
+		received = new ArrayList<String>();
+		cb = new ConflatingTopicCallback("/odom",
+				m -> received.add(m.toString()), executor);
+	}
+
+	private static Message message(int value) {
+		return new Message("{\"v\":" + value + "}");
+	}
+
+	@Test
+	public void testDeliversWhenIdle() {
+		cb.offer("r1", message(1), System.nanoTime());
+		executor.runAll();
+		assertEquals(1, received.size());
+		assertEquals(1, cb.getDeliveredCount());
+		assertEquals(0, cb.getConflatedCount());
+		assertEquals(1, cb.getMetrics().getInvocations());
+		assertEquals("/odom", cb.getMetrics().getTopic());
+	}
+
+	@Test
+	public void testKeepsOnlyLatest() {
+		for (int i = 0; i < 100; i++) {
+			cb.offer("r1", message(i), System.nanoTime());
+		}
+		// only one delivery task is scheduled for the robot
+		assertEquals(1, executor.size());
+		executor.runAll();
+		assertEquals(1, received.size());
+		assertEquals("{\"v\":99}", received.get(0));
+		assertEquals(1, cb.getDeliveredCount());
+		assertEquals(99, cb.getConflatedCount());
+	}
+
+	@Test
+	public void testConflatesPerRobot() {
+		cb.offer("r1", message(1), System.nanoTime());
+		cb.offer("r2", message(2), System.nanoTime());
+		cb.offer("r1", message(3), System.nanoTime());
+		cb.handleMessage(message(4));
+		executor.runAll();
+		assertEquals(3, received.size());
+		assertTrue(received.contains("{\"v\":3}"));
+		assertTrue(received.contains("{\"v\":2}"));
+		assertTrue(received.contains("{\"v\":4}"));
+		assertEquals(1, cb.getConflatedCount());
+	}
+
+	@Test
+	public void testNewMessageWhileBusy() {
+		ConflatingTopicCallback busy = new ConflatingTopicCallback("/odom",
+				m -> {
+					received.add(m.toString());
+					if (received.size() == 1) {
+						// arrives while the callback is running
+						executor.current.offer("r1", message(2),
+								System.nanoTime());
+					}
+				}, executor);
+		executor.current = busy;
+		busy.offer("r1", message(1), System.nanoTime());
+		executor.runAll();
+		assertEquals(2, received.size());
+		assertEquals("{\"v\":2}", received.get(1));
+		assertEquals(2, busy.getDeliveredCount());
+	}
+
+	@Test
+	public void testFailingCallback() {
+		ConflatingTopicCallback failing = new ConflatingTopicCallback("/odom",
+				m -> {
+					throw new IllegalStateException();
+				}, executor);
+		failing.offer("r1", message(1), System.nanoTime());
+		executor.runAll();
+		failing.offer("r1", message(2), System.nanoTime());
+		executor.runAll();
+		assertEquals(2, failing.getDeliveredCount());
+		assertEquals(2, failing.getMetrics().getFailures());
+	}
+
+	private static class ManualExecutor implements Executor {
+
+		private final ArrayDeque<Runnable> tasks = new ArrayDeque<Runnable>();
+		ConflatingTopicCallback current;
+
+		@Override
+		public void execute(Runnable command) {
+			this.tasks.add(command);
+		}
+
+		int size() {
+			return this.tasks.size();
+		}
+
+		void runAll() {
+			Runnable r;
+			while ((r = this.tasks.poll()) != null) {
+				r.run();
+			}
+		}
+	}
+}
@@ -0,0 +1,110 @@
+package org.jrosbridge.springed.dispatch;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestStripedDispatcher {
+
+	private ExecutorService executor;
+
+	@Before
+	public void setUp() {
+		executor = Executors.newFixedThreadPool(4);
+	}
+
+	@After
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNoStripes() {
+		new StripedDispatcher(executor, 0);
+	}
+
+	@Test
+	public void testOrderPerRobotAndTopic() throws InterruptedException {
+		StripedDispatcher d = new StripedDispatcher(executor, 4);
+		assertEquals(4, d.getStripeCount());
+
+		int robots = 5, topics = 3, messages = 2000;
+		List<List<Integer>> received = new ArrayList<List<Integer>>();
+		for (int i = 0; i < robots * topics; i++) {
+			received.add(Collections.synchronizedList(new ArrayList<Integer>()));
+		}
+		CountDownLatch done = new CountDownLatch(robots * topics * messages);
+		for (int m = 0; m < messages; m++) {
+			for (int r = 0; r < robots; r++) {
+				for (int t = 0; t < topics; t++) {
+					List<Integer> list = received.get(r * topics + t);
+					int value = m;
+					d.dispatch(r, "/topic" + t, () -> {
+						list.add(value);
+						done.countDown();
+					});
+				}
+			}
+		}
+		assertTrue(done.await(10, TimeUnit.SECONDS));
+		for (List<Integer> list : received) {
+			assertEquals(messages, list.size());
+			for (int m = 0; m < messages; m++) {
+				assertEquals(m, (int) list.get(m));
+			}
+		}
+	}
+
+	@Test
+	public void testSameKeyNeverConcurrent() throws InterruptedException {
+		StripedDispatcher d = new StripedDispatcher(executor, 8);
+		AtomicInteger running = new AtomicInteger();
+		AtomicInteger overlaps = new AtomicInteger();
+		CountDownLatch done = new CountDownLatch(500);
+		for (int i = 0; i < 500; i++) {
+			d.dispatch("robot", "/odom", () -> {
+				if (running.incrementAndGet() > 1) {
+					overlaps.incrementAndGet();
+				}
+				Thread.yield();
+				running.decrementAndGet();
+				done.countDown();
+			});
+		}
+		assertTrue(done.await(10, TimeUnit.SECONDS));
+		assertEquals(0, overlaps.get());
+	}
+
+	@Test
+	public void testSlowStripeDoesNotBlockOthers()
+			throws InterruptedException {
+		StripedDispatcher d = new StripedDispatcher(executor, 4);
+		CountDownLatch release = new CountDownLatch(1);
+		d.dispatch("robot", "/slow", () -> {
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+
+		// find a topic that lands on another stripe than the blocked one
+		CountDownLatch other = new CountDownLatch(1);
+		for (int t = 0; t < 16; t++) {
+			d.dispatch("robot", "/fast" + t, other::countDown);
+		}
+		assertTrue(other.await(5, TimeUnit.SECONDS));
+		release.countDown();
+	}
+}
@@ -0,0 +1,77 @@
+package org.jrosbridge.springed.dispatch;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestTopicRouter {
+
+	private TopicRouter<String, String> router;
+
+	@Before
+	public void setUp() {
+		router = new TopicRouter<String, String>();
+	}
+
+	@Test
+	public void testEmpty() {
+		assertTrue(router.getRobotCallbacks("r1", "/odom").isEmpty());
+		assertTrue(router.getAllRobotsCallbacks("/odom").isEmpty());
+		assertFalse(router.hasRoutes("r1", "/odom"));
+		assertFalse(router.hasRoutes(null, "/odom"));
+		assertFalse(router.hasRoutes("r1", null));
+	}
+
+	@Test
+	public void testRobotRoutesAreSeparate() {
+		router.register("r1", "/odom", "a");
+		router.register("r2", "/odom", "b");
+		router.register("r1", "/scan", "c");
+		assertEquals(Collections.singletonList("a"),
+				router.getRobotCallbacks("r1", "/odom"));
+		assertEquals(Collections.singletonList("b"),
+				router.getRobotCallbacks("r2", "/odom"));
+		assertEquals(Collections.singletonList("c"),
+				router.getRobotCallbacks("r1", "/scan"));
+		assertTrue(router.getRobotCallbacks("r3", "/odom").isEmpty());
+		assertTrue(router.getAllRobotsCallbacks("/odom").isEmpty());
+		assertFalse(router.hasRoutes("r2", "/scan"));
+	}
+
+	@Test
+	public void testAllRobots() {
+		router.registerAllRobots("/odom", "all");
+		router.register("r1", "/odom", "a");
+		assertEquals(Collections.singletonList("all"),
+				router.getAllRobotsCallbacks("/odom"));
+		assertEquals(Collections.singletonList("a"),
+				router.getRobotCallbacks("r1", "/odom"));
+		assertTrue(router.hasRoutes("r2", "/odom"));
+		assertTrue(router.hasRoutes(null, "/odom"));
+
+		router.deregisterAllRobots("/odom", "all");
+		assertFalse(router.hasRoutes("r2", "/odom"));
+		assertTrue(router.hasRoutes("r1", "/odom"));
+	}
+
+	@Test
+	public void testDeregister() {
+		router.register("r1", "/odom", "a");
+		router.register("r1", "/odom", "b");
+		assertTrue(router.deregister("r1", "/odom", "a"));
+		assertEquals(Arrays.asList("b"),
+				router.getRobotCallbacks("r1", "/odom"));
+		assertTrue(router.deregister("r1", "/odom", "b"));
+		assertFalse(router.hasRoutes("r1", "/odom"));
+
+		// unknown robots, topics and callbacks are ignored
+		assertFalse(router.deregister("r2", "/odom", "a"));
+		assertFalse(router.deregisterAllRobots("/odom", "a"));
+		router.register("r1", "/odom", "a");
+		assertFalse(router.deregister("r1", "/odom", "b"));
+	}
+}
@@ -0,0 +1,49 @@
+package org.jrosbridge.springed.messages;
+
+import static org.junit.Assert.*;
+
+import org.jrosbridge.springed.ROSConstants;
+import org.jrosbridge.springed.codec.ArrayFieldSchema;
+import org.jrosbridge.springed.codec.PrimitiveJsonArray;
+import org.jrosbridge.springed.codec.PrimitiveJsonArray.Kind;
+import org.jrosbridge.springed.codec.StreamingJsonDecoder;
+import org.jrosbridge.springed.messages.std.Float64MultiArray;
+import org.junit.Test;
+
+public class TestMessageArrayFields {
+
+	@Test
+	public void testGet() {
+		assertNotNull(MessageArrayFields.get(Float64MultiArray.TYPE));
+		assertNotNull(MessageArrayFields
+				.getPublishSchema(Float64MultiArray.TYPE));
+		assertNull(MessageArrayFields.get("test_msgs/Unknown"));
+		assertNull(MessageArrayFields.getPublishSchema("test_msgs/Unknown"));
+		assertNull(MessageArrayFields.get(null));
+		assertNull(MessageArrayFields.getPublishSchema(null));
+	}
+
+	@Test
+	public void testRegisterReplacesPublishSchema() {
+		String frame = "{\"" + ROSConstants.FIELD_MESSAGE
+				+ "\":{\"a\":[1,2],\"b\":[3]}}";
+		MessageArrayFields.register("test_msgs/Replaced",
+				new ArrayFieldSchema().add("a", Kind.INT32));
+		ArrayFieldSchema first = MessageArrayFields
+				.getPublishSchema("test_msgs/Replaced");
+		assertSame(first,
+				MessageArrayFields.getPublishSchema("test_msgs/Replaced"));
+		assertTrue(StreamingJsonDecoder.decode(frame, first)
+				.getJsonObject(ROSConstants.FIELD_MESSAGE).get("a") instanceof PrimitiveJsonArray);
+
+		MessageArrayFields.register("test_msgs/Replaced",
+				new ArrayFieldSchema().add("b", Kind.INT32));
+		ArrayFieldSchema second = MessageArrayFields
+				.getPublishSchema("test_msgs/Replaced");
+		assertNotSame(first, second);
+		assertFalse(StreamingJsonDecoder.decode(frame, second)
+				.getJsonObject(ROSConstants.FIELD_MESSAGE).get("a") instanceof PrimitiveJsonArray);
+		assertTrue(StreamingJsonDecoder.decode(frame, second)
+				.getJsonObject(ROSConstants.FIELD_MESSAGE).get("b") instanceof PrimitiveJsonArray);
+	}
+}
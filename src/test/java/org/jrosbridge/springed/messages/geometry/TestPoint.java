@@ -2,6 +2,9 @@ package org.jrosbridge.springed.messages.geometry;
 
 import static org.junit.Assert.*;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
 import javax.json.Json;
 import javax.json.JsonObject;
 
@@ -175,4 +178,16 @@ public class TestPoint {
 		assertEquals(p1.getY(), p.getY(), 0);
 		assertEquals(0.0, p.getZ(), 0);
 	}
+
+	@Test
+	public void testFromRosBinary() {
+		ByteBuffer buffer = ByteBuffer.allocate(24).order(
+				ByteOrder.LITTLE_ENDIAN);
+		buffer.putDouble(0.5).putDouble(1.5).putDouble(3.0).flip();
+		Point p = Point.fromRosBinary(buffer);
+		assertEquals(p1.getX(), p.getX(), 0);
+		assertEquals(p1.getY(), p.getY(), 0);
+		assertEquals(p1.getZ(), p.getZ(), 0);
+		assertFalse(buffer.hasRemaining());
+	}
 }
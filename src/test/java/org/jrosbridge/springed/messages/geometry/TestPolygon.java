@@ -2,6 +2,8 @@ package org.jrosbridge.springed.messages.geometry;
 
 import static org.junit.Assert.*;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.Arrays;
 
 import javax.json.Json;
@@ -158,4 +160,17 @@ public class TestPolygon {
 		assertTrue(Arrays.deepEquals(new Point32[] {}, p.getPoints()));
 		assertEquals(0, p.size());
 	}
+
+	@Test
+	public void testFromRosBinary() {
+		ByteBuffer buffer = ByteBuffer.allocate(28).order(
+				ByteOrder.LITTLE_ENDIAN);
+		buffer.putInt(2).putFloat(1).putFloat(2).putFloat(3).putFloat(4)
+				.putFloat(5).putFloat(6).flip();
+		Polygon p = Polygon.fromRosBinary(buffer);
+		assertEquals(2, p.size());
+		assertEquals(1.0f, p.get(0).getX(), 0);
+		assertEquals(6.0f, p.get(1).getZ(), 0);
+		assertFalse(buffer.hasRemaining());
+	}
 }
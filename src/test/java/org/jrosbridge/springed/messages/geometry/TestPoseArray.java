@@ -207,4 +207,13 @@ public class TestPoseArray {
 		assertTrue(Arrays.deepEquals(new Pose[] {}, p.getPoses()));
 		assertEquals(0, p.size());
 	}
+
+	@Test
+	public void testComposesPoses() {
+		// the poses' own JSON objects are used, not parsed copies
+		assertSame(p1.get(0).toJsonObject(), p1.toJsonObject()
+				.getJsonArray(PoseArray.FIELD_POSES).getJsonObject(0));
+		assertSame(p1.get(1).toJsonObject(), p1.toJsonObject()
+				.getJsonArray(PoseArray.FIELD_POSES).getJsonObject(1));
+	}
 }
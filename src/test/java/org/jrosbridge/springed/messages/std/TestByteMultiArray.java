@@ -6,6 +6,7 @@ import java.util.Arrays;
 
 import javax.json.Json;
 import javax.json.JsonArrayBuilder;
+import javax.json.JsonException;
 import javax.json.JsonObject;
 
 import org.junit.Before;
@@ -199,4 +200,22 @@ public class TestByteMultiArray {
 		assertEquals(a1.size(), p.size());
 		assertEquals(new MultiArrayLayout(), p.getLayout());
 	}
+
+	@Test
+	public void testFromJsonObjectBase64() {
+		JsonObject jsonObject = Json.createObjectBuilder()
+				.add(ByteMultiArray.FIELD_DATA, "BQr/").build();
+		ByteMultiArray p = ByteMultiArray.fromJsonObject(jsonObject);
+		assertTrue(Arrays.equals(new byte[] { 5, 10, -1 }, p.getData()));
+		assertEquals(new MultiArrayLayout(), p.getLayout());
+
+		// round trip through the emitted form
+		assertEquals(a1, ByteMultiArray.fromJsonString(a1.toString()));
+	}
+
+	@Test(expected = JsonException.class)
+	public void testFromJsonObjectInvalidBase64() {
+		ByteMultiArray.fromJsonObject(Json.createObjectBuilder()
+				.add(ByteMultiArray.FIELD_DATA, "not base64!").build());
+	}
 }
@@ -11,6 +11,7 @@ import javax.json.JsonObject;
 import org.junit.Before;
 import org.junit.Test;
 
+import org.jrosbridge.springed.codec.PrimitiveJsonArray;
 import org.jrosbridge.springed.messages.Message;
 
 public class TestFloat64MultiArray {
@@ -204,4 +205,32 @@ public class TestFloat64MultiArray {
 		assertEquals(a1.size(), p.size());
 		assertEquals(new MultiArrayLayout(), p.getLayout());
 	}
+
+	@Test
+	public void testFromJsonObjectPrimitiveArray() {
+		JsonObject jsonObject = Json
+				.createObjectBuilder()
+				.add(Float64MultiArray.FIELD_LAYOUT, a1.getLayout().toJsonObject())
+				.add(Float64MultiArray.FIELD_DATA,
+						PrimitiveJsonArray.ofFloat64(a1.getData())).build();
+		Float64MultiArray p = Float64MultiArray.fromJsonObject(jsonObject);
+		assertTrue(Arrays.equals(a1.getData(), p.getData()));
+		assertEquals(a1.size(), p.size());
+		assertEquals(a1.getLayout(), p.getLayout());
+		assertEquals(a1, p);
+	}
+
+	@Test
+	public void testDataIsNotReparsed() {
+		assertTrue(a1.toJsonObject().get(Float64MultiArray.FIELD_DATA)
+				instanceof PrimitiveJsonArray);
+		assertEquals("[5.5,10.5]",
+				a1.toJsonObject().get(Float64MultiArray.FIELD_DATA).toString());
+
+		// JSON has no NaN, it used to fail while reparsing
+		Float64MultiArray nan = new Float64MultiArray(new MultiArrayLayout(),
+				new double[] { Double.NaN });
+		assertTrue(nan.toJsonObject().getJsonArray(Float64MultiArray.FIELD_DATA)
+				.isNull(0));
+	}
 }
@@ -2,6 +2,10 @@ package org.jrosbridge.springed.messages.std;
 
 import static org.junit.Assert.*;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
 import javax.json.Json;
 import javax.json.JsonObject;
 
@@ -219,4 +223,19 @@ public class TestHeader {
 		assertEquals(h1.getStamp(), p.getStamp());
 		assertEquals("", p.getFrameID());
 	}
+
+	@Test
+	public void testFromRosBinary() {
+		byte[] frame = "base".getBytes(StandardCharsets.UTF_8);
+		ByteBuffer buffer = ByteBuffer.allocate(16 + frame.length).order(
+				ByteOrder.LITTLE_ENDIAN);
+		buffer.putInt(7).putInt(20).putInt(30).putInt(frame.length)
+				.put(frame).flip();
+		Header h = Header.fromRosBinary(buffer);
+		assertEquals(7, h.getSeq());
+		assertEquals(20, h.getStamp().secs);
+		assertEquals(30, h.getStamp().nsecs);
+		assertEquals("base", h.getFrameID());
+		assertFalse(buffer.hasRemaining());
+	}
 }
@@ -223,4 +223,11 @@ public class TestMultiArrayLayout {
 		assertEquals(m1.size(), p.size());
 		assertEquals(0, p.getDataOffset());
 	}
+
+	@Test
+	public void testComposesDimensions() {
+		// the dimensions' own JSON objects are used, not parsed copies
+		assertSame(m1.get(1).toJsonObject(), m1.toJsonObject()
+				.getJsonArray(MultiArrayLayout.FIELD_DIM).getJsonObject(1));
+	}
 }
@@ -0,0 +1,71 @@
+package org.jrosbridge.springed.pending;
+
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class TestLongHashMap {
+
+	@Test
+	public void testPutGetRemove() {
+		LongHashMap<String> map = new LongHashMap<String>();
+		assertTrue(map.isEmpty());
+		assertNull(map.put(1, "a"));
+		assertNull(map.put(-5, "b"));
+		assertEquals("a", map.put(1, "c"));
+		assertEquals(2, map.size());
+		assertEquals("c", map.get(1));
+		assertEquals("b", map.get(-5));
+		assertNull(map.get(2));
+		assertEquals("c", map.remove(1));
+		assertNull(map.remove(1));
+		assertEquals(1, map.size());
+		map.clear();
+		assertTrue(map.isEmpty());
+		assertNull(map.get(-5));
+	}
+
+	@Test(expected = NullPointerException.class)
+	public void testNullValue() {
+		new LongHashMap<String>().put(1, null);
+	}
+
+	@Test
+	public void testMatchesHashMap() {
+		// random operations, including many collisions in a small key range
+		LongHashMap<Long> map = new LongHashMap<Long>();
+		Map<Long, Long> expected = new HashMap<Long, Long>();
+		Random random = new Random(42);
+		for (int i = 0; i < 100000; i++) {
+			long key = random.nextInt(2000);
+			if (random.nextInt(3) == 0) {
+				assertEquals(expected.remove(key), map.remove(key));
+			} else {
+				assertEquals(expected.put(key, (long) i), map.put(key, (long) i));
+			}
+		}
+		assertEquals(expected.size(), map.size());
+		for (long key = 0; key < 2000; key++) {
+			assertEquals(expected.get(key), map.get(key));
+		}
+	}
+
+	@Test
+	public void testRemoveIf() {
+		LongHashMap<Long> map = new LongHashMap<Long>(4);
+		for (long i = 0; i < 1000; i++) {
+			map.put(i, i);
+		}
+		List<Long> removed = map.removeIf(v -> v % 2 == 0);
+		assertEquals(500, removed.size());
+		assertEquals(500, map.size());
+		for (long i = 0; i < 1000; i++) {
+			assertEquals(i % 2 == 0 ? null : Long.valueOf(i), map.get(i));
+		}
+	}
+}
@@ -0,0 +1,175 @@
+package org.jrosbridge.springed.pending;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.json.JsonValue;
+
+import org.jrosbridge.springed.callback.ServiceCallback;
+import org.jrosbridge.springed.services.ServiceException;
+import org.jrosbridge.springed.services.ServiceResponse;
+import org.jrosbridge.springed.services.ServiceTimeoutException;
+import org.jrosbridge.springed.session.DummySession;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestPendingCallTable {
+
+	private PendingCallTable table;
+	private DummySession s1, s2;
+
+	@Before
+	public void setUp() {
+		table = new PendingCallTable(null, 10, TimeUnit.MILLISECONDS);
+		s1 = new DummySession("s1");
+		s2 = new DummySession("s2");
+	}
+
+	private static class RecordingCallback implements ServiceCallback {
+
+		final List<ServiceResponse> responses = new ArrayList<ServiceResponse>();
+		final List<ServiceException> errors = new ArrayList<ServiceException>();
+
+		@Override
+		public void handleServiceResponse(ServiceResponse response) {
+			responses.add(response);
+		}
+
+		@Override
+		public void handleServiceError(ServiceException error) {
+			errors.add(error);
+		}
+	}
+
+	private static ServiceResponse response() {
+		return new ServiceResponse(JsonValue.EMPTY_JSON_OBJECT, true);
+	}
+
+	@Test
+	public void testComplete() {
+		RecordingCallback cb = new RecordingCallback();
+		table.add(1, s1, "/srv", cb, 0, TimeUnit.SECONDS);
+		assertEquals(1, table.size());
+		assertTrue(table.complete(1, s1, response()));
+		assertFalse(table.complete(1, s1, response()));
+		assertEquals(1, cb.responses.size());
+		assertTrue(cb.errors.isEmpty());
+		assertEquals(0, table.size());
+	}
+
+	@Test
+	public void testCompleteOnOtherSession() {
+		RecordingCallback cb = new RecordingCallback();
+		table.add(1, s1, "/srv", cb, 0, TimeUnit.SECONDS);
+		assertFalse(table.complete(1, s2, response()));
+		assertTrue(cb.responses.isEmpty());
+		assertEquals(1, table.size());
+		assertTrue(table.complete(1, s1, response()));
+		assertEquals(1, cb.responses.size());
+	}
+
+	@Test
+	public void testFinishReleasesCallback() {
+		RecordingCallback cb = new RecordingCallback();
+		PendingCall call = new PendingCall(1, s1, "/srv", cb, 10);
+		assertFalse(call.isDone());
+		assertSame(cb, call.finish());
+		// a finished call in the timer wheel no longer holds the callback
+		assertTrue(call.isDone());
+		assertNull(call.finish());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testDuplicateId() {
+		table.add(1, s1, "/srv", new RecordingCallback(), 0, TimeUnit.SECONDS);
+		table.add(1, s1, "/srv", new RecordingCallback(), 0, TimeUnit.SECONDS);
+	}
+
+	@Test
+	public void testUnknownId() {
+		assertFalse(table.complete(7, s1, response()));
+		assertFalse(table.fail(7, new ServiceException("x")));
+		assertFalse(table.cancel(7));
+	}
+
+	@Test
+	public void testCancel() {
+		RecordingCallback cb = new RecordingCallback();
+		table.add(1, s1, "/srv", cb, 1, TimeUnit.MILLISECONDS);
+		assertTrue(table.cancel(1));
+		table.sweep(System.nanoTime() + TimeUnit.SECONDS.toNanos(1));
+		assertTrue(cb.responses.isEmpty());
+		assertTrue(cb.errors.isEmpty());
+		assertEquals(0, table.size());
+	}
+
+	@Test
+	public void testTimeout() {
+		RecordingCallback cb = new RecordingCallback();
+		table.add(1, s1, "/srv", cb, 1, TimeUnit.SECONDS);
+		table.add(2, s1, "/srv", cb, 0, TimeUnit.SECONDS);
+
+		// not yet due
+		table.sweep(System.nanoTime());
+		assertTrue(cb.errors.isEmpty());
+
+		table.sweep(System.nanoTime() + TimeUnit.SECONDS.toNanos(2));
+		assertEquals(1, cb.errors.size());
+		assertTrue(cb.errors.get(0) instanceof ServiceTimeoutException);
+		assertEquals(1, table.size());
+		assertFalse(table.complete(1, s1, response()));
+		assertTrue(cb.responses.isEmpty());
+	}
+
+	@Test
+	public void testTimeoutLaterRound() {
+		// further out than one rotation of the wheel
+		RecordingCallback cb = new RecordingCallback();
+		table.add(1, s1, "/srv", cb, 60, TimeUnit.SECONDS);
+		long now = System.nanoTime();
+		for (int i = 1; i <= 10; i++) {
+			table.sweep(now + TimeUnit.SECONDS.toNanos(5 * i));
+		}
+		assertTrue(cb.errors.isEmpty());
+		table.sweep(now + TimeUnit.SECONDS.toNanos(61));
+		assertEquals(1, cb.errors.size());
+	}
+
+	@Test
+	public void testCompletedCallDoesNotTimeOut() {
+		RecordingCallback cb = new RecordingCallback();
+		table.add(1, s1, "/srv", cb, 1, TimeUnit.MILLISECONDS);
+		table.complete(1, s1, response());
+		table.sweep(System.nanoTime() + TimeUnit.SECONDS.toNanos(1));
+		assertEquals(1, cb.responses.size());
+		assertTrue(cb.errors.isEmpty());
+	}
+
+	@Test
+	public void testFailSession() {
+		RecordingCallback cb1 = new RecordingCallback();
+		RecordingCallback cb2 = new RecordingCallback();
+		for (long id = 0; id < 100; id++) {
+			table.add(id, id % 2 == 0 ? s1 : s2, "/srv", id % 2 == 0 ? cb1
+					: cb2, 0, TimeUnit.SECONDS);
+		}
+		assertEquals(50, table.failSession(s1, "session closed"));
+		assertEquals(50, cb1.errors.size());
+		assertTrue(cb2.errors.isEmpty());
+		assertEquals(50, table.size());
+		assertTrue(table.complete(1, s2, response()));
+		assertEquals(0, table.failSession(s1, "session closed"));
+	}
+
+	@Test
+	public void testDefaultErrorHandling() {
+		List<ServiceResponse> responses = new ArrayList<ServiceResponse>();
+		table.add(1, s1, "/srv", responses::add, 0, TimeUnit.SECONDS);
+		table.failSession(s1, "session closed");
+		assertEquals(1, responses.size());
+		assertFalse(responses.get(0).getResult());
+	}
+}
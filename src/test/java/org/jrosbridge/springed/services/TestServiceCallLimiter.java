@@ -0,0 +1,216 @@
+package org.jrosbridge.springed.services;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import javax.json.Json;
+
+import org.jrosbridge.springed.callback.AsyncCallServiceCallback;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestServiceCallLimiter {
+
+	private ManualExecutor executor;
+	private Map<String, CompletableFuture<ServiceResponse>> handling;
+	private List<String> responses;
+	private AsyncCallServiceCallback handler;
+
+	@Before
+	public void setUp() {
+		executor = new ManualExecutor();
+		handling = new ConcurrentHashMap<String, CompletableFuture<ServiceResponse>>();
+		responses = new ArrayList<String>();
+		handler = request -> {
+			CompletableFuture<ServiceResponse> f = new CompletableFuture<ServiceResponse>();
+			handling.put(request.getId(), f);
+			return f;
+		};
+	}
+
+	private ServiceCallLimiter limiter(int maxConcurrent, int maxQueued,
+			ServiceOverflowPolicy policy) {
+		return new ServiceCallLimiter("/plan", handler, executor,
+				maxConcurrent, maxQueued, policy,
+				(request, response) -> responses.add(request.getId() + "="
+						+ response.getResult()));
+	}
+
+	private static ServiceRequest request(String id) {
+		ServiceRequest request = new ServiceRequest();
+		request.setId(id);
+		return request;
+	}
+
+	private static ServiceResponse ok() {
+		return new ServiceResponse(Json.createObjectBuilder().build(), true);
+	}
+
+	@Test
+	public void testConcurrencyCap() {
+		ServiceCallLimiter limiter = limiter(2, 10,
+				ServiceOverflowPolicy.REJECT_NEWEST);
+		for (int i = 0; i < 5; i++) {
+			limiter.submit(request("c" + i));
+		}
+		// nothing runs on the submitting thread
+		assertTrue(handling.isEmpty());
+		assertEquals(2, executor.tasks.size());
+		executor.runAll();
+		assertEquals(2, handling.size());
+		assertEquals(2, limiter.getRunning());
+		assertEquals(3, limiter.getQueued());
+
+		// a call holds its slot until its future completes
+		executor.runAll();
+		assertEquals(2, handling.size());
+		handling.get("c0").complete(ok());
+		assertEquals("c0=true", responses.get(0));
+		executor.runAll();
+		assertEquals(3, handling.size());
+		assertEquals(2, limiter.getRunning());
+		assertEquals(2, limiter.getQueued());
+
+		for (int i = 1; i < 5; i++) {
+			executor.runAll();
+			handling.get("c" + i).complete(ok());
+		}
+		assertEquals(0, limiter.getRunning());
+		assertEquals(5, limiter.getCompletedCount());
+		assertEquals(5, responses.size());
+	}
+
+	@Test
+	public void testRejectNewest() {
+		ServiceCallLimiter limiter = limiter(1, 1,
+				ServiceOverflowPolicy.REJECT_NEWEST);
+		limiter.submit(request("a"));
+		limiter.submit(request("b"));
+		limiter.submit(request("c"));
+		assertEquals(1, limiter.getRejectedCount());
+		// the rejection is sent on the executor, not the submitting thread
+		assertTrue(responses.isEmpty());
+		executor.runAll();
+		assertEquals("c=false", responses.get(0));
+	}
+
+	@Test
+	public void testRejectOldest() {
+		ServiceCallLimiter limiter = limiter(1, 1,
+				ServiceOverflowPolicy.REJECT_OLDEST);
+		limiter.submit(request("a"));
+		limiter.submit(request("b"));
+		limiter.submit(request("c"));
+		executor.runAll();
+		assertEquals("b=false", responses.get(0));
+		handling.get("a").complete(ok());
+		executor.runAll();
+		assertTrue(handling.containsKey("c"));
+		assertFalse(handling.containsKey("b"));
+	}
+
+	@Test
+	public void testHandlerFailure() {
+		handler = request -> {
+			if (request.getId().equals("throw")) {
+				throw new IllegalStateException("planning failed");
+			}
+			CompletableFuture<ServiceResponse> f = new CompletableFuture<ServiceResponse>();
+			f.completeExceptionally(new IllegalStateException("no path"));
+			return f;
+		};
+		ServiceCallLimiter limiter = limiter(1, 10,
+				ServiceOverflowPolicy.REJECT_NEWEST);
+		limiter.submit(request("throw"));
+		limiter.submit(request("fail"));
+		executor.runAll();
+		executor.runAll();
+		assertEquals(2, limiter.getFailedCount());
+		assertEquals("throw=false", responses.get(0));
+		assertEquals("fail=false", responses.get(1));
+		assertEquals(0, limiter.getRunning());
+	}
+
+	@Test
+	public void testHandlerResponds() {
+		handler = request -> null;
+		ServiceCallLimiter limiter = limiter(1, 10,
+				ServiceOverflowPolicy.REJECT_NEWEST);
+		limiter.submit(request("a"));
+		limiter.submit(request("b"));
+		executor.runAll();
+		executor.runAll();
+		assertEquals(2, limiter.getCompletedCount());
+		assertTrue(responses.isEmpty());
+		assertEquals(0, limiter.getRunning());
+	}
+
+	@Test
+	public void testHandlerError() {
+		handler = request -> {
+			throw new AssertionError("broken handler");
+		};
+		ServiceCallLimiter limiter = limiter(1, 10,
+				ServiceOverflowPolicy.REJECT_NEWEST);
+		limiter.submit(request("a"));
+		limiter.submit(request("b"));
+		for (int i = 0; i < 2; i++) {
+			try {
+				executor.runAll();
+				fail();
+			} catch (AssertionError e) {
+				assertEquals("broken handler", e.getMessage());
+			}
+		}
+		// both calls got and gave back the slot
+		assertEquals(0, limiter.getRunning());
+		assertEquals(0, limiter.getQueued());
+	}
+
+	@Test
+	public void testExecutorRejects() {
+		ServiceCallLimiter limiter = new ServiceCallLimiter("/plan", handler,
+				r -> {
+					throw new RejectedExecutionException();
+				}, 1, 1, ServiceOverflowPolicy.REJECT_NEWEST,
+				(request, response) -> responses.add(request.getId() + "="
+						+ response.getResult()));
+		limiter.submit(request("a"));
+		assertEquals("a=false", responses.get(0));
+		assertEquals(0, limiter.getRunning());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidConcurrency() {
+		limiter(0, 1, ServiceOverflowPolicy.REJECT_NEWEST);
+	}
+
+	/**
+	 * Runs tasks only when the test says so.
+	 */
+	private static class ManualExecutor implements Executor {
+
+		final ArrayDeque<Runnable> tasks = new ArrayDeque<Runnable>();
+
+		@Override
+		public void execute(Runnable command) {
+			this.tasks.add(command);
+		}
+
+		void runAll() {
+			ArrayDeque<Runnable> run = new ArrayDeque<Runnable>(this.tasks);
+			this.tasks.clear();
+			for (Runnable task : run) {
+				task.run();
+			}
+		}
+	}
+}
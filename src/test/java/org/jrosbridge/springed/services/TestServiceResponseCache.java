@@ -0,0 +1,179 @@
+package org.jrosbridge.springed.services;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import javax.json.Json;
+import javax.json.JsonObject;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestServiceResponseCache {
+
+	private AtomicLong now;
+	private ServiceResponseCache<String> cache;
+	private AtomicInteger calls;
+	private CompletableFuture<ServiceResponse> pending;
+	private Supplier<CompletableFuture<ServiceResponse>> call;
+
+	@Before
+	public void setUp() {
+		now = new AtomicLong();
+		cache = new ServiceResponseCache<String>(10, TimeUnit.SECONDS, 2,
+				now::get);
+		calls = new AtomicInteger();
+		call = () -> {
+			calls.incrementAndGet();
+			pending = new CompletableFuture<ServiceResponse>();
+			return pending;
+		};
+	}
+
+	private static JsonObject args(int n) {
+		return Json.createObjectBuilder().add("n", n).build();
+	}
+
+	private static ServiceResponse response(boolean result) {
+		return new ServiceResponse(Json.createObjectBuilder().add("v", 1)
+				.build(), result);
+	}
+
+	@Test
+	public void testCoalescing() throws Exception {
+		CompletableFuture<ServiceResponse> f1 = cache.get("r1", "/topics",
+				args(1), call);
+		CompletableFuture<ServiceResponse> f2 = cache.get("r1", "/topics",
+				Json.createObjectBuilder().add("n", 1).build(), call);
+		assertEquals(1, calls.get());
+		assertEquals(1, cache.getCoalescedCount());
+		assertFalse(f2.isDone());
+
+		// cancelling one caller does not affect the other
+		f1.cancel(false);
+		pending.complete(response(true));
+		assertEquals(1, f2.get().toJsonObject().getInt("v"));
+		assertEquals(1, cache.size());
+	}
+
+	@Test
+	public void testJoinedCallTimesOut() throws Exception {
+		CompletableFuture<ServiceResponse> f1 = cache.get("r1", "/topics",
+				args(1), 1, TimeUnit.MINUTES, call);
+		CompletableFuture<ServiceResponse> f2 = cache.get("r1", "/topics",
+				args(1), 10, TimeUnit.MILLISECONDS, call);
+		try {
+			f2.get(1, TimeUnit.SECONDS);
+			fail();
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof ServiceTimeoutException);
+		}
+		assertFalse(f1.isDone());
+
+		// a caller that joins without a timeout waits for the call
+		CompletableFuture<ServiceResponse> f3 = cache.get("r1", "/topics",
+				args(1), call);
+		pending.complete(response(true));
+		assertEquals(1, f1.get().toJsonObject().getInt("v"));
+		assertEquals(1, f3.get().toJsonObject().getInt("v"));
+		assertEquals(1, calls.get());
+	}
+
+	@Test
+	public void testHitAndExpiry() throws Exception {
+		cache.get("r1", "/topics", args(1), call);
+		pending.complete(response(true));
+
+		now.set(TimeUnit.SECONDS.toNanos(9));
+		assertTrue(cache.get("r1", "/topics", args(1), call).isDone());
+		assertEquals(1, calls.get());
+		assertEquals(1, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+		assertEquals(0.5, cache.getHitRate(), 0);
+
+		now.set(TimeUnit.SECONDS.toNanos(10));
+		assertFalse(cache.get("r1", "/topics", args(1), call).isDone());
+		assertEquals(2, calls.get());
+	}
+
+	@Test
+	public void testKeys() {
+		cache.get("r1", "/topics", args(1), call);
+		cache.get("r2", "/topics", args(1), call);
+		cache.get("r1", "/services", args(1), call);
+		cache.get("r1", "/topics", args(2), call);
+		assertEquals(4, calls.get());
+		assertEquals(0, cache.getCoalescedCount());
+	}
+
+	@Test
+	public void testFailuresAreNotCached() {
+		CompletableFuture<ServiceResponse> f = cache.get("r1", "/topics",
+				args(1), call);
+		pending.complete(response(false));
+		assertFalse(f.join().getResult());
+		f = cache.get("r1", "/topics", args(1), call);
+		pending.completeExceptionally(new ServiceTimeoutException("late"));
+		try {
+			f.get();
+			fail();
+		} catch (InterruptedException | ExecutionException e) {
+			assertTrue(e.getCause() instanceof ServiceTimeoutException);
+		}
+		cache.get("r1", "/topics", args(1), call);
+		assertEquals(3, calls.get());
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void testEviction() {
+		for (int i = 0; i < 3; i++) {
+			cache.get("r1", "/get_param", args(i), call);
+			pending.complete(response(true));
+		}
+		assertEquals(2, cache.size());
+		assertEquals(1, cache.getEvictionCount());
+		// the eldest entry is gone
+		cache.get("r1", "/get_param", args(0), call);
+		assertEquals(4, calls.get());
+		cache.get("r1", "/get_param", args(2), call);
+		assertEquals(4, calls.get());
+	}
+
+	@Test
+	public void testInvalidate() {
+		cache.get("r1", "/topics", args(1), call);
+		pending.complete(response(true));
+		cache.get("r2", "/topics", args(1), call);
+		pending.complete(response(true));
+		cache.invalidate("r1");
+		assertEquals(1, cache.size());
+		cache.invalidate("r2", "/services");
+		assertEquals(1, cache.size());
+		cache.invalidate("r2", "/topics");
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void testCallThrows() {
+		CompletableFuture<ServiceResponse> f = cache.get("r1", "/topics",
+				args(1), () -> {
+					throw new IllegalStateException();
+				});
+		assertTrue(f.isCompletedExceptionally());
+		// nothing is left in flight
+		cache.get("r1", "/topics", args(1), call);
+		assertEquals(1, calls.get());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidSize() {
+		new ServiceResponseCache<String>(1, TimeUnit.SECONDS, 0);
+	}
+}
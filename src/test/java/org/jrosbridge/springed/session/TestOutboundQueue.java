@@ -0,0 +1,379 @@
+package org.jrosbridge.springed.session;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.jrosbridge.springed.codec.FrameBuffer;
+import org.jrosbridge.springed.codec.FrameBufferPool;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+
+public class TestOutboundQueue {
+
+	private DummySession session;
+	private ManualExecutor writer;
+
+	@Before
+	public void setUp() {
+		session = new DummySession("s1");
+		writer = new ManualExecutor();
+	}
+
+	@Test
+	public void testOfferAndWrite() throws IOException {
+		OutboundQueue q = new OutboundQueue(session, writer, 10, 1000,
+				OverflowPolicy.BLOCK);
+		assertTrue(q.offer(new TextMessage("a")));
+		assertTrue(q.offer(new TextMessage("bc")));
+		assertEquals(2, q.getDepth());
+		assertEquals(3, q.getBytes());
+		assertEquals(1, writer.tasks.size());
+		assertTrue(session.sent.isEmpty());
+
+		writer.runAll();
+		assertEquals(0, q.getDepth());
+		assertEquals(0, q.getBytes());
+		assertEquals(2, q.getSentCount());
+		assertEquals(2, q.getHighWaterMark());
+		assertEquals("a", session.sent.get(0).getPayload());
+		assertEquals("bc", session.sent.get(1).getPayload());
+	}
+
+	@Test
+	public void testDropOldest() throws IOException {
+		OutboundQueue q = new OutboundQueue(session, writer, 2, 1000,
+				OverflowPolicy.DROP_OLDEST);
+		q.offer(new TextMessage("a"));
+		q.offer(new TextMessage("b"));
+		assertTrue(q.offer(new TextMessage("c")));
+		assertEquals(1, q.getDroppedCount());
+		writer.runAll();
+		assertEquals(2, session.sent.size());
+		assertEquals("b", session.sent.get(0).getPayload());
+		assertEquals("c", session.sent.get(1).getPayload());
+	}
+
+	@Test
+	public void testDropNewest() throws IOException {
+		OutboundQueue q = new OutboundQueue(session, writer, 2, 1000,
+				OverflowPolicy.DROP_NEWEST);
+		q.offer(new TextMessage("a"));
+		q.offer(new TextMessage("b"));
+		assertFalse(q.offer(new TextMessage("c")));
+		assertEquals(1, q.getDroppedCount());
+		writer.runAll();
+		assertEquals("a", session.sent.get(0).getPayload());
+		assertEquals("b", session.sent.get(1).getPayload());
+	}
+
+	@Test
+	public void testByteLimit() throws IOException {
+		OutboundQueue q = new OutboundQueue(session, writer, 10, 4,
+				OverflowPolicy.DROP_NEWEST);
+		// an oversized message is accepted into an empty queue
+		assertTrue(q.offer(new TextMessage("abcdef")));
+		assertFalse(q.offer(new TextMessage("g")));
+		writer.runAll();
+		assertTrue(q.offer(new TextMessage("abc")));
+		assertTrue(q.offer(new TextMessage("d")));
+		assertFalse(q.offer(new TextMessage("e")));
+	}
+
+	@Test
+	public void testCloseSession() throws IOException {
+		OutboundQueue q = new OutboundQueue(session, writer, 1, 1000,
+				OverflowPolicy.CLOSE_SESSION);
+		q.offer(new TextMessage("a"));
+		assertFalse(q.offer(new TextMessage("b")));
+		assertFalse(session.isOpen());
+		assertTrue(q.isClosed());
+		assertEquals(0, q.getDepth());
+		assertEquals(2, q.getDroppedCount());
+
+		// later senders fail instead of closing the session again
+		try {
+			q.offer(new TextMessage("c"));
+			fail();
+		} catch (IOException e) {
+		}
+		assertEquals(2, q.getDroppedCount());
+	}
+
+	@Test(expected = IOException.class)
+	public void testOfferAfterClose() throws IOException {
+		OutboundQueue q = new OutboundQueue(session, writer, 10, 1000,
+				OverflowPolicy.BLOCK);
+		q.offer(new TextMessage("a"));
+		q.close();
+		assertTrue(q.isClosed());
+		assertEquals(1, q.getDroppedCount());
+		q.offer(new TextMessage("b"));
+	}
+
+	@Test
+	public void testBlockUntilWritten() throws Exception {
+		final OutboundQueue q = new OutboundQueue(session, writer, 1, 1000,
+				OverflowPolicy.BLOCK);
+		q.offer(new TextMessage("a"));
+		Thread sender = new Thread(() -> {
+			try {
+				q.offer(new TextMessage("b"));
+			} catch (IOException e) {
+				fail();
+			}
+		});
+		sender.start();
+		sender.join(200);
+		assertTrue(sender.isAlive());
+
+		writer.runAll();
+		sender.join(5000);
+		assertFalse(sender.isAlive());
+		writer.runAll();
+		assertEquals(2, session.sent.size());
+	}
+
+	@Test
+	public void testPooledFramesReleased() throws IOException {
+		FrameBufferPool pool = new FrameBufferPool();
+		OutboundQueue q = new OutboundQueue(session, writer, 1, 1000,
+				OverflowPolicy.DROP_NEWEST);
+		FrameBuffer b1 = pool.acquire();
+		b1.write('a');
+		q.offer(new OutboundFrame(b1, pool));
+		// dropped right away
+		q.offer(new OutboundFrame(pool.acquire(), pool));
+		assertEquals(1, pool.getIdleCount());
+
+		writer.runAll();
+		assertEquals(2, pool.getIdleCount());
+		assertEquals(1, session.sent.get(0).getPayloadLength());
+	}
+
+	@Test
+	public void testSharedFrame() throws IOException {
+		FrameBufferPool pool = new FrameBufferPool();
+		FrameBuffer buffer = pool.acquire();
+		buffer.write('a');
+		buffer.write('b');
+		SharedFrame shared = new SharedFrame(buffer, pool);
+		pool.acquire();
+
+		DummySession other = new DummySession("s2");
+		OutboundQueue q1 = new OutboundQueue(session, writer, 10, 1000,
+				OverflowPolicy.BLOCK);
+		OutboundQueue q2 = new OutboundQueue(other, writer, 10, 1000,
+				OverflowPolicy.BLOCK);
+		CompletableFuture<Void> c1 = new CompletableFuture<Void>();
+		CompletableFuture<Void> c2 = new CompletableFuture<Void>();
+		q1.offer(new OutboundFrame(shared, c1));
+		q2.offer(new OutboundFrame(shared, c2));
+		shared.release();
+		assertEquals(0, pool.getIdleCount());
+
+		writer.runAll();
+		assertTrue(c1.isDone() && !c1.isCompletedExceptionally());
+		assertTrue(c2.isDone() && !c2.isCompletedExceptionally());
+		assertEquals(2, session.sent.get(0).getPayloadLength());
+		assertEquals(2, other.sent.get(0).getPayloadLength());
+		// back in the pool only after both sessions wrote it
+		assertEquals(1, pool.getIdleCount());
+	}
+
+	@Test
+	public void testDroppedFrameFailsCompletion() throws IOException {
+		FrameBufferPool pool = new FrameBufferPool();
+		SharedFrame shared = new SharedFrame(pool.acquire(), pool);
+		OutboundQueue q = new OutboundQueue(session, writer, 1, 1000,
+				OverflowPolicy.DROP_NEWEST);
+		CompletableFuture<Void> sent = new CompletableFuture<Void>();
+		CompletableFuture<Void> dropped = new CompletableFuture<Void>();
+		q.offer(new OutboundFrame(shared, sent));
+		q.offer(new OutboundFrame(shared, dropped));
+		shared.release();
+		assertTrue(dropped.isCompletedExceptionally());
+		assertFalse(sent.isDone());
+
+		writer.runAll();
+		assertTrue(sent.isDone() && !sent.isCompletedExceptionally());
+		assertEquals(1, pool.getIdleCount());
+	}
+
+	@Test
+	public void testGroupDropNewest() throws IOException {
+		OutboundQueue q = new OutboundQueue(session, writer, 1, 1000,
+				OverflowPolicy.DROP_NEWEST);
+		q.offer(new TextMessage("a"));
+		assertFalse(q.offerAll(group("b1", "b2", "b3")));
+		assertEquals(3, q.getDroppedCount());
+		assertEquals(1, q.getDepth());
+		writer.runAll();
+		assertTrue(q.offerAll(group("c1", "c2", "c3", "c4")));
+		writer.runAll();
+		assertEquals(5, session.sent.size());
+		assertEquals("a", session.sent.get(0).getPayload());
+		assertEquals("c1", session.sent.get(1).getPayload());
+		assertEquals("c4", session.sent.get(4).getPayload());
+	}
+
+	@Test
+	public void testGroupDropOldest() throws IOException {
+		OutboundQueue q = new OutboundQueue(session, writer, 2, 1000,
+				OverflowPolicy.DROP_OLDEST);
+		q.offerAll(group("a1", "a2", "a3"));
+		q.offer(new TextMessage("b"));
+		// dropping the first fragment drops the whole message
+		assertTrue(q.offer(new TextMessage("c")));
+		assertEquals(3, q.getDroppedCount());
+		assertEquals(2, q.getDepth());
+		writer.runAll();
+		assertEquals(2, session.sent.size());
+		assertEquals("b", session.sent.get(0).getPayload());
+		assertEquals("c", session.sent.get(1).getPayload());
+	}
+
+	@Test
+	public void testGroupNotDroppedOnceStarted() throws IOException {
+		List<OutboundQueue> queue = new ArrayList<OutboundQueue>();
+		List<Boolean> offered = new ArrayList<Boolean>();
+		DummySession interrupting = new DummySession("s2") {
+			@Override
+			public void sendMessage(WebSocketMessage<?> message)
+					throws IOException {
+				super.sendMessage(message);
+				if ("a1".equals(message.getPayload())) {
+					// only the rest of a started message is queued
+					offered.add(queue.get(0).offer(new TextMessage("b")));
+				}
+			}
+		};
+		OutboundQueue q = new OutboundQueue(interrupting, writer, 1, 1000,
+				OverflowPolicy.DROP_OLDEST);
+		queue.add(q);
+		q.offerAll(group("a1", "a2", "a3"));
+		writer.runAll();
+		assertEquals(Arrays.asList(false), offered);
+		assertEquals(1, q.getDroppedCount());
+		assertEquals(3, interrupting.sent.size());
+		assertEquals("a3", interrupting.sent.get(2).getPayload());
+	}
+
+	@Test
+	public void testGroupInterleaves() throws IOException {
+		OutboundQueue q = new OutboundQueue(session, writer, 10, 10,
+				OverflowPolicy.CLOSE_SESSION);
+		q.offer(new TextMessage("x"));
+		// larger than the queue, yet only one fragment is queued at a time
+		assertTrue(q.offerAll(group("f1__", "f2__", "f3__", "f4__", "f5__")));
+		assertEquals(5, q.getBytes());
+		assertTrue(q.offer(new TextMessage("y")));
+		assertFalse(q.isClosed());
+
+		writer.runAll();
+		List<String> payloads = new ArrayList<String>();
+		for (WebSocketMessage<?> message : session.sent) {
+			payloads.add((String) message.getPayload());
+		}
+		assertEquals(Arrays.asList("x", "f1__", "y", "f2__", "f3__", "f4__",
+				"f5__"), payloads);
+		assertEquals(0, q.getDroppedCount());
+		assertEquals(0, q.getBytes());
+	}
+
+	@Test
+	public void testCloseReleasesGroup() throws IOException {
+		FrameBufferPool pool = new FrameBufferPool();
+		OutboundQueue q = new OutboundQueue(session, writer, 10, 1000,
+				OverflowPolicy.BLOCK);
+		List<OutboundFrame> frames = new ArrayList<OutboundFrame>();
+		for (int i = 0; i < 3; i++) {
+			FrameBuffer buffer = pool.acquire();
+			buffer.write('f');
+			frames.add(new OutboundFrame(buffer, pool));
+		}
+		q.offerAll(frames);
+		q.close();
+		assertEquals(3, q.getDroppedCount());
+		assertEquals(3, pool.getIdleCount());
+	}
+
+	@Test
+	public void testWriterRejected() {
+		OutboundQueue q = new OutboundQueue(session, command -> {
+			throw new RejectedExecutionException();
+		}, 10, 1000, OverflowPolicy.BLOCK);
+		try {
+			q.offer(new TextMessage("a"));
+			fail();
+		} catch (IOException e) {
+		}
+		assertTrue(q.isClosed());
+		assertEquals(0, q.getDepth());
+		assertEquals(1, q.getDroppedCount());
+	}
+
+	@Test
+	public void testWriterRejectedAfterBatch() throws IOException {
+		boolean[] started = new boolean[1];
+		OutboundQueue q = new OutboundQueue(session, command -> {
+			if (started[0]) {
+				throw new RejectedExecutionException();
+			}
+			started[0] = true;
+			writer.execute(command);
+		}, 100, 1000, OverflowPolicy.BLOCK);
+		for (int i = 0; i < 70; i++) {
+			q.offer(new TextMessage("m"));
+		}
+		// the writer yields after a batch, and cannot be run again
+		writer.runAll();
+		assertTrue(q.isClosed());
+		assertEquals(0, q.getDepth());
+		assertEquals(64, q.getSentCount());
+		assertEquals(6, q.getDroppedCount());
+	}
+
+	private static List<OutboundFrame> group(String... payloads) {
+		List<OutboundFrame> frames = new ArrayList<OutboundFrame>();
+		for (String payload : payloads) {
+			frames.add(new OutboundFrame(new TextMessage(payload)));
+		}
+		return frames;
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidLimits() {
+		new OutboundQueue(session, writer, 0, 1000, OverflowPolicy.BLOCK);
+	}
+
+	private static class ManualExecutor implements Executor {
+
+		private final ArrayDeque<Runnable> tasks = new ArrayDeque<Runnable>();
+
+		@Override
+		public synchronized void execute(Runnable command) {
+			this.tasks.add(command);
+		}
+
+		public void runAll() {
+			Runnable r;
+			while ((r = this.poll()) != null) {
+				r.run();
+			}
+		}
+
+		private synchronized Runnable poll() {
+			return this.tasks.poll();
+		}
+	}
+}
@@ -0,0 +1,115 @@
+package org.jrosbridge.springed.session;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestSessionRegistry {
+
+	private SessionRegistry<String> registry;
+	private DummySession s1, s2;
+
+	@Before
+	public void setUp() {
+		registry = new SessionRegistry<String>();
+		s1 = new DummySession("s1");
+		s2 = new DummySession("s2");
+	}
+
+	@Test
+	public void testRegister() {
+		assertNull(registry.register(s1, "robot1"));
+		assertSame(s1, registry.getSession("robot1"));
+		assertEquals("robot1", registry.getIdentifier(s1));
+		assertTrue(registry.contains("robot1"));
+		assertEquals(1, registry.size());
+	}
+
+	@Test
+	public void testRegisterReplacesOldSession() {
+		registry.register(s1, "robot1");
+		assertSame(s1, registry.register(s2, "robot1"));
+		assertSame(s2, registry.getSession("robot1"));
+		assertNull(registry.getIdentifier(s1));
+		assertEquals("robot1", registry.getIdentifier(s2));
+	}
+
+	@Test
+	public void testRegisterMovesSession() {
+		registry.register(s1, "robot1");
+		registry.register(s1, "robot2");
+		assertNull(registry.getSession("robot1"));
+		assertSame(s1, registry.getSession("robot2"));
+		assertEquals(1, registry.size());
+	}
+
+	@Test
+	public void testDeregisterIdentifier() {
+		registry.register(s1, "robot1");
+		assertSame(s1, registry.deregister("robot1"));
+		assertNull(registry.getSession("robot1"));
+		assertNull(registry.getIdentifier(s1));
+		assertNull(registry.deregister("robot1"));
+	}
+
+	@Test
+	public void testDeregisterSession() {
+		registry.register(s1, "robot1");
+		assertEquals("robot1", registry.deregister(s1));
+		assertNull(registry.getSession("robot1"));
+		assertNull(registry.getIdentifier(s1));
+		assertNull(registry.deregister(s1));
+	}
+
+	@Test
+	public void testDeregisterStaleSessionKeepsNewer() {
+		registry.register(s1, "robot1");
+		registry.register(s2, "robot1");
+		registry.deregister(s1);
+		assertSame(s2, registry.getSession("robot1"));
+		assertEquals("robot1", registry.getIdentifier(s2));
+	}
+
+	@Test
+	public void testReconnectStorm() throws InterruptedException {
+		final int robots = 5000;
+		final int threads = 8;
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		final CountDownLatch start = new CountDownLatch(1);
+		final DummySession[] latest = new DummySession[robots];
+		for (int t = 0; t < threads; t++) {
+			final int offset = t;
+			pool.execute(() -> {
+				try {
+					start.await();
+				} catch (InterruptedException e) {
+					return;
+				}
+				for (int i = offset; i < robots; i += threads) {
+					DummySession old = new DummySession("old" + i);
+					DummySession current = new DummySession("new" + i);
+					registry.register(old, "robot" + i);
+					registry.register(current, "robot" + i);
+					// the close of the old connection arrives late
+					registry.deregister(old);
+					latest[i] = current;
+				}
+			});
+		}
+		start.countDown();
+		pool.shutdown();
+		assertTrue(pool.awaitTermination(30, TimeUnit.SECONDS));
+
+		assertEquals(robots, registry.size());
+		for (int i = 0; i < robots; i++) {
+			assertSame(latest[i], registry.getSession("robot" + i));
+			assertEquals("robot" + i, registry.getIdentifier(latest[i]));
+		}
+	}
+}
@@ -0,0 +1,338 @@
+package org.jrosbridge.springed.subscription;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.json.Json;
+import javax.json.JsonObject;
+
+import org.jrosbridge.springed.ROSConstants;
+import org.jrosbridge.springed.Ros;
+import org.jrosbridge.springed.Service;
+import org.jrosbridge.springed.Topic;
+import org.jrosbridge.springed.session.DummySession;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+public class TestSubscriptionManager {
+
+	private Ros<String> ros;
+	private RecordingSession session;
+	private SubscriptionManager<String> manager;
+	private SubscriptionKey<String> odom;
+
+	@Before
+	public void setUp() {
+		ros = new Ros<String>() {
+			@Override
+			protected void bootstrapConnection(WebSocketSession session) {
+			}
+		};
+		ros.setWriterExecutor(Runnable::run);
+		session = new RecordingSession("s1");
+		ros.registerSession(session, "r1");
+		manager = ros.getSubscriptionManager();
+		odom = new SubscriptionKey<String>("r1", "/odom",
+				"nav_msgs/Odometry", ROSConstants.CompressionType.none, 0);
+	}
+
+	private List<JsonObject> sent() {
+		return session.calls;
+	}
+
+	/**
+	 * Parses frames when they are sent, their pooled buffers are reused
+	 * afterwards.
+	 */
+	private static class RecordingSession extends DummySession {
+
+		final List<JsonObject> calls = new CopyOnWriteArrayList<JsonObject>();
+
+		RecordingSession(String id) {
+			super(id);
+		}
+
+		@Override
+		public void sendMessage(WebSocketMessage<?> message) throws IOException {
+			super.sendMessage(message);
+			ByteBuffer payload = ((ByteBuffer) message.getPayload())
+					.duplicate();
+			this.calls.add(Json.createReader(
+					new StringReader(StandardCharsets.UTF_8.decode(payload)
+							.toString())).readObject());
+		}
+	}
+
+	@Test
+	public void testKeyEquality() {
+		assertEquals(odom, new SubscriptionKey<String>("r1", "/odom",
+				"nav_msgs/Odometry", ROSConstants.CompressionType.none, 0));
+		assertEquals(odom.hashCode(), new SubscriptionKey<String>("r1",
+				"/odom", "nav_msgs/Odometry",
+				ROSConstants.CompressionType.none, 0).hashCode());
+		assertNotEquals(odom, new SubscriptionKey<String>("r2", "/odom",
+				"nav_msgs/Odometry", ROSConstants.CompressionType.none, 0));
+		assertNotEquals(odom, new SubscriptionKey<String>("r1", "/odom",
+				"nav_msgs/Odometry", ROSConstants.CompressionType.cbor, 0));
+		assertNotEquals(odom, new SubscriptionKey<String>("r1", "/odom",
+				"nav_msgs/Odometry", ROSConstants.CompressionType.none, 10));
+	}
+
+	@Test
+	public void testSubscribeOnce() throws IOException {
+		manager.subscribe(odom);
+		manager.subscribe(odom);
+		manager.subscribe(odom);
+		assertEquals(3, manager.getSubscriberCount(odom));
+		assertEquals(1, session.sent.size());
+
+		JsonObject call = sent().get(0);
+		assertEquals(ROSConstants.OP_CODE_SUBSCRIBE,
+				call.getString(ROSConstants.FIELD_OP));
+		assertEquals("/odom", call.getString(ROSConstants.FIELD_TOPIC));
+		assertEquals("nav_msgs/Odometry",
+				call.getString(ROSConstants.FIELD_TYPE));
+		assertEquals("none", call.getString(ROSConstants.FIELD_COMPRESSION));
+		assertEquals(0, call.getInt(ROSConstants.FIELD_THROTTLE_RATE));
+	}
+
+	@Test
+	public void testUnsubscribeOnLast() throws IOException {
+		manager.subscribe(odom);
+		manager.subscribe(odom);
+		manager.unsubscribe(odom);
+		assertEquals(1, session.sent.size());
+		manager.unsubscribe(odom);
+		assertEquals(2, session.sent.size());
+		assertEquals(0, manager.getSubscriberCount(odom));
+		assertEquals(0, manager.size());
+
+		List<JsonObject> calls = sent();
+		assertEquals(ROSConstants.OP_CODE_UNSUBSCRIBE, calls.get(1)
+				.getString(ROSConstants.FIELD_OP));
+		assertEquals(calls.get(0).getString(ROSConstants.FIELD_ID), calls
+				.get(1).getString(ROSConstants.FIELD_ID));
+
+		// extra unsubscribes are ignored
+		manager.unsubscribe(odom);
+		assertEquals(2, session.sent.size());
+	}
+
+	@Test
+	public void testType() throws IOException {
+		assertNull(manager.getType("r1", "/odom"));
+		manager.subscribe(odom);
+		SubscriptionKey<String> throttled = new SubscriptionKey<String>("r1",
+				"/odom", "nav_msgs/Odometry",
+				ROSConstants.CompressionType.none, 100);
+		manager.subscribe(throttled);
+		assertEquals("nav_msgs/Odometry", manager.getType("r1", "/odom"));
+		assertNull(manager.getType("r2", "/odom"));
+		assertNull(manager.getType(null, "/odom"));
+
+		// kept while another subscription of the topic is left
+		manager.unsubscribe(odom);
+		assertEquals("nav_msgs/Odometry", manager.getType("r1", "/odom"));
+		manager.unsubscribe(throttled);
+		assertNull(manager.getType("r1", "/odom"));
+	}
+
+	@Test
+	public void testTypeConflict() throws IOException {
+		manager.subscribe(odom);
+		SubscriptionKey<String> other = new SubscriptionKey<String>("r1",
+				"/odom", "geometry_msgs/PoseStamped",
+				ROSConstants.CompressionType.none, 0);
+		manager.subscribe(other);
+		// no type is known while two are subscribed
+		assertNull(manager.getType("r1", "/odom"));
+
+		manager.unsubscribe(odom);
+		assertEquals("geometry_msgs/PoseStamped",
+				manager.getType("r1", "/odom"));
+		manager.unsubscribe(other);
+		assertNull(manager.getType("r1", "/odom"));
+	}
+
+	@Test
+	public void testResubscribeUsesNewId() throws IOException {
+		manager.subscribe(odom);
+		manager.unsubscribe(odom);
+		manager.subscribe(odom);
+		List<JsonObject> calls = sent();
+		assertEquals(3, calls.size());
+		assertNotEquals(calls.get(0).getString(ROSConstants.FIELD_ID), calls
+				.get(2).getString(ROSConstants.FIELD_ID));
+	}
+
+	@Test
+	public void testDifferentKeys() throws IOException {
+		manager.subscribe(odom);
+		manager.subscribe(new SubscriptionKey<String>("r1", "/odom",
+				"nav_msgs/Odometry", ROSConstants.CompressionType.none, 100));
+		assertEquals(2, session.sent.size());
+		assertEquals(2, manager.getSubscriptions("r1").size());
+		assertTrue(manager.getSubscriptions("r2").isEmpty());
+	}
+
+	@Test
+	public void testSubscriptionsOfRobotFollowUnsubscribe() throws IOException {
+		manager.subscribe(odom);
+		assertEquals(Arrays.asList(odom), manager.getSubscriptions("r1"));
+		manager.unsubscribe(odom);
+		assertTrue(manager.getSubscriptions("r1").isEmpty());
+		manager.subscribe(odom);
+		assertEquals(Arrays.asList(odom), manager.getSubscriptions("r1"));
+	}
+
+	@Test
+	public void testSubscribeNotConnected() {
+		SubscriptionKey<String> other = new SubscriptionKey<String>("r2",
+				"/odom", "nav_msgs/Odometry",
+				ROSConstants.CompressionType.none, 0);
+		try {
+			manager.subscribe(other);
+			fail();
+		} catch (IllegalArgumentException | IOException e) {
+			// expected
+		}
+		assertEquals(0, manager.getSubscriberCount(other));
+		assertEquals(0, manager.size());
+		assertTrue(manager.getSubscriptions("r2").isEmpty());
+	}
+
+	@Test
+	public void testConcurrentSubscribers() throws Exception {
+		ExecutorService pool = Executors.newFixedThreadPool(8);
+		try {
+			CountDownLatch start = new CountDownLatch(1);
+			List<Future<?>> futures = new ArrayList<Future<?>>();
+			for (int i = 0; i < 8; i++) {
+				futures.add(pool.submit(() -> {
+					start.await();
+					for (int j = 0; j < 500; j++) {
+						manager.subscribe(odom);
+						manager.unsubscribe(odom);
+					}
+					manager.subscribe(odom);
+					return null;
+				}));
+			}
+			start.countDown();
+			for (Future<?> f : futures) {
+				f.get();
+			}
+		} finally {
+			pool.shutdown();
+		}
+		assertEquals(8, manager.getSubscriberCount(odom));
+
+		// every subscribe id is unsubscribed at most once, and one is left
+		int subscribes = 0, unsubscribes = 0;
+		for (JsonObject call : sent()) {
+			if (ROSConstants.OP_CODE_SUBSCRIBE.equals(call
+					.getString(ROSConstants.FIELD_OP))) {
+				subscribes++;
+			} else {
+				unsubscribes++;
+			}
+		}
+		assertEquals(subscribes - 1, unsubscribes);
+	}
+
+	@Test
+	public void testReplayOnReconnect() throws IOException {
+		manager.subscribe(odom);
+		manager.subscribe(odom);
+		Topic<String> cmd = new Topic<String>(ros, "r1", "/cmd_vel",
+				"geometry_msgs/Twist");
+		cmd.advertise();
+		Service<String> srv = new Service<String>(ros, "r1", "/plan",
+				"nav_msgs/GetPlan");
+		srv.advertiseService(request -> {
+		});
+		String subscribeId = sent().get(0).getString(ROSConstants.FIELD_ID);
+
+		ros.deregisterSession("r1");
+		RecordingSession reconnected = new RecordingSession("s2");
+		ros.registerSession(reconnected, "r1");
+
+		// one burst: advertisements in order, then the shared subscription
+		assertEquals(3, reconnected.calls.size());
+		assertEquals(ROSConstants.OP_CODE_ADVERTISE, reconnected.calls.get(0)
+				.getString(ROSConstants.FIELD_OP));
+		assertEquals(ROSConstants.OP_CODE_ADVERTISE_SERVICE,
+				reconnected.calls.get(1).getString(ROSConstants.FIELD_OP));
+		JsonObject subscribe = reconnected.calls.get(2);
+		assertEquals(ROSConstants.OP_CODE_SUBSCRIBE,
+				subscribe.getString(ROSConstants.FIELD_OP));
+		assertEquals(subscribeId, subscribe.getString(ROSConstants.FIELD_ID));
+		assertEquals(2, manager.getSubscriberCount(odom));
+
+		// what was given up is not restored
+		cmd.unadvertise();
+		srv.unadvertiseService();
+		manager.unsubscribe(odom);
+		manager.unsubscribe(odom);
+		ros.deregisterSession("r1");
+		RecordingSession again = new RecordingSession("s3");
+		ros.registerSession(again, "r1");
+		assertTrue(again.calls.isEmpty());
+	}
+
+	@Test
+	public void testUnsubscribeWhileOffline() throws IOException {
+		Topic<String> topic = new Topic<String>(ros, "r1", "/odom",
+				"nav_msgs/Odometry");
+		topic.subscribe(message -> {
+		});
+		topic.subscribeRaw((message, stamp) -> {
+		});
+		assertEquals(2, manager.size());
+
+		ros.deregisterSession("r1");
+		topic.unsubscribe();
+		assertFalse(topic.isSubscribed());
+		assertEquals(0, manager.size());
+		assertNull(manager.getType("r1", "/odom"));
+
+		// the subscriptions given up while offline are not restored
+		RecordingSession reconnected = new RecordingSession("s2");
+		ros.registerSession(reconnected, "r1");
+		assertTrue(reconnected.calls.isEmpty());
+	}
+
+	@Test
+	public void testManifestIsPerRobot() {
+		AdvertisementManifest<String> manifest = new AdvertisementManifest<String>();
+		JsonObject advertise = Json.createObjectBuilder()
+				.add(ROSConstants.FIELD_OP, ROSConstants.OP_CODE_ADVERTISE)
+				.add(ROSConstants.FIELD_TOPIC, "/cmd_vel").build();
+		manifest.add("r1", "/cmd_vel", advertise);
+		manifest.add("r1", "/cmd_vel", advertise);
+		manifest.add("r2", "/cmd_vel", advertise);
+		assertEquals(1, manifest.getAdvertisements("r1").size());
+		assertEquals(2, manifest.size());
+		// a service of the same name is a different entry
+		manifest.remove("r1", ROSConstants.OP_CODE_ADVERTISE_SERVICE,
+				"/cmd_vel");
+		assertEquals(1, manifest.getAdvertisements("r1").size());
+		manifest.remove("r1", ROSConstants.OP_CODE_ADVERTISE, "/cmd_vel");
+		assertTrue(manifest.getAdvertisements("r1").isEmpty());
+		assertEquals(1, manifest.size());
+	}
+}